@@ -0,0 +1,211 @@
+package org.goplanit.io.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.goplanit.network.MacroscopicNetwork;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.network.layer.MacroscopicNetworkLayer;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
+import org.goplanit.utils.network.layer.physical.Link;
+import org.goplanit.utils.network.layer.physical.Node;
+import org.goplanit.utils.zoning.Zone;
+import org.goplanit.zoning.Zoning;
+
+/**
+ * Index of network (and optionally zoning) entities by their external id. External ids are not guaranteed to be unique, so each external id
+ * maps to all entities carrying it, in the order of the layers and containers they reside in. The index per entity type is built lazily on first
+ * lookup and reused afterwards. The index is therefore a snapshot: it reflects the network (and zoning) at the time of the first lookup per entity
+ * type and is not updated when entities are added or removed or external ids change afterwards. After such modifications, call {@link #reset()} or
+ * create a new index.
+ * <p>
+ * Thread safe.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitExternalIdIndex {
+
+  /** network to index */
+  private final MacroscopicNetwork network;
+
+  /** zoning to index, may be null */
+  private final Zoning zoning;
+
+  /** nodes by external id, lazily built */
+  private Map<String, List<Node>> nodesByExternalId;
+
+  /** links by external id, lazily built */
+  private Map<String, List<Link>> linksByExternalId;
+
+  /** link segments by external id, lazily built */
+  private Map<String, List<MacroscopicLinkSegment>> linkSegmentsByExternalId;
+
+  /** zones (od and transfer) by external id, lazily built */
+  private Map<String, List<Zone>> zonesByExternalId;
+
+  /**
+   * Create index over all entities of the given containers by external id. Entities without external id are not indexed
+   *
+   * @param <E> type of entity
+   * @param containers to index
+   * @param externalIdGetter to collect external id of entity
+   * @return index
+   */
+  private static <E> Map<String, List<E>> createIndex(final Iterable<? extends Iterable<? extends E>> containers, final Function<E, String> externalIdGetter) {
+    final Map<String, List<E>> index = new HashMap<>();
+    for(Iterable<? extends E> container : containers) {
+      for(E entity : container) {
+        String externalId = externalIdGetter.apply(entity);
+        if(externalId != null) {
+          index.computeIfAbsent(externalId, id -> new ArrayList<>(1)).add(entity);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Collect entities registered under the external id
+   *
+   * @param <E> type of entity
+   * @param index to look in
+   * @param externalId to look for
+   * @return entities, empty if none
+   */
+  private static <E> List<E> lookup(final Map<String, List<E>> index, final String externalId) {
+    List<E> entities = index.get(externalId);
+    return entities == null ? Collections.emptyList() : Collections.unmodifiableList(entities);
+  }
+
+  /**
+   * Collect the containers of the given type across all layers of the network
+   *
+   * @param <C> type of container
+   * @param containerGetter to collect container from layer
+   * @return containers
+   */
+  private <C> List<C> collectLayerContainers(final Function<MacroscopicNetworkLayer, C> containerGetter) {
+    final List<C> containers = new ArrayList<>(network.getTransportLayers().size());
+    for(MacroscopicNetworkLayer layer : network.getTransportLayers()) {
+      containers.add(containerGetter.apply(layer));
+    }
+    return containers;
+  }
+
+  /** Constructor for indexing network entities only
+   *
+   * @param network to index
+   */
+  public PlanitExternalIdIndex(final MacroscopicNetwork network) {
+    this(network, null);
+  }
+
+  /** Constructor
+   *
+   * @param network to index
+   * @param zoning to index, may be null in which case zones cannot be looked up
+   */
+  public PlanitExternalIdIndex(final MacroscopicNetwork network, final Zoning zoning) {
+    PlanItRunTimeException.throwIfNull(network, "Network to create external id index for is null");
+    this.network = network;
+    this.zoning = zoning;
+  }
+
+  /**
+   * Collect all nodes with the given external id
+   *
+   * @param externalId to look for
+   * @return nodes, empty if none
+   */
+  public synchronized List<Node> getNodesByExternalId(final String externalId) {
+    if(nodesByExternalId == null) {
+      nodesByExternalId = createIndex(collectLayerContainers(MacroscopicNetworkLayer::getNodes), Node::getExternalId);
+    }
+    return lookup(nodesByExternalId, externalId);
+  }
+
+  /**
+   * Collect all links with the given external id
+   *
+   * @param externalId to look for
+   * @return links, empty if none
+   */
+  public synchronized List<Link> getLinksByExternalId(final String externalId) {
+    if(linksByExternalId == null) {
+      linksByExternalId = createIndex(collectLayerContainers(MacroscopicNetworkLayer::getLinks), Link::getExternalId);
+    }
+    return lookup(linksByExternalId, externalId);
+  }
+
+  /**
+   * Collect all link segments with the given external id
+   *
+   * @param externalId to look for
+   * @return link segments, empty if none
+   */
+  public synchronized List<MacroscopicLinkSegment> getLinkSegmentsByExternalId(final String externalId) {
+    if(linkSegmentsByExternalId == null) {
+      linkSegmentsByExternalId = createIndex(collectLayerContainers(MacroscopicNetworkLayer::getLinkSegments), MacroscopicLinkSegment::getExternalId);
+    }
+    return lookup(linkSegmentsByExternalId, externalId);
+  }
+
+  /**
+   * Collect all zones, od zones first followed by transfer zones, with the given external id
+   *
+   * @param externalId to look for
+   * @return zones, empty if none
+   */
+  public synchronized List<Zone> getZonesByExternalId(final String externalId) {
+    PlanItRunTimeException.throwIfNull(zoning, "No zoning available in external id index, unable to look up zones");
+    if(zonesByExternalId == null) {
+      zonesByExternalId = createIndex(List.<Iterable<? extends Zone>>of(zoning.getOdZones(), zoning.getTransferZones()), Zone::getExternalId);
+    }
+    return lookup(zonesByExternalId, externalId);
+  }
+
+  /**
+   * Collect the first link segment with the given external id
+   *
+   * @param externalId to look for
+   * @return first link segment, null if none
+   */
+  public MacroscopicLinkSegment getFirstLinkSegmentByExternalId(final String externalId) {
+    List<MacroscopicLinkSegment> linkSegments = getLinkSegmentsByExternalId(externalId);
+    return linkSegments.isEmpty() ? null : linkSegments.get(0);
+  }
+
+  /**
+   * The indexed network
+   *
+   * @return network
+   */
+  public MacroscopicNetwork getNetwork() {
+    return network;
+  }
+
+  /**
+   * The indexed zoning
+   *
+   * @return zoning, null if not present
+   */
+  public Zoning getZoning() {
+    return zoning;
+  }
+
+  /**
+   * Discard all built indices such that they are rebuilt on the next lookup
+   */
+  public synchronized void reset() {
+    nodesByExternalId = null;
+    linksByExternalId = null;
+    linkSegmentsByExternalId = null;
+    zonesByExternalId = null;
+  }
+}
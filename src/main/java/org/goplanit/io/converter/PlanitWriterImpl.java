@@ -10,7 +10,8 @@ import java.util.logging.Logger;
 import org.goplanit.converter.*;
 import org.goplanit.converter.idmapping.*;
 import org.goplanit.utils.exceptions.PlanItRunTimeException;
-import org.goplanit.xml.utils.JAXBUtils;
+import org.goplanit.io.xml.util.PlanitCompressionCodec;
+import org.goplanit.io.xml.util.PlanitJaxbCache;
 import org.goplanit.io.xml.util.PlanitSchema;
 import org.goplanit.io.xml.util.PlanitXmlWriterSettings;
 import org.goplanit.utils.exceptions.PlanItException;
@@ -62,13 +63,12 @@ public abstract class PlanitWriterImpl<T> extends CrsWriterImpl<T>{
   }
 
   /**
-   * Persist the populated XML memory model to disk using JAXb
+   * Create the path of the file to persist to based on the XML writer settings, including the suffix of the compression codec (if any), and
+   * create its directory if it does not yet exist
    * 
-   * @param xmlRootElement to persist from
-   * @param rootElementClazz the type of the root element object
-   * @param planitSchemaName schema the XML complies with
+   * @return path of the file to persist to
    */
-  protected void persist(final Object xmlRootElement, final Class<?> rootElementClazz, final String planitSchemaName) {
+  protected Path createOutputPath() {
     PlanitXmlWriterSettings xmlWriterSettings = getSettingsAsXmlWriterSettings();
 
     PlanItRunTimeException.throwIf(
@@ -76,7 +76,7 @@ public abstract class PlanitWriterImpl<T> extends CrsWriterImpl<T>{
     PlanItRunTimeException.throwIf(
         xmlWriterSettings.getFileName()==null || xmlWriterSettings.getFileName().isBlank(), "no output file name provided, unable to persist in native Planit XML format");
     Path outputDir = Paths.get(xmlWriterSettings.getOutputDirectory());
-    Path outputPath = Paths.get(xmlWriterSettings.getOutputDirectory(), xmlWriterSettings.getFileName());
+    Path outputPath = Paths.get(xmlWriterSettings.getOutputDirectory(), getCompressionCodec().appendFileSuffix(xmlWriterSettings.getFileName()));
     
     /* try to create the directory if it does not exist */
     
@@ -89,15 +89,46 @@ public abstract class PlanitWriterImpl<T> extends CrsWriterImpl<T>{
       LOGGER.severe(e.getMessage());
       throw new PlanItRunTimeException(String.format("Unable to create output directory for %s", Paths.get(xmlWriterSettings.getOutputDirectory()).toAbsolutePath()));
     }
-    
+    return outputPath;
+  }
+
+  /**
+   * Compression codec to persist with based on the XML writer settings
+   * 
+   * @return codec, NONE when not set
+   */
+  protected PlanitCompressionCodec getCompressionCodec() {
+    PlanitXmlWriterSettings xmlWriterSettings = getSettingsAsXmlWriterSettings();
+    return xmlWriterSettings.getCompressionCodec() == null ? PlanitCompressionCodec.NONE : xmlWriterSettings.getCompressionCodec();
+  }
+
+  /**
+   * Persist the populated XML memory model to disk using JAXb, reusing the cached JAXB context and a pooled marshaller for the root element
+   * 
+   * @param xmlRootElement to persist from
+   * @param rootElementClazz the type of the root element object
+   * @param planitSchemaName schema the XML complies with
+   */
+  protected void persist(final Object xmlRootElement, final Class<?> rootElementClazz, final String planitSchemaName) {
+    Path outputPath = createOutputPath();
     try {      
-      JAXBUtils.generateXmlFileFromObject(xmlRootElement, rootElementClazz, outputPath, PlanitSchema.createPlanitSchemaUri(planitSchemaName));
+      PlanitJaxbCache.marshal(xmlRootElement, rootElementClazz, outputPath, PlanitSchema.createPlanitSchemaUri(planitSchemaName), 
+          getCompressionCodec(), getSettingsAsXmlWriterSettings().getCompressionLevel());
     }catch(Exception e) {
       LOGGER.severe(e.getMessage());
       throw new PlanItRunTimeException("Unable to persist PLANit network in native format");
     }
   }
 
+  /**
+   * Populate the id mappers that are not yet available, e.g., not set as parent id mappers, based on the id mapper type without persisting. This
+   * allows the (primary) id mappers of this writer to be passed on as parent id mappers to other writers before this writer has persisted, they
+   * are not replaced when writing
+   */
+  public void initialiseIdMappers() {
+    getComponentIdMappers().populateMissingIdMappers(getIdMapperType());
+  }
+
   /** Constructor
    * 
    * @param idMapperType to use
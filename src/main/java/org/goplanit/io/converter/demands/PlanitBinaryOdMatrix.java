@@ -0,0 +1,263 @@
+package org.goplanit.io.converter.demands;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.goplanit.od.demand.OdDemandMatrix;
+import org.goplanit.od.demand.OdDemands;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.zoning.OdZone;
+import org.goplanit.utils.zoning.Zone;
+
+/**
+ * Binary persistence format for a single od demand matrix, i.e., the demand of one (time period, user class) combination. Each matrix
+ * is stored in a separate file alongside the XML demands, named after the XML ids of the demands, time period and user class it belongs to,
+ * see {@link #createFileName(String, String, String)}. This way the demand configuration in the XML demands identifies the matrices
+ * while the values themselves are not formatted as text.
+ * <p>
+ * Layout (little endian): magic number, version, storage type, number of zones, the zone XML ids (length prefixed UTF-8) in matrix order, followed by
+ * either the dense row major matrix values, or the number of non-zero cells followed by the origin positions, destination positions and values
+ * of all non-zero cells. Values are in vehicles per hour, consistent with the XML od matrices. The writer picks whichever storage type results in
+ * the smallest file.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public final class PlanitBinaryOdMatrix {
+
+  /** magic number at the start of each binary od matrix file, "PODM" */
+  private static final int MAGIC = 0x504F444D;
+
+  /** current version of the format */
+  private static final int VERSION = 1;
+
+  /** dense, row major, storage of all cells */
+  private static final byte DENSE = 0;
+
+  /** sparse storage of non-zero cells only */
+  private static final byte SPARSE = 1;
+
+  /** size of buffer used for writing values */
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+  /** file extension of binary od matrix files */
+  public static final String FILE_EXTENSION = ".odbin";
+
+  /** Constructor, not to be instantiated */
+  private PlanitBinaryOdMatrix() {
+  }
+
+  /**
+   * Write the buffer to the channel completely and clear it for reuse
+   *
+   * @param buffer to write
+   * @param channel to write to
+   * @throws IOException thrown if error
+   */
+  private static void flush(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Ensure the buffer has at least the given number of bytes remaining, flushing it when needed
+   *
+   * @param buffer to verify
+   * @param channel to flush to
+   * @param bytes required
+   * @throws IOException thrown if error
+   */
+  private static void ensureRemaining(final ByteBuffer buffer, final FileChannel channel, final int bytes) throws IOException {
+    if(buffer.remaining() < bytes) {
+      flush(buffer, channel);
+    }
+  }
+
+  /**
+   * Create the file name of the binary od matrix for the given demands, time period and user class
+   *
+   * @param demandsXmlId XML id of the demands
+   * @param timePeriodXmlId XML id of the time period
+   * @param userClassXmlId XML id of the user class
+   * @return file name
+   */
+  public static String createFileName(final String demandsXmlId, final String timePeriodXmlId, final String userClassXmlId) {
+    return String.join("_", demandsXmlId, timePeriodXmlId, userClassXmlId).concat(FILE_EXTENSION);
+  }
+
+  /**
+   * Write the od demands to a binary od matrix file
+   *
+   * @param file to write to, overwritten if it exists
+   * @param odDemands to write (in pcu/h)
+   * @param odZones zones in the order to persist them
+   * @param zoneIdMapper to create zone references with
+   * @param pcu of the mode of the user class, used to convert to veh/h
+   * @return total demand in veh/h
+   */
+  public static double write(final Path file, final OdDemands odDemands, final List<OdZone> odZones, final Function<Zone, String> zoneIdMapper, final double pcu) {
+    final int numberOfZones = odZones.size();
+
+    /* collect non-zero cells once, in row major order, both storage types are written from these */
+    int numberOfNonZeroCells = 0;
+    int[] origins = new int[Math.max(16, numberOfZones)];
+    int[] destinations = new int[origins.length];
+    double[] valuesVehH = new double[origins.length];
+    double totalVehH = 0;
+    for(int originIndex = 0; originIndex < numberOfZones; ++originIndex) {
+      final OdZone origin = odZones.get(originIndex);
+      for(int destinationIndex = 0; destinationIndex < numberOfZones; ++destinationIndex) {
+        double value = odDemands.getValue(origin, odZones.get(destinationIndex));
+        if(value == 0) {
+          continue;
+        }
+        if(numberOfNonZeroCells == origins.length) {
+          PlanItRunTimeException.throwIf(origins.length >= Integer.MAX_VALUE / 2, "Too many non-zero cells to persist od matrix to %s", file);
+          origins = Arrays.copyOf(origins, 2 * origins.length);
+          destinations = Arrays.copyOf(destinations, origins.length);
+          valuesVehH = Arrays.copyOf(valuesVehH, origins.length);
+        }
+        origins[numberOfNonZeroCells] = originIndex;
+        destinations[numberOfNonZeroCells] = destinationIndex;
+        valuesVehH[numberOfNonZeroCells] = value / pcu;
+        totalVehH += valuesVehH[numberOfNonZeroCells];
+        ++numberOfNonZeroCells;
+      }
+    }
+
+    /* determine most compact storage type */
+    final long denseBytes = (long) numberOfZones * numberOfZones * Double.BYTES;
+    final long sparseBytes = Integer.BYTES + (long) numberOfNonZeroCells * (2 * Integer.BYTES + Double.BYTES);
+    final byte storage = sparseBytes < denseBytes ? SPARSE : DENSE;
+
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+      /* header */
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.put(storage);
+      buffer.putInt(numberOfZones);
+      for(OdZone odZone : odZones) {
+        byte[] zoneRef = zoneIdMapper.apply(odZone).getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(buffer, channel, Integer.BYTES + zoneRef.length);
+        buffer.putInt(zoneRef.length);
+        buffer.put(zoneRef);
+      }
+
+      /* values */
+      if(storage == DENSE) {
+        /* cells are in row major order, so zeros are filled in between consecutive non-zero cells */
+        int cellIndex = 0;
+        for(int originIndex = 0; originIndex < numberOfZones; ++originIndex) {
+          for(int destinationIndex = 0; destinationIndex < numberOfZones; ++destinationIndex) {
+            double valueVehH = 0;
+            if(cellIndex < numberOfNonZeroCells && origins[cellIndex] == originIndex && destinations[cellIndex] == destinationIndex) {
+              valueVehH = valuesVehH[cellIndex++];
+            }
+            ensureRemaining(buffer, channel, Double.BYTES);
+            buffer.putDouble(valueVehH);
+          }
+        }
+      }else {
+        ensureRemaining(buffer, channel, Integer.BYTES);
+        buffer.putInt(numberOfNonZeroCells);
+        /* each array is contiguous on disk so it can be read in bulk */
+        for(int index = 0; index < numberOfNonZeroCells; ++index) {
+          ensureRemaining(buffer, channel, Integer.BYTES);
+          buffer.putInt(origins[index]);
+        }
+        for(int index = 0; index < numberOfNonZeroCells; ++index) {
+          ensureRemaining(buffer, channel, Integer.BYTES);
+          buffer.putInt(destinations[index]);
+        }
+        for(int index = 0; index < numberOfNonZeroCells; ++index) {
+          ensureRemaining(buffer, channel, Double.BYTES);
+          buffer.putDouble(valuesVehH[index]);
+        }
+      }
+      flush(buffer, channel);
+    }catch(IOException e) {
+      throw new PlanItRunTimeException(String.format("Unable to write binary od matrix %s", file), e);
+    }
+    return totalVehH;
+  }
+
+  /**
+   * Read a binary od matrix file by memory mapping it and populate the od demand matrix with its values
+   *
+   * @param file to read
+   * @param odDemandMatrix to populate (in pcu/h)
+   * @param zoneResolver to resolve persisted zone references with
+   * @param pcu of the mode of the user class, used to convert from veh/h
+   */
+  public static void read(final Path file, final OdDemandMatrix odDemandMatrix, final Function<String, Zone> zoneResolver, final double pcu) {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      PlanItRunTimeException.throwIf(channel.size() > Integer.MAX_VALUE, "Binary od matrix %s exceeds the maximum supported size of 2GB", file);
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+      /* header */
+      PlanItRunTimeException.throwIf(mapped.getInt() != MAGIC, "File %s is not a binary od matrix", file);
+      int version = mapped.getInt();
+      PlanItRunTimeException.throwIf(version != VERSION, "Binary od matrix %s has version %d, only version %d is supported", file, version, VERSION);
+      final byte storage = mapped.get();
+
+      /* zones */
+      final int numberOfZones = mapped.getInt();
+      final OdZone[] odZones = new OdZone[numberOfZones];
+      for(int index = 0; index < numberOfZones; ++index) {
+        byte[] zoneRef = new byte[mapped.getInt()];
+        mapped.get(zoneRef);
+        String zoneXmlId = new String(zoneRef, StandardCharsets.UTF_8);
+        Zone zone = zoneResolver.apply(zoneXmlId);
+        PlanItRunTimeException.throwIf(!(zone instanceof OdZone), "Od zone %s referenced in binary od matrix %s not available", zoneXmlId, file);
+        odZones[index] = (OdZone) zone;
+      }
+
+      /* values */
+      if(storage == DENSE) {
+        final DoubleBuffer values = mapped.asDoubleBuffer();
+        final double[] row = new double[numberOfZones];
+        for(int originIndex = 0; originIndex < numberOfZones; ++originIndex) {
+          values.get(row);
+          for(int destinationIndex = 0; destinationIndex < numberOfZones; ++destinationIndex) {
+            odDemandMatrix.setValue(odZones[originIndex], odZones[destinationIndex], row[destinationIndex] * pcu);
+          }
+        }
+      }else if(storage == SPARSE) {
+        final int numberOfCells = mapped.getInt();
+        final int[] origins = new int[numberOfCells];
+        final int[] destinations = new int[numberOfCells];
+        final double[] values = new double[numberOfCells];
+        IntBuffer intBuffer = mapped.asIntBuffer();
+        intBuffer.get(origins);
+        intBuffer.get(destinations);
+        mapped.position(mapped.position() + 2 * numberOfCells * Integer.BYTES);
+        mapped.asDoubleBuffer().get(values);
+        for(int index = 0; index < numberOfCells; ++index) {
+          odDemandMatrix.setValue(odZones[origins[index]], odZones[destinations[index]], values[index] * pcu);
+        }
+      }else {
+        throw new PlanItRunTimeException(String.format("Unknown storage type in binary od matrix %s", file));
+      }
+    }catch(IOException e) {
+      throw new PlanItRunTimeException(String.format("Unable to read binary od matrix %s", file), e);
+    }
+  }
+}
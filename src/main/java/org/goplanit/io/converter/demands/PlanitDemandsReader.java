@@ -7,7 +7,9 @@ import org.goplanit.demands.Demands;
 import org.goplanit.demands.DemandsModifierUtils;
 import org.goplanit.io.converter.zoning.PlanitZoningReader;
 import org.goplanit.io.input.PlanItInputBuilder;
+import org.goplanit.io.xml.util.DelimitedDoubleTokenizer;
 import org.goplanit.io.xml.util.PlanitXmlJaxbParser;
+import org.goplanit.io.xml.util.PlanitXmlStreamParser;
 import org.goplanit.network.LayeredNetwork;
 import org.goplanit.network.MacroscopicNetwork;
 import org.goplanit.od.demand.OdDemandMatrix;
@@ -28,6 +30,8 @@ import org.goplanit.xml.generated.*;
 import org.goplanit.xml.generated.XMLElementOdRawMatrix.Values;
 import org.goplanit.zoning.Zoning;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,6 +55,22 @@ public class PlanitDemandsReader extends BaseReaderImpl<Demands> implements Dema
   /** parses the xml content in JAXB memory format */
   private final PlanitXmlJaxbParser<XMLElementMacroscopicDemand> xmlParser;
 
+  /* XML element and attribute names used when streaming */
+  private static final String DEMANDS_ELEMENT = "macroscopicdemand";
+  private static final String DEMANDCONFIGURATION_ELEMENT = "demandconfiguration";
+  private static final String ODDEMANDS_ELEMENT = "oddemands";
+  private static final String ODCELLBYCELLMATRIX_ELEMENT = "odcellbycellmatrix";
+  private static final String ODROWMATRIX_ELEMENT = "odrowmatrix";
+  private static final String ODRAWMATRIX_ELEMENT = "odrawmatrix";
+  private static final String ODROW_ELEMENT = "odrow";
+  private static final String ORIGIN_ELEMENT = "o";
+  private static final String DESTINATION_ELEMENT = "d";
+  private static final String ID_ATTRIBUTE = "id";
+  private static final String REF_ATTRIBUTE = "ref";
+  private static final String DS_ATTRIBUTE = "ds";
+  private static final String USERCLASSREF_ATTRIBUTE = "userclassref";
+  private static final String TIMEPERIODREF_ATTRIBUTE = "timeperiodref";
+
   /**
    * Initialise event listeners in case we want to make changes to the XML ids after parsing is complete, e.g., if the parsed
    * demands is going to be modified and saved to disk afterwards, then it is advisable to sync all XML ids to the internal ids upon parsing
@@ -464,7 +484,16 @@ public class PlanitDemandsReader extends BaseReaderImpl<Demands> implements Dema
   protected void populateDemandConfiguration() throws PlanItException {
     
     /* configuration element */
-    final XMLElementDemandConfiguration demandconfiguration = xmlParser.getXmlRootElement().getDemandconfiguration();
+    populateDemandConfiguration(xmlParser.getXmlRootElement().getDemandconfiguration());
+  }
+
+  /**
+   * Sets up all the configuration data from the XML demand configuration element
+   *
+   * @param demandconfiguration to extract from
+   * @throws PlanItException thrown if there is a duplicate XML Id found for any component
+   */
+  protected void populateDemandConfiguration(final XMLElementDemandConfiguration demandconfiguration) throws PlanItException {
     
     generateAndStoreTravelerTypes(demandconfiguration);
     generateAndStoreUserClasses(demandconfiguration);
@@ -477,28 +506,21 @@ public class PlanitDemandsReader extends BaseReaderImpl<Demands> implements Dema
    * @throws PlanItException thrown if error 
    */
   protected void populateDemandContents() throws PlanItException {
+    if(xmlParser.getXmlRootElement().getOddemands() == null) {
+      LOGGER.info("No od matrices found in XML demands");
+      return;
+    }
     final List<XMLElementOdMatrix> oddemands = xmlParser.getXmlRootElement().getOddemands().getOdcellbycellmatrixOrOdrowmatrixOrOdrawmatrix();
         
     /* od matrix */
     for (final XMLElementOdMatrix xmlOdMatrix : oddemands) {
       
       /* user class ref */
-      UserClass userClass = null;  
-      if(xmlOdMatrix.getUserclassref() == null) {
-        PlanItException.throwIf(demands.userClasses.size()>1,"user class must be explicitly set on od matrix when more than one user class exists");
-        userClass = demands.userClasses.getFirst();
-      }else {
-        final String userClassXmlIdRef = xmlOdMatrix.getUserclassref();
-        userClass = getBySourceId(UserClass.class, userClassXmlIdRef);        
-      }
-      PlanItException.throwIf(userClass==null, "referenced user class on od matrix not available");
+      final UserClass userClass = resolveOdMatrixUserClass(xmlOdMatrix.getUserclassref());
       final Mode mode = userClass.getMode();
       
       /* time period ref */
-      final String timePeriodXmlIdRef = xmlOdMatrix.getTimeperiodref();
-      PlanItException.throwIf(timePeriodXmlIdRef==null, "time period must always be referenced on od matrix");
-      final TimePeriod timePeriod = getBySourceId(TimePeriod.class, timePeriodXmlIdRef);
-      PlanItException.throwIf(timePeriod==null, "referenced time period on od matrix not available");
+      final TimePeriod timePeriod = resolveOdMatrixTimePeriod(xmlOdMatrix.getTimeperiodref());
       
       /* create od matrix instance */
       var odZones = getReferenceZoning().getOdZones();
@@ -506,12 +528,285 @@ public class PlanitDemandsReader extends BaseReaderImpl<Demands> implements Dema
       /* populate */
       populateDemandMatrix(xmlOdMatrix, mode.getPcu(), odDemandMatrix, odZones);
       /* register */
-      OdDemands duplicate = demands.registerOdDemandPcuHour(timePeriod, mode, odDemandMatrix);
-      if(duplicate != null) {
-        throw new PlanItException(String.format("Multiple OD demand matrix encountered for mode-time period combination %s:%s this is not allowed",mode.getXmlId(), timePeriod.getXmlId()));
-      }
+      registerOdDemandMatrix(timePeriod, mode, odDemandMatrix);
     }
   }  
+
+  /**
+   * Populate the od matrices persisted as binary files alongside the XML demands, see {@link PlanitBinaryOdMatrix}. For each combination of time period
+   * and user class of the demand configuration, the matching file in the input directory (if any) is memory mapped and its values are registered.
+   * A binary od matrix for a combination that already has an od matrix, e.g., parsed from the XML demands, is not allowed. Only applied when
+   * activated on the settings, see {@link PlanitDemandsReaderSettings#setBinaryOdMatrices(boolean)}
+   * 
+   * @throws PlanItException thrown if error, or if a binary od matrix conflicts with an already parsed od matrix
+   */
+  protected void populateBinaryOdMatrices() throws PlanItException {
+    if(!settings.isBinaryOdMatrices() || settings.getInputDirectory() == null) {
+      return;
+    }
+
+    var odZones = getReferenceZoning().getOdZones();
+    for(TimePeriod timePeriod : demands.timePeriods) {
+      for(UserClass userClass : demands.userClasses) {
+        final Path binaryOdMatrixFile = Path.of(settings.getInputDirectory(),
+            PlanitBinaryOdMatrix.createFileName(demands.getXmlId(), timePeriod.getXmlId(), userClass.getXmlId()));
+        if(!Files.isRegularFile(binaryOdMatrixFile)) {
+          continue;
+        }
+        final Mode mode = userClass.getMode();
+        PlanItException.throwIf(demands.get(mode, timePeriod) != null,
+            "Binary od matrix %s conflicts with od matrix already parsed for mode-time period combination %s:%s, a combination may only be provided once",
+            binaryOdMatrixFile.getFileName(), mode.getXmlId(), timePeriod.getXmlId());
+        LOGGER.info(String.format("Parsing binary od matrix %s", binaryOdMatrixFile.getFileName()));
+        
+        OdDemandMatrix odDemandMatrix = new OdDemandMatrix(odZones);
+        PlanitBinaryOdMatrix.read(binaryOdMatrixFile, odDemandMatrix, zoneXmlId -> getBySourceId(Zone.class, zoneXmlId), mode.getPcu());
+        registerOdDemandMatrix(timePeriod, mode, odDemandMatrix);
+      }
+    }
+  }
+
+  /**
+   * Resolve the user class referenced by an od matrix
+   *
+   * @param userClassXmlIdRef reference, may be null when only a single user class exists
+   * @return user class
+   * @throws PlanItException thrown if not available
+   */
+  protected UserClass resolveOdMatrixUserClass(final String userClassXmlIdRef) throws PlanItException {
+    UserClass userClass = null;
+    if(userClassXmlIdRef == null) {
+      PlanItException.throwIf(demands.userClasses.size()>1,"user class must be explicitly set on od matrix when more than one user class exists");
+      userClass = demands.userClasses.getFirst();
+    }else {
+      userClass = getBySourceId(UserClass.class, userClassXmlIdRef);
+    }
+    PlanItException.throwIf(userClass==null, "referenced user class on od matrix not available");
+    return userClass;
+  }
+
+  /**
+   * Resolve the time period referenced by an od matrix
+   *
+   * @param timePeriodXmlIdRef reference
+   * @return time period
+   * @throws PlanItException thrown if not available
+   */
+  protected TimePeriod resolveOdMatrixTimePeriod(final String timePeriodXmlIdRef) throws PlanItException {
+    PlanItException.throwIf(timePeriodXmlIdRef==null, "time period must always be referenced on od matrix");
+    final TimePeriod timePeriod = getBySourceId(TimePeriod.class, timePeriodXmlIdRef);
+    PlanItException.throwIf(timePeriod==null, "referenced time period on od matrix not available");
+    return timePeriod;
+  }
+
+  /**
+   * Register a populated od demand matrix on the demands
+   *
+   * @param timePeriod of the matrix
+   * @param mode of the matrix
+   * @param odDemandMatrix to register
+   * @throws PlanItException thrown if a matrix is already registered for the same time period and mode
+   */
+  protected void registerOdDemandMatrix(final TimePeriod timePeriod, final Mode mode, final OdDemandMatrix odDemandMatrix) throws PlanItException {
+    OdDemands duplicate = demands.registerOdDemandPcuHour(timePeriod, mode, odDemandMatrix);
+    if(duplicate != null) {
+      throw new PlanItException(String.format("Multiple OD demand matrix encountered for mode-time period combination %s:%s this is not allowed",mode.getXmlId(), timePeriod.getXmlId()));
+    }
+  }
+
+  /**
+   * Stream the od cell-by-cell matrix values directly into the od demand matrix
+   *
+   * @param streamParser positioned at the start of the odcellbycellmatrix element
+   * @param pcu number of PCUs for current mode of travel
+   * @param odDemandMatrix to populate
+   * @throws Exception thrown if error
+   */
+  private void streamOdCellByCellMatrix(final PlanitXmlStreamParser streamParser, final double pcu, final OdDemandMatrix odDemandMatrix) throws Exception {
+    final double[] cellValue = new double[1];
+    final var tokenizer = new DelimitedDoubleTokenizer(PlanItInputBuilder.DEFAULT_SEPARATOR.charAt(0), (index, value) -> cellValue[0] = value);
+
+    streamParser.enterElement();
+    while(streamParser.nextChildElement()) {
+      if(!streamParser.isStartElement(ORIGIN_ELEMENT)) {
+        streamParser.skipElement();
+        continue;
+      }
+      final Zone originZone = getBySourceId(Zone.class, streamParser.getAttributeValue(REF_ATTRIBUTE));
+      PlanItException.throwIfNull(originZone, String.format("Origin zone %s referenced in od matrix not available", streamParser.getAttributeValue(REF_ATTRIBUTE)));
+
+      streamParser.enterElement();
+      while(streamParser.nextChildElement()) {
+        if(!streamParser.isStartElement(DESTINATION_ELEMENT)) {
+          streamParser.skipElement();
+          continue;
+        }
+        final Zone destinationZone = getBySourceId(Zone.class, streamParser.getAttributeValue(REF_ATTRIBUTE));
+        PlanItException.throwIfNull(destinationZone, String.format("Destination zone %s referenced in od matrix not available", streamParser.getAttributeValue(REF_ATTRIBUTE)));
+
+        tokenizer.reset();
+        streamParser.streamElementText(tokenizer);
+        PlanItException.throwIf(tokenizer.complete() != 1, "Od cell for origin %s and destination %s does not contain a single value", originZone.getXmlId(), destinationZone.getXmlId());
+        odDemandMatrix.setValue(originZone, destinationZone, cellValue[0] * pcu);
+      }
+    }
+  }
+
+  /**
+   * Stream the od row matrix values directly into the od demand matrix. Row values are tokenized while being read, so no row strings
+   * are constructed.
+   * <p>
+   * The destination of each value follows the order of the rows, which is only known once all rows have been read. Values are therefore
+   * provisionally registered on the od zone with the same position in the zoning and only when the row order turns out to differ,
+   * the matrix is permuted accordingly afterwards (one row at a time).
+   * </p>
+   *
+   * @param streamParser positioned at the start of the odrowmatrix element
+   * @param pcu number of PCUs for current mode of travel
+   * @param odDemandMatrix to populate
+   * @param odZones of the reference zoning
+   * @throws Exception thrown if error
+   */
+  private void streamOdRowMatrix(
+      final PlanitXmlStreamParser streamParser, final double pcu, final OdDemandMatrix odDemandMatrix, final Zones<OdZone> odZones) throws Exception {
+    final String separator = streamParser.getAttributeValue(DS_ATTRIBUTE) == null ? PlanItInputBuilder.DEFAULT_SEPARATOR : streamParser.getAttributeValue(DS_ATTRIBUTE);
+    PlanItException.throwIf(separator.length() != 1, "Streaming od row matrix requires single character separator, found %s", separator);
+
+    final List<Zone> provisionalDestinations = new ArrayList<>(odZones.size());
+    for(var odZone : odZones) {
+      provisionalDestinations.add(odZone);
+    }
+
+    final List<Zone> rowOrigins = new ArrayList<>(odZones.size());
+    final Zone[] currentOrigin = new Zone[1];
+    final var tokenizer = new DelimitedDoubleTokenizer(separator.charAt(0), (index, value) -> {
+      if(index >= provisionalDestinations.size()) {
+        throw new PlanItRunTimeException("Od row for origin %s contains more values than available od zones", currentOrigin[0].getXmlId());
+      }
+      odDemandMatrix.setValue(currentOrigin[0], provisionalDestinations.get(index), value * pcu);
+    });
+
+    int maxValuesPerRow = 0;
+    streamParser.enterElement();
+    while(streamParser.nextChildElement()) {
+      if(!streamParser.isStartElement(ODROW_ELEMENT)) {
+        streamParser.skipElement();
+        continue;
+      }
+      final Zone originZone = getBySourceId(Zone.class, streamParser.getAttributeValue(REF_ATTRIBUTE));
+      PlanItException.throwIfNull(originZone, String.format("Origin zone %s referenced in od row matrix not available", streamParser.getAttributeValue(REF_ATTRIBUTE)));
+      currentOrigin[0] = originZone;
+      rowOrigins.add(originZone);
+
+      tokenizer.reset();
+      streamParser.streamElementText(tokenizer);
+      maxValuesPerRow = Math.max(maxValuesPerRow, tokenizer.complete());
+    }
+    PlanItException.throwIf(maxValuesPerRow > rowOrigins.size(), "Od row matrix contains rows with more values (%d) than there are rows (%d)", maxValuesPerRow, rowOrigins.size());
+
+    /* align provisional destinations with row ordering (if needed) */
+    boolean aligned = true;
+    for(int index = 0; index < rowOrigins.size() && aligned; ++index) {
+      aligned = rowOrigins.get(index).equals(provisionalDestinations.get(index));
+    }
+    if(aligned) {
+      return;
+    }
+
+    final double[] rowValues = new double[rowOrigins.size()];
+    for(var originZone : rowOrigins) {
+      for(int index = 0; index < rowValues.length; ++index) {
+        rowValues[index] = odDemandMatrix.getValue(originZone, provisionalDestinations.get(index));
+        odDemandMatrix.setValue(originZone, provisionalDestinations.get(index), 0.0);
+      }
+      for(int index = 0; index < rowValues.length; ++index) {
+        odDemandMatrix.setValue(originZone, rowOrigins.get(index), rowValues[index]);
+      }
+    }
+  }
+
+  /**
+   * Stream the od matrices directly from file into the PLANit od demand matrices
+   *
+   * @param streamParser positioned at the start of the oddemands element
+   * @throws Exception thrown if error
+   */
+  private void streamDemandContents(final PlanitXmlStreamParser streamParser) throws Exception {
+    var odZones = getReferenceZoning().getOdZones();
+
+    streamParser.enterElement();
+    while(streamParser.nextChildElement()) {
+      final String matrixElementName = streamParser.getLocalName();
+      if(ODRAWMATRIX_ELEMENT.equals(matrixElementName)) {
+        throw new PlanItRunTimeException("Unable to use ODRaw persistence , see https://github.com/TrafficPLANit/PLANitIO/issues/31");
+      }
+      if(!ODCELLBYCELLMATRIX_ELEMENT.equals(matrixElementName) && !ODROWMATRIX_ELEMENT.equals(matrixElementName)) {
+        streamParser.skipElement();
+        continue;
+      }
+
+      /* user class, time period ref */
+      final UserClass userClass = resolveOdMatrixUserClass(streamParser.getAttributeValue(USERCLASSREF_ATTRIBUTE));
+      final Mode mode = userClass.getMode();
+      final TimePeriod timePeriod = resolveOdMatrixTimePeriod(streamParser.getAttributeValue(TIMEPERIODREF_ATTRIBUTE));
+
+      /* create and populate od matrix instance */
+      OdDemandMatrix odDemandMatrix = new OdDemandMatrix(odZones);
+      if(ODCELLBYCELLMATRIX_ELEMENT.equals(matrixElementName)) {
+        streamOdCellByCellMatrix(streamParser, mode.getPcu(), odDemandMatrix);
+      }else {
+        streamOdRowMatrix(streamParser, mode.getPcu(), odDemandMatrix, odZones);
+      }
+
+      /* register */
+      registerOdDemandMatrix(timePeriod, mode, odDemandMatrix);
+    }
+  }
+
+  /**
+   * Stream the demands from file rather than unmarshalling the entire XML demands in memory first
+   *
+   * @throws Exception thrown if error
+   */
+  private void streamDemands() throws Exception {
+    try(PlanitXmlStreamParser streamParser = new PlanitXmlStreamParser(XMLElementMacroscopicDemand.class, DEMANDS_ELEMENT)){
+      boolean located = streamParser.initialiseAndLocateRootElement(settings.getInputDirectory(), settings.getXmlFileExtension());
+      PlanItRunTimeException.throwIf(!located, "No valid PLANit XML demands could be found to stream, abort");
+
+      /* xml id */
+      parseDemandsXmlId(streamParser.getAttributeValue(ID_ATTRIBUTE));
+
+      boolean configurationParsed = false;
+      streamParser.enterElement();
+      while(streamParser.nextChildElement()) {
+        switch (streamParser.getLocalName()) {
+          case DEMANDCONFIGURATION_ELEMENT:
+            populateDemandConfiguration(streamParser.unmarshalElement(XMLElementDemandConfiguration.class));
+            configurationParsed = true;
+            break;
+          case ODDEMANDS_ELEMENT:
+            PlanItException.throwIf(!configurationParsed, "demandconfiguration element expected before oddemands element");
+            streamDemandContents(streamParser);
+            break;
+          default:
+            streamParser.skipElement();
+        }
+      }
+    }
+  }
+
+  /**
+   * Set the demands XML id, in absence of an XML id, the internal id is adopted
+   *
+   * @param demandsXmlId as parsed, may be null
+   */
+  private void parseDemandsXmlId(String demandsXmlId) {
+    if(StringUtils.isNullOrBlank(demandsXmlId)) {
+      LOGGER.warning(String.format("Demands has no XML id defined, adopting internally generated id %d instead",demands.getId()));
+      demandsXmlId = String.valueOf(demands.getId());
+    }
+    demands.setXmlId(demandsXmlId);
+  }
   
   /** Reference to demand schema location TODO: move to properties file*/
   public static final String DEMAND_XSD_FILE = "https://trafficplanit.github.io/PLANitManual/xsd/macroscopicdemandinput.xsd";  
@@ -602,21 +897,29 @@ public class PlanitDemandsReader extends BaseReaderImpl<Demands> implements Dema
       initialiseParentXmlIdTrackers(getReferenceNetwork(), getReferenceZoning());
       initialiseXmlIdTrackers();
       
-      xmlParser.initialiseAndParseXmlRootElement(settings.getInputDirectory(), settings.getXmlFileExtension());
-      
-      /* xml id */
-      String demandsXmlId = xmlParser.getXmlRootElement().getId();
-      if(StringUtils.isNullOrBlank(demandsXmlId)) {
-        LOGGER.warning(String.format("Demands has no XML id defined, adopting internally generated id %d instead",demands.getId()));
-        demandsXmlId = String.valueOf(demands.getId());
+      /* streaming mode is only available when reading from file, not when raw XML demands are provided */
+      if(settings.isStreamingParse() && xmlParser.getXmlRootElement() == null) {
+        
+        /* configuration and demands while streaming */
+        streamDemands();
+        
+        /* demands persisted in binary od matrices */
+        populateBinaryOdMatrices();
+      }else {
+        xmlParser.initialiseAndParseXmlRootElement(settings.getInputDirectory(), settings.getXmlFileExtension());
+        
+        /* xml id */
+        parseDemandsXmlId(xmlParser.getXmlRootElement().getId());
+        
+        /* configuration */
+        populateDemandConfiguration();
+        
+        /* demands */
+        populateDemandContents();
+        
+        /* demands persisted in binary od matrices */
+        populateBinaryOdMatrices();
       }
-      demands.setXmlId(demandsXmlId);        
-      
-      /* configuration */
-      populateDemandConfiguration();
-      
-      /* demands */
-      populateDemandContents();
 
       if(getSettings().isSyncXmlIdsToIds()){
         syncXmlIdsToIds();
@@ -13,6 +13,18 @@ import org.goplanit.zoning.Zoning;
  */
 public class PlanitDemandsReaderSettings extends PlanitXmlReaderSettings implements ConverterReaderSettings {
 
+  /** flag indicating if demands are to be parsed in streaming mode, i.e., without materialising the entire JAXB memory model */
+  private boolean streamingParse = DEFAULT_STREAMING_PARSE;
+
+  /** by default the entire XML demands are unmarshalled before populating the PLANit demands */
+  public static boolean DEFAULT_STREAMING_PARSE = false;
+
+  /** flag indicating if binary od matrices in the input directory are parsed in addition to the XML demands */
+  private boolean binaryOdMatrices = DEFAULT_BINARY_OD_MATRICES;
+
+  /** by default binary od matrices are not parsed, only the XML demands */
+  public static boolean DEFAULT_BINARY_OD_MATRICES = false;
+
   /**
    * {@inheritDoc}
    */
@@ -34,4 +46,44 @@ public class PlanitDemandsReaderSettings extends PlanitXmlReaderSettings impleme
     super(inputDirectory, xmlFileExtension);
   }
 
+  /**
+   * Verify if demands are parsed in streaming mode
+   *
+   * @return true when streaming, false otherwise
+   */
+  public boolean isStreamingParse() {
+    return streamingParse;
+  }
+
+  /**
+   * Determine if demands are parsed in streaming mode. When streaming, od matrix values are tokenized directly from the input
+   * into the PLANit od demand matrices, so neither the JAXB memory model of the demands nor the intermediate (row) strings are constructed.
+   * Recommended for large od matrices
+   *
+   * @param streamingParse when true streaming is activated, false otherwise
+   */
+  public void setStreamingParse(boolean streamingParse) {
+    this.streamingParse = streamingParse;
+  }
+
+  /**
+   * Verify if binary od matrices in the input directory are parsed in addition to the XML demands
+   *
+   * @return true when parsed, false otherwise
+   */
+  public boolean isBinaryOdMatrices() {
+    return binaryOdMatrices;
+  }
+
+  /**
+   * Determine if binary od matrices (see {@link PlanitBinaryOdMatrix}) in the input directory are parsed in addition to the XML demands, as
+   * persisted by the demands writer when binary od matrices are activated on its settings. Only files named after the demands, time period and
+   * user class are parsed
+   *
+   * @param binaryOdMatrices when true binary od matrices are parsed, false otherwise
+   */
+  public void setBinaryOdMatrices(boolean binaryOdMatrices) {
+    this.binaryOdMatrices = binaryOdMatrices;
+  }
+
 }
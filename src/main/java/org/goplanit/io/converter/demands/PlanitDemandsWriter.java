@@ -1,24 +1,32 @@
 package org.goplanit.io.converter.demands;
 
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalTime;
 import java.util.*;
-import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.goplanit.converter.idmapping.DemandsIdMapper;
 import org.goplanit.converter.idmapping.IdMapperType;
 import org.goplanit.converter.demands.DemandsWriter;
 import org.goplanit.demands.Demands;
 import org.goplanit.io.converter.PlanitWriterImpl;
+import org.goplanit.io.xml.util.PlanitJaxbCache;
 import org.goplanit.io.xml.util.PlanitSchema;
+import org.goplanit.io.xml.util.PlanitXmlStreamWriter;
 import org.goplanit.od.demand.OdDemands;
 import org.goplanit.userclass.UserClass;
 import org.goplanit.utils.exceptions.PlanItException;
 import org.goplanit.utils.exceptions.PlanItRunTimeException;
 import org.goplanit.utils.mode.Mode;
 import org.goplanit.utils.time.TimePeriod;
+import org.goplanit.utils.zoning.OdZone;
 import org.goplanit.xml.generated.*;
 import org.goplanit.zoning.Zoning;
 
@@ -45,6 +53,42 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
   /** track user classes per mode as this is not yet supported 100%, so we need to identify if an unsupported situation is provided */
   private final Map<Mode,Set<UserClass>> userClassesPerMode;
 
+  /** od zones sorted by the ordering used for persisting zones, sorted once per write */
+  private List<OdZone> sortedOdZones;
+
+  /** buffer reused for the values of each od row */
+  private final StringBuilder odRowBuffer;
+
+  /** od row matrices to stream, in order of appearance in the XML memory model, only used when streaming */
+  private final List<StreamedOdRowMatrix> streamedOdRowMatrices;
+
+  /**
+   * An od demands entry of which the od rows are streamed to file upon persisting
+   */
+  private static final class StreamedOdRowMatrix {
+
+    /** od demands entry to stream */
+    private final OdDemands odDemandsEntry;
+
+    /** time period of entry */
+    private final TimePeriod timePeriod;
+
+    /** user class of entry */
+    private final UserClass userClass;
+
+    /** Constructor
+     * 
+     * @param odDemandsEntry to stream
+     * @param timePeriod of entry
+     * @param userClass of entry
+     */
+    private StreamedOdRowMatrix(final OdDemands odDemandsEntry, final TimePeriod timePeriod, final UserClass userClass) {
+      this.odDemandsEntry = odDemandsEntry;
+      this.timePeriod = timePeriod;
+      this.userClass = userClass;
+    }
+  }
+
   /** Populate the demands configuration's time periods
    * 
    * @param demands to populate XML with
@@ -180,13 +224,42 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
     
   }
 
+  /** Visit the od rows of a single OdDemands entry, in the ordering used for persisting zones. The values of each row are provided in a
+   * reused buffer, so they must be consumed before the next row is visited
+   * 
+   * @param odDemandsEntry to visit
+   * @param userClass used
+   * @param odRowConsumer consumes the origin zone ref and the separated values (veh/h) of each row
+   * @return totalTrips in veh/h in this od demand entry
+   */
+  private double forEachOdRow(final OdDemands odDemandsEntry, final UserClass userClass, final BiConsumer<String, CharSequence> odRowConsumer) {
+    final var zoneIdMapper = getComponentIdMappers().getZoningIdMappers().getZoneIdMapper();
+    final var doubleFormatter = settings.getDoubleFormatter();
+    final String destinationSeparator = settings.getDestinationSeparator();
+    final double pcu = userClass.getMode().getPcu();
+
+    double totalTripDemandVehH = 0;
+    for(var originZone : sortedOdZones) {
+      odRowBuffer.setLength(0);
+      for(var destinationZone : sortedOdZones) {
+        /* convert back to veh/h from PcuH */
+        double valueVehH = odDemandsEntry.getValue(originZone, destinationZone)/pcu;
+        totalTripDemandVehH += valueVehH;
+        doubleFormatter.appendTo(valueVehH, odRowBuffer);
+        odRowBuffer.append(destinationSeparator);
+      }
+      odRowConsumer.accept(zoneIdMapper.apply(originZone), odRowBuffer);
+    }
+    return totalTripDemandVehH;
+  }
+
   /** Populate a single OdDemands entry for a given mode and time period in the XML odrow format
    * 
-   * @param odDemandsEntry to populate XML with
+   * @param odDemandsEntry to populate XML with, null when its od rows are streamed instead
    * @param timePeriod  used
    * @param userClass used
    * @param xmlOdDemandsEntry to populate
-   * @return totalTrips in veh/h in this od demand entry
+   * @return totalTrips in veh/h in this od demand entry, zero when streamed
    */
   private double populateXmlOdRowMatrix(final OdDemands odDemandsEntry, TimePeriod timePeriod, UserClass userClass, final XMLElementOdRowMatrix xmlOdDemandsEntry) {
     
@@ -201,35 +274,35 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
     /* destination separator */
     xmlOdDemandsEntry.setDs(settings.getDestinationSeparator());
 
-    var xmlOdRowsList = xmlOdDemandsEntry.getOdrow();
-
-    final DoubleAdder totalTripDemandVehH = new DoubleAdder();
-    final var zoneIdMapper = getComponentIdMappers().getZoningIdMappers().getZoneIdMapper();
-    /* stream sorted by the ordering used for persisting zones */
-    this.referenceZoning.getOdZones().streamSortedBy(zoneIdMapper).forEach( originZone -> {
+    if(odDemandsEntry == null) {
+      return 0;
+    }
 
+    var xmlOdRowsList = xmlOdDemandsEntry.getOdrow();
+    return forEachOdRow(odDemandsEntry, userClass, (originRef, values) -> {
       /* odrow */
       var xmlOdRow = new XMLElementOdRowMatrix.Odrow();
-
-      /* (origin zoning) ref */
-      xmlOdRow.setRef(zoneIdMapper.apply(originZone));
-
-      final var sb = new StringBuilder();
-      this.referenceZoning.getOdZones().streamSortedBy(zoneIdMapper).forEach( destinationZone -> {
-
-        /* convert back to veh/h from PcuH */
-        double valueVehH = odDemandsEntry.getValue(originZone, destinationZone)/userClass.getMode().getPcu();
-        totalTripDemandVehH.add(valueVehH);
-        sb.append(settings.getDecimalFormat().format(valueVehH));
-        sb.append(settings.getDestinationSeparator());
-      });
-
-      xmlOdRow.setValue(sb.toString());
+      xmlOdRow.setRef(originRef);
+      xmlOdRow.setValue(values.toString());
       xmlOdRowsList.add(xmlOdRow);
-
     });
+  }
 
-    return totalTripDemandVehH.doubleValue();
+  /** Persist a single OdDemands entry for a given time period and user class as binary od matrix file in the output directory, rather
+   * than in the XML demands
+   * 
+   * @param demands the entry belongs to
+   * @param odDemandsEntry to persist
+   * @param timePeriod used
+   * @param userClass used
+   * @return totalTrips in veh/h in this od demand entry
+   */
+  private double persistBinaryOdMatrix(final Demands demands, final OdDemands odDemandsEntry, TimePeriod timePeriod, UserClass userClass) {
+    final var zoneIdMapper = getComponentIdMappers().getZoningIdMappers().getZoneIdMapper();
+    final String fileName = PlanitBinaryOdMatrix.createFileName(
+        demands.getXmlId(), getPrimaryIdMapper().getTimePeriodIdMapper().apply(timePeriod), getPrimaryIdMapper().getUserClassIdMapper().apply(userClass));
+    return PlanitBinaryOdMatrix.write(
+        Paths.get(getSettings().getOutputDirectory(), fileName), odDemandsEntry, sortedOdZones, zone -> zoneIdMapper.apply(zone), userClass.getMode().getPcu());
   }
 
   /** Populate the actual OD Demands
@@ -249,23 +322,98 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
           //      that it relies on internal ids, which may or may not be mapped to the XML id causing the user to not be able to determine
           //      what cell the values correspond to. By using the row matrix, the order of the rows and the ref value, allows inferring the col refs even
           //      though they are not explicitly provided as the amtrix is symmetrical
-          var xmlOdDemandEntryMatrix = new XMLElementOdRowMatrix();
-          xmlOdDemands.getOdcellbycellmatrixOrOdrowmatrixOrOdrawmatrix().add(xmlOdDemandEntryMatrix);
-          
           if(userClassesPerMode.containsKey(mode) && userClassesPerMode.get(mode).size()>1) {
             //TODO: od matrices are stored per mode, not per user class (in memory), but XML format defines them per user class, so unless they are all defined
             // 1:1 we do not properly support this yet
             throw new PlanItRunTimeException("PLANit demands writer does not yet support multiple user-classes per mode");
           }
-          
           var userClass = userClassesPerMode.get(mode).iterator().next();
-          double odDemandVehH = populateXmlOdRowMatrix(odDemandsEntry, timePeriod, userClass, xmlOdDemandEntryMatrix);
-          LOGGER.info(String.format("OD demands matrix: total trips %.2f (veh/h)  %.2f pcu factor , timePeriod: %s, user-class %s",odDemandVehH, userClass.getMode().getPcu(), timePeriod.toString(), userClass.toString()));
+
+          double odDemandVehH;
+          if(getSettings().isBinaryOdMatrices()) {
+            odDemandVehH = persistBinaryOdMatrix(demands, odDemandsEntry, timePeriod, userClass);
+          }else if(getSettings().isStreaming()) {
+            /* placeholder, od rows are streamed to file upon persisting */
+            var xmlOdDemandEntryMatrix = new XMLElementOdRowMatrix();
+            xmlOdDemands.getOdcellbycellmatrixOrOdrowmatrixOrOdrawmatrix().add(xmlOdDemandEntryMatrix);
+            populateXmlOdRowMatrix(null, timePeriod, userClass, xmlOdDemandEntryMatrix);
+            streamedOdRowMatrices.add(new StreamedOdRowMatrix(odDemandsEntry, timePeriod, userClass));
+            return;
+          }else {
+            var xmlOdDemandEntryMatrix = new XMLElementOdRowMatrix();
+            xmlOdDemands.getOdcellbycellmatrixOrOdrowmatrixOrOdrawmatrix().add(xmlOdDemandEntryMatrix);
+            odDemandVehH = populateXmlOdRowMatrix(odDemandsEntry, timePeriod, userClass, xmlOdDemandEntryMatrix);
+          }
+          logOdDemandsTotal(odDemandVehH, timePeriod, userClass);
         }
       });
     });
   }
 
+  /** Log the total trips of an od demands entry
+   * 
+   * @param odDemandVehH total trips in veh/h
+   * @param timePeriod used
+   * @param userClass used
+   */
+  private static void logOdDemandsTotal(double odDemandVehH, TimePeriod timePeriod, UserClass userClass) {
+    LOGGER.info(String.format("OD demands matrix: total trips %.2f (veh/h)  %.2f pcu factor , timePeriod: %s, user-class %s",odDemandVehH, userClass.getMode().getPcu(), timePeriod.toString(), userClass.toString()));
+  }
+
+  /** Write the od rows of the next streamed od row matrix in place of its empty placeholder on the StAX writer, other empty elements are
+   * left as is
+   * 
+   * @param localName of the empty element
+   * @param parentLocalName of the empty element
+   * @param xmlWriter to write with
+   * @param streamedOdRowMatrixIterator providing the streamed od row matrices in order of appearance
+   */
+  private void writeStreamedOdRows(
+      final String localName, final String parentLocalName, final PlanitXmlStreamWriter xmlWriter, final Iterator<StreamedOdRowMatrix> streamedOdRowMatrixIterator) {
+    if(!"odrowmatrix".equals(localName) || !"oddemands".equals(parentLocalName)) {
+      return;
+    }
+    PlanItRunTimeException.throwIf(!streamedOdRowMatrixIterator.hasNext(), "Placeholder od row matrix without streamed od demands when streaming PLANit demands");
+
+    final var streamedOdRowMatrix = streamedOdRowMatrixIterator.next();
+    final var userClass = streamedOdRowMatrix.userClass;
+    double odDemandVehH = forEachOdRow(streamedOdRowMatrix.odDemandsEntry, userClass, (originRef, values) -> {
+      try {
+        xmlWriter.writeStartElement("odrow");
+        xmlWriter.writeAttribute("ref", originRef);
+        xmlWriter.writeCharacters(values);
+        xmlWriter.writeEndElement();
+      }catch(XMLStreamException e) {
+        throw new PlanItRunTimeException(String.format("Unable to stream od row of origin %s", originRef), e);
+      }
+    });
+    logOdDemandsTotal(odDemandVehH, streamedOdRowMatrix.timePeriod, userClass);
+  }
+
+  /** Persist the demands by marshalling the XML memory model, which holds empty placeholders for each od row matrix, onto a StAX writer
+   * that writes the od rows in their place
+   * 
+   * @param schemaName to reference
+   */
+  private void persistStreaming(final String schemaName) {
+    final Path outputPath = createOutputPath();
+    try(OutputStream outputStream = getCompressionCodec().openOutputStream(outputPath, getSettings().getCompressionLevel())){
+      final PlanitXmlStreamWriter xmlWriter = PlanitXmlStreamWriter.create(outputStream);
+      final Iterator<StreamedOdRowMatrix> streamedOdRowMatrixIterator = streamedOdRowMatrices.iterator();
+      xmlWriter.setEmptyElementHandler(
+          (localName, parentLocalName, writer) -> writeStreamedOdRows(localName, parentLocalName, writer, streamedOdRowMatrixIterator));
+
+      PlanitJaxbCache.marshal(xmlRawDemands, XMLElementMacroscopicDemand.class, xmlWriter, PlanitSchema.createPlanitSchemaUri(schemaName));
+      xmlWriter.close();
+      PlanItRunTimeException.throwIf(streamedOdRowMatrixIterator.hasNext(), "Not all od row matrices were streamed when streaming PLANit demands");
+    }catch(PlanItRunTimeException e) {
+      throw e;
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      throw new PlanItRunTimeException(String.format("Unable to stream PLANit demands in native format to %s", outputPath), e);
+    }
+  }
+
   /** Populate the demands configuration
    * 
    * @param demands to populate XML with
@@ -319,6 +467,8 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
     this.referenceZoning = referenceZoning;
     this.xmlRawDemands = xmlRawDemands;
     this.userClassesPerMode = new HashMap<>();
+    this.odRowBuffer = new StringBuilder();
+    this.streamedOdRowMatrices = new ArrayList<>();
   }
 
   /**
@@ -344,6 +494,7 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
     /* initialise */
     {
       getComponentIdMappers().populateMissingIdMappers(getIdMapperType());
+      streamedOdRowMatrices.clear();
       LOGGER.info(String.format("Persisting PLANit demands to: %s", Paths.get(getSettings().getOutputDirectory(), getSettings().getFileName()).toString()));
     }
     
@@ -355,11 +506,16 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
     /* configuration */
     populateXmlDemandConfiguration(demands);
     
-    /* oddemands */
+    /* oddemands, zones sorted once for all od matrices */
+    sortedOdZones = referenceZoning.getOdZones().streamSortedBy(getComponentIdMappers().getZoningIdMappers().getZoneIdMapper()).collect(Collectors.toList());
     populateXmlOdDemands(demands);
         
     /* persist */
-    super.persist(xmlRawDemands, XMLElementMacroscopicDemand.class, PlanitSchema.MACROSCOPIC_ZONING_XSD);
+    if(getSettings().isStreaming() && !getSettings().isBinaryOdMatrices()) {
+      persistStreaming(PlanitSchema.MACROSCOPIC_ZONING_XSD);
+    }else {
+      super.persist(xmlRawDemands, XMLElementMacroscopicDemand.class, PlanitSchema.MACROSCOPIC_ZONING_XSD);
+    }
   }
 
 
@@ -371,6 +527,8 @@ public class PlanitDemandsWriter extends PlanitWriterImpl<Demands> implements De
     xmlRawDemands.setDemandconfiguration(null);
     xmlRawDemands.setId(null);
     xmlRawDemands.setOddemands(null); 
+    sortedOdZones = null;
+    streamedOdRowMatrices.clear();
   }
 
   /**
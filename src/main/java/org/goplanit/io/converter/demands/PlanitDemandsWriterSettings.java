@@ -25,12 +25,24 @@ public class PlanitDemandsWriterSettings extends PlanitXmlWriterSettings impleme
   /** destination separator used in matrix values element */
   private String destinationSeparator = DEFAULT_DESTINATION_SEPARATOR;   
       
+  /** flag indicating if od matrices are persisted in binary files rather than within the XML demands */
+  private boolean binaryOdMatrices = DEFAULT_BINARY_OD_MATRICES;
+
+  /** flag indicating if od rows are streamed to file rather than first being stored in the XML memory model */
+  private boolean streaming = DEFAULT_STREAMING;
+
   /** default origin separator used in matrix values element */
   public static String DEFAULT_ORIGIN_SEPARATOR = " ";
   
   /** default origin separator used in matrix values element */
   public static String DEFAULT_DESTINATION_SEPARATOR = ",";  
 
+  /** by default od matrices are persisted within the XML demands */
+  public static boolean DEFAULT_BINARY_OD_MATRICES = false;
+
+  /** by default od rows are stored in the XML memory model before persisting */
+  public static boolean DEFAULT_STREAMING = false;
+
   /** Validate the settings
    * 
    * @return true when valid, false otherwise
@@ -79,6 +91,7 @@ public class PlanitDemandsWriterSettings extends PlanitXmlWriterSettings impleme
   @Override
   public void reset() {
     super.reset();
+    streaming = DEFAULT_STREAMING;
   }
 
   public String getOriginSeparator() {
@@ -96,5 +109,45 @@ public class PlanitDemandsWriterSettings extends PlanitXmlWriterSettings impleme
   public void setDestinationSeparator(String destinationSeparator) {
     this.destinationSeparator = destinationSeparator;
   }
-  
+
+  /**
+   * Verify if od matrices are persisted as binary files
+   *
+   * @return true when binary, false when persisted in XML
+   */
+  public boolean isBinaryOdMatrices() {
+    return binaryOdMatrices;
+  }
+
+  /**
+   * Determine if od matrices are persisted as binary files, one per time period and user class, alongside the XML demands
+   * (see {@link PlanitBinaryOdMatrix}) rather than as XML od row matrices. Recommended for large od matrices. Reading them back requires
+   * activating binary od matrices on the demands reader settings as well, see {@link PlanitDemandsReaderSettings#setBinaryOdMatrices(boolean)}
+   *
+   * @param binaryOdMatrices when true binary files are used, false otherwise
+   */
+  public void setBinaryOdMatrices(boolean binaryOdMatrices) {
+    this.binaryOdMatrices = binaryOdMatrices;
+  }
+
+  /**
+   * Verify if od rows are streamed to file
+   *
+   * @return true when streamed, false when stored in the XML memory model first
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Determine if od rows are streamed to file while iterating the od matrices rather than first being stored in the XML memory model. This
+   * keeps memory constant regardless of the number of zones, time periods and user classes, the persisted file is identical either way.
+   * Not relevant when od matrices are persisted as binary files
+   *
+   * @param streaming when true od rows are streamed, false otherwise
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
 }
@@ -1,5 +1,9 @@
 package org.goplanit.io.converter.intermodal;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
 import org.goplanit.converter.idmapping.IdMapperType;
 import org.goplanit.converter.intermodal.IntermodalWriter;
 import org.goplanit.io.converter.network.PlanitNetworkWriter;
@@ -9,6 +13,7 @@ import org.goplanit.io.converter.service.*;
 import org.goplanit.io.converter.zoning.PlanitZoningWriter;
 import org.goplanit.io.converter.zoning.PlanitZoningWriterFactory;
 import org.goplanit.io.converter.zoning.PlanitZoningWriterSettings;
+import org.goplanit.io.util.PlanitConcurrentTasks;
 import org.goplanit.network.MacroscopicNetwork;
 import org.goplanit.network.ServiceNetwork;
 import org.goplanit.service.routed.RoutedServices;
@@ -27,6 +32,9 @@ import org.goplanit.zoning.Zoning;
  *
  */
 public class PlanitIntermodalWriter implements IntermodalWriter<ServiceNetwork, RoutedServices> {
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitIntermodalWriter.class.getCanonicalName());
   
   /** intermodal writer settings to use */
   protected final PlanitIntermodalWriterSettings settings;
@@ -49,18 +57,16 @@ public class PlanitIntermodalWriter implements IntermodalWriter<ServiceNetwork,
   protected IdMapperType idMapper;
 
   /**
-   * Persist network and zoning and return writers
+   * Create network and zoning writers with their id mappers initialised, so they can be passed on to dependent writers before persisting
    *
-   * @param macroscopicNetwork to persist
-   * @param zoning to persist
-   * @return used writers, network and zoning, respectively
+   * @return created writers, network and zoning, respectively
    */
-  protected Pair<PlanitNetworkWriter, PlanitZoningWriter> writeNetworkAndZoning(MacroscopicNetwork macroscopicNetwork, Zoning zoning) {
+  protected Pair<PlanitNetworkWriter, PlanitZoningWriter> createNetworkAndZoningWriters() {
     /* network writer */
     PlanitNetworkWriterSettings networkSettings = getSettings().getNetworkSettings();
     PlanitNetworkWriter networkWriter = PlanitNetworkWriterFactory.create(networkSettings.getOutputDirectory(), networkSettings.getCountry(), xmlRawNetwork);
     networkWriter.setIdMapperType(getIdMapperType());
-    networkWriter.write(macroscopicNetwork);
+    networkWriter.initialiseIdMappers();
 
     /* zoning writer - with pt component via transfer zones */
     PlanitZoningWriterSettings zoningSettings = getSettings().getZoningSettings();
@@ -68,11 +74,40 @@ public class PlanitIntermodalWriter implements IntermodalWriter<ServiceNetwork,
             PlanitZoningWriterFactory.create(zoningSettings.getOutputDirectory(), zoningSettings.getCountry());
     zoningWriter.setParentIdMappers(networkWriter.getPrimaryIdMapper()); // pass on parent ref mapping
     zoningWriter.setIdMapperType(getIdMapperType());
-    zoningWriter.write(zoning);
+    zoningWriter.initialiseIdMappers();
 
     return Pair.of(networkWriter, zoningWriter);
   }
 
+  /**
+   * Persist network and zoning and return writers
+   *
+   * @param macroscopicNetwork to persist
+   * @param zoning to persist
+   * @return used writers, network and zoning, respectively
+   */
+  protected Pair<PlanitNetworkWriter, PlanitZoningWriter> writeNetworkAndZoning(MacroscopicNetwork macroscopicNetwork, Zoning zoning) {
+    var networkAndZoningWriter = createNetworkAndZoningWriters();
+    persist(List.of(
+        () -> { networkAndZoningWriter.first().write(macroscopicNetwork); return null; },
+        () -> { networkAndZoningWriter.second().write(zoning); return null; }));
+    return networkAndZoningWriter;
+  }
+
+  /**
+   * Perform the persist tasks. Since writers only depend on each other's id mappers, which are initialised upfront, and not on each other's
+   * persisted files, the tasks are performed concurrently unless the settings restrict the number of write threads to one
+   *
+   * @param persistTasks to perform
+   */
+  protected void persist(final List<Callable<Void>> persistTasks) {
+    final int numberOfWriteThreads = Math.min(getSettings().getNumberOfWriteThreads(), persistTasks.size());
+    if(numberOfWriteThreads > 1) {
+      LOGGER.info(String.format("Persisting %d PLANit intermodal components concurrently using up to %d threads", persistTasks.size(), numberOfWriteThreads));
+    }
+    PlanitConcurrentTasks.invokeAll(persistTasks, numberOfWriteThreads, "persisting PLANit intermodal components");
+  }
+
   /** Constructor 
    * @param outputDirectory to persist on
    * @param countryName to optimise projection for (if available, otherwise ignore)
@@ -121,10 +156,10 @@ public class PlanitIntermodalWriter implements IntermodalWriter<ServiceNetwork,
    */
   @Override
   public void writeWithServices(MacroscopicNetwork macroscopicNetwork, Zoning zoning, ServiceNetwork serviceNetwork, RoutedServices routedServices) throws PlanItException {
-    /* perform persistence without services first */
-    var networkAndZoningWriter = writeNetworkAndZoning(macroscopicNetwork, zoning);
-
-    /* perform persistence for services */
+    /* create all writers and their id mappers first, so persisting does not depend on other writers having persisted */
+    var networkAndZoningWriter = createNetworkAndZoningWriters();
+    var networkIdMapper = networkAndZoningWriter.first().getPrimaryIdMapper();
+    var zoningIdMapper = networkAndZoningWriter.second().getPrimaryIdMapper();
 
     /* service network writer */
     PlanitServiceNetworkWriterSettings serviceNetworkSettings = getSettings().getServiceNetworkSettings();
@@ -133,12 +168,9 @@ public class PlanitIntermodalWriter implements IntermodalWriter<ServiceNetwork,
                     serviceNetworkSettings.getOutputDirectory(), serviceNetworkSettings.getCountry(), xmlRawServiceNetwork);
 
     // service network writer requires physical network id ref mapping and possibly zoning one as well
-    var networkIdMapper = networkAndZoningWriter.first().getPrimaryIdMapper();
-    var zoningIdMapper = networkAndZoningWriter.second().getPrimaryIdMapper();
     serviceNetworkWriter.setParentIdMappers(networkIdMapper, zoningIdMapper);
-
     serviceNetworkWriter.setIdMapperType(getIdMapperType());
-    serviceNetworkWriter.write(serviceNetwork);
+    serviceNetworkWriter.initialiseIdMappers();
 
     /* routed services writer */
     PlanitRoutedServicesWriterSettings routedServicesSettings = getSettings().getRoutedServicesSettings();
@@ -148,9 +180,15 @@ public class PlanitIntermodalWriter implements IntermodalWriter<ServiceNetwork,
 
     // routed services only requires service network entity references, those are present on the service network writer id mappings
     routedServicesWriter.setParentIdMappers(networkIdMapper, zoningIdMapper, serviceNetworkWriter.getPrimaryIdMapper());
-
     routedServicesWriter.setIdMapperType(getIdMapperType());
-    routedServicesWriter.write(routedServices);
+    routedServicesWriter.initialiseIdMappers();
+
+    /* persist */
+    persist(List.of(
+        () -> { networkAndZoningWriter.first().write(macroscopicNetwork); return null; },
+        () -> { networkAndZoningWriter.second().write(zoning); return null; },
+        () -> { serviceNetworkWriter.write(serviceNetwork); return null; },
+        () -> { routedServicesWriter.write(routedServices); return null; }));
   }
 
   /**
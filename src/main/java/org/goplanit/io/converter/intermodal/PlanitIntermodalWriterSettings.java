@@ -27,6 +27,12 @@ public class PlanitIntermodalWriterSettings implements ConverterWriterSettings {
   /** the routed services settings to use */
   protected final PlanitRoutedServicesWriterSettings routedServicesSettings;
 
+  /** maximum number of threads used to persist the network, zoning, service network and routed services concurrently */
+  protected int numberOfWriteThreads = DEFAULT_NUMBER_OF_WRITE_THREADS;
+
+  /** Default maximum number of threads used for persisting concurrently, based on the available processors */
+  public static final int DEFAULT_NUMBER_OF_WRITE_THREADS = Runtime.getRuntime().availableProcessors();
+
   /**
    * Default constructor
    */
@@ -79,6 +85,7 @@ public class PlanitIntermodalWriterSettings implements ConverterWriterSettings {
     getZoningSettings().reset();
     getServiceNetworkSettings().reset();
     getRoutedServicesSettings().reset();
+    numberOfWriteThreads = DEFAULT_NUMBER_OF_WRITE_THREADS;
   }
 
   /** Collect zoning settings
@@ -113,6 +120,25 @@ public class PlanitIntermodalWriterSettings implements ConverterWriterSettings {
     return routedServicesSettings;
   }
 
+  /**
+   * Maximum number of threads used to persist the network, zoning, service network and routed services concurrently
+   *
+   * @return number of write threads
+   */
+  public int getNumberOfWriteThreads() {
+    return numberOfWriteThreads;
+  }
+
+  /**
+   * Set the maximum number of threads used to persist the network, zoning, service network and routed services concurrently. When set to 
+   * one (or less), they are persisted sequentially on the calling thread
+   *
+   * @param numberOfWriteThreads to use
+   */
+  public void setNumberOfWriteThreads(int numberOfWriteThreads) {
+    this.numberOfWriteThreads = numberOfWriteThreads;
+  }
+
   /** Set the outputPathDirectory used on both zoning and (service) network settings
    * 
    * @param outputDirectory to use
@@ -1,18 +1,30 @@
 package org.goplanit.io.converter.network;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import javax.xml.namespace.QName;
+
 import org.goplanit.converter.network.NetworkReaderImpl;
+import org.goplanit.io.converter.PlanitExternalIdIndex;
+import org.goplanit.io.geo.PlanitGmlUtils;
+import org.goplanit.io.util.PlanitConcurrentTasks;
 import org.goplanit.io.xml.network.physical.macroscopic.XmlMacroscopicNetworkLayerHelper;
 import org.goplanit.io.xml.util.xmlEnumConversionUtil;
+import org.goplanit.io.xml.util.PlanitJaxbCache;
 import org.goplanit.io.xml.util.PlanitXmlJaxbParser;
+import org.goplanit.io.xml.util.PlanitXmlRootElementIndex;
+import org.goplanit.io.xml.util.PlanitXmlStreamParser;
 import org.goplanit.mode.ModeFeaturesFactory;
 import org.goplanit.network.MacroscopicNetwork;
 import org.goplanit.network.LayeredNetwork;
@@ -55,6 +67,7 @@ import org.goplanit.xml.generated.XMLElementLinks;
 import org.goplanit.xml.generated.XMLElementMacroscopicNetwork;
 import org.goplanit.xml.generated.XMLElementModes;
 import org.goplanit.xml.generated.XMLElementNodes;
+import org.goplanit.xml.generated.XMLElementPLANit;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -80,6 +93,28 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
           
   /** the network memory model to populate */
   private MacroscopicNetwork network;
+
+  /** external id index of the most recently indexed network, lazily created, see {@link #getExternalIdIndex(MacroscopicNetwork)} */
+  private PlanitExternalIdIndex externalIdIndex;
+
+  /* XML element and attribute names used when streaming */
+  private static final String NETWORK_ELEMENT = "macroscopicnetwork";
+  private static final String ID_ELEMENT = "id";
+  private static final String CONFIGURATION_ELEMENT = "configuration";
+  private static final String INFRASTRUCTURELAYERS_ELEMENT = "infrastructurelayers";
+  private static final String LAYER_ELEMENT = "layer";
+  private static final String LAYERCONFIGURATION_ELEMENT = "layerconfiguration";
+  private static final String NODES_ELEMENT = "nodes";
+  private static final String NODE_ELEMENT = "node";
+  private static final String LINKS_ELEMENT = "links";
+  private static final String LINK_ELEMENT = "link";
+  private static final String ID_ATTRIBUTE = "id";
+  private static final String EXTERNALID_ATTRIBUTE = "externalid";
+  private static final String MODES_ATTRIBUTE = "modes";
+  private static final String SRSNAME_ATTRIBUTE = "srsname";
+
+  /** qualified name of the gml:posList element of link geometries */
+  private static final QName GML_POSLIST_ELEMENT = new QName(PlanitGmlUtils.GML_NAMESPACE_URI, "posList");
     
   /**
    * initialise the XML id trackers, so we can lay indices on the XML id as well for quick lookups
@@ -107,22 +142,45 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
    */
   private void injectMissingDefaultsToRawXmlNetwork() {
     XMLElementMacroscopicNetwork rootElement = xmlParser.getXmlRootElement();
-    if (xmlParser.getXmlRootElement().getConfiguration() == null) {
-      rootElement.setConfiguration(new XMLElementConfiguration());
+    rootElement.setConfiguration(injectMissingDefaultsToXmlConfiguration(rootElement.getConfiguration()));
+   }  
+
+  /**
+   * Update the XML configuration element to include default values for any properties not included in the input file
+   *
+   * @param xmlConfiguration to update, may be null in which case a new configuration is created
+   * @return configuration with defaults injected
+   */
+  private static XMLElementConfiguration injectMissingDefaultsToXmlConfiguration(XMLElementConfiguration xmlConfiguration) {
+    if (xmlConfiguration == null) {
+      xmlConfiguration = new XMLElementConfiguration();
     }
-    
+
     //if no modes defined, create single mode with default values
-    if (rootElement.getConfiguration().getModes() == null) {
-      rootElement.getConfiguration().setModes(new XMLElementModes());
+    if (xmlConfiguration.getModes() == null) {
+      xmlConfiguration.setModes(new XMLElementModes());
       XMLElementModes.Mode xmlElementMode = new XMLElementModes.Mode();
       // default in absence of any modes is the predefined CAR mode
       xmlElementMode.setPredefined(true);
       xmlElementMode.setName(PredefinedModeType.CAR.value());
       xmlElementMode.setId(Mode.DEFAULT_XML_ID);
-      rootElement.getConfiguration().getModes().getMode().add(xmlElementMode);
+      xmlConfiguration.getModes().getMode().add(xmlElementMode);
     }
-           
-   }  
+    return xmlConfiguration;
+  }
+
+  /**
+   * Set the network XML id, in absence of an XML id, the internal id is adopted
+   *
+   * @param networkXmlId as parsed, may be null
+   */
+  private void parseNetworkXmlId(String networkXmlId) {
+    if(StringUtils.isNullOrBlank(networkXmlId)) {
+      LOGGER.warning(String.format("Network has no XML id defined, adopting internally generated id %d instead",network.getId()));
+      networkXmlId = String.valueOf(network.getId());
+    }
+    network.setXmlId(networkXmlId);
+  }
       
   /** parse the usability component of the mode xml element. It is assumed they should be present, if not default values are created
    * @param generatedMode mode to extract information from
@@ -158,10 +216,11 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
   
   /**
    * Reads mode types from input file, register them on the network and also populate mapping based on XML ids
+   *
+   * @param xmlGeneralConfiguration to extract modes from
    */
-  private void parseModes(){
+  private void parseModes(final XMLElementConfiguration xmlGeneralConfiguration){
     
-    final XMLElementConfiguration xmlGeneralConfiguration = xmlParser.getXmlRootElement().getConfiguration();    
     for (XMLElementModes.Mode xmlMode : xmlGeneralConfiguration.getModes().getMode()) {
       
       /* xml id */
@@ -221,10 +280,36 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
    * @throws PlanItException thrown if error
    */
   private CoordinateReferenceSystem parseCoordinateRerefenceSystem(XMLElementInfrastructureLayers xmlLayers) throws PlanItException {
+    return parseCoordinateRerefenceSystem(xmlLayers.getSrsname());
+  }    
+
+  /**
+   * parse the CRS from the srs name or utilise the default if not present
+   *
+   * @param srsName to parse crs from, may be null
+   * @throws PlanItException thrown if error
+   */
+  private CoordinateReferenceSystem parseCoordinateRerefenceSystem(String srsName) throws PlanItException {
     CoordinateReferenceSystem crs = null;
-    crs = PlanitXmlJaxbParser.createPlanitCrs(xmlLayers.getSrsname());
+    crs = PlanitXmlJaxbParser.createPlanitCrs(srsName);
     return crs;
-  }    
+  }
+
+  /**
+   * Verify the supported modes of the layer are not already used by another layer
+   *
+   * @param usedModes so far by other layers, updated with layer's supported modes
+   * @param layer to verify
+   * @throws PlanItException thrown if mode is used in more than one layer
+   */
+  private void validateLayerSupportedModes(Set<Mode> usedModes, NetworkLayer layer) throws PlanItException {
+    int prevSize = usedModes.size();
+    usedModes.addAll(layer.getSupportedModes());
+    if(usedModes.size() != prevSize + layer.getSupportedModes().size()) {
+      /* mode used in other layer already, this is not allowed */
+      throw new PlanItException("modes are only allowed to be used in a single network layer, not multiple, please check your network inputs");
+    }
+  }
   
   /** Parse the various network layers
    * 
@@ -248,12 +333,7 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
       NetworkLayer layer = parseNetworkLayer(xmlLayer, jtsUtils);
       
       /* validate supported modes */
-      int prevSize = usedModes.size();
-      usedModes.addAll(layer.getSupportedModes());
-      if(usedModes.size() != prevSize + layer.getSupportedModes().size()) {
-        /* mode used in other layer already, this is not allowed */
-        throw new PlanItException("modes are only allowed to be used in a single network layer, not multiple, please check your network inputs");
-      }
+      validateLayerSupportedModes(usedModes, layer);
     }    
   }    
   
@@ -269,24 +349,53 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
   private NetworkLayer parseNetworkLayer(XMLElementInfrastructureLayer xmlLayer, PlanitJtsCrsUtils jtsUtils ) throws PlanItException {
     
     /* create layer */
-    MacroscopicNetworkLayer networkLayer = network.getTransportLayers().getFactory().registerNew();
+    MacroscopicNetworkLayer networkLayer = registerNewNetworkLayer(xmlLayer.getId(), xmlLayer.getExternalid(), xmlLayer.getModes());
     
+    /* link segment types */
+    XMLElementLayerConfiguration xmlLayerconfiguration = xmlLayer.getLayerconfiguration();
+    if(xmlLayerconfiguration == null) {
+      xmlLayer.setLayerconfiguration(new XMLElementLayerConfiguration());
+      xmlLayerconfiguration = xmlLayer.getLayerconfiguration();
+    }
+    parseLinkSegmentTypes(xmlLayerconfiguration, networkLayer);
+    
+    /* parse nodes */
+    parseNodes(xmlLayer, networkLayer);                  
+         
+    /* parse links, link segments */
+    parseLinkAndLinkSegments(xmlLayer, networkLayer, jtsUtils);
+    
+    return networkLayer;
+  }
+
+  /**
+   * Create and register a new network layer based on its XML attributes
+   *
+   * @param xmlId of the layer, may be null
+   * @param externalId of the layer, may be null
+   * @param xmlSupportedModes comma separated mode references, when absent all modes are supported
+   * @return created network layer
+   */
+  private MacroscopicNetworkLayer registerNewNetworkLayer(String xmlId, String externalId, String xmlSupportedModes) {
+
+    /* create layer */
+    MacroscopicNetworkLayer networkLayer = network.getTransportLayers().getFactory().registerNew();
+
     /* xml id */
-    if(xmlLayer.getId() != null && !xmlLayer.getId().isBlank()) {
-      networkLayer.setXmlId(xmlLayer.getId());
+    if(xmlId != null && !xmlId.isBlank()) {
+      networkLayer.setXmlId(xmlId);
     }else {
       LOGGER.warning("infrastructure layer id missing in xml, use generated id instead");
       networkLayer.setXmlId(Long.toString(networkLayer.getId()));
     }
-    
+
     /* external id*/
-    if(xmlLayer.getExternalid() != null && !xmlLayer.getExternalid().isBlank()) {
-      networkLayer.setExternalId(xmlLayer.getExternalid());
-    }  
-          
+    if(externalId != null && !externalId.isBlank()) {
+      networkLayer.setExternalId(externalId);
+    }
+
     /* supported modes*/
-    if(xmlLayer.getModes() != null && !xmlLayer.getModes().isBlank()) {
-      String xmlSupportedModes = xmlLayer.getModes();
+    if(xmlSupportedModes != null && !xmlSupportedModes.isBlank()) {
       String[] modeRefs = xmlSupportedModes.split(CharacterUtils.COMMA.toString());
       for(String mode : Arrays.asList(modeRefs)) {
         Mode planitMode = getBySourceId(Mode.class, mode);
@@ -300,24 +409,145 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
       /* absent, so register all modes (check if this is valid is to be executed by caller */
       networkLayer.registerSupportedModes(network.getModes().valuesAsNewSet());
     }
-    
-    /* link segment types */
-    XMLElementLayerConfiguration xmlLayerconfiguration = xmlLayer.getLayerconfiguration();
-    if(xmlLayerconfiguration == null) {
-      xmlLayer.setLayerconfiguration(new XMLElementLayerConfiguration());
-      xmlLayerconfiguration = xmlLayer.getLayerconfiguration();
+
+    return networkLayer;
+  }
+
+  /**
+   * Stream the network layers element by element. Nodes and links are unmarshalled one at a time and registered
+   * on the network directly so that the JAXB memory model of the network is never constructed in its entirety
+   *
+   * @param streamParser positioned at the start of the infrastructurelayers element
+   * @throws Exception thrown if error
+   */
+  private void streamNetworkLayers(final PlanitXmlStreamParser streamParser) throws Exception {
+
+    /* crs */
+    CoordinateReferenceSystem crs = parseCoordinateRerefenceSystem(streamParser.getAttributeValue(SRSNAME_ATTRIBUTE));
+    network.setCoordinateReferenceSystem(crs);
+    PlanitJtsCrsUtils jtsUtils = new PlanitJtsCrsUtils(network.getCoordinateReferenceSystem());
+
+    /* layers */
+    Set<Mode> usedModes = new TreeSet<Mode>();
+    streamParser.enterElement();
+    while(streamParser.nextChildElement()) {
+      if(!streamParser.isStartElement(LAYER_ELEMENT)) {
+        streamParser.skipElement();
+        continue;
+      }
+
+      /*layer */
+      NetworkLayer layer = streamNetworkLayer(streamParser, jtsUtils);
+
+      /* validate supported modes */
+      validateLayerSupportedModes(usedModes, layer);
     }
-    parseLinkSegmentTypes(xmlLayerconfiguration, networkLayer);
-    
-    /* parse nodes */
-    parseNodes(xmlLayer, networkLayer);                  
-         
-    /* parse links, link segments */
-    parseLinkAndLinkSegments(xmlLayer, networkLayer, jtsUtils);
-    
+  }
+
+  /**
+   * Stream a single network layer element by element
+   *
+   * @param streamParser positioned at the start of the layer element
+   * @param jtsUtils to use
+   * @return parsed network layer
+   * @throws Exception thrown if error
+   */
+  private NetworkLayer streamNetworkLayer(final PlanitXmlStreamParser streamParser, final PlanitJtsCrsUtils jtsUtils) throws Exception {
+
+    /* create layer */
+    MacroscopicNetworkLayer networkLayer = registerNewNetworkLayer(
+        streamParser.getAttributeValue(ID_ATTRIBUTE), streamParser.getAttributeValue(EXTERNALID_ATTRIBUTE), streamParser.getAttributeValue(MODES_ATTRIBUTE));
+
+    boolean linkSegmentTypesParsed = false;
+    boolean linksParsed = false;
+    streamParser.enterElement();
+    while(streamParser.nextChildElement()) {
+      switch (streamParser.getLocalName()) {
+        case LAYERCONFIGURATION_ELEMENT:
+          /* link segment types */
+          parseLinkSegmentTypes(streamParser.unmarshalElement(XMLElementLayerConfiguration.class), networkLayer);
+          linkSegmentTypesParsed = true;
+          break;
+        case NODES_ELEMENT:
+          /* nodes, one at a time */
+          streamParser.enterElement();
+          while(streamParser.nextChildElement()) {
+            if(streamParser.isStartElement(NODE_ELEMENT)) {
+              parseNode(streamParser.unmarshalElement(XMLElementNodes.Node.class), networkLayer);
+            }else {
+              streamParser.skipElement();
+            }
+          }
+          break;
+        case LINKS_ELEMENT:
+          if(!linkSegmentTypesParsed) {
+            parseLinkSegmentTypes(new XMLElementLayerConfiguration(), networkLayer);
+            linkSegmentTypesParsed = true;
+          }
+          /* links and link segments, one link at a time, gml:posList text is parsed directly rather than unmarshalled */
+          streamParser.setCapturedTextElement(GML_POSLIST_ELEMENT);
+          streamParser.enterElement();
+          while(streamParser.nextChildElement()) {
+            if(streamParser.isStartElement(LINK_ELEMENT)) {
+              var xmlLink = streamParser.unmarshalElement(XMLElementLinks.Link.class);
+              parseLinkAndLinkSegments(xmlLink, streamParser.getCapturedTexts().isEmpty() ? null : streamParser.getCapturedTexts().get(0), networkLayer, jtsUtils);
+            }else {
+              streamParser.skipElement();
+            }
+          }
+          streamParser.setCapturedTextElement(null);
+          linksParsed = true;
+          break;
+        default:
+          streamParser.skipElement();
+      }
+    }
+
+    if(!linkSegmentTypesParsed) {
+      parseLinkSegmentTypes(new XMLElementLayerConfiguration(), networkLayer);
+    }
+    PlanItException.throwIf(!linksParsed, "links xml element missing");
+
     return networkLayer;
   }
 
+  /**
+   * Stream the network from file rather than unmarshalling the entire XML network in memory first
+   *
+   * @throws Exception thrown if error
+   */
+  private void streamNetwork() throws Exception {
+    try(PlanitXmlStreamParser streamParser = new PlanitXmlStreamParser(XMLElementMacroscopicNetwork.class, NETWORK_ELEMENT)){
+      boolean located = streamParser.initialiseAndLocateRootElement(getSettings().getInputDirectory(), getSettings().getXmlFileExtension());
+      PlanItRunTimeException.throwIf(!located, "No valid PLANit XML network could be found to stream, abort");
+
+      String networkXmlId = null;
+      XMLElementConfiguration xmlConfiguration = null;
+      boolean layersParsed = false;
+      streamParser.enterElement();
+      while(streamParser.nextChildElement()) {
+        switch (streamParser.getLocalName()) {
+          case ID_ELEMENT:
+            networkXmlId = streamParser.getElementText();
+            break;
+          case CONFIGURATION_ELEMENT:
+            xmlConfiguration = streamParser.unmarshalElement(XMLElementConfiguration.class);
+            break;
+          case INFRASTRUCTURELAYERS_ELEMENT:
+            /* id and modes precede layers */
+            parseNetworkXmlId(networkXmlId);
+            parseModes(injectMissingDefaultsToXmlConfiguration(xmlConfiguration));
+            streamNetworkLayers(streamParser);
+            layersParsed = true;
+            break;
+          default:
+            streamParser.skipElement();
+        }
+      }
+      PlanItException.throwIf(!layersParsed, "infrastructurelayers element not present in network file");
+    }
+  }
+
   /** Parse the link segment types
    * 
    * @param xmlLayerconfiguration to extract them from
@@ -452,28 +682,39 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
         
     /* parse nodes */
     for (XMLElementNodes.Node xmlNode : xmlLayer.getNodes().getNode()) {
+      parseNode(xmlNode, networkLayer);
+    }
+  }  
 
-      Node node = networkLayer.getNodes().getFactory().registerNew();
-      
-      /* xml id */
-      if(xmlNode.getId() != null && !xmlNode.getId().isBlank()) {
-        node.setXmlId(xmlNode.getId());
-      }
+  /**
+   * Create and register a single node on the network layer
+   *
+   * @param xmlNode to extract from
+   * @param networkLayer to populate
+   * @throws PlanItException thrown if there is an error in storing the GML Point definition
+   */
+  private void parseNode(XMLElementNodes.Node xmlNode, MacroscopicNetworkLayer networkLayer) throws PlanItException {
 
-      /* external id */
-      if(xmlNode.getExternalid() != null && !xmlNode.getExternalid().isBlank()) {
-        node.setExternalId(xmlNode.getExternalid());
-      }
-                  
-      PointType pointType = xmlNode.getPoint();
-      if (pointType != null) {
-        List<Double> posValues = pointType.getPos().getValue();
-        Point centrePointGeometry = PlanitJtsUtils.createPoint(posValues.get(0), posValues.get(1));
-        node.setPosition(centrePointGeometry);
-      }
-      registerBySourceId(Node.class, node);
+    Node node = networkLayer.getNodes().getFactory().registerNew();
+
+    /* xml id */
+    if(xmlNode.getId() != null && !xmlNode.getId().isBlank()) {
+      node.setXmlId(xmlNode.getId());
     }
-  }  
+
+    /* external id */
+    if(xmlNode.getExternalid() != null && !xmlNode.getExternalid().isBlank()) {
+      node.setExternalId(xmlNode.getExternalid());
+    }
+
+    PointType pointType = xmlNode.getPoint();
+    if (pointType != null) {
+      List<Double> posValues = pointType.getPos().getValue();
+      Point centrePointGeometry = PlanitJtsUtils.createPoint(posValues.get(0), posValues.get(1));
+      node.setPosition(centrePointGeometry);
+    }
+    registerBySourceId(Node.class, node);
+  }
   
   /** parse link and link segments
    * @param xmlLayer layer to extract them from
@@ -489,118 +730,130 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
     PlanItException.throwIfNull(xmlLinks, "links xml element missing");
     
     for (XMLElementLinks.Link xmlLink : xmlLinks.getLink()) {
+      parseLinkAndLinkSegments(xmlLink, null, networkLayer, jtsUtils);
+    }
+  }  
+
+  /** parse a single link and its link segments
+   * @param xmlLink to extract link and link segments from
+   * @param posListText captured text of the gml:posList of the link geometry, null when not captured
+   * @param networkLayer to register them on
+   * @param jtsUtils for length calculations based on crs
+   * @throws PlanItException thrown if error
+   */
+  private void parseLinkAndLinkSegments(
+      XMLElementLinks.Link xmlLink, String posListText, MacroscopicNetworkLayer networkLayer, PlanitJtsCrsUtils jtsUtils) throws PlanItException {
+
+    /** LINK **/
+    MacroscopicLink link = null;
+    {
+      /* xml id */
+      if(StringUtils.isNullOrBlank(xmlLink.getId())) {
+        LOGGER.severe("IGNORE: Link has no (XML) id, unable to include link");
+        return;          
+      }          
+      String xmlId = xmlLink.getId();
       
-      /** LINK **/
-      MacroscopicLink link = null;
-      {
-        /* xml id */
-        if(StringUtils.isNullOrBlank(xmlLink.getId())) {
-          LOGGER.severe("IGNORE: Link has no (XML) id, unable to include link");
-          continue;          
-        }          
-        String xmlId = xmlLink.getId();
-        
-        if(StringUtils.isNullOrBlank(xmlLink.getNodearef())){
-          LOGGER.warning(String.format("IGNORE: No node A reference present on link %s",xmlId));
-          continue;
-        }        
-        Node startNode = getBySourceId(Node.class, xmlLink.getNodearef());
-
-        if(StringUtils.isNullOrBlank(xmlLink.getNodebref())){
-          LOGGER.warning(String.format("IGNORE: No node B reference present on link %s",xmlId));
-          continue;
-        }         
-        Node endNode = getBySourceId(Node.class, xmlLink.getNodebref());
-        
-        /* geometry */
-        LineString theLineString = XmlMacroscopicNetworkLayerHelper.parseLinkGeometry(xmlLink);        
-        double length = XmlMacroscopicNetworkLayerHelper.parseLength(xmlLink, theLineString, jtsUtils);   
-        link = networkLayer.getLinks().getFactory().registerNew(startNode, endNode, length, true /* register on nodes */);
-        link.setXmlId(xmlLink.getId());
-        link.setGeometry(theLineString);                      
-        
-        /* external id */
-        if(xmlLink.getExternalid() != null && !xmlLink.getExternalid().isBlank()) {
-          link.setExternalId(xmlLink.getExternalid());
-        }
-        
-        /* name */
-        if(!StringUtils.isNullOrBlank(xmlLink.getName())) {
-          link.setName(xmlLink.getName());
-        }
+      if(StringUtils.isNullOrBlank(xmlLink.getNodearef())){
+        LOGGER.warning(String.format("IGNORE: No node A reference present on link %s",xmlId));
+        return;
+      }        
+      Node startNode = getBySourceId(Node.class, xmlLink.getNodearef());
 
-        /* validate link */
-        link.validate();
-            
-        registerBySourceId(Link.class, link);
-      }      
-      /** end LINK **/
+      if(StringUtils.isNullOrBlank(xmlLink.getNodebref())){
+        LOGGER.warning(String.format("IGNORE: No node B reference present on link %s",xmlId));
+        return;
+      }         
+      Node endNode = getBySourceId(Node.class, xmlLink.getNodebref());
       
-      boolean isFirstLinkSegment = true;
-      boolean firstLinkDirection = true;
+      /* geometry */
+      LineString theLineString = XmlMacroscopicNetworkLayerHelper.parseLinkGeometry(xmlLink, posListText);        
+      double length = XmlMacroscopicNetworkLayerHelper.parseLength(xmlLink, theLineString, jtsUtils);   
+      link = networkLayer.getLinks().getFactory().registerNew(startNode, endNode, length, true /* register on nodes */);
+      link.setXmlId(xmlLink.getId());
+      link.setGeometry(theLineString);                      
       
-      /** LINK SEGMENT **/
-      for (XMLElementLinkSegment xmlLinkSegment : xmlLink.getLinksegment()) {                                                       
-        
-        /* direction */
-        boolean abDirection = xmlLinkSegment.getDir().equals(Direction.A_B);
-        if (!isFirstLinkSegment) {
-          if (abDirection == firstLinkDirection) {
-            throw new PlanItException("Both link segments for the same link are in the same direction.  Link segment external Id is " + xmlLinkSegment.getId());
-          }
-        }        
+      /* external id */
+      if(xmlLink.getExternalid() != null && !xmlLink.getExternalid().isBlank()) {
+        link.setExternalId(xmlLink.getExternalid());
+      }
+      
+      /* name */
+      if(!StringUtils.isNullOrBlank(xmlLink.getName())) {
+        link.setName(xmlLink.getName());
+      }
 
-        MacroscopicLinkSegment linkSegment = networkLayer.getLinkSegments().getFactory().registerNew(link, abDirection, true /* register on nodes and link*/);
-            
-        /* xml id */
-        if(xmlLinkSegment.getId() != null && !xmlLinkSegment.getId().isBlank()) {
-          linkSegment.setXmlId(xmlLinkSegment.getId());
-        }else {
-          LOGGER.severe("DISCARD: Link segment has no (XML) id, unable to include link segment");
-          continue;
+      /* validate link */
+      link.validate();
+          
+      registerBySourceId(Link.class, link);
+    }      
+    /** end LINK **/
+    
+    boolean isFirstLinkSegment = true;
+    boolean firstLinkDirection = true;
+    
+    /** LINK SEGMENT **/
+    for (XMLElementLinkSegment xmlLinkSegment : xmlLink.getLinksegment()) {                                                       
+      
+      /* direction */
+      boolean abDirection = xmlLinkSegment.getDir().equals(Direction.A_B);
+      if (!isFirstLinkSegment) {
+        if (abDirection == firstLinkDirection) {
+          throw new PlanItException("Both link segments for the same link are in the same direction.  Link segment external Id is " + xmlLinkSegment.getId());
         }
-        
-        /* external id */
-        if(xmlLinkSegment.getExternalid() != null && !xmlLinkSegment.getExternalid().isBlank()) {
-          linkSegment.setExternalId(xmlLinkSegment.getExternalid());
-        }         
-        
-        /* max speed */
-        double maxSpeed = (xmlLinkSegment.getMaxspeed() == null) ? Double.POSITIVE_INFINITY : xmlLinkSegment.getMaxspeed();        
-        linkSegment.setPhysicalSpeedLimitKmH(maxSpeed);
-        
-        /* lanes */
-        int noLanes = (xmlLinkSegment.getNumberoflanes() == null) ? LinkSegment.DEFAULT_NUMBER_OF_LANES : xmlLinkSegment.getNumberoflanes().intValue();        
-        linkSegment.setNumberOfLanes(noLanes);    
-        
-        registerBySourceId(MacroscopicLinkSegment.class, linkSegment);
-        
-        /** LINK SEGMENT TYPE **/
-        
-        /* link segment type xml id */
-        String linkSegmentTypeXmlId = null;
-        if (xmlLinkSegment.getTyperef() == null) {
-          if (networkLayer.getLinkSegmentTypes().size() > 1) {
-            throw new PlanItException("Link Segment " + xmlLinkSegment.getId() + " has no link segment type defined, but there is more than one possible link segment type");
-          }
-          linkSegmentTypeXmlId = networkLayer.getLinkSegmentTypes().getFirst().getXmlId();
-        } else {
-          linkSegmentTypeXmlId = xmlLinkSegment.getTyperef();
-        }  
-        
-        /* register type on link */
-        MacroscopicLinkSegmentType linkSegmentType = getBySourceId(MacroscopicLinkSegmentType.class, linkSegmentTypeXmlId);
-        if(linkSegmentType == null) {
-          throw new PlanItException(String.format("Link segment type %s, unknown, cannot be registered on link segment %s",linkSegmentTypeXmlId,linkSegment));
+      }        
+
+      MacroscopicLinkSegment linkSegment = networkLayer.getLinkSegments().getFactory().registerNew(link, abDirection, true /* register on nodes and link*/);
+          
+      /* xml id */
+      if(xmlLinkSegment.getId() != null && !xmlLinkSegment.getId().isBlank()) {
+        linkSegment.setXmlId(xmlLinkSegment.getId());
+      }else {
+        LOGGER.severe("DISCARD: Link segment has no (XML) id, unable to include link segment");
+        continue;
+      }
+      
+      /* external id */
+      if(xmlLinkSegment.getExternalid() != null && !xmlLinkSegment.getExternalid().isBlank()) {
+        linkSegment.setExternalId(xmlLinkSegment.getExternalid());
+      }         
+      
+      /* max speed */
+      double maxSpeed = (xmlLinkSegment.getMaxspeed() == null) ? Double.POSITIVE_INFINITY : xmlLinkSegment.getMaxspeed();        
+      linkSegment.setPhysicalSpeedLimitKmH(maxSpeed);
+      
+      /* lanes */
+      int noLanes = (xmlLinkSegment.getNumberoflanes() == null) ? LinkSegment.DEFAULT_NUMBER_OF_LANES : xmlLinkSegment.getNumberoflanes().intValue();        
+      linkSegment.setNumberOfLanes(noLanes);    
+      
+      registerBySourceId(MacroscopicLinkSegment.class, linkSegment);
+      
+      /** LINK SEGMENT TYPE **/
+      
+      /* link segment type xml id */
+      String linkSegmentTypeXmlId = null;
+      if (xmlLinkSegment.getTyperef() == null) {
+        if (networkLayer.getLinkSegmentTypes().size() > 1) {
+          throw new PlanItException("Link Segment " + xmlLinkSegment.getId() + " has no link segment type defined, but there is more than one possible link segment type");
         }
-        linkSegment.setLinkSegmentType(linkSegmentType);    
-        
-        isFirstLinkSegment = false;
-        firstLinkDirection = abDirection;        
+        linkSegmentTypeXmlId = networkLayer.getLinkSegmentTypes().getFirst().getXmlId();
+      } else {
+        linkSegmentTypeXmlId = xmlLinkSegment.getTyperef();
+      }  
+      
+      /* register type on link */
+      MacroscopicLinkSegmentType linkSegmentType = getBySourceId(MacroscopicLinkSegmentType.class, linkSegmentTypeXmlId);
+      if(linkSegmentType == null) {
+        throw new PlanItException(String.format("Link segment type %s, unknown, cannot be registered on link segment %s",linkSegmentTypeXmlId,linkSegment));
       }
-      /** end LINK SEGMENT **/      
+      linkSegment.setLinkSegmentType(linkSegmentType);    
+      
+      isFirstLinkSegment = false;
+      firstLinkDirection = abDirection;        
     }
-  }  
+    /** end LINK SEGMENT **/      
+  }
 
   /** Place network to populate
    * 
@@ -680,6 +933,82 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
     setNetwork(network);
   }  
   
+  /**
+   * Unmarshal the shards listed in the manifest, concurrently unless the settings restrict the number of parse threads to one
+   *
+   * @param shardFiles to unmarshal
+   * @return unmarshalled shards in the same order as the shard files
+   */
+  private List<XMLElementMacroscopicNetwork> unmarshalShards(final List<File> shardFiles) {
+    final int numberOfParseThreads = Math.min(getSettings().getNumberOfParseThreads(), shardFiles.size());
+    if(numberOfParseThreads > 1) {
+      LOGGER.info(String.format("Parsing %d network shards concurrently using up to %d threads", shardFiles.size(), numberOfParseThreads));
+    }
+    final List<Callable<XMLElementMacroscopicNetwork>> parseTasks = new ArrayList<>(shardFiles.size());
+    for(var shardFile : shardFiles) {
+      parseTasks.add(() -> {
+        try {
+          return PlanitJaxbCache.unmarshal(XMLElementMacroscopicNetwork.class, shardFile);
+        }catch(Exception e) {
+          throw new PlanItRunTimeException(String.format("Unable to parse network shard %s", shardFile), e);
+        }
+      });
+    }
+    return PlanitConcurrentTasks.invokeAll(parseTasks, numberOfParseThreads, "parsing network shards");
+  }
+
+  /**
+   * Verify whether the input directory holds a (non-sharded) network file, i.e., a file with a network or combined PLANit root element
+   *
+   * @return true when present, false otherwise
+   */
+  private boolean hasNetworkFile() {
+    final PlanitXmlRootElementIndex rootElementIndex;
+    try {
+      rootElementIndex = PlanitXmlRootElementIndex.create(getSettings().getInputDirectory(), getSettings().getXmlFileExtension());
+    }catch(PlanItRunTimeException e) {
+      /* no XML files at all, e.g., only a manifest next to its shard directory */
+      return false;
+    }
+    if(PlanitXmlRootElementIndex.getRootElementName(XMLElementMacroscopicNetwork.class) == null) {
+      return rootElementIndex.getFiles().length > 0;
+    }
+    return !rootElementIndex.getFilesWithRootElement(XMLElementMacroscopicNetwork.class).isEmpty()
+        || !rootElementIndex.getFilesWithRootElement(XMLElementPLANit.class).isEmpty();
+  }
+
+  /**
+   * Parse the shards listed in the manifest and merge them into a single raw XML network. The id and configuration are taken from the first
+   * shard, the layers are appended in manifest order so the populated network, including its internal ids, does not depend on the order in
+   * which shards finish parsing
+   *
+   * @param manifestFile to parse shards from
+   * @return merged raw XML network
+   */
+  private XMLElementMacroscopicNetwork parseShardedXmlRootElement(final Path manifestFile) {
+    final PlanitNetworkShardManifest manifest;
+    try {
+      manifest = PlanitNetworkShardManifest.read(manifestFile);
+    }catch(PlanItException e) {
+      throw new PlanItRunTimeException(e);
+    }
+    LOGGER.info(String.format("Parsing sharded network from manifest %s", manifestFile));
+    final List<XMLElementMacroscopicNetwork> shards = unmarshalShards(manifest.getShardFiles(manifestFile.toAbsolutePath().getParent()));
+
+    final XMLElementMacroscopicNetwork mergedNetwork = shards.get(0);
+    PlanItRunTimeException.throwIf(manifest.getNetworkXmlId() != null && !manifest.getNetworkXmlId().equals(mergedNetwork.getId()),
+        "Network shard manifest %s refers to network %s, but its first shard holds network %s", manifestFile, manifest.getNetworkXmlId(), mergedNetwork.getId());
+    PlanItRunTimeException.throwIfNull(mergedNetwork.getInfrastructurelayers(), "First network shard of %s has no infrastructure layers", manifestFile);
+    for(var shard : shards.subList(1, shards.size())) {
+      PlanItRunTimeException.throwIf(mergedNetwork.getId() != null && !mergedNetwork.getId().equals(shard.getId()),
+          "Network shards of %s hold different networks (%s, %s), unable to merge", manifestFile, mergedNetwork.getId(), shard.getId());
+      if(shard.getInfrastructurelayers() != null) {
+        mergedNetwork.getInfrastructurelayers().getLayer().addAll(shard.getInfrastructurelayers().getLayer());
+      }
+    }
+    return mergedNetwork;
+  }
+
   /** Default XSD files used to validate input XML files against, TODO: move to properties file */
   public static final String NETWORK_XSD_FILE = "https://trafficplanit.github.io/PLANitManual/xsd/macroscopicnetworkinput.xsd";  
 
@@ -688,30 +1017,55 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
    */
   @Override
   public MacroscopicNetwork read(){
-        
-    /* parse the XML raw network to extract PLANit network from */   
-    xmlParser.initialiseAndParseXmlRootElement(getSettings().getInputDirectory(), getSettings().getXmlFileExtension());
-    PlanItRunTimeException.throwIfNull(xmlParser.getXmlRootElement(), "No valid PLANit XML network could be parsed into memory, abort");
     
-    /* xml id */
-    String networkXmlId = xmlParser.getXmlRootElement().getId();
-    if(StringUtils.isNullOrBlank(networkXmlId)) {
-      LOGGER.warning(String.format("Network has no XML id defined, adopting internally generated id %d instead",network.getId()));
-      networkXmlId = String.valueOf(network.getId());
+    /* (re)populating the network invalidates any external id index built on it so far */
+    resetExternalIdIndex();
+
+    /* a sharded network is parsed shard by shard and merged, only available when reading from file and a network file takes precedence */
+    if(xmlParser.getXmlRootElement() == null) {
+      final Path manifestFile;
+      try {
+        manifestFile = PlanitNetworkShardManifest.find(getSettings().getInputDirectory());
+      }catch(PlanItException e) {
+        throw new PlanItRunTimeException(e);
+      }
+      if(manifestFile != null && hasNetworkFile()) {
+        LOGGER.warning(String.format("Network file present next to network shard manifest %s, manifest ignored", manifestFile));
+      }else if(manifestFile != null) {
+        if(getSettings().isStreamingParse()) {
+          LOGGER.warning("Streaming parse is not supported for sharded networks, parsing shards instead");
+        }
+        xmlParser.setXmlRootElement(parseShardedXmlRootElement(manifestFile));
+      }
+    }
+
+    /* streaming mode is only available when reading from file, not when raw XML network is provided */
+    boolean streaming = getSettings().isStreamingParse() && xmlParser.getXmlRootElement() == null;
+    if(!streaming) {
+      /* parse the XML raw network to extract PLANit network from */   
+      xmlParser.initialiseAndParseXmlRootElement(getSettings().getInputDirectory(), getSettings().getXmlFileExtension());
+      PlanItRunTimeException.throwIfNull(xmlParser.getXmlRootElement(), "No valid PLANit XML network could be parsed into memory, abort");
+      
+      /* xml id */
+      parseNetworkXmlId(xmlParser.getXmlRootElement().getId());
+              
+      /* defaults */
+      injectMissingDefaultsToRawXmlNetwork();
     }
-    network.setXmlId(networkXmlId);
-            
-    /* defaults */
     initialiseXmlIdTrackers();
-    injectMissingDefaultsToRawXmlNetwork();       
     
     try {
       
-      /* parse modes*/
-      parseModes();
-
-      /* parse layers */
-      parseNetworkLayers();
+      if(streaming) {
+        /* parse modes and layers while streaming */
+        streamNetwork();
+      }else {
+        /* parse modes*/
+        parseModes(xmlParser.getXmlRootElement().getConfiguration());
+  
+        /* parse layers */
+        parseNetworkLayers();
+      }
 
       if(getSettings().isSyncXmlIdsToIds()){
         syncXmlIdsToIds();
@@ -744,21 +1098,39 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
   }
   
   /**
-   * returns the first link segment for which the given external id matches. Extremely slow, because it is not indexed at the moment. Also
-   * external ids are not guaranteed to be unique so if multiple matches exist problems may arise
+   * Clear the retained external id index, if any. The next call to {@link #getExternalIdIndex(MacroscopicNetwork)} creates a new one
+   */
+  public synchronized void resetExternalIdIndex() {
+    externalIdIndex = null;
+  }
+
+  /**
+   * Collect the external id index of the given network. The reader retains one index, for the most recently indexed network, so repeated
+   * calls for the same network share the index and its lazily built lookups. Passing a different network replaces the retained index. The index
+   * is a snapshot of the network taken upon its first lookup (per entity type), reading a network resets it. When the network is modified
+   * otherwise, e.g., link segments are added or removed or external ids change, call {@link #resetExternalIdIndex()} (or
+   * {@link PlanitExternalIdIndex#reset()} on the index) before further lookups
+   * 
+   * @param network to collect index for
+   * @return external id index
+   */
+  public synchronized PlanitExternalIdIndex getExternalIdIndex(MacroscopicNetwork network) {
+    if(externalIdIndex == null || externalIdIndex.getNetwork() != network) {
+      externalIdIndex = new PlanitExternalIdIndex(network);
+    }
+    return externalIdIndex;
+  }
+  
+  /**
+   * returns the first link segment for which the given external id matches, looked up via the external id index of the network, see
+   * {@link #getExternalIdIndex(MacroscopicNetwork)}. External ids are not guaranteed to be unique, the index also provides all matches
    * 
    * @param network    to look in
    * @param externalId to look for
-   * @return link segment
+   * @return link segment, null if not found
    */
   public MacroscopicLinkSegment getLinkSegmentByExternalId(MacroscopicNetwork network, String externalId) {
-    for (MacroscopicNetworkLayer layer : network.getTransportLayers()) {
-      MacroscopicLinkSegment firstMatch = layer.getLinkSegments().firstMatch(ls -> externalId.equals(ls.getExternalId()));
-      if (firstMatch != null) {
-        return firstMatch;
-      }
-    }
-    return null;
+    return getExternalIdIndex(network).getFirstLinkSegmentByExternalId(externalId);
   }  
   
   /**
@@ -766,7 +1138,7 @@ public class PlanitNetworkReader extends NetworkReaderImpl {
    */
   @Override
   public void reset() {
-    // TODO Auto-generated method stub    
+    resetExternalIdIndex();
   }
   
   
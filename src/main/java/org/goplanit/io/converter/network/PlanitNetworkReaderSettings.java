@@ -11,6 +11,18 @@ import org.goplanit.io.xml.util.PlanitXmlReaderSettings;
  */
 public class PlanitNetworkReaderSettings extends PlanitXmlReaderSettings implements ConverterReaderSettings {
 
+  /** flag indicating if the network is to be parsed in streaming mode, i.e., element by element without materialising the entire JAXB memory model */
+  private boolean streamingParse = DEFAULT_STREAMING_PARSE;
+
+  /** by default the entire XML network is unmarshalled before populating the PLANit network */
+  public static boolean DEFAULT_STREAMING_PARSE = false;
+
+  /** maximum number of threads used to parse the shards of a sharded network concurrently */
+  private int numberOfParseThreads = DEFAULT_NUMBER_OF_PARSE_THREADS;
+
+  /** by default shards are parsed using as many threads as there are available processors */
+  public static final int DEFAULT_NUMBER_OF_PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+
   /**
    * Default constructor. Expected that the user provides the input path at some point later
    */
@@ -37,4 +49,44 @@ public class PlanitNetworkReaderSettings extends PlanitXmlReaderSettings impleme
     super(inputPathDirectory, xmlFileExtension);
   }  
 
+  /**
+   * Verify if network is parsed in streaming mode
+   *
+   * @return true when streaming, false otherwise
+   */
+  public boolean isStreamingParse() {
+    return streamingParse;
+  }
+
+  /**
+   * Determine if network is parsed in streaming mode. When streaming, nodes, links, and link segments are pulled from the XML one element at
+   * a time and registered on the network directly, so the JAXB memory model of the entire network is never constructed. Recommended for very large
+   * networks where the raw XML memory model dominates peak memory usage
+   *
+   * @param streamingParse when true streaming is activated, false otherwise
+   */
+  public void setStreamingParse(boolean streamingParse) {
+    this.streamingParse = streamingParse;
+  }
+
+  /**
+   * Maximum number of threads used to parse the shards of a sharded network concurrently
+   *
+   * @return number of parse threads
+   */
+  public int getNumberOfParseThreads() {
+    return numberOfParseThreads;
+  }
+
+  /**
+   * Set the maximum number of threads used to parse the shards of a sharded network, i.e., when the input directory holds a
+   * {@link PlanitNetworkShardManifest} and no network file, a network file takes precedence over a manifest. One or less parses the shards sequentially. Either way the shards are merged in manifest order, so
+   * the resulting network is the same
+   *
+   * @param numberOfParseThreads to use
+   */
+  public void setNumberOfParseThreads(int numberOfParseThreads) {
+    this.numberOfParseThreads = numberOfParseThreads;
+  }
+
 }
@@ -0,0 +1,252 @@
+package org.goplanit.io.converter.network;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.goplanit.utils.exceptions.PlanItException;
+
+/**
+ * Manifest of a network persisted as shards, i.e., one PLANit network XML file per infrastructure layer, each holding the network id and
+ * configuration and a single layer. The manifest lists the shards in layer order, relative to the directory of the manifest. Shards are placed in
+ * a sub directory so they are not mistaken for a complete network when scanning the output directory for XML files. A manifest is only read when
+ * the directory holds no network file. Layout (UTF-8 text):
+ * <pre>
+ * # PLANit network shard manifest
+ * version=1
+ * network=&lt;network XML id&gt;
+ * shard=&lt;relative path of first shard&gt;
+ * shard=...
+ * </pre>
+ *
+ * @author markr
+ *
+ */
+public class PlanitNetworkShardManifest {
+
+  /** file extension of shard manifests */
+  public static final String FILE_EXTENSION = ".shards";
+
+  /** suffix of the sub directory holding the shards, appended to the file name root of the network */
+  public static final String SHARD_DIRECTORY_SUFFIX = "_shards";
+
+  /** current version of the format */
+  private static final int VERSION = 1;
+
+  /** first line of each manifest */
+  private static final String HEADER = "# PLANit network shard manifest";
+
+  /** key of the version entry */
+  private static final String VERSION_KEY = "version";
+
+  /** key of the network XML id entry */
+  private static final String NETWORK_KEY = "network";
+
+  /** key of a shard entry */
+  private static final String SHARD_KEY = "shard";
+
+  /** XML id of the network, may be null */
+  private final String networkXmlId;
+
+  /** shard file names relative to the directory of the manifest, in layer order */
+  private final List<String> shardFileNames;
+
+  /**
+   * Strip the (last) extension from a file name
+   *
+   * @param fileName to strip
+   * @return file name root
+   */
+  private static String getFileNameRoot(final String fileName) {
+    final int index = fileName.lastIndexOf('.');
+    return index > 0 ? fileName.substring(0, index) : fileName;
+  }
+
+  /**
+   * Constructor
+   *
+   * @param networkXmlId XML id of the network, may be null
+   */
+  public PlanitNetworkShardManifest(final String networkXmlId) {
+    this.networkXmlId = networkXmlId;
+    this.shardFileNames = new ArrayList<>();
+  }
+
+  /**
+   * Name of the manifest of a network persisted as shards, e.g. {@code network.shards} for {@code network.xml}
+   *
+   * @param networkFileName file name of the network when not sharded
+   * @return manifest file name
+   */
+  public static String createManifestFileName(final String networkFileName) {
+    return getFileNameRoot(networkFileName) + FILE_EXTENSION;
+  }
+
+  /**
+   * Name of the sub directory holding the shards, e.g. {@code network_shards} for {@code network.xml}
+   *
+   * @param networkFileName file name of the network when not sharded
+   * @return shard directory name
+   */
+  public static String createShardDirectoryName(final String networkFileName) {
+    return getFileNameRoot(networkFileName) + SHARD_DIRECTORY_SUFFIX;
+  }
+
+  /**
+   * Name of a shard file (without compression suffix), e.g. {@code network_layer0.xml} for the first layer of {@code network.xml}
+   *
+   * @param networkFileName file name of the network when not sharded
+   * @param layerIndex index of the layer persisted in the shard
+   * @return shard file name
+   */
+  public static String createShardFileName(final String networkFileName, int layerIndex) {
+    final int index = networkFileName.lastIndexOf('.');
+    final String extension = index > 0 ? networkFileName.substring(index) : "";
+    return getFileNameRoot(networkFileName) + "_layer" + layerIndex + extension;
+  }
+
+  /**
+   * Locate the shard manifest in a directory
+   *
+   * @param inputDirectory to look in
+   * @return manifest, null if the directory holds no manifest
+   * @throws PlanItException thrown if more than one manifest is present
+   */
+  public static Path find(final String inputDirectory) throws PlanItException {
+    if(inputDirectory == null || !Files.isDirectory(Paths.get(inputDirectory))) {
+      return null;
+    }
+    try(Stream<Path> files = Files.list(Paths.get(inputDirectory))){
+      List<Path> manifests = files.filter(file -> file.getFileName().toString().endsWith(FILE_EXTENSION) && Files.isRegularFile(file))
+          .sorted().collect(Collectors.toList());
+      PlanItException.throwIf(manifests.size() > 1, "Multiple network shard manifests found in %s, unable to choose", inputDirectory);
+      return manifests.isEmpty() ? null : manifests.get(0);
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to look for network shard manifest in %s", e, inputDirectory);
+    }
+  }
+
+  /**
+   * Add a shard, shards are to be added in layer order
+   *
+   * @param shardFileName relative to the directory of the manifest
+   */
+  public void addShard(final String shardFileName) {
+    shardFileNames.add(shardFileName);
+  }
+
+  /**
+   * XML id of the network
+   *
+   * @return network XML id, may be null
+   */
+  public String getNetworkXmlId() {
+    return networkXmlId;
+  }
+
+  /**
+   * Shard file names relative to the directory of the manifest, in layer order
+   *
+   * @return shard file names
+   */
+  public List<String> getShardFileNames() {
+    return Collections.unmodifiableList(shardFileNames);
+  }
+
+  /**
+   * Shard files, in layer order
+   *
+   * @param manifestDirectory directory of the manifest
+   * @return shard files
+   */
+  public List<File> getShardFiles(final Path manifestDirectory) {
+    return shardFileNames.stream().map(fileName -> manifestDirectory.resolve(fileName).toFile()).collect(Collectors.toList());
+  }
+
+  /**
+   * Write the manifest to file
+   *
+   * @param file to write to, overwritten if it exists
+   * @throws PlanItException thrown if error
+   */
+  public void write(final Path file) throws PlanItException {
+    try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)){
+      writer.write(HEADER);
+      writer.newLine();
+      writer.write(VERSION_KEY + "=" + VERSION);
+      writer.newLine();
+      if(networkXmlId != null) {
+        writer.write(NETWORK_KEY + "=" + networkXmlId);
+        writer.newLine();
+      }
+      for(String shardFileName : shardFileNames) {
+        writer.write(SHARD_KEY + "=" + shardFileName.replace(File.separatorChar, '/'));
+        writer.newLine();
+      }
+    }catch(Exception e) {
+      throw new PlanItException("Unable to write network shard manifest to %s", e, file);
+    }
+  }
+
+  /**
+   * Read a manifest from file
+   *
+   * @param file to read
+   * @return manifest
+   * @throws PlanItException thrown if error
+   */
+  public static PlanitNetworkShardManifest read(final Path file) throws PlanItException {
+    try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+      String networkXmlId = null;
+      final List<String> shardFileNames = new ArrayList<>();
+      boolean versionFound = false;
+      String line;
+      while((line = reader.readLine()) != null) {
+        line = line.strip();
+        if(line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        final int index = line.indexOf('=');
+        PlanItException.throwIf(index < 0, "Invalid entry %s in network shard manifest %s", line, file);
+        final String key = line.substring(0, index).strip();
+        final String value = line.substring(index + 1).strip();
+        switch (key) {
+        case VERSION_KEY:
+          PlanItException.throwIf(Integer.parseInt(value) != VERSION,
+              "Network shard manifest %s has version %s, only version %d is supported", file, value, VERSION);
+          versionFound = true;
+          break;
+        case NETWORK_KEY:
+          networkXmlId = value;
+          break;
+        case SHARD_KEY:
+          shardFileNames.add(value);
+          break;
+        default:
+          throw new PlanItException("Unknown entry %s in network shard manifest %s", key, file);
+        }
+      }
+      PlanItException.throwIf(!versionFound, "Network shard manifest %s has no version", file);
+      PlanItException.throwIf(shardFileNames.isEmpty(), "Network shard manifest %s lists no shards", file);
+
+      final PlanitNetworkShardManifest manifest = new PlanitNetworkShardManifest(networkXmlId);
+      shardFileNames.forEach(manifest::addShard);
+      return manifest;
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to read network shard manifest from %s", e, file);
+    }
+  }
+}
@@ -1,16 +1,32 @@
 package org.goplanit.io.converter.network;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLStreamException;
+
+import net.opengis.gml.CoordinatesType;
+import net.opengis.gml.LineStringType;
+import net.opengis.gml.PointType;
+
 import org.goplanit.converter.idmapping.IdMapperType;
 import org.goplanit.converter.idmapping.NetworkIdMapper;
 import org.goplanit.converter.network.NetworkWriter;
+import org.goplanit.io.geo.PlanitGmlUtils;
+import org.goplanit.io.util.PlanitConcurrentTasks;
 import org.goplanit.io.xml.util.xmlEnumConversionUtil;
+import org.goplanit.io.xml.util.PlanitJaxbCache;
 import org.goplanit.io.xml.util.PlanitSchema;
+import org.goplanit.io.xml.util.PlanitXmlStreamWriter;
 import org.goplanit.network.MacroscopicNetwork;
 import org.goplanit.network.LayeredNetwork;
 import org.goplanit.network.layer.macroscopic.MacroscopicNetworkLayerImpl;
@@ -66,6 +82,9 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
   
   /* track logging prefix for current layer */
   private String currLayerLogPrefix;
+  
+  /** layers whose nodes and links are to be streamed, in order of appearance in the XML memory model, only used when streaming */
+  private final List<MacroscopicNetworkLayerImpl> streamedLayers = new ArrayList<>();
 
   /**
    * populate a single xml link segment element based on the passed in PLANit link segment
@@ -117,6 +136,20 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
     }    
   }
   
+  /**
+   * Whether the length of the link is persisted, which is only the case when it differs from its geographic length
+   * 
+   * @param link to check
+   * @return true when length is persisted, false otherwise
+   */
+  private boolean isOverrideLength(final MacroscopicLink link) {
+    if(getGeoUtils()!= null && link.hasGeometry()) {
+      double geographicLength = getGeoUtils().getDistanceInKilometres(link.getGeometry());
+      return !Precision.equal(geographicLength, link.getLengthKm(), Precision.EPSILON_6);
+    }
+    return true;
+  }
+  
   /**
    * Populate the xml /<link/> element
    *  
@@ -135,15 +168,7 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
     }
     
     /* length - only persist if it differs from the geographic length */
-    boolean useOverrideLength = true;
-    if(getGeoUtils()!= null && link.hasGeometry()) {
-      double geographicLength = getGeoUtils().getDistanceInKilometres(link.getGeometry());
-      if(Precision.equal(geographicLength, link.getLengthKm(), Precision.EPSILON_6)) {
-        useOverrideLength = false;
-      }
-    }
-    
-    if(useOverrideLength) {
+    if(isOverrideLength(link)) {
       XMLElementLinkLengthType xmlLinkLength = new XMLElementLinkLengthType();
       xmlLinkLength.setUnit(LengthUnit.KM);    
       xmlLinkLength.setValue(link.getLengthKm());
@@ -521,13 +546,21 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
     LOGGER.info(String.format("%s Link segment types: %d", currLayerLogPrefix, physicalNetworkLayer.linkSegmentTypes.size()));
     populateXmlLayerConfiguration(xmlNetworkLayer, physicalNetworkLayer.linkSegmentTypes);
 
-    /* links */
     LOGGER.info(String.format("%s Links: %d", currLayerLogPrefix, physicalNetworkLayer.getLinks().size()));
     LOGGER.info(String.format("%s Link segments: %d", currLayerLogPrefix, physicalNetworkLayer.getLinkSegments().size()));
+    LOGGER.info(String.format("%s Nodes: %d", currLayerLogPrefix, physicalNetworkLayer.getNodes().size()));
+    if(isStreaming()) {
+      /* placeholders, nodes and links are streamed to file upon persisting */
+      xmlNetworkLayer.setLinks(new XMLElementLinks());
+      xmlNetworkLayer.setNodes(new XMLElementNodes());
+      streamedLayers.add(physicalNetworkLayer);
+      return;
+    }
+    
+    /* links */
     populateXmlLinks(xmlNetworkLayer, physicalNetworkLayer.getLinks());
         
     /* nodes */
-    LOGGER.info(String.format("%s Nodes: %d", currLayerLogPrefix, physicalNetworkLayer.getNodes().size()));
     populateXmlNodes(xmlNetworkLayer, physicalNetworkLayer.getNodes());      
   }  
   
@@ -566,6 +599,300 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
     });
   }
 
+  /**
+   * Write a GML point on the StAX writer, identical to marshalling it as part of the XML memory model
+   * 
+   * @param xmlWriter to write with
+   * @param gmlPoint to write
+   * @throws XMLStreamException thrown if error
+   */
+  private static void writeGmlPoint(final PlanitXmlStreamWriter xmlWriter, final PointType gmlPoint) throws XMLStreamException {
+    xmlWriter.writeStartElement(PlanitGmlUtils.GML_NAMESPACE_URI, "Point");
+    xmlWriter.writeStartElement(PlanitGmlUtils.GML_NAMESPACE_URI, "pos");
+    final StringBuilder pos = new StringBuilder();
+    for(Double value : gmlPoint.getPos().getValue()) {
+      if(pos.length() > 0) {
+        pos.append(' ');
+      }
+      pos.append(DatatypeConverter.printDouble(value));
+    }
+    xmlWriter.writeCharacters(pos);
+    xmlWriter.writeEndElement();
+    xmlWriter.writeEndElement();
+  }
+
+  /**
+   * Write a GML line string on the StAX writer, identical to marshalling it as part of the XML memory model
+   * 
+   * @param xmlWriter to write with
+   * @param gmlLineString to write
+   * @throws XMLStreamException thrown if error
+   */
+  private static void writeGmlLineString(final PlanitXmlStreamWriter xmlWriter, final LineStringType gmlLineString) throws XMLStreamException {
+    final CoordinatesType gmlCoordinates = gmlLineString.getCoordinates();
+    xmlWriter.writeStartElement(PlanitGmlUtils.GML_NAMESPACE_URI, "LineString");
+    xmlWriter.writeStartElement(PlanitGmlUtils.GML_NAMESPACE_URI, "coordinates");
+    xmlWriter.writeAttribute("decimal", gmlCoordinates.getDecimal());
+    xmlWriter.writeAttribute("cs", gmlCoordinates.getCs());
+    xmlWriter.writeAttribute("ts", gmlCoordinates.getTs());
+    xmlWriter.writeCharacters(gmlCoordinates.getValue());
+    xmlWriter.writeEndElement();
+    xmlWriter.writeEndElement();
+  }
+
+  /**
+   * Write the /<node/> element on the StAX writer, identical to {@link #populateXmlNode(List, Node)} followed by marshalling
+   * 
+   * @param xmlWriter to write with
+   * @param node to write
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeXmlNode(final PlanitXmlStreamWriter xmlWriter, final Node node) throws XMLStreamException {
+    xmlWriter.writeStartElement("node");
+    xmlWriter.writeAttribute("id", getPrimaryIdMapper().getVertexIdMapper().apply(node));
+    if(node.hasExternalId()) {
+      xmlWriter.writeAttribute("externalid", node.getExternalId());
+    }
+    if(node.getName() != null) {
+      xmlWriter.writeTextElement("name", node.getName());
+    }
+    writeGmlPoint(xmlWriter, createGmlPointType(node.getPosition()));
+    xmlWriter.writeEndElement();
+  }
+
+  /**
+   * Write a /<linksegment/> element on the StAX writer, identical to {@link #populateLinkSegment(XMLElementLinkSegment, MacroscopicLinkSegment)} 
+   * followed by marshalling
+   * 
+   * @param xmlWriter to write with
+   * @param linkSegment to write
+   * @param direction of the link segment
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeXmlLinkSegment(final PlanitXmlStreamWriter xmlWriter, final MacroscopicLinkSegment linkSegment, final Direction direction) 
+      throws XMLStreamException {
+    linkSegment.validate();
+    xmlWriter.writeStartElement("linksegment");
+    xmlWriter.writeAttribute("id", getPrimaryIdMapper().getLinkSegmentIdMapper().apply(linkSegment));
+    xmlWriter.writeAttribute("dir", direction.value());
+    if(!linkSegment.hasLinkSegmentType()) {
+      LOGGER.severe(String.format("missing link segment type on link segment %s (id:%d)", linkSegment.getExternalId(), linkSegment.getId()));      
+    }else {
+      xmlWriter.writeAttribute("typeref", getPrimaryIdMapper().getLinkSegmentTypeIdMapper().apply(linkSegment.getLinkSegmentType()));
+    }
+    xmlWriter.writeTextElement("numberoflanes", DatatypeConverter.printInteger(BigInteger.valueOf(linkSegment.getNumberOfLanes())));
+    xmlWriter.writeTextElement("maxspeed", DatatypeConverter.printDouble(linkSegment.getPhysicalSpeedLimitKmH()));
+    xmlWriter.writeEndElement();
+  }
+
+  /**
+   * Write the /<link/> element on the StAX writer, including its link segments, identical to {@link #populateXmlLink(List, MacroscopicLink)} followed
+   * by marshalling
+   * 
+   * @param xmlWriter to write with
+   * @param link to write
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeXmlLink(final PlanitXmlStreamWriter xmlWriter, final MacroscopicLink link) throws XMLStreamException {
+    link.validate();
+    xmlWriter.writeStartElement("link");
+    xmlWriter.writeAttribute("id", getPrimaryIdMapper().getLinkIdMapper().apply(link));
+    if(link.hasExternalId()) {
+      xmlWriter.writeAttribute("externalid", link.getExternalId());
+    }
+    xmlWriter.writeAttribute("nodearef", getPrimaryIdMapper().getVertexIdMapper().apply(link.getNodeA()));
+    xmlWriter.writeAttribute("nodebref", getPrimaryIdMapper().getVertexIdMapper().apply(link.getNodeB()));
+
+    if(link.hasName()) {
+      xmlWriter.writeTextElement("name", link.getName());
+    }
+    if(link.hasGeometry()) {
+      writeGmlLineString(xmlWriter, createGmlLineStringType(link.getGeometry()));
+    }
+    if(link.hasLinkSegmentAb()) {
+      writeXmlLinkSegment(xmlWriter, link.getLinkSegmentAb(), Direction.A_B);
+    }
+    if(link.hasLinkSegmentBa()) {
+      writeXmlLinkSegment(xmlWriter, link.getLinkSegmentBa(), Direction.B_A);
+    }
+    if(isOverrideLength(link)) {
+      xmlWriter.writeStartElement("length");
+      xmlWriter.writeAttribute("unit", LengthUnit.KM.value());
+      xmlWriter.writeCharacters(DatatypeConverter.printDouble(link.getLengthKm()));
+      xmlWriter.writeEndElement();
+    }
+    xmlWriter.writeEndElement();
+  }
+
+  /**
+   * Write the nodes or links of a streamed layer in place of the empty /<nodes/> or /<links/> element of that layer in the XML memory model.
+   * Nodes precede links in each layer, so the layer is taken from the streamed layers upon reaching its nodes
+   * 
+   * @param localName of the empty element
+   * @param parentLocalName of the empty element's parent
+   * @param xmlWriter to write with
+   * @param streamedLayerIterator streamed layers in the order they are marshalled
+   * @param currentLayer holder of the layer whose nodes were written last
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeStreamedElements(final String localName, final String parentLocalName, final PlanitXmlStreamWriter xmlWriter, 
+      final Iterator<MacroscopicNetworkLayerImpl> streamedLayerIterator, final MacroscopicNetworkLayerImpl[] currentLayer) throws XMLStreamException {
+    if(!"layer".equals(parentLocalName)) {
+      return;
+    }
+    if("nodes".equals(localName)) {
+      PlanItRunTimeException.throwIf(!streamedLayerIterator.hasNext(), "More network layers marshalled than streamed when streaming PLANit network");
+      currentLayer[0] = streamedLayerIterator.next();
+      for(var nodeIter = currentLayer[0].getNodes().streamSortedBy(getPrimaryIdMapper().getVertexIdMapper()).iterator(); nodeIter.hasNext();) {
+        writeXmlNode(xmlWriter, nodeIter.next());
+      }
+    }else if("links".equals(localName)) {
+      PlanItRunTimeException.throwIf(currentLayer[0] == null, "Links marshalled before nodes when streaming PLANit network");
+      for(var linkIter = currentLayer[0].getLinks().streamSortedBy(getPrimaryIdMapper().getLinkIdMapper()).iterator(); linkIter.hasNext();) {
+        writeXmlLink(xmlWriter, linkIter.next());
+      }
+    }
+  }
+
+  /**
+   * Persist the network by marshalling the XML memory model, which holds empty placeholders for the nodes and links of each layer, onto a StAX
+   * writer that writes the nodes and links of each layer one at a time when the marshaller reaches its placeholders
+   */
+  private void persistStreaming() {
+    final Path outputPath = createOutputPath();
+    try(OutputStream outputStream = getCompressionCodec().openOutputStream(outputPath, getSettings().getCompressionLevel())){
+      final PlanitXmlStreamWriter xmlWriter = PlanitXmlStreamWriter.create(outputStream);
+      final Iterator<MacroscopicNetworkLayerImpl> streamedLayerIterator = streamedLayers.iterator();
+      final MacroscopicNetworkLayerImpl[] currentLayer = new MacroscopicNetworkLayerImpl[1];
+      xmlWriter.setEmptyElementHandler(
+          (localName, parentLocalName, writer) -> writeStreamedElements(localName, parentLocalName, writer, streamedLayerIterator, currentLayer));
+
+      PlanitJaxbCache.marshal(
+          xmlRawNetwork, XMLElementMacroscopicNetwork.class, xmlWriter, PlanitSchema.createPlanitSchemaUri(PlanitSchema.MACROSCOPIC_NETWORK_XSD));
+      xmlWriter.close();
+      PlanItRunTimeException.throwIf(streamedLayerIterator.hasNext(), "Not all network layers were streamed when streaming PLANit network");
+    }catch(PlanItRunTimeException e) {
+      throw e;
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      throw new PlanItRunTimeException(String.format("Unable to stream PLANit network in native format to %s", outputPath), e);
+    }
+  }
+
+  /**
+   * Whether nodes and links are streamed upon persisting, which is not the case when persisting shards
+   * 
+   * @return true when streaming, false otherwise
+   */
+  private boolean isStreaming() {
+    return getSettings().isStreaming() && !getSettings().isSharded();
+  }
+
+  /**
+   * Marshal the shards, concurrently unless the settings restrict the number of write threads to one
+   * 
+   * @param shardTasks to perform
+   */
+  private void persistShards(final List<Callable<Void>> shardTasks) {
+    final int numberOfWriteThreads = Math.min(getSettings().getNumberOfWriteThreads(), shardTasks.size());
+    if(numberOfWriteThreads > 1) {
+      LOGGER.info(String.format("Persisting %d PLANit network shards concurrently using up to %d threads", shardTasks.size(), numberOfWriteThreads));
+    }
+    PlanitConcurrentTasks.invokeAll(shardTasks, numberOfWriteThreads, "persisting PLANit network shards");
+  }
+
+  /**
+   * Delete a file or directory including its contents, if it exists
+   * 
+   * @param path to delete
+   * @throws IOException thrown if error
+   */
+  private static void deleteRecursively(final Path path) throws IOException {
+    if(!Files.exists(path)) {
+      return;
+    }
+    try(var paths = Files.walk(path)){
+      for(Path toDelete : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(toDelete);
+      }
+    }
+  }
+
+  /**
+   * Remove the shard manifest and shard directory of a previous sharded run, if any, so they are not mistaken for the persisted network
+   */
+  private void removeStaleShards() {
+    final String networkFileName = getSettings().getFileName();
+    final Path outputDirectory = createOutputPath().toAbsolutePath().getParent();
+    final Path manifestPath = outputDirectory.resolve(PlanitNetworkShardManifest.createManifestFileName(networkFileName));
+    final Path shardDirectory = outputDirectory.resolve(PlanitNetworkShardManifest.createShardDirectoryName(networkFileName));
+    try {
+      if(Files.deleteIfExists(manifestPath)) {
+        LOGGER.info(String.format("Removed stale network shard manifest %s", manifestPath));
+      }
+      deleteRecursively(shardDirectory);
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      throw new PlanItRunTimeException(String.format("Unable to remove stale network shards %s", shardDirectory), e);
+    }
+  }
+
+  /**
+   * Persist each layer of the populated XML memory model to a separate shard, holding the network id, configuration and that layer only, and
+   * list the shards in a manifest in the output directory. Shards are placed in a sub directory of the output directory, so they are not
+   * mistaken for a complete network when the output directory is read
+   */
+  private void persistSharded() {
+    final String networkFileName = getSettings().getFileName();
+    final Path outputDirectory = createOutputPath().toAbsolutePath().getParent();
+    final String shardDirectoryName = PlanitNetworkShardManifest.createShardDirectoryName(networkFileName);
+    final Path shardDirectory = outputDirectory.resolve(shardDirectoryName);
+    try {
+      /* the network file would take precedence over the manifest, and shards of a previous run may no longer be listed */
+      Files.deleteIfExists(createOutputPath());
+      deleteRecursively(shardDirectory);
+      Files.createDirectories(shardDirectory);
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      throw new PlanItRunTimeException(String.format("Unable to prepare shard directory %s", shardDirectory), e);
+    }
+
+    final PlanitNetworkShardManifest manifest = new PlanitNetworkShardManifest(xmlRawNetwork.getId());
+    final List<Callable<Void>> shardTasks = new ArrayList<>();
+    final List<XMLElementInfrastructureLayer> xmlNetworkLayers = xmlRawNetwork.getInfrastructurelayers().getLayer();
+    for(int layerIndex = 0; layerIndex < xmlNetworkLayers.size(); ++layerIndex) {
+      final XMLElementMacroscopicNetwork xmlShard = new XMLElementMacroscopicNetwork();
+      xmlShard.setId(xmlRawNetwork.getId());
+      xmlShard.setConfiguration(xmlRawNetwork.getConfiguration());
+      xmlShard.setInfrastructurelayers(new XMLElementInfrastructureLayers());
+      xmlShard.getInfrastructurelayers().setSrsname(xmlRawNetwork.getInfrastructurelayers().getSrsname());
+      xmlShard.getInfrastructurelayers().getLayer().add(xmlNetworkLayers.get(layerIndex));
+
+      final String shardFileName = getCompressionCodec().appendFileSuffix(PlanitNetworkShardManifest.createShardFileName(networkFileName, layerIndex));
+      final Path shardPath = shardDirectory.resolve(shardFileName);
+      manifest.addShard(shardDirectoryName + "/" + shardFileName);
+      shardTasks.add(() -> {
+        try {
+          PlanitJaxbCache.marshal(xmlShard, XMLElementMacroscopicNetwork.class, shardPath, 
+              PlanitSchema.createPlanitSchemaUri(PlanitSchema.MACROSCOPIC_NETWORK_XSD), getCompressionCodec(), getSettings().getCompressionLevel());
+        }catch(Exception e) {
+          LOGGER.severe(e.getMessage());
+          throw new PlanItRunTimeException(String.format("Unable to persist PLANit network shard %s", shardPath), e);
+        }
+        return null;
+      });
+    }
+    persistShards(shardTasks);
+
+    /* manifest last, so it never refers to shards that are not (yet) available */
+    final Path manifestPath = outputDirectory.resolve(PlanitNetworkShardManifest.createManifestFileName(networkFileName));
+    try {
+      manifest.write(manifestPath);
+    }catch(PlanItException e) {
+      throw new PlanItRunTimeException(e);
+    }
+  }
+
   /** Constructor 
    * 
    * @param xmlRawNetwork to populate with PLANit network when persisting
@@ -616,6 +943,7 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
     MacroscopicNetwork macroscopicNetwork = (MacroscopicNetwork)network;
     
     /* initialise */
+    streamedLayers.clear();
     getComponentIdMappers().populateMissingIdMappers(getIdMapperType());
     prepareCoordinateReferenceSystem(macroscopicNetwork.getCoordinateReferenceSystem(), getSettings().getDestinationCoordinateReferenceSystem(), getSettings().getCountry());
     LOGGER.info(String.format("Persisting PLANit network to: %s",Paths.get(getSettings().getOutputDirectory(), getSettings().getFileName()).toString()));
@@ -631,7 +959,18 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
     populateXmlNetworkLayers(macroscopicNetwork);
     
     /* persist */
-    super.persist(xmlRawNetwork, XMLElementMacroscopicNetwork.class, PlanitSchema.MACROSCOPIC_NETWORK_XSD);
+    if(getSettings().isSharded()) {
+      if(getSettings().isStreaming()) {
+        LOGGER.warning("Streaming is not supported when persisting network shards, ignored");
+      }
+      persistSharded();
+    }else if(isStreaming()) {
+      removeStaleShards();
+      persistStreaming();
+    }else {
+      removeStaleShards();
+      super.persist(xmlRawNetwork, XMLElementMacroscopicNetwork.class, PlanitSchema.MACROSCOPIC_NETWORK_XSD);
+    }
   }
   
   /**
@@ -640,6 +979,7 @@ public class PlanitNetworkWriter extends UnTypedPlanitCrsWriterImpl<LayeredNetwo
   @Override
   public void reset() {
     currLayerLogPrefix = null;
+    streamedLayers.clear();
     xmlRawNetwork.setConfiguration(null);
     xmlRawNetwork.setInfrastructurelayers(null);
   }  
@@ -14,11 +14,28 @@ import org.goplanit.io.xml.util.PlanitXmlWriterSettings;
 public class PlanitNetworkWriterSettings extends PlanitXmlWriterSettings implements ConverterWriterSettings {
   
   /** the logger */
-  @SuppressWarnings("unused")
   private static final Logger LOGGER = Logger.getLogger(PlanitNetworkWriterSettings.class.getCanonicalName());
 
   /** default network file name to use */
   public static final String DEFAULT_NETWORK_XML = "network.xml";
+
+  /** default for streaming nodes and links to file rather than building the complete XML memory model first */
+  public static final boolean DEFAULT_STREAMING = false;
+
+  /** stream nodes and links to file one at a time rather than building the complete XML memory model first */
+  protected boolean streaming = DEFAULT_STREAMING;
+
+  /** default for persisting each layer to a separate shard file listed in a manifest */
+  public static final boolean DEFAULT_SHARDED = false;
+
+  /** persist each layer to a separate shard file listed in a manifest rather than a single network file */
+  protected boolean sharded = DEFAULT_SHARDED;
+
+  /** default number of threads used to write shards, i.e., the number of available processors */
+  public static final int DEFAULT_NUMBER_OF_WRITE_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /** maximum number of threads used to write shards concurrently */
+  protected int numberOfWriteThreads = DEFAULT_NUMBER_OF_WRITE_THREADS;
       
   /**
    * Default constructor
@@ -48,12 +65,87 @@ public class PlanitNetworkWriterSettings extends PlanitXmlWriterSettings impleme
     super(outputPathDirectory, fileName, countryName);
   }  
   
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void logSettings() {
+    if(streaming) {
+      LOGGER.info("Streaming nodes and links to file");
+    }
+    if(sharded) {
+      LOGGER.info(String.format("Persisting each layer to a separate shard using up to %d threads", numberOfWriteThreads));
+    }
+    super.logSettings();
+  }
+
+  /**
+   * Whether nodes and links are streamed to file one at a time rather than first building the complete XML memory model of the network,
+   * the persisted file is identical either way
+   * 
+   * @return true when streaming, false otherwise
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Set whether nodes and links are streamed to file one at a time, reducing the memory required to persist large networks
+   * 
+   * @param streaming when true stream, otherwise build the complete XML memory model first
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * Whether each layer is persisted to a separate shard file, listed in a manifest, rather than a single network file
+   * 
+   * @return true when sharded, false otherwise
+   */
+  public boolean isSharded() {
+    return sharded;
+  }
+
+  /**
+   * Set whether each layer is persisted to a separate shard file. Shards are placed in a sub directory of the output directory and listed in a
+   * manifest ({@link PlanitNetworkShardManifest}) next to where the network file would otherwise be. Sharded networks are not streamed. Since a
+   * network file takes precedence over a manifest when reading, the network file or manifest and shards of a previous run in the other mode are
+   * removed upon persisting
+   * 
+   * @param sharded when true persist layers as shards, otherwise persist a single network file
+   */
+  public void setSharded(boolean sharded) {
+    this.sharded = sharded;
+  }
+
+  /**
+   * Maximum number of threads used to write shards concurrently
+   * 
+   * @return number of write threads
+   */
+  public int getNumberOfWriteThreads() {
+    return numberOfWriteThreads;
+  }
+
+  /**
+   * Set the maximum number of threads used to write shards concurrently, one or less writes the shards sequentially
+   * 
+   * @param numberOfWriteThreads to use
+   */
+  public void setNumberOfWriteThreads(int numberOfWriteThreads) {
+    this.numberOfWriteThreads = numberOfWriteThreads;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public void reset() {
     super.reset();
+    streaming = DEFAULT_STREAMING;
+    sharded = DEFAULT_SHARDED;
+    numberOfWriteThreads = DEFAULT_NUMBER_OF_WRITE_THREADS;
   }  
   
 }
@@ -85,7 +85,7 @@ public abstract class UnTypedPlanitCrsWriterImpl<T> extends PlanitWriterImpl<T>
     PlanitXmlWriterSettings xmlSettings = null;
     xmlSettings = getSettingsAsXmlWriterSettings();
     CoordinatesType coordsType = PlanitGmlUtils.createGmlCoordinatesType(
-        transformedCoordinates, xmlSettings.getCommaSeparator(), xmlSettings.getDecimalSeparator(), xmlSettings.getDecimalFormat(), xmlSettings.getTupleSeparator());
+        transformedCoordinates, xmlSettings.getCommaSeparator(), xmlSettings.getDecimalSeparator(), xmlSettings.getDoubleFormatter(), xmlSettings.getTupleSeparator());
 
     /* gml line string */
     return PlanitGmlUtils.createGmlLineStringType(coordsType);
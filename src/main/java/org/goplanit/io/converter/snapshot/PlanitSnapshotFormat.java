@@ -0,0 +1,122 @@
+package org.goplanit.io.converter.snapshot;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.misc.FileUtils;
+
+/**
+ * Constants and shared functionality of the PLANit binary snapshot format. A snapshot is a single file containing the fully built
+ * memory model of a network, and optionally a zoning and demands on top of it. The layout is:
+ * <ul>
+ * <li>header: magic number, format version, content flags, source fingerprint, payload length and CRC32 checksum of the payload</li>
+ * <li>payload: network section, followed by the zoning and demands sections when present</li>
+ * </ul>
+ * All values are stored big endian, strings as length prefixed UTF-8 (length -1 indicates null), and references between entities as their
+ * (zero based) position in the snapshot rather than their ids. Coordinates are stored as count, dimension and number of measures followed by the
+ * packed ordinates, so z and m values are retained. Geometries are stored as their type followed by their coordinates, polygons with their
+ * holes and multi geometries and geometry collections as their number of parts followed by each part. Od matrices are stored sparsely, per
+ * origin the number of non-zero cells followed by their destination positions and values.
+ *
+ * @author markr
+ *
+ */
+public final class PlanitSnapshotFormat {
+
+  /** magic number at the start of each snapshot file, "PLNS" */
+  public static final int MAGIC = 0x504C4E53;
+
+  /** current version of the format, snapshots of any other version are rejected */
+  public static final int VERSION = 2;
+
+  /** size of the header in bytes: magic, version, flags (int), fingerprint, payload length, checksum (long) */
+  public static final int HEADER_SIZE = 3 * Integer.BYTES + 3 * Long.BYTES;
+
+  /** flag indicating a zoning section is present */
+  public static final int FLAG_ZONING = 1;
+
+  /** flag indicating a demands section is present */
+  public static final int FLAG_DEMANDS = 1 << 1;
+
+  /** fingerprint value used when a snapshot is not associated with any source files */
+  public static final long NO_SOURCE_FINGERPRINT = 0L;
+
+  /** crs stored by its identifier (srs name) */
+  static final byte CRS_SRS_NAME = 1;
+
+  /** crs stored as well known text */
+  static final byte CRS_WKT = 2;
+
+  /** no geometry present */
+  static final byte GEOMETRY_NONE = 0;
+
+  /** point geometry */
+  static final byte GEOMETRY_POINT = 1;
+
+  /** line string geometry */
+  static final byte GEOMETRY_LINESTRING = 2;
+
+  /** polygon geometry, exterior ring followed by its holes */
+  static final byte GEOMETRY_POLYGON = 3;
+
+  /** linear ring geometry */
+  static final byte GEOMETRY_LINEARRING = 4;
+
+  /** multi point geometry */
+  static final byte GEOMETRY_MULTIPOINT = 5;
+
+  /** multi line string geometry */
+  static final byte GEOMETRY_MULTILINESTRING = 6;
+
+  /** multi polygon geometry */
+  static final byte GEOMETRY_MULTIPOLYGON = 7;
+
+  /** geometry collection of any of the other geometry types */
+  static final byte GEOMETRY_COLLECTION = 8;
+
+  /** no explicit value set for optional double */
+  static final byte VALUE_UNSET = 0;
+
+  /** explicit value set for optional double */
+  static final byte VALUE_SET = 1;
+
+  /** Constructor, not to be instantiated */
+  private PlanitSnapshotFormat() {
+  }
+
+  /**
+   * Create a fingerprint of the source files a snapshot is created from, based on the names, sizes and modification times of all files with the given
+   * extension in the directory. When the fingerprint of a snapshot matches that of its source directory, the snapshot can be used in favour of
+   * parsing the source files
+   *
+   * @param inputPathDirectory to create fingerprint for
+   * @param fileExtension of files to include
+   * @return fingerprint
+   */
+  public static long createSourceFingerprint(final String inputPathDirectory, final String fileExtension) {
+    PlanItRunTimeException.throwIfNull(inputPathDirectory, "Input path directory for snapshot fingerprint is not provided");
+    PlanItRunTimeException.throwIfNull(fileExtension, "File extension for snapshot fingerprint is not provided");
+
+    final File[] sourceFiles = FileUtils.getFilesWithExtensionFromDir(inputPathDirectory, fileExtension);
+    Arrays.sort(sourceFiles, Comparator.comparing(File::getName));
+
+    final CRC32 crc = new CRC32();
+    final byte[] longBytes = new byte[Long.BYTES];
+    for(File sourceFile : sourceFiles) {
+      crc.update(sourceFile.getName().getBytes(StandardCharsets.UTF_8));
+      for(long value : new long[] {sourceFile.length(), sourceFile.lastModified()}) {
+        for(int index = 0; index < Long.BYTES; ++index) {
+          longBytes[index] = (byte) (value >>> (8 * (Long.BYTES - 1 - index)));
+        }
+        crc.update(longBytes);
+      }
+    }
+    final long fingerprint = (((long) sourceFiles.length) << 32) | crc.getValue();
+    /* never collide with the value indicating absence of a fingerprint */
+    return fingerprint == NO_SOURCE_FINGERPRINT ? 1L : fingerprint;
+  }
+}
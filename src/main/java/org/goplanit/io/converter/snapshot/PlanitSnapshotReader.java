@@ -0,0 +1,895 @@
+package org.goplanit.io.converter.snapshot;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.geotools.referencing.CRS;
+import org.goplanit.demands.Demands;
+import org.goplanit.io.xml.util.PlanitXmlJaxbParser;
+import org.goplanit.mode.ModeFeaturesFactory;
+import org.goplanit.network.MacroscopicNetwork;
+import org.goplanit.network.layer.macroscopic.AccessGroupPropertiesFactory;
+import org.goplanit.od.demand.OdDemandMatrix;
+import org.goplanit.userclass.TravellerType;
+import org.goplanit.userclass.UserClass;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.utils.misc.LoggingUtils;
+import org.goplanit.utils.mode.Mode;
+import org.goplanit.utils.mode.MotorisationModeType;
+import org.goplanit.utils.mode.PhysicalModeFeatures;
+import org.goplanit.utils.mode.PredefinedModeType;
+import org.goplanit.utils.mode.TrackModeType;
+import org.goplanit.utils.mode.UsabilityModeFeatures;
+import org.goplanit.utils.mode.UseOfModeType;
+import org.goplanit.utils.mode.VehicularModeType;
+import org.goplanit.utils.network.layer.MacroscopicNetworkLayer;
+import org.goplanit.utils.network.layer.macroscopic.AccessGroupProperties;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLink;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegmentType;
+import org.goplanit.utils.network.layer.physical.Node;
+import org.goplanit.utils.time.TimePeriod;
+import org.goplanit.utils.zoning.Connectoid;
+import org.goplanit.utils.zoning.ConnectoidType;
+import org.goplanit.utils.zoning.OdZone;
+import org.goplanit.utils.zoning.TransferZone;
+import org.goplanit.utils.zoning.TransferZoneGroup;
+import org.goplanit.utils.zoning.TransferZoneType;
+import org.goplanit.utils.zoning.Zone;
+import org.goplanit.zoning.Zoning;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Reader of the PLANit binary snapshot format, see {@link PlanitSnapshotFormat}. The snapshot file is memory mapped and its checksum is verified
+ * before any entity is restored. Entities are restored via the same factories the XML readers use, while coordinates and od matrices are
+ * restored with bulk reads of primitive arrays.
+ * <p>
+ * The payload is mapped in consecutive segments of at most {@link #DEFAULT_MAPPED_SEGMENT_SIZE} bytes, since a single memory mapped region is
+ * limited to 2GB, so snapshots of any size can be read.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitSnapshotReader {
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitSnapshotReader.class.getCanonicalName());
+
+  /** geometry factory used to restore geometries based on packed coordinates */
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+  /** default maximum size in bytes of each memory mapped segment of the payload */
+  public static final int DEFAULT_MAPPED_SEGMENT_SIZE = 1 << 30;
+
+  /** file to read snapshot from */
+  private final Path snapshotFile;
+
+  /** maximum size in bytes of each memory mapped segment of the payload */
+  private final int mappedSegmentSize;
+
+  /** channel of the snapshot being read */
+  private FileChannel channel;
+
+  /** position in the file of the end of the payload */
+  private long payloadEnd;
+
+  /** position in the file of the start of the currently mapped segment */
+  private long segmentStart;
+
+  /** id token to create memory model with */
+  private final IdGroupingToken idToken;
+
+  /** currently mapped segment of the payload being read */
+  private ByteBuffer in;
+
+  /** content flags of snapshot being read */
+  private int flags;
+
+  /** restored network */
+  private MacroscopicNetwork network;
+
+  /** restored zoning, null if not present in snapshot */
+  private Zoning zoning;
+
+  /** restored demands, null if not present in snapshot */
+  private Demands demands;
+
+  /** modes in snapshot order */
+  private final List<Mode> modes = new ArrayList<>();
+
+  /** nodes across all layers in snapshot order */
+  private final List<Node> nodes = new ArrayList<>();
+
+  /** link segments across all layers in snapshot order */
+  private final List<MacroscopicLinkSegment> linkSegments = new ArrayList<>();
+
+  /** zones (od zones first, transfer zones second) in snapshot order */
+  private final List<Zone> zones = new ArrayList<>();
+
+  /**
+   * Map the segment of the payload starting at the given position in the file
+   *
+   * @param position in the file to map from
+   * @throws IOException thrown if error
+   */
+  private void mapSegment(final long position) throws IOException {
+    in = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mappedSegmentSize, payloadEnd - position));
+    segmentStart = position;
+  }
+
+  /**
+   * Make sure the given number of bytes can be read from the current segment, mapping the next segment from the current position when not
+   *
+   * @param numberOfBytes to be available, at most the segment size
+   */
+  private void ensureAvailable(final int numberOfBytes) {
+    if(in.remaining() >= numberOfBytes) {
+      return;
+    }
+    final long position = segmentStart + in.position();
+    PlanItRunTimeException.throwIf(payloadEnd - position < numberOfBytes, "PLANit snapshot %s is truncated", snapshotFile);
+    try {
+      mapSegment(position);
+    }catch(IOException e) {
+      throw new PlanItRunTimeException(String.format("Unable to map PLANit snapshot %s at position %d", snapshotFile, position), e);
+    }
+  }
+
+  /**
+   * Read byte
+   *
+   * @return value
+   */
+  private byte readByte() {
+    ensureAvailable(Byte.BYTES);
+    return in.get();
+  }
+
+  /**
+   * Read int
+   *
+   * @return value
+   */
+  private int readInt() {
+    ensureAvailable(Integer.BYTES);
+    return in.getInt();
+  }
+
+  /**
+   * Read long
+   *
+   * @return value
+   */
+  private long readLong() {
+    ensureAvailable(Long.BYTES);
+    return in.getLong();
+  }
+
+  /**
+   * Read double
+   *
+   * @return value
+   */
+  private double readDouble() {
+    ensureAvailable(Double.BYTES);
+    return in.getDouble();
+  }
+
+  /**
+   * Fill the given array with consecutive bytes, possibly spanning segments
+   *
+   * @param values to fill
+   */
+  private void readBytes(final byte[] values) {
+    int offset = 0;
+    while(offset < values.length) {
+      ensureAvailable(Byte.BYTES);
+      final int length = Math.min(values.length - offset, in.remaining());
+      in.get(values, offset, length);
+      offset += length;
+    }
+  }
+
+  /**
+   * Fill the first entries of the given array with consecutive ints with bulk reads, possibly spanning segments
+   *
+   * @param values to fill
+   * @param numberOfValues to read
+   */
+  private void readInts(final int[] values, final int numberOfValues) {
+    int offset = 0;
+    while(offset < numberOfValues) {
+      ensureAvailable(Integer.BYTES);
+      final int length = Math.min(numberOfValues - offset, in.remaining() / Integer.BYTES);
+      in.asIntBuffer().get(values, offset, length);
+      in.position(in.position() + length * Integer.BYTES);
+      offset += length;
+    }
+  }
+
+  /**
+   * Fill the first entries of the given array with consecutive doubles with bulk reads, possibly spanning segments
+   *
+   * @param values to fill
+   * @param numberOfValues to read
+   */
+  private void readDoubles(final double[] values, final int numberOfValues) {
+    int offset = 0;
+    while(offset < numberOfValues) {
+      ensureAvailable(Double.BYTES);
+      final int length = Math.min(numberOfValues - offset, in.remaining() / Double.BYTES);
+      in.asDoubleBuffer().get(values, offset, length);
+      in.position(in.position() + length * Double.BYTES);
+      offset += length;
+    }
+  }
+
+  /**
+   * Read length prefixed UTF-8 string
+   *
+   * @return string, null if absent
+   */
+  private String readString() {
+    int length = readInt();
+    if(length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    readBytes(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read optional double
+   *
+   * @return value, null if not set
+   */
+  private Double readOptionalDouble() {
+    return readByte() == PlanitSnapshotFormat.VALUE_SET ? readDouble() : null;
+  }
+
+  /**
+   * Read coordinates with their dimension and number of measures, the packed ordinates are read with a bulk read
+   *
+   * @return coordinate sequence
+   */
+  private CoordinateSequence readCoordinates() {
+    final int numberOfCoordinates = readInt();
+    final int dimension = readByte();
+    final int measures = readByte();
+    final double[] packed = new double[dimension * numberOfCoordinates];
+    readDoubles(packed, packed.length);
+    return PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(packed, dimension, measures);
+  }
+
+  /**
+   * Read the parts of a multi geometry or geometry collection
+   *
+   * @param <T> type of the parts
+   * @param partClazz type of the parts
+   * @param parts array of length zero used to type the result
+   * @return parts
+   */
+  private <T extends Geometry> T[] readGeometryParts(final Class<T> partClazz, final T[] parts) {
+    final int numberOfParts = readInt();
+    final T[] readParts = Arrays.copyOf(parts, numberOfParts);
+    for(int index = 0; index < numberOfParts; ++index) {
+      final Geometry part = readGeometry();
+      PlanItRunTimeException.throwIf(!partClazz.isInstance(part), "Invalid part of multi geometry in PLANit snapshot %s", snapshotFile);
+      readParts[index] = partClazz.cast(part);
+    }
+    return readParts;
+  }
+
+  /**
+   * Read (possibly absent) geometry
+   *
+   * @return geometry, null if absent
+   */
+  private Geometry readGeometry() {
+    switch (readByte()) {
+      case PlanitSnapshotFormat.GEOMETRY_NONE:
+        return null;
+      case PlanitSnapshotFormat.GEOMETRY_POINT:
+        return GEOMETRY_FACTORY.createPoint(readCoordinates());
+      case PlanitSnapshotFormat.GEOMETRY_LINESTRING:
+        return GEOMETRY_FACTORY.createLineString(readCoordinates());
+      case PlanitSnapshotFormat.GEOMETRY_LINEARRING:
+        return GEOMETRY_FACTORY.createLinearRing(readCoordinates());
+      case PlanitSnapshotFormat.GEOMETRY_POLYGON:
+        final LinearRing shell = GEOMETRY_FACTORY.createLinearRing(readCoordinates());
+        final LinearRing[] holes = new LinearRing[readInt()];
+        for(int index = 0; index < holes.length; ++index) {
+          holes[index] = GEOMETRY_FACTORY.createLinearRing(readCoordinates());
+        }
+        return GEOMETRY_FACTORY.createPolygon(shell, holes);
+      case PlanitSnapshotFormat.GEOMETRY_MULTIPOINT:
+        return GEOMETRY_FACTORY.createMultiPoint(readGeometryParts(Point.class, new Point[0]));
+      case PlanitSnapshotFormat.GEOMETRY_MULTILINESTRING:
+        return GEOMETRY_FACTORY.createMultiLineString(readGeometryParts(LineString.class, new LineString[0]));
+      case PlanitSnapshotFormat.GEOMETRY_MULTIPOLYGON:
+        return GEOMETRY_FACTORY.createMultiPolygon(readGeometryParts(Polygon.class, new Polygon[0]));
+      case PlanitSnapshotFormat.GEOMETRY_COLLECTION:
+        return GEOMETRY_FACTORY.createGeometryCollection(readGeometryParts(Geometry.class, new Geometry[0]));
+      default:
+        throw new PlanItRunTimeException(String.format("Invalid geometry type in PLANit snapshot %s", snapshotFile));
+    }
+  }
+
+  /**
+   * Read mode references
+   *
+   * @return modes, null when absent
+   */
+  private List<Mode> readModeReferences() {
+    int numberOfModes = readInt();
+    if(numberOfModes < 0) {
+      return null;
+    }
+    List<Mode> referencedModes = new ArrayList<>(numberOfModes);
+    for(int index = 0; index < numberOfModes; ++index) {
+      referencedModes.add(modes.get(readInt()));
+    }
+    return referencedModes;
+  }
+
+  /**
+   * Read coordinate reference system
+   *
+   * @return crs, null if absent
+   */
+  private CoordinateReferenceSystem readCoordinateReferenceSystem() {
+    byte crsType = readByte();
+    String crsValue = readString();
+    if(crsValue == null) {
+      return null;
+    }
+    if(crsType == PlanitSnapshotFormat.CRS_SRS_NAME) {
+      return PlanitXmlJaxbParser.createPlanitCrs(crsValue);
+    }
+    try {
+      return CRS.parseWKT(crsValue);
+    }catch(Exception e) {
+      throw new PlanItRunTimeException(String.format("Unable to restore coordinate reference system from PLANit snapshot %s", snapshotFile), e);
+    }
+  }
+
+  /**
+   * Restore the modes of the network
+   */
+  private void readModes() {
+    final int numberOfModes = readInt();
+    for(int index = 0; index < numberOfModes; ++index) {
+      String xmlId = readString();
+      String externalId = readString();
+      String name = readString();
+      boolean predefined = readByte() != 0;
+      double maxSpeed = readDouble();
+      double pcu = readDouble();
+
+      PhysicalModeFeatures physicalFeatures = ModeFeaturesFactory.createDefaultPhysicalFeatures();
+      if(readByte() != 0) {
+        physicalFeatures = ModeFeaturesFactory.createPhysicalFeatures(
+            VehicularModeType.valueOf(readString()), MotorisationModeType.valueOf(readString()), TrackModeType.valueOf(readString()));
+      }
+      UsabilityModeFeatures usabilityFeatures = ModeFeaturesFactory.createDefaultUsabilityFeatures();
+      if(readByte() != 0) {
+        usabilityFeatures = ModeFeaturesFactory.createUsabilityFeatures(UseOfModeType.valueOf(readString()));
+      }
+
+      PredefinedModeType modeType = PredefinedModeType.create(name != null ? name : xmlId);
+      Mode mode;
+      if(predefined && modeType != PredefinedModeType.CUSTOM) {
+        mode = network.getModes().getFactory().registerNew(modeType);
+      }else {
+        mode = network.getModes().getFactory().registerNewCustomMode(name, maxSpeed, pcu, physicalFeatures, usabilityFeatures);
+      }
+      mode.setXmlId(xmlId);
+      mode.setExternalId(externalId);
+      modes.add(mode);
+    }
+  }
+
+  /**
+   * Restore the link segment types of a layer
+   *
+   * @param layer to register link segment types on
+   * @return restored link segment types in snapshot order
+   */
+  private List<MacroscopicLinkSegmentType> readLinkSegmentTypes(final MacroscopicNetworkLayer layer) {
+    final int numberOfTypes = readInt();
+    final List<MacroscopicLinkSegmentType> linkSegmentTypes = new ArrayList<>(numberOfTypes);
+    for(int index = 0; index < numberOfTypes; ++index) {
+      String xmlId = readString();
+      String externalId = readString();
+      String name = readString();
+      Double capacityPcuPerHour = readOptionalDouble();
+      Double maximumDensityPcuPerKm = readOptionalDouble();
+
+      MacroscopicLinkSegmentType linkSegmentType = null;
+      if(capacityPcuPerHour != null && maximumDensityPcuPerKm != null) {
+        linkSegmentType = layer.getLinkSegmentTypes().getFactory().registerNew(name, capacityPcuPerHour, maximumDensityPcuPerKm);
+      }else if(capacityPcuPerHour != null) {
+        linkSegmentType = layer.getLinkSegmentTypes().getFactory().registerNewWithCapacity(name, capacityPcuPerHour);
+      }else if(maximumDensityPcuPerKm != null) {
+        linkSegmentType = layer.getLinkSegmentTypes().getFactory().registerNewWithMaxDensity(name, maximumDensityPcuPerKm);
+      }else {
+        linkSegmentType = layer.getLinkSegmentTypes().getFactory().registerNew(name);
+      }
+      linkSegmentType.setXmlId(xmlId);
+      linkSegmentType.setExternalId(externalId);
+
+      /* access groups */
+      final int numberOfAccessGroups = readInt();
+      for(int groupIndex = 0; groupIndex < numberOfAccessGroups; ++groupIndex) {
+        List<Mode> accessModes = readModeReferences();
+        Double maximumSpeedKmH = readOptionalDouble();
+        Double criticalSpeedKmH = readOptionalDouble();
+
+        AccessGroupProperties groupProperties = null;
+        if(maximumSpeedKmH != null && criticalSpeedKmH != null) {
+          groupProperties = AccessGroupPropertiesFactory.create(maximumSpeedKmH, criticalSpeedKmH, accessModes);
+        }else if(maximumSpeedKmH != null) {
+          groupProperties = AccessGroupPropertiesFactory.create(maximumSpeedKmH, accessModes);
+        }else {
+          groupProperties = AccessGroupPropertiesFactory.create(accessModes);
+        }
+        linkSegmentType.setAccessGroupProperties(groupProperties);
+      }
+      linkSegmentTypes.add(linkSegmentType);
+    }
+    return linkSegmentTypes;
+  }
+
+  /**
+   * Restore a link segment when present
+   *
+   * @param layer to register on
+   * @param link parent link
+   * @param directionAb direction of the link segment
+   * @param linkSegmentTypes of the layer in snapshot order
+   */
+  private void readLinkSegment(
+      final MacroscopicNetworkLayer layer, final MacroscopicLink link, final boolean directionAb, final List<MacroscopicLinkSegmentType> linkSegmentTypes) {
+    if(readByte() == 0) {
+      return;
+    }
+    MacroscopicLinkSegment linkSegment = layer.getLinkSegments().getFactory().registerNew(link, directionAb, true /* register on nodes and link*/);
+    linkSegment.setXmlId(readString());
+    linkSegment.setExternalId(readString());
+    linkSegment.setPhysicalSpeedLimitKmH(readDouble());
+    linkSegment.setNumberOfLanes(readInt());
+    int linkSegmentTypeIndex = readInt();
+    if(linkSegmentTypeIndex >= 0) {
+      linkSegment.setLinkSegmentType(linkSegmentTypes.get(linkSegmentTypeIndex));
+    }
+    linkSegments.add(linkSegment);
+  }
+
+  /**
+   * Restore a network layer
+   */
+  private void readLayer() {
+    MacroscopicNetworkLayer layer = network.getTransportLayers().getFactory().registerNew();
+    layer.setXmlId(readString());
+    layer.setExternalId(readString());
+    layer.registerSupportedModes(readModeReferences());
+
+    final List<MacroscopicLinkSegmentType> linkSegmentTypes = readLinkSegmentTypes(layer);
+
+    /* nodes */
+    final int layerNodeOffset = nodes.size();
+    final int numberOfNodes = readInt();
+    for(int index = 0; index < numberOfNodes; ++index) {
+      Node node = layer.getNodes().getFactory().registerNew();
+      node.setXmlId(readString());
+      node.setExternalId(readString());
+      if(readByte() != 0) {
+        node.setPosition(GEOMETRY_FACTORY.createPoint(readCoordinates()));
+      }
+      nodes.add(node);
+    }
+
+    /* links and link segments */
+    final int numberOfLinks = readInt();
+    for(int index = 0; index < numberOfLinks; ++index) {
+      String xmlId = readString();
+      String externalId = readString();
+      String name = readString();
+      Node nodeA = nodes.get(layerNodeOffset + readInt());
+      Node nodeB = nodes.get(layerNodeOffset + readInt());
+      double lengthKm = readDouble();
+
+      MacroscopicLink link = layer.getLinks().getFactory().registerNew(nodeA, nodeB, lengthKm, true /* register on nodes */);
+      link.setXmlId(xmlId);
+      link.setExternalId(externalId);
+      if(name != null) {
+        link.setName(name);
+      }
+      if(readByte() != 0) {
+        link.setGeometry(GEOMETRY_FACTORY.createLineString(readCoordinates()));
+      }
+
+      readLinkSegment(layer, link, true, linkSegmentTypes);
+      readLinkSegment(layer, link, false, linkSegmentTypes);
+    }
+  }
+
+  /**
+   * Restore the network section
+   */
+  private void readNetwork() {
+    network = new MacroscopicNetwork(idToken);
+    network.setXmlId(readString());
+    network.setCoordinateReferenceSystem(readCoordinateReferenceSystem());
+    readModes();
+
+    final int numberOfLayers = readInt();
+    for(int index = 0; index < numberOfLayers; ++index) {
+      readLayer();
+    }
+  }
+
+  /**
+   * Restore the properties shared by all zones
+   *
+   * @param zone to populate
+   */
+  private void readBaseZone(final Zone zone) {
+    zone.setXmlId(readString());
+    zone.setExternalId(readString());
+    String name = readString();
+    if(name != null) {
+      zone.setName(name);
+    }
+
+    /* centroid */
+    if(readByte() != 0) {
+      String centroidName = readString();
+      if(centroidName != null) {
+        zone.getCentroid().setName(centroidName);
+      }
+      if(readByte() != 0) {
+        zone.getCentroid().setPosition(GEOMETRY_FACTORY.createPoint(readCoordinates()));
+      }
+    }
+
+    zone.setGeometry(readGeometry());
+    zones.add(zone);
+  }
+
+  /**
+   * Restore the properties shared by all connectoids, including their access zones
+   *
+   * @param connectoid to populate
+   */
+  private void readBaseConnectoid(final Connectoid connectoid) {
+    connectoid.setXmlId(readString());
+    connectoid.setExternalId(readString());
+    String name = readString();
+    if(name != null) {
+      connectoid.setName(name);
+    }
+    connectoid.setType(ConnectoidType.valueOf(readString()));
+
+    final int numberOfAccessZones = readInt();
+    for(int index = 0; index < numberOfAccessZones; ++index) {
+      Zone accessZone = zones.get(readInt());
+      connectoid.addAccessZone(accessZone);
+      Double lengthKm = readOptionalDouble();
+      if(lengthKm != null) {
+        connectoid.setLength(accessZone, lengthKm);
+      }
+      List<Mode> allowedModes = readModeReferences();
+      if(allowedModes != null) {
+        allowedModes.forEach(allowedMode -> connectoid.addAllowedMode(accessZone, allowedMode));
+      }
+    }
+  }
+
+  /**
+   * Restore the zoning section
+   */
+  private void readZoning() {
+    zoning = new Zoning(idToken, network.getNetworkGroupingTokenId());
+    zoning.setXmlId(readString());
+    zoning.setCoordinateReferenceSystem(readCoordinateReferenceSystem());
+
+    /* zones */
+    final int numberOfOdZones = readInt();
+    for(int index = 0; index < numberOfOdZones; ++index) {
+      readBaseZone(zoning.getOdZones().getFactory().registerNew());
+    }
+    final int numberOfTransferZones = readInt();
+    for(int index = 0; index < numberOfTransferZones; ++index) {
+      TransferZone transferZone = zoning.getTransferZones().getFactory().registerNew();
+      readBaseZone(transferZone);
+      transferZone.setType(TransferZoneType.valueOf(readString()));
+      final int numberOfPlatformNames = readInt();
+      if(numberOfPlatformNames > 0) {
+        String[] platformNames = new String[numberOfPlatformNames];
+        for(int platformIndex = 0; platformIndex < numberOfPlatformNames; ++platformIndex) {
+          platformNames[platformIndex] = readString();
+        }
+        transferZone.addTransferZonePlatformNames(platformNames);
+      }
+    }
+
+    /* connectoids */
+    final int numberOfOdConnectoids = readInt();
+    for(int index = 0; index < numberOfOdConnectoids; ++index) {
+      Node accessNode = nodes.get(readInt());
+      readBaseConnectoid(zoning.getOdConnectoids().getFactory().registerNew(accessNode));
+    }
+    final int numberOfTransferConnectoids = readInt();
+    for(int index = 0; index < numberOfTransferConnectoids; ++index) {
+      MacroscopicLinkSegment accessLinkSegment = linkSegments.get(readInt());
+      boolean nodeAccessDownstream = readByte() != 0;
+      readBaseConnectoid(zoning.getTransferConnectoids().getFactory().registerNew(nodeAccessDownstream, accessLinkSegment));
+    }
+
+    /* transfer zone groups */
+    final int numberOfTransferGroups = readInt();
+    for(int index = 0; index < numberOfTransferGroups; ++index) {
+      TransferZoneGroup transferGroup = zoning.getTransferZoneGroups().getFactory().registerNew();
+      transferGroup.setXmlId(readString());
+      transferGroup.setExternalId(readString());
+      String name = readString();
+      if(name != null) {
+        transferGroup.setName(name);
+      }
+      final int numberOfGroupZones = readInt();
+      for(int zoneIndex = 0; zoneIndex < numberOfGroupZones; ++zoneIndex) {
+        transferGroup.addTransferZone((TransferZone) zones.get(readInt()));
+      }
+    }
+  }
+
+  /**
+   * Restore the demands section, sparse od matrices are restored one row at a time with bulk reads
+   */
+  private void readDemands() {
+    demands = new Demands(idToken);
+    demands.setXmlId(readString());
+
+    final int numberOfTravellerTypes = readInt();
+    final List<TravellerType> travellerTypes = new ArrayList<>(numberOfTravellerTypes);
+    for(int index = 0; index < numberOfTravellerTypes; ++index) {
+      String xmlId = readString();
+      String externalId = readString();
+      TravellerType travellerType = demands.travelerTypes.getFactory().registerNew(readString());
+      travellerType.setXmlId(xmlId);
+      travellerType.setExternalId(externalId);
+      travellerTypes.add(travellerType);
+    }
+
+    final int numberOfUserClasses = readInt();
+    for(int index = 0; index < numberOfUserClasses; ++index) {
+      String xmlId = readString();
+      String externalId = readString();
+      String name = readString();
+      int modeIndex = readInt();
+      int travellerTypeIndex = readInt();
+      UserClass userClass = demands.userClasses.getFactory().registerNew(
+          name, modeIndex < 0 ? null : modes.get(modeIndex), travellerTypeIndex < 0 ? null : travellerTypes.get(travellerTypeIndex));
+      userClass.setXmlId(xmlId);
+      userClass.setExternalId(externalId);
+    }
+
+    final int numberOfTimePeriods = readInt();
+    final List<TimePeriod> timePeriods = new ArrayList<>(numberOfTimePeriods);
+    for(int index = 0; index < numberOfTimePeriods; ++index) {
+      String xmlId = readString();
+      String externalId = readString();
+      String description = readString();
+      int startTimeSeconds = (int) readLong();
+      int durationSeconds = (int) readLong();
+      TimePeriod timePeriod = demands.timePeriods.getFactory().registerNew(description, startTimeSeconds, durationSeconds);
+      timePeriod.setXmlId(xmlId);
+      timePeriod.setExternalId(externalId);
+      timePeriods.add(timePeriod);
+    }
+
+    /* od matrices */
+    final int numberOfMatrices = readInt();
+    final int numberOfOdZones = readInt();
+    PlanItRunTimeException.throwIf(numberOfOdZones != zoning.getOdZones().size(),
+        "Number of od zones in demands (%d) inconsistent with zoning (%d) in PLANit snapshot", numberOfOdZones, zoning.getOdZones().size());
+    final List<Zone> odZones = zones.subList(0, numberOfOdZones);
+    final int[] rowDestinations = new int[numberOfOdZones];
+    final double[] rowValues = new double[numberOfOdZones];
+    for(int index = 0; index < numberOfMatrices; ++index) {
+      TimePeriod timePeriod = timePeriods.get(readInt());
+      Mode mode = modes.get(readInt());
+      OdDemandMatrix odDemandMatrix = new OdDemandMatrix(zoning.getOdZones());
+      for(Zone origin : odZones) {
+        final int numberOfNonZeroCells = readInt();
+        readInts(rowDestinations, numberOfNonZeroCells);
+        readDoubles(rowValues, numberOfNonZeroCells);
+        for(int cellIndex = 0; cellIndex < numberOfNonZeroCells; ++cellIndex) {
+          odDemandMatrix.setValue((OdZone) origin, (OdZone) odZones.get(rowDestinations[cellIndex]), rowValues[cellIndex]);
+        }
+      }
+      demands.registerOdDemandPcuHour(timePeriod, mode, odDemandMatrix);
+    }
+  }
+
+  /**
+   * Validate the header and checksum of the opened snapshot, mapping the payload one segment at a time, and map the first segment of the payload
+   *
+   * @throws IOException thrown if error
+   */
+  private void verifyAndMapPayload() throws IOException {
+    PlanItRunTimeException.throwIf(channel.size() < PlanitSnapshotFormat.HEADER_SIZE, "PLANit snapshot %s is truncated", snapshotFile);
+    final ByteBuffer header = ByteBuffer.allocate(PlanitSnapshotFormat.HEADER_SIZE);
+    while(header.hasRemaining()) {
+      channel.read(header, header.position());
+    }
+    header.flip();
+
+    PlanItRunTimeException.throwIf(header.getInt() != PlanitSnapshotFormat.MAGIC, "File %s is not a PLANit snapshot", snapshotFile);
+    int version = header.getInt();
+    PlanItRunTimeException.throwIf(version != PlanitSnapshotFormat.VERSION,
+        "PLANit snapshot %s has version %d, only version %d is supported", snapshotFile, version, PlanitSnapshotFormat.VERSION);
+    int flags = header.getInt();
+    header.getLong(); // fingerprint
+    long payloadLength = header.getLong();
+    long checksum = header.getLong();
+    PlanItRunTimeException.throwIf(payloadLength != channel.size() - PlanitSnapshotFormat.HEADER_SIZE, "PLANit snapshot %s is truncated", snapshotFile);
+
+    payloadEnd = channel.size();
+    CRC32 crc = new CRC32();
+    for(long position = PlanitSnapshotFormat.HEADER_SIZE; position < payloadEnd; position += mappedSegmentSize) {
+      mapSegment(position);
+      crc.update(in);
+    }
+    PlanItRunTimeException.throwIf(crc.getValue() != checksum, "PLANit snapshot %s is corrupt, checksum mismatch", snapshotFile);
+
+    this.flags = flags;
+    mapSegment(PlanitSnapshotFormat.HEADER_SIZE);
+  }
+
+  /** Constructor
+   *
+   * @param snapshotFile to read from
+   * @param idToken to create the restored memory model with
+   */
+  public PlanitSnapshotReader(final Path snapshotFile, final IdGroupingToken idToken) {
+    this(snapshotFile, idToken, DEFAULT_MAPPED_SEGMENT_SIZE);
+  }
+
+  /** Constructor
+   *
+   * @param snapshotFile to read from
+   * @param idToken to create the restored memory model with
+   * @param mappedSegmentSize maximum size in bytes of each memory mapped segment of the payload, at least {@link Long#BYTES}
+   */
+  public PlanitSnapshotReader(final Path snapshotFile, final IdGroupingToken idToken, final int mappedSegmentSize) {
+    PlanItRunTimeException.throwIf(mappedSegmentSize < Long.BYTES, "Mapped segment size of PLANit snapshot reader must be at least %d bytes", Long.BYTES);
+    this.snapshotFile = snapshotFile;
+    this.idToken = idToken;
+    this.mappedSegmentSize = mappedSegmentSize;
+  }
+
+  /**
+   * Verify if the snapshot exists and was created from source files that have not changed since, without reading its payload
+   *
+   * @param inputPathDirectory of the source files
+   * @param fileExtension of the source files
+   * @return true when snapshot can be used in favour of the source files, false otherwise
+   */
+  public boolean isUpToDate(final String inputPathDirectory, final String fileExtension) {
+    if(!Files.isRegularFile(snapshotFile)) {
+      return false;
+    }
+    try(DataInputStream header = new DataInputStream(Files.newInputStream(snapshotFile))){
+      if(Files.size(snapshotFile) < PlanitSnapshotFormat.HEADER_SIZE
+          || header.readInt() != PlanitSnapshotFormat.MAGIC || header.readInt() != PlanitSnapshotFormat.VERSION) {
+        return false;
+      }
+      header.readInt(); // flags
+      long fingerprint = header.readLong();
+      return fingerprint != PlanitSnapshotFormat.NO_SOURCE_FINGERPRINT
+          && fingerprint == PlanitSnapshotFormat.createSourceFingerprint(inputPathDirectory, fileExtension);
+    }catch(IOException e) {
+      LOGGER.warning(String.format("Unable to verify PLANit snapshot %s: %s", snapshotFile, e.getMessage()));
+      return false;
+    }
+  }
+
+  /**
+   * Restore the memory model from the snapshot, results are available via {@link #getNetwork()}, {@link #getZoning()} and {@link #getDemands()}
+   */
+  public void read() {
+    reset();
+    try(FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)){
+      this.channel = channel;
+      verifyAndMapPayload();
+
+      readNetwork();
+      network.logInfo(LoggingUtils.networkPrefix(network.getId()));
+      if((flags & PlanitSnapshotFormat.FLAG_ZONING) != 0) {
+        readZoning();
+        zoning.logInfo(LoggingUtils.zoningPrefix(zoning.getId()));
+      }
+      if((flags & PlanitSnapshotFormat.FLAG_DEMANDS) != 0) {
+        readDemands();
+        demands.logInfo(LoggingUtils.demandsPrefix(demands.getId()));
+      }
+      PlanItRunTimeException.throwIf(segmentStart + in.position() != payloadEnd, "PLANit snapshot %s contains unexpected trailing content", snapshotFile);
+    }catch(IOException e) {
+      throw new PlanItRunTimeException(String.format("Unable to read PLANit snapshot %s", snapshotFile), e);
+    }finally {
+      /* free */
+      channel = null;
+      in = null;
+      modes.clear();
+      nodes.clear();
+      linkSegments.clear();
+      zones.clear();
+    }
+  }
+
+  /**
+   * Reset the reader, discarding any previously restored memory model
+   */
+  public void reset() {
+    network = null;
+    zoning = null;
+    demands = null;
+    flags = 0;
+  }
+
+  /** Restored network
+   *
+   * @return network, null if not read
+   */
+  public MacroscopicNetwork getNetwork() {
+    return network;
+  }
+
+  /** Restored zoning
+   *
+   * @return zoning, null if not read or not present in snapshot
+   */
+  public Zoning getZoning() {
+    return zoning;
+  }
+
+  /** Restored demands
+   *
+   * @return demands, null if not read or not present in snapshot
+   */
+  public Demands getDemands() {
+    return demands;
+  }
+
+  /** Snapshot file of this reader
+   *
+   * @return snapshot file
+   */
+  public Path getSnapshotFile() {
+    return snapshotFile;
+  }
+}
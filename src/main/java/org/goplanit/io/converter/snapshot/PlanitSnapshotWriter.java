@@ -0,0 +1,654 @@
+package org.goplanit.io.converter.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.goplanit.demands.Demands;
+import org.goplanit.network.MacroscopicNetwork;
+import org.goplanit.od.demand.OdDemands;
+import org.goplanit.userclass.TravellerType;
+import org.goplanit.userclass.UserClass;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.mode.Mode;
+import org.goplanit.utils.network.layer.MacroscopicNetworkLayer;
+import org.goplanit.utils.network.layer.macroscopic.AccessGroupProperties;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLink;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegmentType;
+import org.goplanit.utils.network.layer.physical.Node;
+import org.goplanit.utils.time.TimePeriod;
+import org.goplanit.utils.zoning.Connectoid;
+import org.goplanit.utils.zoning.DirectedConnectoid;
+import org.goplanit.utils.zoning.OdZone;
+import org.goplanit.utils.zoning.TransferZone;
+import org.goplanit.utils.zoning.TransferZoneGroup;
+import org.goplanit.utils.zoning.UndirectedConnectoid;
+import org.goplanit.utils.zoning.Zone;
+import org.goplanit.zoning.Zoning;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.referencing.ReferenceIdentifier;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Writer of the PLANit binary snapshot format, see {@link PlanitSnapshotFormat}. It dumps a fully built network, and optionally its zoning and demands,
+ * such that it can be restored by the {@link PlanitSnapshotReader} without parsing any XML. The payload is streamed to disk while its checksum is
+ * computed, after which the header is written in place.
+ * <p>
+ * Entities are written in iteration order of their containers and cross references are stored as positions within the snapshot, e.g., the start
+ * node of a link is stored as the position of that node within its layer.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitSnapshotWriter {
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitSnapshotWriter.class.getCanonicalName());
+
+  /** buffer size used for streaming the payload */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** file to write snapshot to */
+  private final Path snapshotFile;
+
+  /** stream to write payload to */
+  private DataOutputStream out;
+
+  /** position of each mode in the snapshot */
+  private final Map<Mode, Integer> modeIndices = new IdentityHashMap<>();
+
+  /** position of each node across all layers in the snapshot */
+  private final Map<Node, Integer> nodeIndices = new IdentityHashMap<>();
+
+  /** position of each link segment across all layers in the snapshot */
+  private final Map<MacroscopicLinkSegment, Integer> linkSegmentIndices = new IdentityHashMap<>();
+
+  /** position of each zone (od zones first, transfer zones second) in the snapshot */
+  private final Map<Zone, Integer> zoneIndices = new IdentityHashMap<>();
+
+  /**
+   * Write (possibly null) string as length prefixed UTF-8
+   *
+   * @param value to write
+   * @throws IOException thrown if error
+   */
+  private void writeString(final String value) throws IOException {
+    if(value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Write the XML id and external id shared by most entities
+   *
+   * @param xmlId to write
+   * @param externalId to write
+   * @throws IOException thrown if error
+   */
+  private void writeIds(final String xmlId, final String externalId) throws IOException {
+    writeString(xmlId);
+    writeString(externalId);
+  }
+
+  /**
+   * Write optional double value
+   *
+   * @param isSet flag indicating if value is set
+   * @param value to write when set
+   * @throws IOException thrown if error
+   */
+  private void writeOptionalDouble(final boolean isSet, final double value) throws IOException {
+    out.writeByte(isSet ? PlanitSnapshotFormat.VALUE_SET : PlanitSnapshotFormat.VALUE_UNSET);
+    if(isSet) {
+      out.writeDouble(value);
+    }
+  }
+
+  /**
+   * Write coordinates as count, dimension and number of measures followed by the packed ordinates of each coordinate
+   *
+   * @param coordinates to write
+   * @throws IOException thrown if error
+   */
+  private void writeCoordinates(final CoordinateSequence coordinates) throws IOException {
+    final int dimension = coordinates.getDimension();
+    out.writeInt(coordinates.size());
+    out.writeByte(dimension);
+    out.writeByte(coordinates.getMeasures());
+    for(int index = 0; index < coordinates.size(); ++index) {
+      for(int ordinateIndex = 0; ordinateIndex < dimension; ++ordinateIndex) {
+        out.writeDouble(coordinates.getOrdinate(index, ordinateIndex));
+      }
+    }
+  }
+
+  /**
+   * Write the parts of a multi geometry or geometry collection as count followed by each part
+   *
+   * @param geometry to write parts of
+   * @throws IOException thrown if error
+   */
+  private void writeGeometryParts(final GeometryCollection geometry) throws IOException {
+    out.writeInt(geometry.getNumGeometries());
+    for(int index = 0; index < geometry.getNumGeometries(); ++index) {
+      writeGeometry(geometry.getGeometryN(index));
+    }
+  }
+
+  /**
+   * Write (possibly null) geometry as type followed by its coordinates, including the holes of polygons and the parts of multi geometries
+   *
+   * @param geometry to write
+   * @throws IOException thrown if error
+   */
+  private void writeGeometry(final Geometry geometry) throws IOException {
+    if(geometry == null) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_NONE);
+    }else if(geometry instanceof Point) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_POINT);
+      writeCoordinates(((Point) geometry).getCoordinateSequence());
+    }else if(geometry instanceof LinearRing) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_LINEARRING);
+      writeCoordinates(((LinearRing) geometry).getCoordinateSequence());
+    }else if(geometry instanceof LineString) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_LINESTRING);
+      writeCoordinates(((LineString) geometry).getCoordinateSequence());
+    }else if(geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon) geometry;
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_POLYGON);
+      writeCoordinates(polygon.getExteriorRing().getCoordinateSequence());
+      out.writeInt(polygon.getNumInteriorRing());
+      for(int index = 0; index < polygon.getNumInteriorRing(); ++index) {
+        writeCoordinates(polygon.getInteriorRingN(index).getCoordinateSequence());
+      }
+    }else if(geometry instanceof MultiPoint) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_MULTIPOINT);
+      writeGeometryParts((MultiPoint) geometry);
+    }else if(geometry instanceof MultiLineString) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_MULTILINESTRING);
+      writeGeometryParts((MultiLineString) geometry);
+    }else if(geometry instanceof MultiPolygon) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_MULTIPOLYGON);
+      writeGeometryParts((MultiPolygon) geometry);
+    }else if(geometry instanceof GeometryCollection) {
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_COLLECTION);
+      writeGeometryParts((GeometryCollection) geometry);
+    }else {
+      LOGGER.warning(String.format("Unsupported geometry type %s in snapshot, geometry ignored", geometry.getGeometryType()));
+      out.writeByte(PlanitSnapshotFormat.GEOMETRY_NONE);
+    }
+  }
+
+  /**
+   * Write positions of the given modes
+   *
+   * @param modes to write
+   * @throws IOException thrown if error
+   */
+  private void writeModeReferences(final Collection<Mode> modes) throws IOException {
+    if(modes == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(modes.size());
+    for(Mode mode : modes) {
+      out.writeInt(modeIndices.get(mode));
+    }
+  }
+
+  /**
+   * Write coordinate reference system by its identifier when available, otherwise as well known text
+   *
+   * @param crs to write, may be null
+   * @throws IOException thrown if error
+   */
+  private void writeCoordinateReferenceSystem(final CoordinateReferenceSystem crs) throws IOException {
+    if(crs == null) {
+      out.writeByte(PlanitSnapshotFormat.CRS_WKT);
+      writeString(null);
+      return;
+    }
+    if(!crs.getIdentifiers().isEmpty()) {
+      ReferenceIdentifier identifier = crs.getIdentifiers().iterator().next();
+      out.writeByte(PlanitSnapshotFormat.CRS_SRS_NAME);
+      writeString(identifier.getCodeSpace() + ":" + identifier.getCode());
+    }else {
+      out.writeByte(PlanitSnapshotFormat.CRS_WKT);
+      writeString(crs.toWKT());
+    }
+  }
+
+  /**
+   * Write the modes of the network
+   *
+   * @param network to extract modes from
+   * @throws IOException thrown if error
+   */
+  private void writeModes(final MacroscopicNetwork network) throws IOException {
+    out.writeInt(network.getModes().size());
+    for(Mode mode : network.getModes()) {
+      modeIndices.put(mode, modeIndices.size());
+      writeIds(mode.getXmlId(), mode.getExternalId());
+      writeString(mode.hasName() ? mode.getName() : null);
+      out.writeBoolean(mode.isPredefinedModeType());
+      out.writeDouble(mode.getMaximumSpeedKmH());
+      out.writeDouble(mode.getPcu());
+
+      out.writeBoolean(mode.hasPhysicalFeatures());
+      if(mode.hasPhysicalFeatures()) {
+        writeString(mode.getPhysicalFeatures().getVehicularType().name());
+        writeString(mode.getPhysicalFeatures().getMotorisationType().name());
+        writeString(mode.getPhysicalFeatures().getTrackType().name());
+      }
+      out.writeBoolean(mode.hasUseFeatures());
+      if(mode.hasUseFeatures()) {
+        writeString(mode.getUseFeatures().getUseOfType().name());
+      }
+    }
+  }
+
+  /**
+   * Write the link segment types of a layer, including their access groups
+   *
+   * @param layer to extract from
+   * @param linkSegmentTypeIndices to register positions of the link segment types on
+   * @throws IOException thrown if error
+   */
+  private void writeLinkSegmentTypes(final MacroscopicNetworkLayer layer, final Map<MacroscopicLinkSegmentType, Integer> linkSegmentTypeIndices) throws IOException {
+    out.writeInt(layer.getLinkSegmentTypes().size());
+    for(MacroscopicLinkSegmentType linkSegmentType : layer.getLinkSegmentTypes()) {
+      linkSegmentTypeIndices.put(linkSegmentType, linkSegmentTypeIndices.size());
+      writeIds(linkSegmentType.getXmlId(), linkSegmentType.getExternalId());
+      writeString(linkSegmentType.getName());
+      writeOptionalDouble(linkSegmentType.isExplicitCapacityPerLaneSet(),
+          linkSegmentType.isExplicitCapacityPerLaneSet() ? linkSegmentType.getExplicitCapacityPerLane() : 0);
+      writeOptionalDouble(linkSegmentType.isExplicitMaximumDensityPerLaneSet(),
+          linkSegmentType.isExplicitMaximumDensityPerLaneSet() ? linkSegmentType.getExplicitMaximumDensityPerLane() : 0);
+
+      /* access groups, each group is shared by multiple modes so only write it once */
+      List<AccessGroupProperties> accessGroups = new ArrayList<>();
+      Set<Mode> processedModes = new HashSet<>();
+      for(Mode accessMode : linkSegmentType.getAllowedModes()) {
+        if(processedModes.contains(accessMode)) {
+          continue;
+        }
+        AccessGroupProperties accessProperties = linkSegmentType.getAccessProperties(accessMode);
+        processedModes.addAll(accessProperties.getAccessModes());
+        accessGroups.add(accessProperties);
+      }
+      out.writeInt(accessGroups.size());
+      for(AccessGroupProperties accessProperties : accessGroups) {
+        writeModeReferences(accessProperties.getAccessModes());
+        writeOptionalDouble(accessProperties.isMaximumSpeedKmHSet(),
+            accessProperties.isMaximumSpeedKmHSet() ? accessProperties.getMaximumSpeedKmH() : 0);
+        writeOptionalDouble(accessProperties.isCriticalSpeedKmHSet(),
+            accessProperties.isCriticalSpeedKmHSet() ? accessProperties.getCriticalSpeedKmH() : 0);
+      }
+    }
+  }
+
+  /**
+   * Write a link segment
+   *
+   * @param linkSegment to write, may be null
+   * @param linkSegmentTypeIndices positions of link segment types of the layer
+   * @throws IOException thrown if error
+   */
+  private void writeLinkSegment(final MacroscopicLinkSegment linkSegment, final Map<MacroscopicLinkSegmentType, Integer> linkSegmentTypeIndices) throws IOException {
+    out.writeBoolean(linkSegment != null);
+    if(linkSegment == null) {
+      return;
+    }
+    linkSegmentIndices.put(linkSegment, linkSegmentIndices.size());
+    writeIds(linkSegment.getXmlId(), linkSegment.getExternalId());
+    out.writeDouble(linkSegment.getPhysicalSpeedLimitKmH());
+    out.writeInt(linkSegment.getNumberOfLanes());
+    out.writeInt(linkSegment.hasLinkSegmentType() ? linkSegmentTypeIndices.get(linkSegment.getLinkSegmentType()) : -1);
+  }
+
+  /**
+   * Write a network layer
+   *
+   * @param layer to write
+   * @throws IOException thrown if error
+   */
+  private void writeLayer(final MacroscopicNetworkLayer layer) throws IOException {
+    writeIds(layer.getXmlId(), layer.getExternalId());
+    writeModeReferences(layer.getSupportedModes());
+
+    final Map<MacroscopicLinkSegmentType, Integer> linkSegmentTypeIndices = new IdentityHashMap<>();
+    writeLinkSegmentTypes(layer, linkSegmentTypeIndices);
+
+    /* nodes, positions are global across layers, but written count is per layer */
+    final int layerNodeOffset = nodeIndices.size();
+    out.writeInt(layer.getNodes().size());
+    for(Node node : layer.getNodes()) {
+      nodeIndices.put(node, nodeIndices.size());
+      writeIds(node.getXmlId(), node.getExternalId());
+      out.writeBoolean(node.getPosition() != null);
+      if(node.getPosition() != null) {
+        writeCoordinates(node.getPosition().getCoordinateSequence());
+      }
+    }
+
+    /* links including their link segments */
+    out.writeInt(layer.getLinks().size());
+    for(MacroscopicLink link : layer.getLinks()) {
+      writeIds(link.getXmlId(), link.getExternalId());
+      writeString(link.hasName() ? link.getName() : null);
+      out.writeInt(nodeIndices.get(link.getNodeA()) - layerNodeOffset);
+      out.writeInt(nodeIndices.get(link.getNodeB()) - layerNodeOffset);
+      out.writeDouble(link.getLengthKm());
+      out.writeBoolean(link.hasGeometry());
+      if(link.hasGeometry()) {
+        writeCoordinates(link.getGeometry().getCoordinateSequence());
+      }
+      writeLinkSegment(link.hasLinkSegmentAb() ? link.getLinkSegmentAb() : null, linkSegmentTypeIndices);
+      writeLinkSegment(link.hasLinkSegmentBa() ? link.getLinkSegmentBa() : null, linkSegmentTypeIndices);
+    }
+  }
+
+  /**
+   * Write the network section
+   *
+   * @param network to write
+   * @throws IOException thrown if error
+   */
+  private void writeNetwork(final MacroscopicNetwork network) throws IOException {
+    writeString(network.getXmlId());
+    writeCoordinateReferenceSystem(network.getCoordinateReferenceSystem());
+    writeModes(network);
+
+    out.writeInt(network.getTransportLayers().size());
+    for(MacroscopicNetworkLayer layer : network.getTransportLayers()) {
+      writeLayer(layer);
+    }
+  }
+
+  /**
+   * Write the properties shared by all zones
+   *
+   * @param zone to write
+   * @throws IOException thrown if error
+   */
+  private void writeBaseZone(final Zone zone) throws IOException {
+    zoneIndices.put(zone, zoneIndices.size());
+    writeIds(zone.getXmlId(), zone.getExternalId());
+    writeString(zone.hasName() ? zone.getName() : null);
+
+    /* centroid */
+    boolean hasCentroid = zone.hasCentroid();
+    out.writeBoolean(hasCentroid);
+    if(hasCentroid) {
+      writeString(zone.getCentroid().getName());
+      out.writeBoolean(zone.getCentroid().hasPosition());
+      if(zone.getCentroid().hasPosition()) {
+        writeCoordinates(zone.getCentroid().getPosition().getCoordinateSequence());
+      }
+    }
+
+    writeGeometry(zone.hasGeometry() ? zone.getGeometry() : null);
+  }
+
+  /**
+   * Write the properties shared by all connectoids, including their access zones
+   *
+   * @param connectoid to write
+   * @throws IOException thrown if error
+   */
+  private void writeBaseConnectoid(final Connectoid connectoid) throws IOException {
+    writeIds(connectoid.getXmlId(), connectoid.getExternalId());
+    writeString(connectoid.hasName() ? connectoid.getName() : null);
+    writeString(connectoid.getType().name());
+
+    out.writeInt(connectoid.getAccessZones().size());
+    for(Zone accessZone : connectoid.getAccessZones()) {
+      out.writeInt(zoneIndices.get(accessZone));
+      var lengthKm = connectoid.getLengthKm(accessZone);
+      writeOptionalDouble(lengthKm.isPresent(), lengthKm.isPresent() ? lengthKm.get() : 0);
+      writeModeReferences(connectoid.isAllModesAllowed(accessZone) ? null : connectoid.getExplicitlyAllowedModes(accessZone));
+    }
+  }
+
+  /**
+   * Write the zoning section
+   *
+   * @param zoning to write
+   * @throws IOException thrown if error
+   */
+  private void writeZoning(final Zoning zoning) throws IOException {
+    writeString(zoning.getXmlId());
+    writeCoordinateReferenceSystem(zoning.getCoordinateReferenceSystem());
+
+    /* zones */
+    out.writeInt(zoning.getOdZones().size());
+    for(OdZone odZone : zoning.getOdZones()) {
+      writeBaseZone(odZone);
+    }
+    out.writeInt(zoning.getTransferZones().size());
+    for(TransferZone transferZone : zoning.getTransferZones()) {
+      writeBaseZone(transferZone);
+      writeString(transferZone.getTransferZoneType().name());
+      out.writeInt(transferZone.hasPlatformNames() ? transferZone.getTransferZonePlatformNames().size() : 0);
+      if(transferZone.hasPlatformNames()) {
+        for(String platformName : transferZone.getTransferZonePlatformNames()) {
+          writeString(platformName);
+        }
+      }
+    }
+
+    /* connectoids */
+    out.writeInt(zoning.getOdConnectoids().size());
+    for(UndirectedConnectoid odConnectoid : zoning.getOdConnectoids()) {
+      out.writeInt(nodeIndices.get(odConnectoid.getAccessVertex()));
+      writeBaseConnectoid(odConnectoid);
+    }
+    out.writeInt(zoning.getTransferConnectoids().size());
+    for(DirectedConnectoid transferConnectoid : zoning.getTransferConnectoids()) {
+      out.writeInt(linkSegmentIndices.get(transferConnectoid.getAccessLinkSegment()));
+      out.writeBoolean(transferConnectoid.isNodeAccessDownstream());
+      writeBaseConnectoid(transferConnectoid);
+    }
+
+    /* transfer zone groups */
+    out.writeInt(zoning.getTransferZoneGroups().size());
+    for(TransferZoneGroup transferGroup : zoning.getTransferZoneGroups()) {
+      writeIds(transferGroup.getXmlId(), transferGroup.getExternalId());
+      writeString(transferGroup.hasName() ? transferGroup.getName() : null);
+      out.writeInt(transferGroup.getTransferZones().size());
+      for(TransferZone transferZone : transferGroup.getTransferZones()) {
+        out.writeInt(zoneIndices.get(transferZone));
+      }
+    }
+  }
+
+  /**
+   * Write the demands section. Od demands are stored as sparse matrices in od zone iteration order of the zoning, per origin the number of
+   * non-zero cells followed by their destination positions and values
+   *
+   * @param demands to write
+   * @param zoning the demands refer to
+   * @throws IOException thrown if error
+   */
+  private void writeDemands(final Demands demands, final Zoning zoning) throws IOException {
+    writeString(demands.getXmlId());
+
+    final Map<TravellerType, Integer> travellerTypeIndices = new IdentityHashMap<>();
+    out.writeInt(demands.travelerTypes.size());
+    for(TravellerType travellerType : demands.travelerTypes) {
+      travellerTypeIndices.put(travellerType, travellerTypeIndices.size());
+      writeIds(travellerType.getXmlId(), travellerType.getExternalId());
+      writeString(travellerType.getName());
+    }
+
+    out.writeInt(demands.userClasses.size());
+    for(UserClass userClass : demands.userClasses) {
+      writeIds(userClass.getXmlId(), userClass.getExternalId());
+      writeString(userClass.getName());
+      out.writeInt(userClass.getMode() == null ? -1 : modeIndices.get(userClass.getMode()));
+      out.writeInt(userClass.getTravelerType() == null ? -1 : travellerTypeIndices.get(userClass.getTravelerType()));
+    }
+
+    final List<TimePeriod> timePeriods = new ArrayList<>(demands.timePeriods.size());
+    out.writeInt(demands.timePeriods.size());
+    for(TimePeriod timePeriod : demands.timePeriods) {
+      timePeriods.add(timePeriod);
+      writeIds(timePeriod.getXmlId(), timePeriod.getExternalId());
+      writeString(timePeriod.hasDescription() ? timePeriod.getDescription() : null);
+      out.writeLong(timePeriod.getStartTimeSeconds());
+      out.writeLong(timePeriod.getDurationSeconds());
+    }
+
+    /* od matrices per time period and mode */
+    final List<OdZone> odZones = new ArrayList<>(zoning.getOdZones().size());
+    zoning.getOdZones().forEach(odZones::add);
+    int numberOfMatrices = 0;
+    for(TimePeriod timePeriod : timePeriods) {
+      numberOfMatrices += demands.getRegisteredModesForTimePeriod(timePeriod).size();
+    }
+    out.writeInt(numberOfMatrices);
+    out.writeInt(odZones.size());
+    final int[] rowDestinations = new int[odZones.size()];
+    final double[] rowValues = new double[odZones.size()];
+    for(int timePeriodIndex = 0; timePeriodIndex < timePeriods.size(); ++timePeriodIndex) {
+      TimePeriod timePeriod = timePeriods.get(timePeriodIndex);
+      for(Mode mode : demands.getRegisteredModesForTimePeriod(timePeriod)) {
+        out.writeInt(timePeriodIndex);
+        out.writeInt(modeIndices.get(mode));
+        OdDemands odDemands = demands.get(mode, timePeriod);
+        for(OdZone origin : odZones) {
+          int numberOfNonZeroCells = 0;
+          for(int destinationIndex = 0; destinationIndex < odZones.size(); ++destinationIndex) {
+            final double value = odDemands.getValue(origin, odZones.get(destinationIndex));
+            if(value != 0) {
+              rowDestinations[numberOfNonZeroCells] = destinationIndex;
+              rowValues[numberOfNonZeroCells++] = value;
+            }
+          }
+          out.writeInt(numberOfNonZeroCells);
+          for(int index = 0; index < numberOfNonZeroCells; ++index) {
+            out.writeInt(rowDestinations[index]);
+          }
+          for(int index = 0; index < numberOfNonZeroCells; ++index) {
+            out.writeDouble(rowValues[index]);
+          }
+        }
+      }
+    }
+  }
+
+  /** Constructor
+   *
+   * @param snapshotFile to write to, overwritten if it exists
+   */
+  public PlanitSnapshotWriter(final Path snapshotFile) {
+    this.snapshotFile = snapshotFile;
+  }
+
+  /**
+   * Write snapshot without associating it with any source files
+   *
+   * @param network to write
+   * @param zoning to write, may be null
+   * @param demands to write, may be null. When provided the zoning must be provided as well
+   */
+  public void write(final MacroscopicNetwork network, final Zoning zoning, final Demands demands) {
+    write(network, zoning, demands, PlanitSnapshotFormat.NO_SOURCE_FINGERPRINT);
+  }
+
+  /**
+   * Write snapshot associated with the source files it was created from, see {@link PlanitSnapshotFormat#createSourceFingerprint(String, String)}
+   *
+   * @param network to write
+   * @param zoning to write, may be null
+   * @param demands to write, may be null. When provided the zoning must be provided as well
+   * @param sourceFingerprint of the source the memory model was created from
+   */
+  public void write(final MacroscopicNetwork network, final Zoning zoning, final Demands demands, final long sourceFingerprint) {
+    PlanItRunTimeException.throwIfNull(network, "Network is required to create a PLANit snapshot");
+    PlanItRunTimeException.throwIf(demands != null && zoning == null, "Demands can only be included in PLANit snapshot when zoning is included as well");
+
+    int flags = 0;
+    flags |= zoning != null ? PlanitSnapshotFormat.FLAG_ZONING : 0;
+    flags |= demands != null ? PlanitSnapshotFormat.FLAG_DEMANDS : 0;
+
+    try(FileChannel channel = FileChannel.open(snapshotFile,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+
+      /* payload after header, checksum computed while streaming */
+      channel.position(PlanitSnapshotFormat.HEADER_SIZE);
+      final CRC32 crc = new CRC32();
+      out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel), crc), BUFFER_SIZE));
+      writeNetwork(network);
+      if(zoning != null) {
+        writeZoning(zoning);
+      }
+      if(demands != null) {
+        writeDemands(demands, zoning);
+      }
+      out.flush();
+      final long payloadLength = channel.position() - PlanitSnapshotFormat.HEADER_SIZE;
+
+      /* header */
+      ByteBuffer header = ByteBuffer.allocate(PlanitSnapshotFormat.HEADER_SIZE);
+      header.putInt(PlanitSnapshotFormat.MAGIC);
+      header.putInt(PlanitSnapshotFormat.VERSION);
+      header.putInt(flags);
+      header.putLong(sourceFingerprint);
+      header.putLong(payloadLength);
+      header.putLong(crc.getValue());
+      header.flip();
+      channel.write(header, 0);
+
+      LOGGER.info(String.format("Persisted PLANit snapshot (%d bytes) to %s", Files.size(snapshotFile), snapshotFile));
+    }catch(IOException e) {
+      throw new PlanItRunTimeException(String.format("Unable to write PLANit snapshot to %s", snapshotFile), e);
+    }finally {
+      out = null;
+      modeIndices.clear();
+      nodeIndices.clear();
+      linkSegmentIndices.clear();
+      zoneIndices.clear();
+    }
+  }
+
+  /** Snapshot file of this writer
+   *
+   * @return snapshot file
+   */
+  public Path getSnapshotFile() {
+    return snapshotFile;
+  }
+}
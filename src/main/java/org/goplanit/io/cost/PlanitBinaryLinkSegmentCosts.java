@@ -0,0 +1,286 @@
+package org.goplanit.io.cost;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.goplanit.cost.physical.initial.InitialMacroscopicLinkSegmentCost;
+import org.goplanit.network.MacroscopicNetwork;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.mode.Mode;
+import org.goplanit.utils.network.layer.MacroscopicNetworkLayer;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
+import org.goplanit.utils.time.TimePeriod;
+
+/**
+ * Binary persistence of link segment costs, used to warm start an assignment from the (converged) costs of a previous run. The file holds a dense
+ * array of costs by time period, link segment id and mode, preceded by a small header (little endian):
+ * <ul>
+ * <li>magic number, version and a fingerprint of the network link segments the costs belong to</li>
+ * <li>number of link segment ids, the XML ids of the modes and the XML ids of the time periods (length prefixed UTF-8)</li>
+ * <li>the costs, time period major, then link segment id, then mode, absent costs are stored as NaN</li>
+ * </ul>
+ * The fingerprint covers the link segments of the network layers supporting the persisted modes and is verified on reading, so costs are never
+ * applied to a network with different link segments.
+ *
+ * @author markr
+ *
+ */
+public final class PlanitBinaryLinkSegmentCosts {
+
+  /** magic number at the start of each binary cost file, "PLSC" */
+  private static final int MAGIC = 0x504C5343;
+
+  /** current version of the format */
+  private static final int VERSION = 1;
+
+  /** size of buffer used for writing */
+  private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+  /** file extension of binary link segment cost files */
+  public static final String FILE_EXTENSION = ".lscost";
+
+  /** Constructor, not to be instantiated */
+  private PlanitBinaryLinkSegmentCosts() {
+  }
+
+  /**
+   * Write string as length prefixed UTF-8
+   *
+   * @param buffer to write to
+   * @param value to write
+   */
+  private static void putString(final ByteBuffer buffer, final String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  /**
+   * Read length prefixed UTF-8 string
+   *
+   * @param buffer to read from
+   * @return string
+   */
+  private static String getString(final ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write the buffer to the channel completely and clear it for reuse
+   *
+   * @param buffer to write
+   * @param channel to write to
+   * @throws IOException thrown if error
+   */
+  private static void flush(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Create a fingerprint of the given link segments based on their ids, XML ids and the ids of their end vertices. The order of the link segments
+   * is irrelevant
+   *
+   * @param linkSegments to fingerprint
+   * @return fingerprint
+   */
+  public static long createNetworkFingerprint(final Collection<? extends MacroscopicLinkSegment> linkSegments) {
+    final List<MacroscopicLinkSegment> sortedLinkSegments = new ArrayList<>(linkSegments);
+    sortedLinkSegments.sort(Comparator.comparingLong(MacroscopicLinkSegment::getId));
+
+    final CRC32 crc = new CRC32();
+    final ByteBuffer longBytes = ByteBuffer.allocate(3 * Long.BYTES);
+    for(MacroscopicLinkSegment linkSegment : sortedLinkSegments) {
+      longBytes.clear();
+      longBytes.putLong(linkSegment.getId()).putLong(linkSegment.getUpstreamVertex().getId()).putLong(linkSegment.getDownstreamVertex().getId());
+      crc.update(longBytes.array());
+      if(linkSegment.getXmlId() != null) {
+        crc.update(linkSegment.getXmlId().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return (((long) sortedLinkSegments.size()) << 32) | crc.getValue();
+  }
+
+  /**
+   * Collect all link segments of the network layers supporting at least one of the given modes
+   *
+   * @param network to collect from
+   * @param modes to collect link segments for
+   * @return link segments
+   */
+  public static List<MacroscopicLinkSegment> collectLinkSegments(final MacroscopicNetwork network, final Collection<Mode> modes) {
+    final List<MacroscopicLinkSegment> linkSegments = new ArrayList<>();
+    for(MacroscopicNetworkLayer layer : network.getTransportLayers()) {
+      if(layer.getSupportedModes().stream().noneMatch(modes::contains)) {
+        continue;
+      }
+      for(MacroscopicLinkSegment linkSegment : layer.getLinkSegments()) {
+        linkSegments.add(linkSegment);
+      }
+    }
+    return linkSegments;
+  }
+
+  /**
+   * Write link segment costs to a binary cost file
+   *
+   * @param file to write to, overwritten if it exists
+   * @param networkFingerprint of the link segments the costs belong to
+   * @param numberOfLinkSegmentIds size of the link segment id dimension, i.e., largest link segment id plus one
+   * @param modes mode dimension, in order
+   * @param timePeriods time period dimension, in order
+   * @param costsByTimePeriod dense costs per time period (same order as time periods) indexed by link segment id times number of modes plus mode index, NaN when absent
+   * @throws PlanItException thrown if error
+   */
+  public static void write(final Path file, final long networkFingerprint, final int numberOfLinkSegmentIds, final List<Mode> modes, final List<TimePeriod> timePeriods,
+      final List<double[]> costsByTimePeriod) throws PlanItException {
+    PlanItException.throwIf(timePeriods.size() != costsByTimePeriod.size(), "Number of time periods and cost arrays differ when persisting binary link segment costs");
+    final long cellsPerTimePeriod = (long) numberOfLinkSegmentIds * modes.size();
+
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(networkFingerprint);
+      buffer.putInt(numberOfLinkSegmentIds);
+      buffer.putInt(modes.size());
+      for(Mode mode : modes) {
+        putString(buffer, mode.getXmlId());
+      }
+      buffer.putInt(timePeriods.size());
+      for(TimePeriod timePeriod : timePeriods) {
+        putString(buffer, timePeriod.getXmlId());
+      }
+
+      for(double[] costs : costsByTimePeriod) {
+        PlanItException.throwIf(costs.length != cellsPerTimePeriod, "Expected %d link segment costs per time period, found %d", cellsPerTimePeriod, costs.length);
+        int offset = 0;
+        while(offset < costs.length) {
+          if(buffer.remaining() < Double.BYTES) {
+            flush(buffer, channel);
+          }
+          int count = Math.min(costs.length - offset, buffer.remaining() / Double.BYTES);
+          buffer.asDoubleBuffer().put(costs, offset, count);
+          buffer.position(buffer.position() + count * Double.BYTES);
+          offset += count;
+        }
+      }
+      flush(buffer, channel);
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to write binary link segment costs to %s", e, file);
+    }
+  }
+
+  /**
+   * Read a binary cost file by memory mapping it and set the costs of the chosen time period as initial link segment costs
+   *
+   * @param file to read
+   * @param network the costs are applied to, must match the fingerprint of the file
+   * @param timePeriod to collect costs for, when null the file is expected to contain a single time period and costs are set without time period
+   * @param initialLinkSegmentCost to populate
+   * @return number of costs set
+   * @throws PlanItException thrown if error
+   */
+  public static long read(final Path file, final MacroscopicNetwork network, final TimePeriod timePeriod, final InitialMacroscopicLinkSegmentCost initialLinkSegmentCost) throws PlanItException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      PlanItException.throwIf(channel.size() > Integer.MAX_VALUE, "Binary link segment cost file %s exceeds the maximum supported size of 2GB", file);
+      final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+      /* header */
+      PlanItException.throwIf(mapped.getInt() != MAGIC, "File %s is not a binary link segment cost file", file);
+      final int version = mapped.getInt();
+      PlanItException.throwIf(version != VERSION, "Binary link segment cost file %s has version %d, only version %d is supported", file, version, VERSION);
+      final long fingerprint = mapped.getLong();
+      final int numberOfLinkSegmentIds = mapped.getInt();
+
+      final Map<String, Mode> modesByXmlId = new HashMap<>();
+      for(Mode mode : network.getModes()) {
+        modesByXmlId.put(mode.getXmlId(), mode);
+      }
+      final Mode[] modes = new Mode[mapped.getInt()];
+      for(int modeIndex = 0; modeIndex < modes.length; ++modeIndex) {
+        String modeXmlId = getString(mapped);
+        modes[modeIndex] = modesByXmlId.get(modeXmlId);
+        PlanItException.throwIf(modes[modeIndex] == null, "Mode %s in binary link segment cost file %s not present in network", modeXmlId, file);
+      }
+
+      final int numberOfTimePeriods = mapped.getInt();
+      int timePeriodIndex = -1;
+      for(int index = 0; index < numberOfTimePeriods; ++index) {
+        String timePeriodXmlId = getString(mapped);
+        if(timePeriod != null && timePeriod.getXmlId().equals(timePeriodXmlId)) {
+          timePeriodIndex = index;
+        }
+      }
+      if(timePeriod == null) {
+        PlanItException.throwIf(numberOfTimePeriods != 1, "Binary link segment cost file %s holds %d time periods, time period must be specified", file, numberOfTimePeriods);
+        timePeriodIndex = 0;
+      }
+      PlanItException.throwIf(timePeriodIndex < 0, "Time period %s not present in binary link segment cost file %s", timePeriod == null ? null : timePeriod.getXmlId(), file);
+
+      /* link segments by id, only when they match the link segments the costs were created for */
+      final List<MacroscopicLinkSegment> linkSegments = collectLinkSegments(network, Arrays.asList(modes));
+      PlanItException.throwIf(fingerprint != createNetworkFingerprint(linkSegments),
+          "Binary link segment cost file %s was created for a different network, unable to use its costs", file);
+      final MacroscopicLinkSegment[] linkSegmentsById = new MacroscopicLinkSegment[numberOfLinkSegmentIds];
+      for(MacroscopicLinkSegment linkSegment : linkSegments) {
+        PlanItException.throwIf(linkSegment.getId() >= numberOfLinkSegmentIds, "Link segment %s not covered by binary link segment cost file %s", linkSegment.getXmlId(), file);
+        linkSegmentsById[(int) linkSegment.getId()] = linkSegment;
+      }
+
+      /* costs of chosen time period */
+      final long cellsPerTimePeriod = (long) numberOfLinkSegmentIds * modes.length;
+      final long costsOffset = mapped.position() + timePeriodIndex * cellsPerTimePeriod * Double.BYTES;
+      PlanItException.throwIf(costsOffset + cellsPerTimePeriod * Double.BYTES > mapped.limit(),
+          "Binary link segment cost file %s is truncated, costs of time period %d missing", file, timePeriodIndex);
+      mapped.position((int) costsOffset);
+      final DoubleBuffer costBuffer = mapped.asDoubleBuffer();
+      final double[] costs = new double[modes.length];
+      long numberOfCostsSet = 0;
+      for(int linkSegmentId = 0; linkSegmentId < numberOfLinkSegmentIds; ++linkSegmentId) {
+        costBuffer.get(costs);
+        final MacroscopicLinkSegment linkSegment = linkSegmentsById[linkSegmentId];
+        for(int modeIndex = 0; modeIndex < modes.length; ++modeIndex) {
+          if(Double.isNaN(costs[modeIndex])) {
+            continue;
+          }
+          PlanItException.throwIf(linkSegment == null, "Cost present for unknown link segment id %d in binary link segment cost file %s", linkSegmentId, file);
+          if(timePeriod == null) {
+            initialLinkSegmentCost.setSegmentCost(modes[modeIndex], linkSegment, costs[modeIndex]);
+          }else {
+            initialLinkSegmentCost.setSegmentCost(timePeriod, modes[modeIndex], linkSegment, costs[modeIndex]);
+          }
+          ++numberOfCostsSet;
+        }
+      }
+      return numberOfCostsSet;
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to read binary link segment costs from %s", e, file);
+    }
+  }
+}
@@ -13,6 +13,7 @@ import net.opengis.gml.ObjectFactory;
 import net.opengis.gml.PointType;
 import net.opengis.gml.PolygonType;
 
+import org.goplanit.io.xml.util.PlanitDoubleFormatter;
 import org.goplanit.utils.geo.PlanitJtsUtils;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
@@ -25,6 +26,8 @@ import org.locationtech.jts.geom.LineString;
  */
 public class PlanitGmlUtils {
 
+  /** namespace of the GML elements, as used by the generated GML classes */
+  public static final String GML_NAMESPACE_URI = "http://www.opengis.net/gml";
   
   /**
    * Takes a list of JTS coordinates and converts it to GML coordinates value, i.e., converts all coordinates
@@ -53,6 +56,42 @@ public class PlanitGmlUtils {
     return xmlCoordinates;
   }
   
+  /**
+   * Takes a list of JTS coordinates and converts it to GML coordinates value, i.e., converts all coordinates
+   * to a string based on provided comma, tuple separators in 2D format using the given formatter for each ordinate. 
+   * The result is a GML CoordinatesType
+   * 
+   * @param coordinates array of coordinates
+   * @param commaSeparator to use
+   * @param decimalSeparator to use, should match the decimal separator of the formatter
+   * @param doubleFormatter to use
+   * @param tupleSeparator to use 
+   * @return created GML coordinates type instance
+   */
+  public static CoordinatesType createGmlCoordinatesType(
+      final Coordinate[] coordinates, final Character commaSeparator, final Character decimalSeparator, final PlanitDoubleFormatter doubleFormatter, final Character tupleSeparator) {  
+
+    /* coordinates value */
+    final StringBuilder sb = new StringBuilder(coordinates.length * 32);
+    for(int index=0;index<coordinates.length;++index) {
+      if(index > 0) {
+        sb.append(tupleSeparator.charValue());
+      }
+      doubleFormatter.appendTo(coordinates[index].x, sb);
+      sb.append(commaSeparator.charValue());
+      doubleFormatter.appendTo(coordinates[index].y, sb);
+    }
+    CoordinatesType xmlCoordinates = new CoordinatesType();
+    xmlCoordinates.setValue(sb.toString());
+    
+    /* coordinates formatting */
+    xmlCoordinates.setCs(commaSeparator.toString());
+    xmlCoordinates.setTs(tupleSeparator.toString());
+    xmlCoordinates.setDecimal(decimalSeparator.toString());
+    
+    return xmlCoordinates;
+  }
+  
   /** Create a coordType instance based on provided JTS coordinate
    * 
    * @param coordinate to convert
@@ -130,6 +169,20 @@ public class PlanitGmlUtils {
     return createGmlLineStringType(coordinatesType);
   } 
   
+  /** Takes a JTS line string and converts it to GML LineStringType.
+   *   
+   * @param lineString to extract from
+   * @param commaSeparator to use
+   * @param decimalSeparator to use, should match the decimal separator of the formatter
+   * @param doubleFormatter to use
+   * @param tupleSeparator to use   
+   * @return created GML LineStringType instance
+   */
+  public static LineStringType createGmlLineStringType(final LineString lineString, 
+      final Character commaSeparator, final Character decimalSeparator, final PlanitDoubleFormatter doubleFormatter, final Character tupleSeparator) {  
+    return createGmlLineStringType(createGmlCoordinatesType(lineString.getCoordinates(), commaSeparator, decimalSeparator, doubleFormatter, tupleSeparator));
+  } 
+  
   /**
    * Takes a JTS line string and converts it to GML LineStringType.
    *   
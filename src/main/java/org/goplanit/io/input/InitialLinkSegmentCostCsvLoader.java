@@ -0,0 +1,646 @@
+package org.goplanit.io.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import org.goplanit.cost.physical.initial.InitialMacroscopicLinkSegmentCost;
+import org.goplanit.io.util.PlanitConcurrentTasks;
+import org.goplanit.io.xml.util.DelimitedDoubleTokenizer;
+import org.goplanit.network.MacroscopicNetwork;
+import org.goplanit.output.property.DownstreamNodeXmlIdOutputProperty;
+import org.goplanit.output.property.LinkSegmentCostOutputProperty;
+import org.goplanit.output.property.LinkSegmentExternalIdOutputProperty;
+import org.goplanit.output.property.LinkSegmentXmlIdOutputProperty;
+import org.goplanit.output.property.ModeXmlIdOutputProperty;
+import org.goplanit.output.property.OutputPropertyType;
+import org.goplanit.output.property.UpstreamNodeXmlIdOutputProperty;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.graph.Vertex;
+import org.goplanit.utils.misc.LoggingUtils;
+import org.goplanit.utils.mode.Mode;
+import org.goplanit.utils.network.layer.MacroscopicNetworkLayer;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
+import org.goplanit.utils.time.TimePeriod;
+
+/**
+ * High throughput loader of initial link segment costs from (unquoted) CSV files. The file is split into byte ranges aligned with line
+ * boundaries which are memory mapped and parsed in parallel without creating a record per row. Link segments are resolved to their id,
+ * via a primitive map keyed by the upstream and downstream node ids when identified by node XML ids. Parsed costs are collected in a dense
+ * array indexed by link segment id and mode before they are handed to the {@link InitialMacroscopicLinkSegmentCost} in one go.
+ * <p>
+ * Rows are applied in file order, so when a link segment and mode combination occurs more than once, the last row prevails, consistent with
+ * serial parsing. Files with quoted values are not supported by this loader, see {@link #readHeader(Path)}.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class InitialLinkSegmentCostCsvLoader {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(InitialLinkSegmentCostCsvLoader.class.getCanonicalName());
+
+  /** separator of the CSV files supported */
+  private static final byte SEPARATOR = ',';
+
+  /** quote character, not supported */
+  private static final byte QUOTE = '"';
+
+  /** maximum length of a cost value */
+  private static final int MAX_VALUE_LENGTH = 64;
+
+  /** maximum size of a single chunk, must be mappable */
+  private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+  /** minimum size of a chunk, smaller files are not split */
+  private static final long MIN_CHUNK_SIZE = 1L << 20;
+
+  /** number of chunks per thread, to balance load */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** marker for absent entries in the primitive map */
+  private static final int ABSENT = -1;
+
+  /**
+   * Minimal open addressing map from long keys to non-negative int values
+   */
+  private static final class LongToIntMap {
+
+    /** keys */
+    private long[] keys;
+
+    /** values, {@link InitialLinkSegmentCostCsvLoader#ABSENT} for free slots */
+    private int[] values;
+
+    /** number of entries */
+    private int size;
+
+    /**
+     * Slot of the key, either occupied by the key or the first free slot
+     *
+     * @param key to find slot for
+     * @return slot
+     */
+    private int slot(final long key) {
+      final int mask = keys.length - 1;
+      int slot = (int) (key ^ (key >>> 32)) * 0x9E3779B9 & mask;
+      while(values[slot] != ABSENT && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /** Constructor
+     *
+     * @param expectedSize of the map
+     */
+    LongToIntMap(final int expectedSize) {
+      int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(values, ABSENT);
+    }
+
+    /**
+     * Put value, overwriting any existing value for the key
+     *
+     * @param key to use
+     * @param value to put, non-negative
+     */
+    void put(final long key, final int value) {
+      if(2 * (size + 1) > keys.length) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, ABSENT);
+        size = 0;
+        for(int index = 0; index < oldKeys.length; ++index) {
+          if(oldValues[index] != ABSENT) {
+            put(oldKeys[index], oldValues[index]);
+          }
+        }
+      }
+      int slot = slot(key);
+      if(values[slot] == ABSENT) {
+        ++size;
+      }
+      keys[slot] = key;
+      values[slot] = value;
+    }
+
+    /**
+     * Collect value
+     *
+     * @param key to collect value for
+     * @return value, {@link InitialLinkSegmentCostCsvLoader#ABSENT} if not present
+     */
+    int get(final long key) {
+      return values[slot(key)];
+    }
+  }
+
+  /**
+   * Costs parsed from a single chunk, as dense cell indices and values in file order
+   */
+  private static final class ChunkResult {
+
+    /** dense cell index per parsed row */
+    private int[] cells = new int[1024];
+
+    /** cost per parsed row */
+    private double[] values = new double[1024];
+
+    /** number of parsed rows */
+    private int size = 0;
+
+    /** true when the chunk contains quoted values */
+    private boolean quoted = false;
+
+    /**
+     * Add parsed row
+     *
+     * @param cell dense cell index
+     * @param value cost
+     */
+    void add(final int cell, final double value) {
+      if(size == cells.length) {
+        cells = Arrays.copyOf(cells, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      cells[size] = cell;
+      values[size++] = value;
+    }
+  }
+
+  /** network the link segments reside in */
+  private final MacroscopicNetwork network;
+
+  /** method used to identify link segments */
+  private final OutputPropertyType linkIdentificationMethod;
+
+  /** number of threads to parse with */
+  private final int numberOfThreads;
+
+  /** link segments by id */
+  private MacroscopicLinkSegment[] linkSegmentsById;
+
+  /** modes by their dense index */
+  private Mode[] modes;
+
+  /** UTF-8 encoded XML ids of the modes by their dense index */
+  private byte[][] modeXmlIds;
+
+  /** link segment ids by identifying string (link segment XML id or external id) */
+  private Map<String, Integer> linkSegmentIdsByKey;
+
+  /** nodes (vertices) by XML id, when identified by upstream and downstream node */
+  private Map<String, Vertex> nodesByXmlId;
+
+  /** link segment ids by combined upstream and downstream node id, when identified by upstream and downstream node */
+  private LongToIntMap linkSegmentIdsByNodeIds;
+
+  /** column indices of the identifying column(s), mode and cost */
+  private int[] columns;
+
+  /**
+   * Combine upstream and downstream node ids into a single key
+   *
+   * @param upstreamNodeId to use
+   * @param downstreamNodeId to use
+   * @return key
+   */
+  private static long createNodesKey(final long upstreamNodeId, final long downstreamNodeId) {
+    return (upstreamNodeId << 32) | (downstreamNodeId & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Position of the start of the first line starting at or after the given position
+   *
+   * @param channel to read from
+   * @param position to start looking
+   * @return position of start of line, size of file if none
+   * @throws IOException thrown if error
+   */
+  private static long findNextLineStart(final FileChannel channel, long position) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(8192);
+    final long size = channel.size();
+    while(position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if(read <= 0) {
+        break;
+      }
+      for(int index = 0; index < read; ++index) {
+        if(buffer.get(index) == '\n') {
+          return position + index + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * Extract trimmed field as string
+   *
+   * @param buffer to extract from
+   * @param start of field (inclusive)
+   * @param end of field (exclusive)
+   * @return field value
+   */
+  private static String extractString(final ByteBuffer buffer, int start, int end) {
+    while(start < end && buffer.get(start) == ' ') {
+      ++start;
+    }
+    while(end > start && buffer.get(end - 1) == ' ') {
+      --end;
+    }
+    final byte[] bytes = new byte[end - start];
+    buffer.get(start, bytes, 0, bytes.length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Index the link segments (and nodes) of the network and the modes, such that rows can be resolved without string comparisons other
+   * than the hash lookup of the identifying value
+   */
+  private void createIndices() {
+    int maxLinkSegmentId = -1;
+    for(MacroscopicNetworkLayer layer : network.getTransportLayers()) {
+      for(MacroscopicLinkSegment linkSegment : layer.getLinkSegments()) {
+        maxLinkSegmentId = Math.max(maxLinkSegmentId, (int) linkSegment.getId());
+      }
+    }
+    linkSegmentsById = new MacroscopicLinkSegment[maxLinkSegmentId + 1];
+
+    switch (linkIdentificationMethod) {
+      case LINK_SEGMENT_XML_ID:
+      case LINK_SEGMENT_EXTERNAL_ID:
+        linkSegmentIdsByKey = new HashMap<>();
+        break;
+      case UPSTREAM_NODE_XML_ID:
+        nodesByXmlId = new HashMap<>();
+        linkSegmentIdsByNodeIds = new LongToIntMap(linkSegmentsById.length);
+        break;
+      default:
+        throw new PlanItRunTimeException("Unsupported link identification method %s for initial link segment costs", linkIdentificationMethod);
+    }
+
+    for(MacroscopicNetworkLayer layer : network.getTransportLayers()) {
+      for(MacroscopicLinkSegment linkSegment : layer.getLinkSegments()) {
+        final int linkSegmentId = (int) linkSegment.getId();
+        linkSegmentsById[linkSegmentId] = linkSegment;
+        switch (linkIdentificationMethod) {
+          case LINK_SEGMENT_XML_ID:
+            linkSegmentIdsByKey.put(linkSegment.getXmlId(), linkSegmentId);
+            break;
+          case LINK_SEGMENT_EXTERNAL_ID:
+            linkSegmentIdsByKey.put(linkSegment.getExternalId(), linkSegmentId);
+            break;
+          default:
+            Vertex upstreamNode = linkSegment.getUpstreamVertex();
+            Vertex downstreamNode = linkSegment.getDownstreamVertex();
+            nodesByXmlId.put(upstreamNode.getXmlId(), upstreamNode);
+            nodesByXmlId.put(downstreamNode.getXmlId(), downstreamNode);
+            linkSegmentIdsByNodeIds.put(createNodesKey(upstreamNode.getId(), downstreamNode.getId()), linkSegmentId);
+        }
+      }
+    }
+
+    modes = new Mode[network.getModes().size()];
+    modeXmlIds = new byte[modes.length][];
+    int modeIndex = 0;
+    for(Mode mode : network.getModes()) {
+      modes[modeIndex] = mode;
+      modeXmlIds[modeIndex++] = mode.getXmlId().getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Resolve the columns used from the header
+   *
+   * @param headers of the file
+   * @throws PlanItException thrown if a required column is missing
+   */
+  private void resolveColumns(final List<String> headers) throws PlanItException {
+    final List<String> columnNames = new ArrayList<>();
+    switch (linkIdentificationMethod) {
+      case LINK_SEGMENT_XML_ID:
+        columnNames.add(LinkSegmentXmlIdOutputProperty.NAME);
+        break;
+      case LINK_SEGMENT_EXTERNAL_ID:
+        columnNames.add(LinkSegmentExternalIdOutputProperty.NAME);
+        break;
+      default:
+        columnNames.add(UpstreamNodeXmlIdOutputProperty.NAME);
+        columnNames.add(DownstreamNodeXmlIdOutputProperty.NAME);
+    }
+    columnNames.add(ModeXmlIdOutputProperty.NAME);
+    columnNames.add(LinkSegmentCostOutputProperty.NAME);
+
+    columns = new int[columnNames.size()];
+    for(int index = 0; index < columns.length; ++index) {
+      columns[index] = headers.indexOf(columnNames.get(index));
+      PlanItException.throwIf(columns[index] < 0, "Column %s not present in initial link segment cost file", columnNames.get(index));
+    }
+  }
+
+  /**
+   * Resolve the dense index of the mode in the given field
+   *
+   * @param buffer to read from
+   * @param start of field (inclusive)
+   * @param end of field (exclusive)
+   * @return mode index, ABSENT if no match
+   */
+  private int resolveModeIndex(final ByteBuffer buffer, int start, int end) {
+    while(start < end && buffer.get(start) == ' ') {
+      ++start;
+    }
+    while(end > start && buffer.get(end - 1) == ' ') {
+      --end;
+    }
+    for(int modeIndex = 0; modeIndex < modeXmlIds.length; ++modeIndex) {
+      final byte[] modeXmlId = modeXmlIds[modeIndex];
+      if(modeXmlId.length != end - start) {
+        continue;
+      }
+      int index = 0;
+      while(index < modeXmlId.length && modeXmlId[index] == buffer.get(start + index)) {
+        ++index;
+      }
+      if(index == modeXmlId.length) {
+        return modeIndex;
+      }
+    }
+    return ABSENT;
+  }
+
+  /**
+   * Resolve the link segment id of a row
+   *
+   * @param buffer to read from
+   * @param fieldStarts of the row's used columns
+   * @param fieldEnds of the row's used columns
+   * @return link segment id, ABSENT if not found
+   */
+  private int resolveLinkSegmentId(final ByteBuffer buffer, final int[] fieldStarts, final int[] fieldEnds) {
+    if(linkSegmentIdsByKey != null) {
+      Integer linkSegmentId = linkSegmentIdsByKey.get(extractString(buffer, fieldStarts[0], fieldEnds[0]));
+      return linkSegmentId == null ? ABSENT : linkSegmentId;
+    }
+    Vertex upstreamNode = nodesByXmlId.get(extractString(buffer, fieldStarts[0], fieldEnds[0]));
+    Vertex downstreamNode = nodesByXmlId.get(extractString(buffer, fieldStarts[1], fieldEnds[1]));
+    if(upstreamNode == null || downstreamNode == null) {
+      return ABSENT;
+    }
+    return linkSegmentIdsByNodeIds.get(createNodesKey(upstreamNode.getId(), downstreamNode.getId()));
+  }
+
+  /**
+   * Parse the cost field of a row
+   *
+   * @param buffer to read from
+   * @param start of field (inclusive)
+   * @param end of field (exclusive)
+   * @param chars buffer to use
+   * @return cost
+   * @throws PlanItException thrown if error
+   */
+  private static double parseCost(final ByteBuffer buffer, final int start, final int end, final char[] chars) throws PlanItException {
+    int length = 0;
+    for(int index = start; index < end; ++index) {
+      byte b = buffer.get(index);
+      if(b == ' ') {
+        continue;
+      }
+      PlanItException.throwIf(length == MAX_VALUE_LENGTH, "Initial link segment cost value exceeds maximum length of a number");
+      chars[length++] = (char) b;
+    }
+    PlanItException.throwIf(length == 0, "Initial link segment cost value missing");
+    return DelimitedDoubleTokenizer.parseDouble(chars, length);
+  }
+
+  /**
+   * Parse a chunk of the file
+   *
+   * @param file to parse from
+   * @param chunkStart position of start of the chunk (start of a line)
+   * @param chunkEnd position of end of the chunk (start of a line, or end of file)
+   * @return parsed costs
+   * @throws Exception thrown if error
+   */
+  private ChunkResult parseChunk(final Path file, final long chunkStart, final long chunkEnd) throws Exception {
+    final ChunkResult result = new ChunkResult();
+    final int numberOfModes = modes.length;
+    final int[] fieldStarts = new int[columns.length];
+    final int[] fieldEnds = new int[columns.length];
+    final char[] chars = new char[MAX_VALUE_LENGTH];
+
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+      final int limit = buffer.limit();
+      int position = 0;
+      while(position < limit) {
+        final int lineStart = position;
+        int fieldIndex = 0;
+        int fieldStart = position;
+        int found = 0;
+        Arrays.fill(fieldStarts, ABSENT);
+        while(true) {
+          final byte b = position < limit ? buffer.get(position) : (byte) '\n';
+          if(b == QUOTE) {
+            result.quoted = true;
+            return result;
+          }
+          if(b == SEPARATOR || b == '\n') {
+            int fieldEnd = position;
+            if(b == '\n' && fieldEnd > fieldStart && buffer.get(fieldEnd - 1) == '\r') {
+              --fieldEnd;
+            }
+            for(int column = 0; column < columns.length; ++column) {
+              if(columns[column] == fieldIndex) {
+                fieldStarts[column] = fieldStart;
+                fieldEnds[column] = fieldEnd;
+                ++found;
+              }
+            }
+            ++fieldIndex;
+            fieldStart = position + 1;
+          }
+          ++position;
+          if(b == '\n') {
+            break;
+          }
+        }
+
+        if(found < columns.length) {
+          /* blank lines are ignored, incomplete lines are not */
+          PlanItException.throwIf(fieldIndex > 1 || position - lineStart > 2,
+              "Incomplete record at byte offset %d of initial link segment cost file %s", chunkStart + lineStart, file);
+          continue;
+        }
+
+        final int linkSegmentId = resolveLinkSegmentId(buffer, fieldStarts, fieldEnds);
+        PlanItException.throwIf(linkSegmentId == ABSENT, "failed to find link segment for record at byte offset %d", chunkStart + lineStart);
+        final int modeIndex = resolveModeIndex(buffer, fieldStarts[columns.length - 2], fieldEnds[columns.length - 2]);
+        PlanItException.throwIf(modeIndex == ABSENT, "mode xml id of record at byte offset %d not present in network", chunkStart + lineStart);
+        final double cost = parseCost(buffer, fieldStarts[columns.length - 1], fieldEnds[columns.length - 1], chars);
+        result.add(linkSegmentId * numberOfModes + modeIndex, cost);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Split the data section of the file into chunks aligned with line boundaries
+   *
+   * @param file to split
+   * @return chunk boundaries, chunk i runs from entry i (inclusive) to entry i+1 (exclusive)
+   * @throws IOException thrown if error
+   */
+  private long[] createChunkBoundaries(final Path file) throws IOException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final long size = channel.size();
+      final long dataStart = findNextLineStart(channel, 0);
+      final long dataSize = size - dataStart;
+      long numberOfChunks = Math.min((long) numberOfThreads * CHUNKS_PER_THREAD, Math.max(1, dataSize / MIN_CHUNK_SIZE));
+      numberOfChunks = Math.max(numberOfChunks, (dataSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+      numberOfChunks = Math.max(1, numberOfChunks);
+
+      final long[] boundaries = new long[(int) numberOfChunks + 1];
+      boundaries[0] = dataStart;
+      for(int index = 1; index < numberOfChunks; ++index) {
+        long approximateStart = dataStart + (dataSize * index) / numberOfChunks;
+        boundaries[index] = findNextLineStart(channel, Math.max(approximateStart, boundaries[index - 1]) - 1);
+      }
+      boundaries[(int) numberOfChunks] = size;
+      return boundaries;
+    }
+  }
+
+  /**
+   * Read the header of the given CSV file
+   *
+   * @param file to read header from
+   * @return header names, null when the header contains quoted values, in which case the file is not supported by this loader
+   * @throws IOException thrown if error
+   */
+  public static List<String> readHeader(final Path file) throws IOException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final long headerEnd = findNextLineStart(channel, 0);
+      final ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+      while(buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+        /* read until header is complete */
+      }
+      String header = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).strip();
+      if(header.startsWith("\uFEFF")) {
+        header = header.substring(1);
+      }
+      if(header.indexOf(QUOTE) >= 0) {
+        return null;
+      }
+      final List<String> headers = new ArrayList<>();
+      for(String headerName : header.split(",", -1)) {
+        headers.add(headerName.strip());
+      }
+      return headers;
+    }
+  }
+
+  /** Constructor
+   *
+   * @param network to resolve link segments and modes with
+   * @param linkIdentificationMethod method used to identify link segments in the file
+   * @param numberOfThreads maximum number of threads to parse with
+   */
+  public InitialLinkSegmentCostCsvLoader(final MacroscopicNetwork network, final OutputPropertyType linkIdentificationMethod, final int numberOfThreads) {
+    this.network = network;
+    this.linkIdentificationMethod = linkIdentificationMethod;
+    this.numberOfThreads = Math.max(1, numberOfThreads);
+  }
+
+  /**
+   * Load the costs in the file and set them on the initial link segment cost. Nothing is set unless the entire file is parsed successfully
+   *
+   * @param file to load
+   * @param headers of the file, see {@link #readHeader(Path)}
+   * @param initialLinkSegmentCost to populate
+   * @param timePeriod to set costs for, may be null
+   * @return true when loaded, false when the file contains quoted values which are not supported by this loader
+   * @throws PlanItException thrown if error
+   */
+  public boolean load(final Path file, final List<String> headers, final InitialMacroscopicLinkSegmentCost initialLinkSegmentCost, final TimePeriod timePeriod) throws PlanItException {
+    resolveColumns(headers);
+    createIndices();
+    PlanItException.throwIf((long) linkSegmentsById.length * modes.length > Integer.MAX_VALUE,
+        "Number of link segment and mode combinations too large for initial link segment cost loader");
+
+    final long[] boundaries;
+    try {
+      boundaries = createChunkBoundaries(file);
+    } catch (IOException e) {
+      throw new PlanItException("Error while loading initial link segment costs", e);
+    }
+    final int numberOfChunks = boundaries.length - 1;
+    if(numberOfThreads > 1 && numberOfChunks > 1) {
+      LOGGER.fine(String.format("%sparsing initial link segment costs in %d chunks using up to %d threads",
+          LoggingUtils.getClassNameWithBrackets(this), numberOfChunks, numberOfThreads));
+    }
+    final List<Callable<ChunkResult>> parseTasks = new ArrayList<>(numberOfChunks);
+    for(int chunk = 0; chunk < numberOfChunks; ++chunk) {
+      final long chunkStart = boundaries[chunk];
+      final long chunkEnd = boundaries[chunk + 1];
+      parseTasks.add(() -> parseChunk(file, chunkStart, chunkEnd));
+    }
+    final List<ChunkResult> chunkResults = PlanitConcurrentTasks.invokeAllChecked(parseTasks, numberOfThreads, "loading initial link segment costs");
+
+    if(chunkResults.stream().anyMatch(result -> result.quoted)) {
+      return false;
+    }
+
+    /* dense costs by link segment id and mode, applied in file order, cells present in the file are tracked separately so any cost value,
+     * including NaN, is set as provided */
+    final double[] costs = new double[linkSegmentsById.length * modes.length];
+    final BitSet setCells = new BitSet(costs.length);
+    for(ChunkResult result : chunkResults) {
+      for(int index = 0; index < result.size; ++index) {
+        costs[result.cells[index]] = result.values[index];
+        setCells.set(result.cells[index]);
+      }
+    }
+
+    /* validate all combinations before setting any cost, so nothing is set when one of them is invalid */
+    final int numberOfModes = modes.length;
+    for(int cell = setCells.nextSetBit(0); cell >= 0; cell = setCells.nextSetBit(cell + 1)) {
+      PlanItException.throwIf(!linkSegmentsById[cell / numberOfModes].isModeAllowed(modes[cell % numberOfModes]),
+          "mode xml id not suported by link segment used for initial link segment cost");
+    }
+
+    for(int cell = setCells.nextSetBit(0); cell >= 0; cell = setCells.nextSetBit(cell + 1)) {
+      final MacroscopicLinkSegment linkSegment = linkSegmentsById[cell / numberOfModes];
+      final Mode mode = modes[cell % numberOfModes];
+      if(timePeriod == null) {
+        initialLinkSegmentCost.setSegmentCost(mode, linkSegment, costs[cell]);
+      }else {
+        initialLinkSegmentCost.setSegmentCost(timePeriod, mode, linkSegment, costs[cell]);
+      }
+    }
+    return true;
+  }
+}
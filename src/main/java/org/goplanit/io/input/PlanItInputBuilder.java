@@ -3,9 +3,14 @@ package org.goplanit.io.input;
 import java.io.File;
 import java.io.FileReader;
 import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import org.apache.commons.csv.CSVFormat;
@@ -21,7 +26,10 @@ import org.goplanit.component.event.PopulateZoningEvent;
 import org.goplanit.cost.physical.initial.InitialMacroscopicLinkSegmentCost;
 import org.goplanit.demands.Demands;
 import org.goplanit.input.InputBuilderListener;
+import org.goplanit.io.cost.PlanitBinaryLinkSegmentCosts;
+import org.goplanit.io.converter.PlanitExternalIdIndex;
 import org.goplanit.io.converter.demands.PlanitDemandsReader;
+import org.goplanit.io.converter.demands.PlanitDemandsReaderSettings;
 import org.goplanit.io.converter.network.PlanitNetworkReader;
 import org.goplanit.io.converter.network.PlanitNetworkReaderFactory;
 import org.goplanit.io.converter.service.PlanitRoutedServicesReader;
@@ -30,8 +38,12 @@ import org.goplanit.io.converter.service.PlanitServiceNetworkReader;
 import org.goplanit.io.converter.service.PlanitServiceNetworkReaderFactory;
 import org.goplanit.io.converter.zoning.PlanitZoningReader;
 import org.goplanit.io.converter.zoning.PlanitZoningReaderFactory;
-import org.goplanit.xml.utils.JAXBUtils;
+import org.goplanit.io.util.PlanitConcurrentTasks;
+import org.goplanit.io.xml.util.PlanitJaxbCache;
+import org.goplanit.io.xml.util.PlanitSchema;
+import org.goplanit.io.xml.util.PlanitSchemaCatalog;
 import org.goplanit.io.xml.util.PlanitXmlJaxbParser;
+import org.goplanit.io.xml.util.PlanitXmlRootElementIndex;
 import org.goplanit.network.MacroscopicNetwork;
 import org.goplanit.network.ServiceNetwork;
 import org.goplanit.output.property.DownstreamNodeXmlIdOutputProperty;
@@ -45,7 +57,6 @@ import org.goplanit.output.property.UpstreamNodeXmlIdOutputProperty;
 import org.goplanit.service.routed.RoutedServices;
 import org.goplanit.utils.exceptions.PlanItException;
 import org.goplanit.utils.graph.Vertex;
-import org.goplanit.utils.misc.FileUtils;
 import org.goplanit.utils.misc.LoggingUtils;
 import org.goplanit.utils.mode.Mode;
 import org.goplanit.utils.network.layer.MacroscopicNetworkLayer;
@@ -88,7 +99,33 @@ public class PlanItInputBuilder extends InputBuilderListener {
   
   /** XML file extension to use */
   private final String xmlFileExtension;
-   
+  
+  /** maximum number of threads used to parse the XML input files concurrently */
+  private int numberOfParseThreads = DEFAULT_NUMBER_OF_PARSE_THREADS;
+
+  /** flag indicating if all XML input files are validated against their schema before parsing */
+  private boolean validateXmlInputFiles = DEFAULT_VALIDATE_XML_INPUT_FILES;
+
+  /** flag indicating if binary od matrices in the project path are parsed in addition to the XML demands */
+  private boolean binaryOdMatrices = DEFAULT_BINARY_OD_MATRICES;
+
+  /** external id index of the most recently populated network (and zoning) */
+  private PlanitExternalIdIndex externalIdIndex = null;
+
+  /** root element index of the XML files in the project path, created once and shared by all components parsed by this builder */
+  private PlanitXmlRootElementIndex rootElementIndex = null;
+
+  /**
+   * Collect the root element index of the XML files in the project path, created upon first use
+   *
+   * @return root element index
+   */
+  private PlanitXmlRootElementIndex getRootElementIndex() {
+    if(rootElementIndex == null) {
+      rootElementIndex = PlanitXmlRootElementIndex.create(projectPath, xmlFileExtension);
+    }
+    return rootElementIndex;
+  }
            
   /**
    * Populate the input objects from specified XML files
@@ -100,9 +137,9 @@ public class PlanItInputBuilder extends InputBuilderListener {
    */
   private void createGeneratedClassesFromXmlLocations(final File zoningXmlFileLocation, final File demandXmlFileLocation, final File networkXmlFileLocation) throws PlanItException {
     try {
-      xmlRawZoning = (XMLElementMacroscopicZoning) JAXBUtils.generateObjectFromXml(XMLElementMacroscopicZoning.class, zoningXmlFileLocation);
-      xmlRawDemand = (XMLElementMacroscopicDemand) JAXBUtils.generateObjectFromXml(XMLElementMacroscopicDemand.class, demandXmlFileLocation);
-      xmlRawNetwork = (XMLElementMacroscopicNetwork) JAXBUtils.generateObjectFromXml(XMLElementMacroscopicNetwork.class, networkXmlFileLocation);
+      xmlRawZoning = PlanitJaxbCache.unmarshal(XMLElementMacroscopicZoning.class, zoningXmlFileLocation);
+      xmlRawDemand = PlanitJaxbCache.unmarshal(XMLElementMacroscopicDemand.class, demandXmlFileLocation);
+      xmlRawNetwork = PlanitJaxbCache.unmarshal(XMLElementMacroscopicNetwork.class, networkXmlFileLocation);
     } catch (final Exception e) {
       LOGGER.severe(e.getMessage());
       throw new PlanItException("Error while generating classes from XML locations in PLANitIO",e);
@@ -118,26 +155,65 @@ public class PlanItInputBuilder extends InputBuilderListener {
    * @throws PlanItException thrown if not all of network, demand and zoning input data are available
    */
   private void parseXmlRawInputs() throws PlanItException {
-    final File[] xmlFileNames = FileUtils.getFilesWithExtensionFromDir(projectPath, xmlFileExtension);
+    final var rootElementIndex = getRootElementIndex();
+    if(validateXmlInputFiles) {
+      validateXmlRawInputs(rootElementIndex);
+    }
     
-    boolean success = parseXmlRawInputsFromSingleFile(xmlFileNames);
+    boolean success = parseXmlRawInputsFromSingleFile(rootElementIndex);
     if(!success) {
-      success = parseXmlRawInputSeparateFiles(xmlFileNames);
+      success = parseXmlRawInputSeparateFiles(rootElementIndex);
     }
     
     PlanItException.throwIf(!success, String.format("Directory %s does not contain file with all inputs nor separate files for zoning, demand, and network",projectPath));
   }
 
+  /**
+   * Validate all XML input files with a known root element against their schema, using up to the configured number of parse threads. Schemas are
+   * compiled once and resolved against the bundled schemas where available, see {@link PlanitSchemaCatalog}
+   *
+   * @param rootElementIndex of XML files in the input directory
+   * @throws PlanItException thrown if one or more files are not valid
+   */
+  private void validateXmlRawInputs(final PlanitXmlRootElementIndex rootElementIndex) throws PlanItException {
+    final Map<Class<?>, String> schemaLocations = Map.of(
+        XMLElementPLANit.class, PlanitSchema.createPlanitSchemaUri(PlanitSchema.MACROSCOPIC_COMBINED_INPUT_XSD),
+        XMLElementMacroscopicNetwork.class, PlanitNetworkReader.NETWORK_XSD_FILE,
+        XMLElementMacroscopicZoning.class, PlanitZoningReader.ZONING_XSD_FILE,
+        XMLElementMacroscopicDemand.class, PlanitDemandsReader.DEMAND_XSD_FILE,
+        XMLElementServiceNetwork.class, PlanitServiceNetworkReader.SERVICE_NETWORK_XSD_FILE,
+        XMLElementRoutedServices.class, PlanitRoutedServicesReader.ROUTED_SERVICES_XSD_FILE);
+
+    final List<File> xmlFiles = new ArrayList<>();
+    final List<Callable<Boolean>> validationTasks = new ArrayList<>();
+    for(var entry : schemaLocations.entrySet()) {
+      for(File xmlFile : rootElementIndex.getFilesWithRootElement(entry.getKey())) {
+        xmlFiles.add(xmlFile);
+        validationTasks.add(() -> validateXmlInputFile(xmlFile, entry.getValue()));
+      }
+    }
+    final List<Boolean> validations = PlanitConcurrentTasks.invokeAllChecked(validationTasks, numberOfParseThreads, "validating XML inputs in PLANitIO");
+
+    final List<String> invalidFiles = new ArrayList<>();
+    for(int index = 0; index < validations.size(); ++index) {
+      if(!validations.get(index)) {
+        invalidFiles.add(xmlFiles.get(index).getName());
+      }
+    }
+    PlanItException.throwIf(!invalidFiles.isEmpty(), "XML input file(s) %s in %s do not conform to their schema", invalidFiles, projectPath);
+    LOGGER.info(String.format("%svalidated %d XML input file(s)", LoggingUtils.getClassNameWithBrackets(this), validations.size()));
+  }
+
   /**
    * Checks if a single XML file containing all of network, demand and zoning
    * inputs is available, and reads it if it is.
    *
-   * @param xmlFileNames array of names of XML files in the input directory
+   * @param rootElementIndex of XML files in the input directory
    * @return true if a single file containing all the inputs has been found and read, false otherwise
    */
-  private boolean parseXmlRawInputsFromSingleFile(final File[] xmlFileNames) {
+  private boolean parseXmlRawInputsFromSingleFile(final PlanitXmlRootElementIndex rootElementIndex) {
     
-    XMLElementPLANit xmlRawPLANitAll = JAXBUtils.generateInstanceFromXml(XMLElementPLANit.class, xmlFileNames);
+    XMLElementPLANit xmlRawPLANitAll = PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementPLANit.class, rootElementIndex);
     if(xmlRawPLANitAll!= null) {
       xmlRawZoning = xmlRawPLANitAll.getMacroscopiczoning();
       xmlRawNetwork = xmlRawPLANitAll.getMacroscopicnetwork();
@@ -154,15 +230,32 @@ public class PlanItInputBuilder extends InputBuilderListener {
   }
   
   /**
-   * Populate the generated input objects from three separate XML files
+   * Populate the generated input objects from three separate XML files. When more than one parse thread is configured, the network, zoning and 
+   * demand files are unmarshalled concurrently, otherwise sequentially. In both cases the optional service network and routed services files are 
+   * only parsed when they are populated. Cross-references between the inputs are only resolved afterwards when populating the PLANit memory model,
+   * so the raw inputs are independent.
    *
-   * @param xmlFileNames array of names of XML files in the input directory
-   * @return true if input demand, zoning and network file are found in xmlFileNames, false otherwise
+   * @param rootElementIndex of XML files in the input directory
+   * @return true if input demand, zoning and network file are found in the input directory, false otherwise
+   * @throws PlanItException thrown if error during concurrent parsing
    */
-  private boolean parseXmlRawInputSeparateFiles(final File[] xmlFileNames) {
-    xmlRawZoning = JAXBUtils.generateInstanceFromXml(XMLElementMacroscopicZoning.class, xmlFileNames);
-    xmlRawNetwork = JAXBUtils.generateInstanceFromXml(XMLElementMacroscopicNetwork.class, xmlFileNames);
-    xmlRawDemand = JAXBUtils.generateInstanceFromXml(XMLElementMacroscopicDemand.class, xmlFileNames);
+  private boolean parseXmlRawInputSeparateFiles(final PlanitXmlRootElementIndex rootElementIndex) throws PlanItException {
+    if(numberOfParseThreads <= 1) {
+      xmlRawZoning = PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementMacroscopicZoning.class, rootElementIndex);
+      xmlRawNetwork = PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementMacroscopicNetwork.class, rootElementIndex);
+      xmlRawDemand = PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementMacroscopicDemand.class, rootElementIndex);
+      return (xmlRawZoning!=null && xmlRawNetwork!=null && xmlRawDemand!=null);
+    }
+    
+    LOGGER.info(String.format("%sparsing XML inputs concurrently using up to %d threads", LoggingUtils.getClassNameWithBrackets(this), numberOfParseThreads));
+    final List<Object> xmlRawInputs = PlanitConcurrentTasks.invokeAllChecked(List.<Callable<Object>>of(
+        () -> PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementMacroscopicNetwork.class, rootElementIndex),
+        () -> PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementMacroscopicZoning.class, rootElementIndex),
+        () -> PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementMacroscopicDemand.class, rootElementIndex)),
+        numberOfParseThreads, "parsing XML inputs concurrently in PLANitIO");
+    xmlRawNetwork = (XMLElementMacroscopicNetwork) xmlRawInputs.get(0);
+    xmlRawZoning = (XMLElementMacroscopicZoning) xmlRawInputs.get(1);
+    xmlRawDemand = (XMLElementMacroscopicDemand) xmlRawInputs.get(2);
     return (xmlRawZoning!=null && xmlRawNetwork!=null && xmlRawDemand!=null);
   }
 
@@ -271,6 +364,35 @@ public class PlanItInputBuilder extends InputBuilderListener {
     throw new PlanItException("Links not correctly identified in initial link segment costs file");
   }
 
+  /**
+   * Create a one-off index of all modes of the network by their XML id, so initial link segment cost records can resolve their mode without 
+   * scanning the allowed modes of each link segment
+   *
+   * @param network to index modes of
+   * @return modes by XML id
+   */
+  private static Map<String, Mode> createModesByXmlId(final MacroscopicNetwork network) {
+    final Map<String, Mode> modesByXmlId = new HashMap<>();
+    for(Mode mode : network.getModes()) {
+      modesByXmlId.put(mode.getXmlId(), mode);
+    }
+    return modesByXmlId;
+  }
+
+  /**
+   * Collect the column index of the given header in the initial link segment cost file
+   *
+   * @param headerMap of the parser
+   * @param headerName to collect index for
+   * @return column index
+   * @throws PlanItException thrown if header is not present
+   */
+  private static int getInitialCostColumnIndex(final Map<String, Integer> headerMap, final String headerName) throws PlanItException {
+    Integer columnIndex = headerMap.get(headerName);
+    PlanItException.throwIfNull(columnIndex, "Column %s not present in initial link segment cost file", headerName);
+    return columnIndex;
+  }
+
   /**
    * Set the initial link segment cost for the specified link segment using values
    * in the CSV initial segment costs file
@@ -278,28 +400,23 @@ public class PlanItInputBuilder extends InputBuilderListener {
    * @param initialLinkSegmentCost the InitialLinkSegmentCost object to store the cost value
    * @param record the record in the CSV input file to get the data value from
    * @param linkSegment the current link segment
+   * @param modesByXmlId one-off index of modes by their XML id
+   * @param modeColumn column index of the mode XML id
+   * @param costColumn column index of the cost
    * @param timePeriod to use (may be null)
    * @throws PlanItException thrown if error
    */
   private void setInitialLinkSegmentCost(final InitialMacroscopicLinkSegmentCost initialLinkSegmentCost, final CSVRecord record,
-                                         final MacroscopicLinkSegment linkSegment, final TimePeriod timePeriod) throws PlanItException {
+                                         final MacroscopicLinkSegment linkSegment, final Map<String, Mode> modesByXmlId, 
+                                         final int modeColumn, final int costColumn, final TimePeriod timePeriod) throws PlanItException {
     
-    final String modeXmlId = record.get(ModeXmlIdOutputProperty.NAME);
-
-    /* mode check */
-    Mode matchMode = null;
-    //TODO: slow! create mapping by source id one-off and use that instead
-    for(Mode  mode : linkSegment.getAllowedModes()) {
-      if(mode.getXmlId().equals(modeXmlId)) {
-        matchMode = mode;
-        break;
-      }
-    }
-    if(matchMode == null) {
+    /* mode check, via index rather than comparing against each allowed mode */
+    final Mode matchMode = modesByXmlId.get(record.get(modeColumn));
+    if(matchMode == null || !linkSegment.isModeAllowed(matchMode)) {
      throw new PlanItException("mode xml id not suported by link segment used for initial link segment cost"); 
     }
     
-    final double cost = Double.parseDouble(record.get(LinkSegmentCostOutputProperty.NAME));
+    final double cost = Double.parseDouble(record.get(costColumn));
     
     if(timePeriod==null) {
       initialLinkSegmentCost.setSegmentCost(matchMode, linkSegment, cost);
@@ -328,6 +445,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
     networkReader.read();  
     
     xmlRawNetwork=null;
+    externalIdIndex = new PlanitExternalIdIndex(network);
   }
 
   /**
@@ -346,6 +464,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
     zoningReader.read();
     
     xmlRawZoning = null;
+    externalIdIndex = new PlanitExternalIdIndex(network, zoning);
   }
 
   /**
@@ -362,6 +481,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
     /* delegate to the dedicated demands reader */
     PlanitDemandsReader demandsReader = new PlanitDemandsReader(xmlRawDemand, network, zoning, demands);
     demandsReader.getSettings().setInputDirectory(projectPath);
+    demandsReader.getSettings().setBinaryOdMatrices(binaryOdMatrices);
     demandsReader.read();
     
     xmlRawDemand = null;
@@ -377,7 +497,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
     /* parse raw inputs if not already done, because routed services are optional, they have not been parsed unless they were part of
      * a combined input XML that contained other parts of the definitions */
     if(xmlRawRoutedServices == null) {
-      xmlRawRoutedServices = (XMLElementRoutedServices ) JAXBUtils.generateInstanceFromXml(XMLElementRoutedServices.class, FileUtils.getFilesWithExtensionFromDir(projectPath, xmlFileExtension));
+      xmlRawRoutedServices = PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementRoutedServices.class, getRootElementIndex());
     }
     if(xmlRawRoutedServices == null) {
       LOGGER.severe("Unable to locate routed services XML input");
@@ -401,7 +521,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
     /* parse raw inputs if not already done, because routed services are optional, they have not been parsed unless they were part of
      * a combined input XML that contained other parts of the definitions */
     if(xmlRawServiceNetwork== null) {
-      xmlRawServiceNetwork = (XMLElementServiceNetwork ) JAXBUtils.generateInstanceFromXml(XMLElementServiceNetwork.class, FileUtils.getFilesWithExtensionFromDir(projectPath, xmlFileExtension));
+      xmlRawServiceNetwork = PlanitXmlJaxbParser.parseFirstXmlRootElement(XMLElementServiceNetwork.class, getRootElementIndex());
     }
     if(xmlRawServiceNetwork == null) {
       LOGGER.severe("Unable to locate service network XML input");
@@ -418,7 +538,8 @@ public class PlanItInputBuilder extends InputBuilderListener {
   }
 
   /**
-   * Populate the initial link segment cost from a CSV file
+   * Populate the initial link segment cost from a CSV file. Unquoted files are loaded in parallel chunks using up to the number of parse threads, 
+   * see {@link InitialLinkSegmentCostCsvLoader}, files with quoted values are parsed record by record
    *
    * @param initialCostEvent to extract context from to populate its component that it carries
    * @throws PlanItException thrown if error
@@ -432,13 +553,41 @@ public class PlanItInputBuilder extends InputBuilderListener {
     /* verify */
     PlanItException.throwIfNull(network,"parent network for initial link segment cost is null");
     PlanItException.throwIfNull(fileName, "file location for initial link segment cost is null");
+    
+    /* binary costs persisted by a previous run */
+    if(fileName.endsWith(PlanitBinaryLinkSegmentCosts.FILE_EXTENSION)) {
+      long numberOfCosts = PlanitBinaryLinkSegmentCosts.read(
+          Path.of(fileName), network, initialCostEvent.getTimePeriod(), initialCostEvent.getInitialLinkSegmentCostToPopulate());
+      LOGGER.fine(LoggingUtils.getClassNameWithBrackets(this) + String.format("populated %d initial link segment costs from binary file", numberOfCosts));
+      return;
+    }
         
-    /* parse */
+    /* high throughput (parallel) loader for unquoted files */
+    try {
+      final Path file = Path.of(fileName);
+      final List<String> headers = InitialLinkSegmentCostCsvLoader.readHeader(file);
+      if(headers != null) {
+        final var loader = new InitialLinkSegmentCostCsvLoader(network, getInitialCostLinkIdentificationMethod(new HashSet<>(headers)), numberOfParseThreads);
+        if(loader.load(file, headers, initialCostEvent.getInitialLinkSegmentCostToPopulate(), initialCostEvent.getTimePeriod())) {
+          return;
+        }
+      }
+    } catch (final Exception e) {
+      LOGGER.severe(e.getMessage());
+      throw new PlanItException("Error when initialising link segment costs in PLANitIO",e);
+    }
+    
+    /* parse quoted files record by record */
     try {
       final Reader in = new FileReader(fileName);
       final CSVParser parser = CSVParser.parse(in, CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreSurroundingSpaces());
       final Set<String> headers = parser.getHeaderMap().keySet();
       
+      /* resolve columns and modes once, not per record */
+      final Map<String, Mode> modesByXmlId = createModesByXmlId(network);
+      final int modeColumn = getInitialCostColumnIndex(parser.getHeaderMap(), ModeXmlIdOutputProperty.NAME);
+      final int costColumn = getInitialCostColumnIndex(parser.getHeaderMap(), LinkSegmentCostOutputProperty.NAME);
+      
       /* populate this */
       var initialLinkSegmentCost = initialCostEvent.getInitialLinkSegmentCostToPopulate();
 
@@ -460,7 +609,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
         for (final CSVRecord record : parser) {
           MacroscopicLinkSegment linkSegment = indexByIdentificationMethod.get(record.get(UpstreamNodeXmlIdOutputProperty.NAME)).get(record.get(DownstreamNodeXmlIdOutputProperty.NAME));         
           PlanItException.throwIfNull(linkSegment, "failed to find link segment for record %d", record.getRecordNumber());        
-          setInitialLinkSegmentCost(initialLinkSegmentCost, record, linkSegment, initialCostEvent.getTimePeriod());
+          setInitialLinkSegmentCost(initialLinkSegmentCost, record, linkSegment, modesByXmlId, modeColumn, costColumn, initialCostEvent.getTimePeriod());
         }
         
       }else {
@@ -494,7 +643,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
         for (final CSVRecord record : parser) {
           MacroscopicLinkSegment linkSegment = indexByIdentificationMethod.get(record.get(identificationColumnName));          
           PlanItException.throwIfNull(linkSegment, "failed to find link segment for record %d", record.getRecordNumber());
-          setInitialLinkSegmentCost(initialLinkSegmentCost, record, linkSegment, initialCostEvent.getTimePeriod());          
+          setInitialLinkSegmentCost(initialLinkSegmentCost, record, linkSegment, modesByXmlId, modeColumn, costColumn, initialCostEvent.getTimePeriod());          
         }
       }   
       in.close();
@@ -507,6 +656,15 @@ public class PlanItInputBuilder extends InputBuilderListener {
   /** The default separator that is assumed when no separator is provided */
   public static final String DEFAULT_SEPARATOR = ",";  
 
+  /** By default XML inputs are parsed sequentially on the calling thread, concurrent parsing is opt-in */
+  public static final int DEFAULT_NUMBER_OF_PARSE_THREADS = 1;
+
+  /** By default XML input files are not validated against their schema before parsing */
+  public static final boolean DEFAULT_VALIDATE_XML_INPUT_FILES = false;
+
+  /** By default binary od matrices are not parsed, only the XML demands */
+  public static final boolean DEFAULT_BINARY_OD_MATRICES = false;
+
 
   /**
    * Constructor which generates the input objects from files in a specified
@@ -537,7 +695,76 @@ public class PlanItInputBuilder extends InputBuilderListener {
   }
 
   /**
-   * Validates an input XML file against an XSD file
+   * Maximum number of threads used to parse the XML input files concurrently
+   *
+   * @return number of parse threads
+   */
+  public int getNumberOfParseThreads() {
+    return numberOfParseThreads;
+  }
+
+  /**
+   * Set the maximum number of threads used to parse the XML input files concurrently. When set to one (or less), the default, input files are 
+   * parsed sequentially on the calling thread. Parsing the network, zoning and demands concurrently is worthwhile for large inputs, e.g., 
+   * {@code Runtime.getRuntime().availableProcessors()}, at the cost of holding all of them in memory at the same time
+   *
+   * @param numberOfParseThreads to use
+   */
+  public void setNumberOfParseThreads(int numberOfParseThreads) {
+    this.numberOfParseThreads = numberOfParseThreads;
+  }
+
+  /**
+   * Collect the external id index of the most recently populated network and zoning, allowing (lazily indexed) lookups of nodes, links, link segments
+   * and zones by their external id. The index is a snapshot of the network and zoning as populated, when either is modified afterwards call
+   * {@link PlanitExternalIdIndex#reset()} before further lookups
+   *
+   * @return external id index, null if no network has been populated yet
+   */
+  public PlanitExternalIdIndex getExternalIdIndex() {
+    return externalIdIndex;
+  }
+
+  /**
+   * Verify if all XML input files are validated against their schema before parsing
+   *
+   * @return true when validating, false otherwise
+   */
+  public boolean isValidateXmlInputFiles() {
+    return validateXmlInputFiles;
+  }
+
+  /**
+   * Choose to validate all XML input files against their schema before parsing. Files are validated in parallel using up to the number of parse threads,
+   * against the schemas bundled on the classpath where available so no network access is required. When any file is invalid, parsing is aborted
+   *
+   * @param validateXmlInputFiles when true validate, otherwise do not
+   */
+  public void setValidateXmlInputFiles(boolean validateXmlInputFiles) {
+    this.validateXmlInputFiles = validateXmlInputFiles;
+  }
+
+  /**
+   * Verify if binary od matrices in the project path are parsed in addition to the XML demands
+   *
+   * @return true when parsed, false otherwise
+   */
+  public boolean isBinaryOdMatrices() {
+    return binaryOdMatrices;
+  }
+
+  /**
+   * Choose to parse binary od matrices in the project path in addition to the XML demands, see 
+   * {@link PlanitDemandsReaderSettings#setBinaryOdMatrices(boolean)}
+   *
+   * @param binaryOdMatrices when true parse them, otherwise do not
+   */
+  public void setBinaryOdMatrices(boolean binaryOdMatrices) {
+    this.binaryOdMatrices = binaryOdMatrices;
+  }
+
+  /**
+   * Validates an input XML file against an XSD file, the XSD is compiled once and cached for subsequent validations
    *
    * @param xmlFileLocation input XML file
    * @param schemaFileLocation XSD file to validate XML file against
@@ -545,7 +772,7 @@ public class PlanItInputBuilder extends InputBuilderListener {
    */
   public static boolean validateXmlInputFile(final File xmlFileLocation, final String schemaFileLocation) {
     try {
-      JAXBUtils.validateXml(xmlFileLocation, schemaFileLocation);
+      PlanitJaxbCache.validate(xmlFileLocation, schemaFileLocation);
       return true;
     } catch (final Exception e) {
       LOGGER.info(e.getMessage());
@@ -0,0 +1,312 @@
+package org.goplanit.io.output.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import org.goplanit.output.enums.DataType;
+import org.goplanit.utils.exceptions.PlanItException;
+
+/**
+ * Reader of columnar output files written by {@link ColumnarOutputTable}. Only the directory is read upon opening, each column is read on
+ * request from its own block without touching the blocks of other columns.
+ *
+ * @author markr
+ *
+ */
+public class ColumnarOutputReader {
+
+  /**
+   * Directory entry of a single column
+   */
+  private static class ColumnEntry {
+
+    /** data type of column */
+    private final DataType dataType;
+
+    /** flag indicating the block is compressed */
+    private final boolean compressed;
+
+    /** offset of block in file */
+    private final long offset;
+
+    /** stored size of block */
+    private final long size;
+
+    /**
+     * Constructor
+     *
+     * @param dataType of column
+     * @param compressed when block is compressed
+     * @param offset of block
+     * @param size of block
+     */
+    private ColumnEntry(final DataType dataType, final boolean compressed, final long offset, final long size) {
+      this.dataType = dataType;
+      this.compressed = compressed;
+      this.offset = offset;
+      this.size = size;
+    }
+  }
+
+  /** file to read from */
+  private final Path file;
+
+  /** number of rows */
+  private final int numberOfRows;
+
+  /** directory by column name, in column order */
+  private final Map<String, ColumnEntry> directory;
+
+  /**
+   * Collect directory entry of column
+   *
+   * @param name of column
+   * @param expectedTypes allowed data types of column
+   * @return entry
+   * @throws PlanItException thrown if column is not present or of a different type
+   */
+  private ColumnEntry getEntry(final String name, final DataType... expectedTypes) throws PlanItException {
+    final ColumnEntry entry = directory.get(name);
+    PlanItException.throwIfNull(entry, "Column %s not present in columnar output %s", name, file);
+    for(DataType expectedType : expectedTypes) {
+      if(entry.dataType == expectedType) {
+        return entry;
+      }
+    }
+    throw new PlanItException("Column %s in columnar output %s is of type %s", name, file, entry.dataType);
+  }
+
+  /**
+   * Read the given number of bytes from the channel
+   *
+   * @param channel to read from
+   * @param position to start reading at
+   * @param size number of bytes to read
+   * @return little endian buffer holding the bytes, ready for reading
+   * @throws Exception thrown if error or end of file is reached prematurely
+   */
+  private ByteBuffer readFully(final FileChannel channel, final long position, final int size) throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(size);
+    long currentPosition = position;
+    while(buffer.hasRemaining()) {
+      int read = channel.read(buffer, currentPosition);
+      PlanItException.throwIf(read < 0, "Unexpected end of columnar output %s", file);
+      currentPosition += read;
+    }
+    return buffer.flip().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Read (and decompress) the block of a column
+   *
+   * @param entry of column
+   * @param decodedSize size of decoded block when known, negative otherwise
+   * @return decoded block
+   * @throws PlanItException thrown if error
+   */
+  private ByteBuffer readBlock(final ColumnEntry entry, final int decodedSize) throws PlanItException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final ByteBuffer stored = readFully(channel, entry.offset, (int) entry.size);
+      if(!entry.compressed) {
+        return stored;
+      }
+
+      final Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(stored.array());
+        byte[] decoded = new byte[decodedSize >= 0 ? decodedSize : Math.max(64, (int) entry.size * 4)];
+        int length = 0;
+        while(!inflater.finished()) {
+          if(length == decoded.length) {
+            decoded = Arrays.copyOf(decoded, decoded.length * 2);
+          }
+          int inflated = inflater.inflate(decoded, length, decoded.length - length);
+          PlanItException.throwIf(inflated == 0 && inflater.needsInput(), "Truncated column block in columnar output %s", file);
+          length += inflated;
+        }
+        return ByteBuffer.wrap(decoded, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+      }finally {
+        inflater.end();
+      }
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to read column block from columnar output %s", e, file);
+    }
+  }
+
+  /**
+   * Parse the data type of a column from its persisted name
+   *
+   * @param dataTypeName to parse
+   * @return data type
+   * @throws PlanItException thrown if the name does not match a known data type
+   */
+  private DataType parseDataType(final String dataTypeName) throws PlanItException {
+    for(DataType dataType : DataType.values()) {
+      if(dataType.name().equals(dataTypeName)) {
+        return dataType;
+      }
+    }
+    throw new PlanItException("Unknown data type %s in columnar output %s", dataTypeName, file);
+  }
+
+  /**
+   * Constructor, reads the directory of the file
+   *
+   * @param file to read
+   * @throws PlanItException thrown if error
+   */
+  public ColumnarOutputReader(final Path file) throws PlanItException {
+    this.file = file;
+    this.directory = new LinkedHashMap<>();
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final ByteBuffer header = readFully(channel, 0, ColumnarOutputTable.HEADER_SIZE);
+      PlanItException.throwIf(header.getInt() != ColumnarOutputTable.MAGIC, "File %s is not a columnar output file", file);
+      final int version = header.getInt();
+      PlanItException.throwIf(version != ColumnarOutputTable.VERSION, "Columnar output %s has version %d, only version %d is supported", file, version, ColumnarOutputTable.VERSION);
+      final int directorySize = header.getInt();
+      this.numberOfRows = header.getInt();
+      final int numberOfColumns = header.getInt();
+
+      final ByteBuffer directoryBuffer = readFully(channel, ColumnarOutputTable.HEADER_SIZE, directorySize - ColumnarOutputTable.HEADER_SIZE);
+      for(int index = 0; index < numberOfColumns; ++index) {
+        byte[] name = new byte[directoryBuffer.getInt()];
+        directoryBuffer.get(name);
+        byte[] dataTypeName = new byte[directoryBuffer.getInt()];
+        directoryBuffer.get(dataTypeName);
+        DataType dataType = parseDataType(new String(dataTypeName, StandardCharsets.UTF_8));
+        boolean compressed = directoryBuffer.get() != 0;
+        long offset = directoryBuffer.getLong();
+        long size = directoryBuffer.getLong();
+        directory.put(new String(name, StandardCharsets.UTF_8), new ColumnEntry(dataType, compressed, offset, size));
+      }
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to open columnar output %s", e, file);
+    }
+  }
+
+  /**
+   * Number of rows in the file
+   *
+   * @return number of rows
+   */
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  /**
+   * Names of the columns in the file, in column order
+   *
+   * @return column names
+   */
+  public List<String> getColumnNames() {
+    return Collections.unmodifiableList(new ArrayList<>(directory.keySet()));
+  }
+
+  /**
+   * Data type of a column
+   *
+   * @param name of column
+   * @return data type, null if not present
+   */
+  public DataType getDataType(final String name) {
+    ColumnEntry entry = directory.get(name);
+    return entry == null ? null : entry.dataType;
+  }
+
+  /**
+   * Read a floating point column (DOUBLE or FLOAT) as doubles
+   *
+   * @param name of column
+   * @return values, NaN when absent
+   * @throws PlanItException thrown if error
+   */
+  public double[] readDoubleColumn(final String name) throws PlanItException {
+    final ColumnEntry entry = getEntry(name, DataType.DOUBLE, DataType.FLOAT);
+    final boolean isDouble = entry.dataType == DataType.DOUBLE;
+    final ByteBuffer block = readBlock(entry, numberOfRows * (isDouble ? Double.BYTES : Float.BYTES));
+    final double[] values = new double[numberOfRows];
+    if(isDouble) {
+      block.asDoubleBuffer().get(values);
+    }else {
+      for(int row = 0; row < numberOfRows; ++row) {
+        values[row] = block.getFloat();
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Read an integer column (INTEGER or LONG) as longs
+   *
+   * @param name of column
+   * @return values, minimum value of the stored type when absent
+   * @throws PlanItException thrown if error
+   */
+  public long[] readLongColumn(final String name) throws PlanItException {
+    final ColumnEntry entry = getEntry(name, DataType.LONG, DataType.INTEGER);
+    final boolean isLong = entry.dataType == DataType.LONG;
+    final ByteBuffer block = readBlock(entry, numberOfRows * (isLong ? Long.BYTES : Integer.BYTES));
+    final long[] values = new long[numberOfRows];
+    if(isLong) {
+      block.asLongBuffer().get(values);
+    }else {
+      for(int row = 0; row < numberOfRows; ++row) {
+        values[row] = block.getInt();
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Read a boolean column
+   *
+   * @param name of column
+   * @return values
+   * @throws PlanItException thrown if error
+   */
+  public boolean[] readBooleanColumn(final String name) throws PlanItException {
+    final ByteBuffer block = readBlock(getEntry(name, DataType.BOOLEAN), numberOfRows);
+    final boolean[] values = new boolean[numberOfRows];
+    for(int row = 0; row < numberOfRows; ++row) {
+      values[row] = block.get() != 0;
+    }
+    return values;
+  }
+
+  /**
+   * Read a textual column (STRING or SRSNAME)
+   *
+   * @param name of column
+   * @return values, null when absent
+   * @throws PlanItException thrown if error
+   */
+  public String[] readStringColumn(final String name) throws PlanItException {
+    final ByteBuffer block = readBlock(getEntry(name, DataType.STRING, DataType.SRSNAME), -1);
+    final String[] values = new String[numberOfRows];
+    for(int row = 0; row < numberOfRows; ++row) {
+      int length = block.getInt();
+      if(length < 0) {
+        continue;
+      }
+      byte[] bytes = new byte[length];
+      block.get(bytes);
+      values[row] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,280 @@
+package org.goplanit.io.output.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.goplanit.output.enums.DataType;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Table of output values collected row by row and persisted column by column. Each column is stored as a separate typed block, optionally
+ * compressed, and the file starts with a directory holding the name, type, offset and size of each block, so a single column can be read
+ * without touching the others, see {@link ColumnarOutputReader}. Layout (little endian):
+ * <ul>
+ * <li>magic number, version, size of the directory (including this header), number of rows, number of columns</li>
+ * <li>per column: name (length prefixed UTF-8), data type name (length prefixed UTF-8), compressed flag, offset and stored size of its block</li>
+ * <li>the column blocks</li>
+ * </ul>
+ * Absent values are stored as NaN for floating point columns, as the minimum value for integer columns, as false for boolean columns and as
+ * length -1 for textual columns.
+ *
+ * @author markr
+ *
+ */
+public class ColumnarOutputTable {
+
+  /** magic number at the start of each columnar output file, "PLCO" */
+  static final int MAGIC = 0x504C434F;
+
+  /** current version of the format */
+  static final int VERSION = 2;
+
+  /** size of the fixed header */
+  static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+  /** file extension of columnar output files */
+  public static final String FILE_EXTENSION = ".plcol";
+
+  /** initial row capacity */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /** column names */
+  private final List<String> names;
+
+  /** column data types */
+  private final List<DataType> dataTypes;
+
+  /** column values, each a typed array (double[], float[], int[], long[], boolean[] or String[]) */
+  private final Object[] columns;
+
+  /** number of rows */
+  private int numberOfRows;
+
+  /** number of rows the columns can hold */
+  private int capacity;
+
+  /**
+   * Create typed column array
+   *
+   * @param dataType of column
+   * @param capacity of array
+   * @return array
+   */
+  private static Object createColumn(final DataType dataType, final int capacity) {
+    switch (dataType) {
+    case DOUBLE:
+      return new double[capacity];
+    case FLOAT:
+      return new float[capacity];
+    case INTEGER:
+      return new int[capacity];
+    case LONG:
+      return new long[capacity];
+    case BOOLEAN:
+      return new boolean[capacity];
+    default:
+      return new String[capacity];
+    }
+  }
+
+  /**
+   * Grow all columns to the given capacity
+   *
+   * @param capacity new capacity
+   */
+  private void grow(final int capacity) {
+    this.capacity = capacity;
+    for(int index = 0; index < columns.length; ++index) {
+      Object column = columns[index];
+      if(column instanceof double[]) {
+        columns[index] = Arrays.copyOf((double[]) column, capacity);
+      }else if(column instanceof float[]) {
+        columns[index] = Arrays.copyOf((float[]) column, capacity);
+      }else if(column instanceof int[]) {
+        columns[index] = Arrays.copyOf((int[]) column, capacity);
+      }else if(column instanceof long[]) {
+        columns[index] = Arrays.copyOf((long[]) column, capacity);
+      }else if(column instanceof boolean[]) {
+        columns[index] = Arrays.copyOf((boolean[]) column, capacity);
+      }else {
+        columns[index] = Arrays.copyOf((String[]) column, capacity);
+      }
+    }
+  }
+
+  /**
+   * Set a single value in a column
+   *
+   * @param column to set value in
+   * @param row to set
+   * @param value to set, may be null
+   */
+  private static void setValue(final Object column, final int row, final Object value) {
+    if(column instanceof double[]) {
+      ((double[]) column)[row] = value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }else if(column instanceof float[]) {
+      ((float[]) column)[row] = value instanceof Number ? ((Number) value).floatValue() : Float.NaN;
+    }else if(column instanceof int[]) {
+      ((int[]) column)[row] = value instanceof Number ? ((Number) value).intValue() : Integer.MIN_VALUE;
+    }else if(column instanceof long[]) {
+      ((long[]) column)[row] = value instanceof Number ? ((Number) value).longValue() : Long.MIN_VALUE;
+    }else if(column instanceof boolean[]) {
+      ((boolean[]) column)[row] = value instanceof Boolean ? (Boolean) value : false;
+    }else {
+      ((String[]) column)[row] = value == null ? null : value.toString();
+    }
+  }
+
+  /**
+   * Encode the rows of a column as block
+   *
+   * @param column to encode
+   * @param compress when true compress the block
+   * @return encoded block
+   * @throws IOException thrown if error
+   */
+  private byte[] encodeColumn(final Object column, final boolean compress) throws IOException {
+    final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    final Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    try(DataOutputStream out = new DataOutputStream(compress ? new DeflaterOutputStream(block, deflater, 1 << 16) : block)){
+      final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+      for(int row = 0; row < numberOfRows; ++row) {
+        if(buffer.remaining() < Long.BYTES) {
+          out.write(buffer.array(), 0, buffer.position());
+          buffer.clear();
+        }
+        if(column instanceof double[]) {
+          buffer.putDouble(((double[]) column)[row]);
+        }else if(column instanceof float[]) {
+          buffer.putFloat(((float[]) column)[row]);
+        }else if(column instanceof int[]) {
+          buffer.putInt(((int[]) column)[row]);
+        }else if(column instanceof long[]) {
+          buffer.putLong(((long[]) column)[row]);
+        }else if(column instanceof boolean[]) {
+          buffer.put((byte) (((boolean[]) column)[row] ? 1 : 0));
+        }else {
+          String value = ((String[]) column)[row];
+          if(value == null) {
+            buffer.putInt(-1);
+            continue;
+          }
+          byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+          buffer.putInt(bytes.length);
+          out.write(buffer.array(), 0, buffer.position());
+          buffer.clear();
+          out.write(bytes);
+        }
+      }
+      out.write(buffer.array(), 0, buffer.position());
+    }finally {
+      if(deflater != null) {
+        deflater.end();
+      }
+    }
+    return block.toByteArray();
+  }
+
+  /**
+   * Constructor
+   *
+   * @param names of the columns
+   * @param dataTypes of the columns
+   */
+  public ColumnarOutputTable(final List<String> names, final List<DataType> dataTypes) {
+    PlanItRunTimeException.throwIf(names.size() != dataTypes.size(), "Number of column names and data types differ for columnar output");
+    this.names = new ArrayList<>(names);
+    this.dataTypes = new ArrayList<>(dataTypes);
+    this.columns = new Object[names.size()];
+    for(int index = 0; index < columns.length; ++index) {
+      columns[index] = createColumn(dataTypes.get(index), INITIAL_CAPACITY);
+    }
+    this.capacity = INITIAL_CAPACITY;
+  }
+
+  /**
+   * Add a row
+   *
+   * @param values of the row, one per column in column order, null when absent
+   */
+  public void addRow(final Object[] values) {
+    PlanItRunTimeException.throwIf(values.length != columns.length, "Expected %d values per row of columnar output, found %d", columns.length, values.length);
+    if(numberOfRows == capacity) {
+      grow(numberOfRows * 2);
+    }
+    for(int index = 0; index < columns.length; ++index) {
+      setValue(columns[index], numberOfRows, values[index]);
+    }
+    ++numberOfRows;
+  }
+
+  /**
+   * Number of rows added
+   *
+   * @return number of rows
+   */
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  /**
+   * Write the table to file
+   *
+   * @param file to write to, overwritten if it exists
+   * @param compress when true column blocks are compressed
+   * @throws PlanItException thrown if error
+   */
+  public void write(final Path file, final boolean compress) throws PlanItException {
+    try {
+      final List<byte[]> blocks = new ArrayList<>(columns.length);
+      final List<byte[]> encodedNames = new ArrayList<>(columns.length);
+      final List<byte[]> encodedDataTypes = new ArrayList<>(columns.length);
+      int directorySize = HEADER_SIZE;
+      for(int index = 0; index < columns.length; ++index) {
+        blocks.add(encodeColumn(columns[index], compress));
+        encodedNames.add(names.get(index).getBytes(StandardCharsets.UTF_8));
+        encodedDataTypes.add(dataTypes.get(index).name().getBytes(StandardCharsets.UTF_8));
+        directorySize += Integer.BYTES + encodedNames.get(index).length + Integer.BYTES + encodedDataTypes.get(index).length + 1 + 2 * Long.BYTES;
+      }
+
+      final ByteBuffer directory = ByteBuffer.allocate(directorySize).order(ByteOrder.LITTLE_ENDIAN);
+      directory.putInt(MAGIC).putInt(VERSION).putInt(directorySize).putInt(numberOfRows).putInt(columns.length);
+      long offset = directorySize;
+      for(int index = 0; index < columns.length; ++index) {
+        directory.putInt(encodedNames.get(index).length).put(encodedNames.get(index));
+        directory.putInt(encodedDataTypes.get(index).length).put(encodedDataTypes.get(index));
+        directory.put((byte) (compress ? 1 : 0));
+        directory.putLong(offset).putLong(blocks.get(index).length);
+        offset += blocks.get(index).length;
+      }
+      directory.flip();
+
+      try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+        while(directory.hasRemaining()) {
+          channel.write(directory);
+        }
+        for(byte[] block : blocks) {
+          ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+          while(blockBuffer.hasRemaining()) {
+            channel.write(blockBuffer);
+          }
+        }
+      }
+    }catch(Exception e) {
+      throw new PlanItException("Unable to write columnar output to %s", e, file);
+    }
+  }
+}
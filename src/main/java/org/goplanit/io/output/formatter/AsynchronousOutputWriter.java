@@ -0,0 +1,211 @@
+package org.goplanit.io.output.formatter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+
+import org.goplanit.utils.exceptions.PlanItException;
+
+/**
+ * Performs output tasks, i.e., writing snapshots of output to disk, on a dedicated writer thread. Tasks are handed over through a bounded queue,
+ * when the queue is full, or the snapshots held by pending tasks exceed the maximum number of pending bytes, the submitting thread blocks until the
+ * writer thread catches up (back-pressure), so the memory held by pending snapshots is bounded. Tasks are performed in order of submission. The first failure of a task is retained and rethrown on the next submission or when
+ * draining, tasks submitted after a failure are discarded.
+ *
+ * @author markr
+ *
+ */
+class AsynchronousOutputWriter {
+
+  /** the logger */
+  private static final Logger LOGGER = Logger.getLogger(AsynchronousOutputWriter.class.getCanonicalName());
+
+  /**
+   * An output task performed on the writer thread
+   */
+  @FunctionalInterface
+  interface OutputTask {
+
+    /**
+     * Perform the task
+     *
+     * @throws Exception thrown if error
+     */
+    void perform() throws Exception;
+  }
+
+  /**
+   * A submitted task together with the size of the snapshot it holds
+   */
+  private static class PendingTask {
+
+    /** the task */
+    private final OutputTask task;
+
+    /** size of the snapshot held by the task in bytes */
+    private final long bytes;
+
+    /**
+     * Constructor
+     *
+     * @param task the task
+     * @param bytes size of the snapshot held by the task
+     */
+    PendingTask(final OutputTask task, final long bytes) {
+      this.task = task;
+      this.bytes = bytes;
+    }
+  }
+
+  /** task signalling the writer thread to terminate */
+  private static final PendingTask TERMINATE = new PendingTask(() -> {}, 0);
+
+  /** pending tasks */
+  private final BlockingQueue<PendingTask> queue;
+
+  /** maximum number of bytes held by pending tasks before submissions block, a single task may exceed it */
+  private final long maxPendingBytes;
+
+  /** number of bytes held by pending tasks, guarded by this */
+  private long pendingBytes;
+
+  /** the writer thread */
+  private final Thread writerThread;
+
+  /** first failure of a task, null if none */
+  private volatile Exception failure;
+
+  /**
+   * Take and perform tasks until terminated
+   */
+  private void run() {
+    try {
+      while(true) {
+        final PendingTask pendingTask;
+        try {
+          pendingTask = queue.take();
+        }catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        if(pendingTask == TERMINATE) {
+          return;
+        }
+        try {
+          if(failure == null) {
+            pendingTask.task.perform();
+          }
+        }catch(Exception e) {
+          LOGGER.severe(e.getMessage());
+          failure = e;
+        }finally {
+          release(pendingTask.bytes);
+        }
+      }
+    }finally {
+      /* wake up submitters waiting for bytes to be released, so they notice the writer thread is gone */
+      release(0);
+    }
+  }
+
+  /**
+   * Release the bytes held by a performed (or discarded) task and wake up waiting submitters
+   *
+   * @param bytes to release
+   */
+  private synchronized void release(final long bytes) {
+    pendingBytes -= bytes;
+    notifyAll();
+  }
+
+  /**
+   * Wait until the bytes of a new task fit within the maximum number of pending bytes, or no other task is pending, and reserve them
+   *
+   * @param bytes to reserve
+   * @throws InterruptedException thrown when interrupted while waiting
+   */
+  private synchronized void reserve(final long bytes) throws InterruptedException {
+    while(pendingBytes > 0 && pendingBytes + bytes > maxPendingBytes && writerThread.isAlive() && failure == null) {
+      wait();
+    }
+    pendingBytes += bytes;
+  }
+
+  /**
+   * Rethrow the failure of a task, if any
+   *
+   * @throws PlanItException thrown if a task failed
+   */
+  private void throwIfFailed() throws PlanItException {
+    if(failure != null) {
+      if(failure instanceof PlanItException) {
+        throw (PlanItException) failure;
+      }
+      throw new PlanItException("Error when writing output asynchronously in PLANitIO OutputFormatter", failure);
+    }
+  }
+
+  /**
+   * Constructor, starts the writer thread
+   *
+   * @param queueCapacity maximum number of pending tasks before submissions block
+   * @param maxPendingBytes maximum number of bytes held by pending tasks before submissions block
+   * @param threadName name of the writer thread
+   */
+  AsynchronousOutputWriter(final int queueCapacity, final long maxPendingBytes, final String threadName) {
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    this.maxPendingBytes = maxPendingBytes;
+    this.pendingBytes = 0;
+    this.writerThread = new Thread(this::run, threadName);
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Submit a task that holds no (significant) snapshot, blocks while the queue is full
+   *
+   * @param task to perform on the writer thread
+   * @throws PlanItException thrown if an earlier task failed or when interrupted while waiting
+   */
+  void submit(final OutputTask task) throws PlanItException {
+    submit(task, 0);
+  }
+
+  /**
+   * Submit a task holding a snapshot of the given size, blocks while the queue is full or while the snapshot does not fit within the maximum
+   * number of pending bytes
+   *
+   * @param task to perform on the writer thread
+   * @param bytes (estimated) size of the snapshot held by the task
+   * @throws PlanItException thrown if an earlier task failed or when interrupted while waiting
+   */
+  void submit(final OutputTask task, final long bytes) throws PlanItException {
+    throwIfFailed();
+    PlanItException.throwIf(!writerThread.isAlive(), "Asynchronous output writer is no longer running");
+    try {
+      reserve(bytes);
+      queue.put(new PendingTask(task, bytes));
+    }catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PlanItException("Interrupted while waiting for asynchronous output writer", e);
+    }
+  }
+
+  /**
+   * Wait for all pending tasks to be performed and terminate the writer thread
+   *
+   * @throws PlanItException thrown if a task failed or when interrupted while waiting
+   */
+  void drainAndClose() throws PlanItException {
+    try {
+      if(writerThread.isAlive()) {
+        queue.put(TERMINATE);
+        writerThread.join();
+      }
+    }catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PlanItException("Interrupted while draining asynchronous output writer", e);
+    }
+    throwIfFailed();
+  }
+}
@@ -0,0 +1,255 @@
+package org.goplanit.io.output.formatter;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.goplanit.io.xml.util.PlanitCompressionCodec;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.xml.generated.XMLElementColumn;
+import org.goplanit.xml.generated.XMLElementMetadata;
+import org.goplanit.xml.generated.XMLElementOutputConfiguration;
+
+/**
+ * Writes a metadata XML file as an append-only stream: the header (timestamp, version, description and output configuration) is written upon
+ * opening, each iteration is appended as it is persisted and the columns are written upon closing. Neither runtime nor memory grows with the
+ * number of iterations, as opposed to re-marshalling a complete {@link XMLElementMetadata} tree. The resulting document has the same
+ * structure as the marshalled tree, so it can be read with the generated classes.
+ * <p>
+ * Not thread safe, all calls for a single file must be made by the same thread (or be otherwise ordered).
+ * </p>
+ *
+ * @author markr
+ *
+ */
+class MetadataStreamWriter {
+
+  /** shared factory, thread safe once configured */
+  private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  /** indentation per nesting level, consistent with formatted JAXB output */
+  private static final String INDENT = "    ";
+
+  /** metadata holding the header and columns, its simulation element is ignored */
+  private final XMLElementMetadata header;
+
+  /** file to write to */
+  private final Path xmlFile;
+
+  /** schema location to reference, may be null */
+  private final String schemaLocationUri;
+
+  /** compression codec to use */
+  private final PlanitCompressionCodec codec;
+
+  /** compression level to use */
+  private final int compressionLevel;
+
+  /** underlying stream, null when not open */
+  private OutputStream outputStream;
+
+  /** writer on the underlying stream, null when not open */
+  private XMLStreamWriter writer;
+
+  /**
+   * Start a new line at the given nesting level
+   *
+   * @param level of nesting
+   * @throws XMLStreamException thrown if error
+   */
+  private void newLine(int level) throws XMLStreamException {
+    writer.writeCharacters("\n" + INDENT.repeat(level));
+  }
+
+  /**
+   * Write a simple element with text content, nothing is written when the text is null
+   *
+   * @param level of nesting
+   * @param name of element
+   * @param text content
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeTextElement(int level, final String name, final String text) throws XMLStreamException {
+    if(text == null) {
+      return;
+    }
+    newLine(level);
+    writer.writeStartElement(name);
+    writer.writeCharacters(text);
+    writer.writeEndElement();
+  }
+
+  /**
+   * Write the output configuration element
+   *
+   * @param outputConfiguration to write
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeOutputConfiguration(final XMLElementOutputConfiguration outputConfiguration) throws XMLStreamException {
+    newLine(1);
+    writer.writeStartElement("outputconfiguration");
+    writeTextElement(2, "assignment", outputConfiguration.getAssignment());
+    writeTextElement(2, "physicalcost", outputConfiguration.getPhysicalcost());
+    writeTextElement(2, "virtualcost", outputConfiguration.getVirtualcost());
+    writeTextElement(2, "smoothing", outputConfiguration.getSmoothing());
+    writeTextElement(2, "gapfunction", outputConfiguration.getGapfunction());
+    writeTextElement(2, "stopcriterion", outputConfiguration.getStopcriterion());
+    if(outputConfiguration.getTimeperiod() != null) {
+      newLine(2);
+      writer.writeStartElement("timeperiod");
+      writeTextElement(3, "id", outputConfiguration.getTimeperiod().getId());
+      writeTextElement(3, "name", outputConfiguration.getTimeperiod().getName());
+      newLine(2);
+      writer.writeEndElement();
+    }
+    newLine(1);
+    writer.writeEndElement();
+  }
+
+  /**
+   * Write the columns element
+   *
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeColumns() throws XMLStreamException {
+    if(header.getColumns() == null) {
+      return;
+    }
+    newLine(1);
+    writer.writeStartElement("columns");
+    for(XMLElementColumn column : header.getColumns().getColumn()) {
+      newLine(2);
+      writer.writeStartElement("column");
+      writeTextElement(3, "name", column.getName());
+      writeTextElement(3, "units", column.getUnits() == null ? null : column.getUnits().value());
+      writeTextElement(3, "type", column.getType() == null ? null : column.getType().value());
+      newLine(2);
+      writer.writeEndElement();
+    }
+    newLine(1);
+    writer.writeEndElement();
+  }
+
+  /**
+   * Constructor, the file is not opened until {@link #open()} is called
+   *
+   * @param header metadata holding the header and columns, not modified afterwards
+   * @param xmlFile to write to, overwritten if it exists
+   * @param schemaLocationUri to reference as schema location, may be null
+   * @param codec to compress with
+   * @param compressionLevel to use, negative for the default level of the codec
+   */
+  MetadataStreamWriter(final XMLElementMetadata header, final Path xmlFile, final String schemaLocationUri, final PlanitCompressionCodec codec,
+      final int compressionLevel) {
+    this.header = header;
+    this.xmlFile = xmlFile;
+    this.schemaLocationUri = schemaLocationUri;
+    this.codec = codec;
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * XML id of the time period of this metadata
+   *
+   * @return time period XML id, null if unknown
+   */
+  String getTimePeriodXmlId() {
+    final XMLElementOutputConfiguration outputConfiguration = header.getOutputconfiguration();
+    return outputConfiguration == null || outputConfiguration.getTimeperiod() == null ? null : outputConfiguration.getTimeperiod().getId();
+  }
+
+  /**
+   * File this metadata is written to
+   *
+   * @return file
+   */
+  Path getXmlFile() {
+    return xmlFile;
+  }
+
+  /**
+   * Open the file and write the header, up to and including the start of the simulation element
+   *
+   * @throws PlanItException thrown if error
+   */
+  void open() throws PlanItException {
+    PlanItException.throwIf(writer != null, "Metadata %s is already open", xmlFile);
+    try {
+      outputStream = codec.openOutputStream(xmlFile, compressionLevel);
+      writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeCharacters("\n");
+      writer.writeStartElement("metadata");
+      writer.writeNamespace("xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+      if(schemaLocationUri != null) {
+        writer.writeAttribute(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation", schemaLocationUri);
+      }
+      writeTextElement(1, "timestamp", header.getTimestamp() == null ? null : header.getTimestamp().toXMLFormat());
+      writeTextElement(1, "version", header.getVersion());
+      writeTextElement(1, "description", header.getDescription());
+      if(header.getOutputconfiguration() != null) {
+        writeOutputConfiguration(header.getOutputconfiguration());
+      }
+      newLine(1);
+      writer.writeStartElement("simulation");
+    }catch(Exception e) {
+      throw new PlanItException("Unable to open metadata %s", e, xmlFile);
+    }
+  }
+
+  /**
+   * Append an iteration to the simulation element
+   *
+   * @param iterationIndex of the iteration
+   * @param type of the persisted (sub) output type
+   * @param fileName of the persisted output file, relative to the metadata
+   * @throws PlanItException thrown if error
+   */
+  void appendIteration(int iterationIndex, final String type, final String fileName) throws PlanItException {
+    PlanItException.throwIf(writer == null, "Metadata %s is not open", xmlFile);
+    try {
+      newLine(2);
+      writer.writeStartElement("iteration");
+      writeTextElement(3, "nr", String.valueOf(iterationIndex));
+      newLine(3);
+      writer.writeStartElement("csvdata");
+      writer.writeAttribute("type", type);
+      writer.writeCharacters(fileName);
+      writer.writeEndElement();
+      newLine(2);
+      writer.writeEndElement();
+    }catch(Exception e) {
+      throw new PlanItException("Unable to append iteration %d to metadata %s", e, iterationIndex, xmlFile);
+    }
+  }
+
+  /**
+   * Close the simulation element, write the columns and close the file. Does nothing when not open
+   *
+   * @throws PlanItException thrown if error
+   */
+  void close() throws PlanItException {
+    if(writer == null) {
+      return;
+    }
+    try {
+      newLine(1);
+      writer.writeEndElement();
+      writeColumns();
+      writer.writeCharacters("\n");
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.close();
+      outputStream.close();
+    }catch(Exception e) {
+      throw new PlanItException("Unable to close metadata %s", e, xmlFile);
+    }finally {
+      writer = null;
+      outputStream = null;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.goplanit.io.output.formatter;
+
+/**
+ * Layout of persisted OD (skim) output. The chosen layout is recorded in the description of the XML metadata (when not the default) so
+ * readers can reconstruct the matrix, see {@link #getMetadataDescription()}
+ * 
+ * @author markr
+ *
+ */
+public enum OdOutputLayout {
+
+  /** CSV with a row for every origin-destination pair (default) */
+  DENSE_CSV("dense-csv"),
+
+  /** CSV with a row only for origin-destination pairs with a non-zero value, omitted pairs are zero */
+  SPARSE_CSV("sparse-csv"),
+
+  /** binary file with an n by n float matrix per mode, see {@link org.goplanit.io.output.od.OdSkimBinaryMatrices} */
+  DENSE_BINARY("dense-binary");
+
+  /** prefix of the layout entry in the metadata description */
+  public static final String METADATA_DESCRIPTION_PREFIX = "od-layout=";
+
+  /** value of the layout in the metadata description */
+  private final String value;
+
+  /**
+   * Constructor
+   * 
+   * @param value of the layout in the metadata description
+   */
+  private OdOutputLayout(final String value) {
+    this.value = value;
+  }
+
+  /**
+   * Value of the layout in the metadata description
+   * 
+   * @return value
+   */
+  public String value() {
+    return value;
+  }
+
+  /**
+   * Entry to add to the metadata description to record this layout, e.g. {@code od-layout=sparse-csv}
+   * 
+   * @return metadata description entry
+   */
+  public String getMetadataDescription() {
+    return METADATA_DESCRIPTION_PREFIX + value;
+  }
+
+  /**
+   * Find the layout recorded in a metadata description
+   * 
+   * @param description of the metadata
+   * @return recorded layout, DENSE_CSV when none is recorded
+   */
+  public static OdOutputLayout fromMetadataDescription(final String description) {
+    if(description != null) {
+      for(OdOutputLayout layout : values()) {
+        if(description.contains(layout.getMetadataDescription())) {
+          return layout;
+        }
+      }
+    }
+    return DENSE_CSV;
+  }
+}
@@ -0,0 +1,109 @@
+package org.goplanit.io.output.formatter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Output policies that restrict what is persisted by the PLANit output formatter. Active policies are recorded in the description of the XML
+ * metadata so readers know which iterations and rows can be absent, see {@link #createMetadataDescription(Map)}. The entry has the form
+ * {@code output-policy=<policy>:<value>[,<policy>:<value>]*}, e.g. {@code output-policy=every-nth-iteration:10,relative-gap-threshold:1.0E-4},
+ * and is absent when no policy is active
+ *
+ * @author markr
+ *
+ */
+public enum OutputPolicy {
+
+  /** only iterations that are a multiple of the (integer) value are persisted, next to the final iteration of each time period */
+  EVERY_NTH_ITERATION("every-nth-iteration"),
+
+  /** only iterations with a relative gap at or below the value are persisted, next to the final iteration of each time period */
+  RELATIVE_GAP_THRESHOLD("relative-gap-threshold"),
+
+  /** link output only contains link segments of which flow or cost changed more than the value since the previously persisted iteration */
+  LINK_CHANGE_TOLERANCE("link-change-tolerance");
+
+  /** prefix of the output policy entry in the metadata description */
+  public static final String METADATA_DESCRIPTION_PREFIX = "output-policy=";
+
+  /** separator between policies in the metadata description entry */
+  private static final String POLICY_SEPARATOR = ",";
+
+  /** separator between a policy and its value in the metadata description entry */
+  private static final String VALUE_SEPARATOR = ":";
+
+  /** value of the policy in the metadata description */
+  private final String value;
+
+  /**
+   * Constructor
+   *
+   * @param value of the policy in the metadata description
+   */
+  private OutputPolicy(final String value) {
+    this.value = value;
+  }
+
+  /**
+   * Value of the policy in the metadata description
+   *
+   * @return value
+   */
+  public String value() {
+    return value;
+  }
+
+  /**
+   * Entry to add to the metadata description to record the given active policies
+   *
+   * @param activePolicies policies with their value
+   * @return metadata description entry, empty when no policies are active
+   */
+  public static String createMetadataDescription(final Map<OutputPolicy, Double> activePolicies) {
+    if(activePolicies.isEmpty()) {
+      return "";
+    }
+    final StringJoiner entry = new StringJoiner(POLICY_SEPARATOR, METADATA_DESCRIPTION_PREFIX, "");
+    new EnumMap<>(activePolicies).forEach((policy, policyValue) -> entry.add(policy.value() + VALUE_SEPARATOR +
+        (policy == EVERY_NTH_ITERATION ? String.valueOf(policyValue.longValue()) : String.valueOf(policyValue))));
+    return entry.toString();
+  }
+
+  /**
+   * Find the policies recorded in a metadata description
+   *
+   * @param description of the metadata
+   * @return recorded policies with their value, empty when none are recorded
+   * @throws IllegalArgumentException when the recorded entry is malformed
+   */
+  public static Map<OutputPolicy, Double> fromMetadataDescription(final String description) {
+    final Map<OutputPolicy, Double> policies = new EnumMap<>(OutputPolicy.class);
+    if(description == null) {
+      return policies;
+    }
+    final int start = description.indexOf(METADATA_DESCRIPTION_PREFIX);
+    if(start < 0) {
+      return policies;
+    }
+    int end = start + METADATA_DESCRIPTION_PREFIX.length();
+    while(end < description.length() && !Character.isWhitespace(description.charAt(end))) {
+      ++end;
+    }
+
+    for(String policyEntry : description.substring(start + METADATA_DESCRIPTION_PREFIX.length(), end).split(POLICY_SEPARATOR)) {
+      final String[] keyValue = policyEntry.split(VALUE_SEPARATOR, 2);
+      OutputPolicy policy = null;
+      for(OutputPolicy candidate : values()) {
+        if(candidate.value().equals(keyValue[0])) {
+          policy = candidate;
+        }
+      }
+      if(policy == null || keyValue.length != 2) {
+        throw new IllegalArgumentException(String.format("Unknown output policy entry %s in metadata description", policyEntry));
+      }
+      policies.put(policy, Double.valueOf(keyValue[1]));
+    }
+    return policies;
+  }
+}
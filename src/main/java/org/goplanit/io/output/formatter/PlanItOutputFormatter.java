@@ -1,16 +1,29 @@
 package org.goplanit.io.output.formatter;
 
 import java.io.File;
-import java.math.BigInteger;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -18,14 +31,25 @@ import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 
+import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
+import org.goplanit.io.cost.PlanitBinaryLinkSegmentCosts;
+import org.goplanit.io.output.columnar.ColumnarOutputTable;
+import org.goplanit.io.output.od.OdSkimBinaryMatrices;
+import org.goplanit.io.output.path.PathDictionary;
 import org.goplanit.io.xml.converter.XmlEnumConverter;
 import org.goplanit.io.xml.util.ApplicationProperties;
-import org.goplanit.xml.utils.JAXBUtils;
+import org.goplanit.io.xml.util.PlanitCompressionCodec;
 import org.goplanit.io.xml.util.PlanitSchema;
+import org.goplanit.output.adapter.MacroscopicLinkOutputTypeAdapter;
+import org.goplanit.output.adapter.OdOutputTypeAdapter;
 import org.goplanit.output.adapter.OutputAdapter;
+import org.goplanit.output.adapter.PathOutputTypeAdapter;
 import org.goplanit.output.configuration.OutputConfiguration;
 import org.goplanit.output.configuration.OutputTypeConfiguration;
+import org.goplanit.output.configuration.PathOutputTypeConfiguration;
+import org.goplanit.output.enums.DataType;
+import org.goplanit.output.enums.OdSkimSubOutputType;
 import org.goplanit.output.enums.OutputType;
 import org.goplanit.output.enums.OutputTypeEnum;
 import org.goplanit.output.enums.SubOutputTypeEnum;
@@ -33,19 +57,19 @@ import org.goplanit.output.formatter.CsvFileOutputFormatter;
 import org.goplanit.output.formatter.CsvTextFileOutputFormatter;
 import org.goplanit.output.formatter.XmlTextFileOutputFormatter;
 import org.goplanit.output.property.OutputProperty;
+import org.goplanit.output.property.OutputPropertyType;
 import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
 import org.goplanit.utils.id.IdGroupingToken;
 import org.goplanit.utils.misc.LoggingUtils;
 import org.goplanit.utils.mode.Mode;
+import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
 import org.goplanit.utils.time.TimePeriod;
 import org.goplanit.xml.generated.XMLElementColumn;
 import org.goplanit.xml.generated.XMLElementColumns;
-import org.goplanit.xml.generated.XMLElementCsvdata;
-import org.goplanit.xml.generated.XMLElementIteration;
 import org.goplanit.xml.generated.XMLElementMetadata;
 import org.goplanit.xml.generated.XMLElementOutputConfiguration;
 import org.goplanit.xml.generated.XMLElementOutputTimePeriod;
-import org.goplanit.xml.generated.XMLElementSimulation;
 
 /**
  * The default output formatter of PlanIt
@@ -59,6 +83,21 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
   /** the logger */
   private static final Logger LOGGER = Logger.getLogger(PlanItOutputFormatter.class.getCanonicalName());
 
+  /**
+   * Writes an output file
+   */
+  @FunctionalInterface
+  private interface OutputFileWriter {
+
+    /**
+     * Write the output file
+     * 
+     * @param absoluteFileName of the file to write
+     * @throws PlanItException thrown if error
+     */
+    void write(String absoluteFileName) throws PlanItException;
+  }
+
   /** default extension for XML files */
   private static final String DEFAULT_XML_NAME_EXTENSION = ".xml";
   
@@ -71,6 +110,60 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
   /** default prefix to use for CSV output */
   private static final String DEFAULT_CSV_NAME_PREFIX = "CSVOutput";
 
+  /** suffix (before the extension) of the binary link segment cost file name */
+  private static final String BINARY_LINK_SEGMENT_COSTS_NAME_SUFFIX = "_LinkSegmentCosts";
+
+  /** suffix (before the extension) of the path dictionary file name */
+  private static final String PATH_DICTIONARY_NAME_SUFFIX = "_PathDictionary";
+
+  /** prefix of the path layout entry in the metadata description */
+  public static final String PATH_LAYOUT_METADATA_DESCRIPTION_PREFIX = "path-layout=";
+
+  /** prefix of the path dictionary entry in the metadata description, followed by the dictionary file relative to the metadata */
+  public static final String PATH_DICTIONARY_METADATA_DESCRIPTION_PREFIX = "path-dictionary=";
+
+  /** path id of a delta path output row signalling the OD pair no longer has a path */
+  public static final int REMOVED_PATH_ID = -1;
+
+  /** default interval of persisted iterations, i.e., every iteration is persisted */
+  public static final int DEFAULT_PERSIST_EVERY_NTH_ITERATION = 1;
+
+  /** default relative gap at or below which iterations are persisted, negative when not applied */
+  public static final double DEFAULT_PERSIST_RELATIVE_GAP_THRESHOLD = -1;
+
+  /** default absolute change in flow or cost a link segment requires to be persisted again, negative when all link segments are persisted */
+  public static final double DEFAULT_LINK_OUTPUT_CHANGE_TOLERANCE = -1;
+
+  /** default for writing output asynchronously */
+  public static final boolean DEFAULT_ASYNCHRONOUS_OUTPUT = false;
+
+  /** default maximum number of pending output snapshots when writing output asynchronously */
+  public static final int DEFAULT_ASYNCHRONOUS_OUTPUT_QUEUE_CAPACITY = 8;
+
+  /** default maximum number of bytes held by pending output snapshots when writing output asynchronously */
+  public static final long DEFAULT_ASYNCHRONOUS_OUTPUT_MAX_PENDING_BYTES = 256L * 1024 * 1024;
+
+  /** default compression codec of CSV and XML output files */
+  public static final PlanitCompressionCodec DEFAULT_OUTPUT_COMPRESSION_CODEC = PlanitCompressionCodec.NONE;
+
+  /** default for persisting link output in columnar binary format instead of CSV */
+  public static final boolean DEFAULT_COLUMNAR_LINK_OUTPUT = false;
+
+  /** default for compressing the columns of columnar binary output */
+  public static final boolean DEFAULT_COMPRESS_COLUMNAR_OUTPUT = true;
+
+  /** default layout of persisted OD output */
+  public static final OdOutputLayout DEFAULT_OD_OUTPUT_LAYOUT = OdOutputLayout.DENSE_CSV;
+
+  /** default for persisting path output in compact form, i.e., referring to paths in a path dictionary */
+  public static final boolean DEFAULT_COMPACT_PATH_OUTPUT = false;
+
+  /** default for persisting, in compact path output, only OD pairs whose path changed since the previously persisted iteration */
+  public static final boolean DEFAULT_DELTA_PATH_OUTPUT = false;
+
+  /** default for persisting binary link segment costs */
+  public static final boolean DEFAULT_PERSIST_BINARY_LINK_SEGMENT_COSTS = false;
+
   /** The root directory to store the XML output files */
   private String xmlDirectory;
 
@@ -99,9 +192,102 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
   private boolean resetCsvDirectory;
   
   /**
-   * Generated object for the metadata element in the output XML file
+   * Streaming writer of the metadata XML file of the current time period, per (sub) output type
    */
-  private Map<OutputTypeEnum, XMLElementMetadata> metadata;
+  private Map<OutputTypeEnum, MetadataStreamWriter> metadataWriters;
+
+  /** compression codec of CSV and XML output files */
+  private PlanitCompressionCodec outputCompressionCodec;
+
+  /** compression level of CSV and XML output files, negative for the default level of the codec */
+  private int outputCompressionLevel;
+
+  /** Flag to indicate whether link output is persisted in columnar binary format instead of CSV */
+  private boolean columnarLinkOutput;
+
+  /** Flag to indicate whether columns of columnar binary output are compressed */
+  private boolean compressColumnarOutput;
+
+  /** layout of persisted OD output */
+  private OdOutputLayout odOutputLayout;
+
+  /** Flag to indicate whether path output refers to paths in a path dictionary rather than listing each path in full */
+  private boolean compactPathOutput;
+
+  /** Flag to indicate whether compact path output only contains OD pairs whose path changed since the previously persisted iteration */
+  private boolean deltaPathOutput;
+
+  /** dictionary of the paths of compact path output, null when not active */
+  private PathDictionary pathDictionary;
+
+  /** path id per OD pair (origin major) per mode of the previously persisted iteration, used by delta path output */
+  private Map<Mode, int[]> previousPathIdsByMode;
+
+  /** time period of the previously persisted iteration of delta path output */
+  private TimePeriod previousPathTimePeriod;
+
+  /** buffer holding the link segment ids of the path being interned, reused between paths */
+  private long[] pathLinkSegmentIdsBuffer;
+
+  /** file name of the most recently persisted path dictionary */
+  private String pathDictionaryFileName;
+
+  /** only iterations that are a multiple of this interval are persisted */
+  private int persistEveryNthIteration;
+
+  /** only iterations with a relative gap at or below this threshold are persisted, negative when not applied */
+  private double persistRelativeGapThreshold;
+
+  /** provides the relative gap of the current iteration, required when applying a relative gap threshold */
+  private DoubleSupplier relativeGapSupplier;
+
+  /** indicates whether the current iteration is the final (converged) iteration, final iterations are always persisted, mandatory when iterations are filtered */
+  private BooleanSupplier finalIterationSupplier;
+
+  /** when only the final iteration of each time period is offered for persistence, iteration policies do not apply */
+  private boolean persistOnlyFinalIteration;
+
+  /** flag indicating the missing relative gap supplier has been reported, so it is reported once per simulation */
+  private boolean relativeGapSupplierMissingLogged;
+
+  /** absolute change in flow or cost since the previously persisted iteration for a link segment to be persisted, negative when not applied */
+  private double linkOutputChangeTolerance;
+
+  /** persisted flow and cost (interleaved, indexed by link segment id) per mode of change-only link output, reset per time period */
+  private Map<Mode, double[]> previousLinkFlowsAndCostsByMode;
+
+  /** time period of the previously persisted iteration of change-only link output */
+  private TimePeriod previousLinkTimePeriod;
+
+  /** Flag to indicate whether output files are written on a dedicated writer thread rather than the assignment thread */
+  private boolean asynchronousOutput;
+
+  /** maximum number of pending output snapshots when writing output asynchronously */
+  private int asynchronousOutputQueueCapacity;
+
+  /** maximum number of bytes held by pending output snapshots when writing output asynchronously */
+  private long asynchronousOutputMaxPendingBytes;
+
+  /** writer of output when writing asynchronously, null otherwise */
+  private AsynchronousOutputWriter asynchronousOutputWriter;
+
+  /** Flag to indicate whether link segment costs are persisted as binary file that can be used as initial costs of a subsequent run */
+  private boolean persistBinaryLinkSegmentCosts;
+
+  /** modes of the binary link segment costs, fixed upon first link output */
+  private List<Mode> binaryCostModes;
+
+  /** size of the link segment id dimension of the binary link segment costs */
+  private int binaryCostNumberOfLinkSegmentIds;
+
+  /** fingerprint of the link segments of the binary link segment costs */
+  private long binaryCostNetworkFingerprint;
+
+  /** most recent link segment costs per time period, in order of persistence */
+  private Map<TimePeriod, double[]> binaryCostsByTimePeriod;
+
+  /** file name of the most recently persisted binary link segment costs */
+  private String binaryLinkSegmentCostsFileName;
  
   /** Create the logging prefix to use for non assignment specific logging messages
    * 
@@ -126,43 +312,38 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
    * @param outputAdapter outputAdapter
    * @param timePeriod the time period 
    * @param iteration current iteration
+   * @param nameExtension extension of the output file
    * @return the name of the output file
    * @throws PlanItException thrown if the output directory cannot be opened
    */
-  private String generateRelativeOutputFileName(final OutputType outputType, final OutputAdapter outputAdapter, final TimePeriod timePeriod, int iteration)
-      throws PlanItException {
+  private String generateRelativeOutputFileName(final OutputType outputType, final OutputAdapter outputAdapter, final TimePeriod timePeriod, int iteration, 
+      final String nameExtension) throws PlanItException {
     
-    String absoluteFileName = generateAbsoluteOutputFileName(csvDirectory, csvNameRoot, csvNameExtension, timePeriod, outputType, outputAdapter.getRunId(), iteration);
+    String absoluteFileName = generateAbsoluteOutputFileName(csvDirectory, csvNameRoot, nameExtension, timePeriod, outputType, outputAdapter.getRunId(), iteration);
     Path pathBase = Paths.get(xmlDirectory);
     return pathBase.toAbsolutePath().relativize(Path.of(absoluteFileName)).toString();
   }
 
   /**
-   * Update the generated metadata simulation output object for the current
-   * iteration
+   * Append the current iteration to the metadata of the (sub) output type, on the asynchronous output writer when active
    * 
    * @param iterationIndex index of the current iteration
    * @param csvFileName name of CSV file used to store data for the current iteration
    * @param currentOutputType the (sub) output type of the data the CSV file is storing
-   * @throws PlanItException
+   * @throws PlanItException thrown if error
    */
   private void updateMetadataSimulationOutputForCurrentIteration(int iterationIndex, final String csvFileName, final OutputTypeEnum currentOutputType) throws PlanItException {
     
-    XMLElementIteration iteration = new XMLElementIteration();
-    iteration.setNr(BigInteger.valueOf(iterationIndex));
-    XMLElementCsvdata csvdata = new XMLElementCsvdata();
-    csvdata.setValue(csvFileName);
-    iteration.getCsvdata().add(csvdata);
+    final String type;
     if (currentOutputType instanceof OutputType) {
-      csvdata.setType(((OutputType) currentOutputType).value());
-      metadata.get((OutputType) currentOutputType).getSimulation().getIteration().add(iteration);
+      type = ((OutputType) currentOutputType).value();
     } else if (currentOutputType instanceof SubOutputTypeEnum) {
-      csvdata.setType(((SubOutputTypeEnum) currentOutputType).value());
-      metadata.get((SubOutputTypeEnum) currentOutputType).getSimulation().getIteration().add(iteration);
+      type = ((SubOutputTypeEnum) currentOutputType).value();
     } else {
       throw new PlanItException("invalid output type provided when updating metadata simulation output for current iteration");
     }
-
+    final MetadataStreamWriter metadataWriter = metadataWriters.get(currentOutputType);
+    performMetadataTask(() -> metadataWriter.appendIteration(iterationIndex, type, csvFileName));
   }
 
   /**
@@ -242,27 +423,30 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
   }
 
   /**
-   * Initialize the current metadata output object with data which is only written once per time period
+   * Create the metadata header with data which is only written once per time period, i.e., everything but the iterations
    * 
    * @param currentOutputType the current (sub)OutputType we're persisting
    * @param outputTypeConfiguration the OutputTypeConfiguration object containing the run information
    * @param outputAdapter the OutputAdapter object being used for the output
    * @param timePeriod current time period
-   * @throws PlanItException thrown if there is an error writing the data to file
+   * @return created header
+   * @throws PlanItException thrown if there is an error
    */
-  private void initializeMetadataObject(
+  private XMLElementMetadata createMetadataHeader(
       final OutputTypeEnum currentOutputType, final OutputTypeConfiguration outputTypeConfiguration, final OutputAdapter outputAdapter, final TimePeriod timePeriod)
       throws PlanItException {
     
     try {
-      metadata.get(currentOutputType).setTimestamp(getTimestamp());
-      metadata.get(currentOutputType).setVersion(ApplicationProperties.getVersion());
-      metadata.get(currentOutputType).setDescription(ApplicationProperties.getDescription());
+      XMLElementMetadata header = new XMLElementMetadata();
+      header.setTimestamp(getTimestamp());
+      header.setVersion(ApplicationProperties.getVersion());
+      header.setDescription(createMetadataDescription(currentOutputType, outputAdapter));
 
       XMLElementOutputConfiguration outputconfiguration = getXmlOutputConfiguration(outputAdapter, timePeriod);
-      metadata.get(currentOutputType).setOutputconfiguration(outputconfiguration);
+      header.setOutputconfiguration(outputconfiguration);
       SortedSet<OutputProperty> outputProperties = outputTypeConfiguration.getOutputProperties();
-      metadata.get(currentOutputType).setColumns(getGeneratedColumnsFromProperties(outputProperties));
+      header.setColumns(getGeneratedColumnsFromProperties(outputProperties));
+      return header;
     } catch (Exception e) {
       LOGGER.severe(e.getMessage());
       throw new PlanItException("Error when initialising meta data object in PLANitIO OutputFormatter", e);
@@ -270,6 +454,105 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
     
   }
 
+  /**
+   * Open a streaming metadata writer for the (sub) output type and time period. When another sub output type of the same output type already
+   * writes to the same file, the sub output type is added to the name root to keep the files apart
+   * 
+   * @param currentOutputType the current (sub)OutputType we're persisting
+   * @param outputTypeConfiguration the OutputTypeConfiguration object containing the run information
+   * @param outputAdapter the OutputAdapter object being used for the output
+   * @param timePeriod current time period
+   * @return opened writer
+   * @throws PlanItException thrown if there is an error
+   */
+  private MetadataStreamWriter openMetadataWriter(
+      final OutputTypeEnum currentOutputType, final OutputTypeConfiguration outputTypeConfiguration, final OutputAdapter outputAdapter, final TimePeriod timePeriod)
+      throws PlanItException {
+    
+    final OutputType outputType = outputTypeConfiguration.getOutputType();
+    final String xmlExtension = outputCompressionCodec.appendFileSuffix(xmlNameExtension);
+    String xmlFileName = generateAbsoluteOutputFileName(xmlDirectory, xmlNameRoot, xmlExtension, timePeriod, outputType, outputAdapter.getRunId());
+    final Path candidateXmlFile = Paths.get(xmlFileName);
+    final boolean inUse = metadataWriters.entrySet().stream().anyMatch(
+        entry -> entry.getKey() != currentOutputType && entry.getValue().getXmlFile().equals(candidateXmlFile));
+    if(inUse && currentOutputType instanceof SubOutputTypeEnum) {
+      xmlFileName = generateAbsoluteOutputFileName(
+          xmlDirectory, xmlNameRoot + "_" + ((SubOutputTypeEnum) currentOutputType).value(), xmlExtension, timePeriod, outputType, outputAdapter.getRunId());
+    }
+    xmlFileNameMap.put(outputType, xmlFileName);
+    
+    final MetadataStreamWriter metadataWriter = new MetadataStreamWriter(
+        createMetadataHeader(currentOutputType, outputTypeConfiguration, outputAdapter, timePeriod), Paths.get(xmlFileName), 
+        PlanitSchema.createPlanitSchemaUri(PlanitSchema.METADATA_XSD), outputCompressionCodec, outputCompressionLevel);
+    performMetadataTask(metadataWriter::open);
+    return metadataWriter;
+  }
+
+  /**
+   * Create the description of the metadata, which records the layout of the output files when it deviates from the default and the active
+   * output policies, see {@link OutputPolicy}, so readers can interpret them
+   * 
+   * @param currentOutputType the current (sub)OutputType we're persisting
+   * @param outputAdapter the OutputAdapter object being used for the output
+   * @return description
+   */
+  private String createMetadataDescription(final OutputTypeEnum currentOutputType, final OutputAdapter outputAdapter) {
+    final StringBuilder description = new StringBuilder(ApplicationProperties.getDescription());
+    if(currentOutputType instanceof OdSkimSubOutputType && odOutputLayout != OdOutputLayout.DENSE_CSV) {
+      description.append(" ").append(odOutputLayout.getMetadataDescription());
+    }
+    if(currentOutputType == OutputType.PATH && compactPathOutput) {
+      description.append(" ").append(PATH_LAYOUT_METADATA_DESCRIPTION_PREFIX).append(deltaPathOutput ? "compact-delta" : "compact");
+      final Path relativePathDictionaryPath = 
+          Paths.get(xmlDirectory).toAbsolutePath().relativize(createPathDictionaryPath(outputAdapter.getRunId()).toAbsolutePath());
+      description.append(" ").append(PATH_DICTIONARY_METADATA_DESCRIPTION_PREFIX).append(relativePathDictionaryPath.toString().replace(File.separatorChar, '/'));
+    }
+    
+    final Map<OutputPolicy, Double> outputPolicies = new EnumMap<>(OutputPolicy.class);
+    if(persistEveryNthIteration > 1) {
+      outputPolicies.put(OutputPolicy.EVERY_NTH_ITERATION, (double) persistEveryNthIteration);
+    }
+    if(persistRelativeGapThreshold >= 0) {
+      outputPolicies.put(OutputPolicy.RELATIVE_GAP_THRESHOLD, persistRelativeGapThreshold);
+    }
+    if(currentOutputType == OutputType.LINK && linkOutputChangeTolerance >= 0) {
+      outputPolicies.put(OutputPolicy.LINK_CHANGE_TOLERANCE, linkOutputChangeTolerance);
+    }
+    if(!outputPolicies.isEmpty()) {
+      description.append(" ").append(OutputPolicy.createMetadataDescription(outputPolicies));
+    }
+    return description.toString();
+  }
+
+  /**
+   * Verify whether the results of the given iteration are to be persisted given the output policies. The final (converged) iteration is always
+   * persisted, either because only the final iteration is offered or because the final iteration supplier, mandatory when iterations are
+   * filtered, indicates it. Any other iteration only when it is a multiple of the persisted iteration interval and, when a relative gap
+   * threshold is applied, the relative gap is at or below the threshold
+   * 
+   * @param iterationIndex to verify
+   * @return true when persisted, false otherwise
+   */
+  private boolean isIterationPersisted(int iterationIndex) {
+    if(persistOnlyFinalIteration || (finalIterationSupplier != null && finalIterationSupplier.getAsBoolean())) {
+      return true;
+    }
+    if(persistEveryNthIteration > 1 && iterationIndex % persistEveryNthIteration != 0) {
+      return false;
+    }
+    if(persistRelativeGapThreshold >= 0) {
+      if(relativeGapSupplier == null) {
+        if(!relativeGapSupplierMissingLogged) {
+          LOGGER.warning(createLoggingPrefix() + "Relative gap threshold set without relative gap supplier, threshold ignored");
+          relativeGapSupplierMissingLogged = true;
+        }
+        return true;
+      }
+      return relativeGapSupplier.getAsDouble() <= persistRelativeGapThreshold;
+    }
+    return true;
+  }
+
   /**
    * Remove all files and sub-directories from a specified directory
    * 
@@ -284,29 +567,247 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
   }
 
 
+  /**
+   * Create a snapshot of the CSV content in memory and hand it to the asynchronous output writer to write it to file. The content is
+   * created on the calling thread as it depends on the current state of the output adapter, only the file I/O is deferred. The snapshot counts
+   * towards the maximum number of pending bytes, so the calling thread waits for the writer thread when too much content is pending
+   * 
+   * @param outputTypeConfiguration the OutputTypeConfiguration object containing the run information
+   * @param csvFileName name of the CSV file to write
+   * @param createCsvFileForCurrentIteration lambda function which records data specific to the CSV file for the current iteration
+   * @throws PlanItException thrown if there is an error
+   */
+  private void writeCsvFileAsynchronously(
+      final OutputTypeConfiguration outputTypeConfiguration, final String csvFileName, final Function<CSVPrinter, PlanItException> createCsvFileForCurrentIteration) throws PlanItException {
+    
+    final StringBuilder csvContent = new StringBuilder();
+    try {
+      CSVPrinter csvIterationPrinter = createCsvPrinterAndWriteHeaders(outputTypeConfiguration, csvContent);
+      
+      PlanItException ple = createCsvFileForCurrentIteration.apply(csvIterationPrinter);
+      if (ple != null) {
+        throw ple;
+      }
+      csvIterationPrinter.close();
+    }catch( PlanItException e) {
+      throw e;
+    } catch (Exception e) {
+      LOGGER.severe(e.getMessage());
+      throw new PlanItException("Error when creating CSV output snapshot in PLANitIO OutputFormatter", e);
+    }
+    
+    final PlanitCompressionCodec codec = outputCompressionCodec;
+    final int compressionLevel = outputCompressionLevel;
+    asynchronousOutputWriter.submit(() -> {
+      try(Writer writer = new OutputStreamWriter(codec.openOutputStream(Path.of(csvFileName), compressionLevel), StandardCharsets.UTF_8)){
+        writer.append(csvContent);
+      }
+    }, (long) Character.BYTES * csvContent.length());
+  }
+
+  /**
+   * Create a CSV printer on the given destination and write the headers of the output type to it
+   * 
+   * @param outputTypeConfiguration to collect headers from
+   * @param destination to print to
+   * @return CSV printer
+   * @throws IOException thrown if error
+   */
+  private CSVPrinter createCsvPrinterAndWriteHeaders(final OutputTypeConfiguration outputTypeConfiguration, final Appendable destination) throws IOException {
+    CSVPrinter csvPrinter = new CSVPrinter(destination, CSVFormat.DEFAULT);
+    List<String> headers = new ArrayList<>();
+    outputTypeConfiguration.getOutputProperties().forEach(outputProperty -> headers.add(outputProperty.getName()));
+    csvPrinter.printRecord(headers);
+    return csvPrinter;
+  }
+
+  /**
+   * Collect the link output rows for the current time period, one value per output property. Link segments without flow are omitted unless
+   * zero flows are to be persisted. When a link output change tolerance is applied, link segments whose flow and cost changed by no more than
+   * the tolerance since the previously persisted iteration of the time period are omitted as well, while a link segment whose flow dropped to zero
+   * is persisted once, even when zero flows are not, so the drop is not mistaken for an unchanged flow
+   * 
+   * @param outputConfiguration output configuration
+   * @param outputProperties link output properties, in column order
+   * @param outputAdapter to collect results from
+   * @param modes to collect results for
+   * @param timePeriod current time period
+   * @param rowConsumer consumes each row, the row array is reused between rows
+   */
+  private void forEachLinkOutputRow(final OutputConfiguration outputConfiguration, final List<OutputProperty> outputProperties, 
+      final OutputAdapter outputAdapter, final Set<Mode> modes, final TimePeriod timePeriod, final Consumer<Object[]> rowConsumer) {
+    
+    final boolean changeOnly = linkOutputChangeTolerance >= 0;
+    if(changeOnly && !timePeriod.equals(previousLinkTimePeriod)) {
+      previousLinkFlowsAndCostsByMode.clear();
+      previousLinkTimePeriod = timePeriod;
+    }
+    
+    final var linkOutputTypeAdapter = (MacroscopicLinkOutputTypeAdapter) outputAdapter.getOutputTypeAdapter(OutputType.LINK);
+    final OutputProperty flowProperty = OutputProperty.of(OutputPropertyType.FLOW);
+    final OutputProperty costProperty = OutputProperty.of(OutputPropertyType.LINK_SEGMENT_COST);
+    final Object[] row = new Object[outputProperties.size()];
+    for(Mode mode : modes) {
+      Optional<Long> layerId = linkOutputTypeAdapter.getInfrastructureLayerIdForMode(mode);
+      if(layerId.isEmpty()) {
+        continue;
+      }
+      double[] previousFlowsAndCosts = changeOnly ? previousLinkFlowsAndCostsByMode.get(mode) : null;
+      for(MacroscopicLinkSegment linkSegment : linkOutputTypeAdapter.getPhysicalLinkSegments(layerId.get())) {
+        double flow = Double.NaN;
+        if(!outputConfiguration.isPersistZeroFlow() || changeOnly) {
+          Optional<?> flowValue = linkOutputTypeAdapter.getLinkSegmentOutputPropertyValue(flowProperty, linkSegment, mode, timePeriod);
+          flow = flowValue.isPresent() && flowValue.get() instanceof Number ? ((Number) flowValue.get()).doubleValue() : 0;
+        }
+        
+        if(changeOnly) {
+          Optional<?> costValue = linkOutputTypeAdapter.getLinkSegmentOutputPropertyValue(costProperty, linkSegment, mode, timePeriod);
+          double cost = costValue.isPresent() && costValue.get() instanceof Number ? ((Number) costValue.get()).doubleValue() : Double.NaN;
+          int index = 2 * (int) linkSegment.getId();
+          if(previousFlowsAndCosts == null || index + 1 >= previousFlowsAndCosts.length) {
+            int previousLength = previousFlowsAndCosts == null ? 0 : previousFlowsAndCosts.length;
+            previousFlowsAndCosts = previousFlowsAndCosts == null ? new double[Math.max(index + 2, 1024)] : Arrays.copyOf(previousFlowsAndCosts, Math.max(index + 2, previousLength * 2));
+            Arrays.fill(previousFlowsAndCosts, previousLength, previousFlowsAndCosts.length, Double.NaN);
+            previousLinkFlowsAndCostsByMode.put(mode, previousFlowsAndCosts);
+          }
+          boolean changed = !(Math.abs(flow - previousFlowsAndCosts[index]) <= linkOutputChangeTolerance) 
+              || !(Math.abs(cost - previousFlowsAndCosts[index + 1]) <= linkOutputChangeTolerance);
+          if(!changed) {
+            continue;
+          }
+          double previousFlow = previousFlowsAndCosts[index];
+          previousFlowsAndCosts[index] = flow;
+          previousFlowsAndCosts[index + 1] = cost;
+          
+          /* a drop to zero flow is persisted, otherwise the previously persisted non-zero flow would appear to persist */
+          boolean zeroFlowTransition = !Double.isNaN(previousFlow) && previousFlow != 0;
+          if(!outputConfiguration.isPersistZeroFlow() && flow == 0 && !zeroFlowTransition) {
+            continue;
+          }
+        }else if(!outputConfiguration.isPersistZeroFlow() && flow == 0) {
+          continue;
+        }
+        
+        for(int index = 0; index < row.length; ++index) {
+          row[index] = linkOutputTypeAdapter.getLinkSegmentOutputPropertyValue(outputProperties.get(index), linkSegment, mode, timePeriod).orElse(null);
+        }
+        rowConsumer.accept(row);
+      }
+    }
+  }
+
+  /**
+   * Write the link results for the current time period to the CSV printer, only including link segments whose flow or cost changed by more
+   * than the link output change tolerance since the previously persisted iteration
+   * 
+   * @param outputConfiguration output configuration
+   * @param outputTypeConfiguration link output type configuration
+   * @param outputAdapter to collect results from
+   * @param modes to collect results for
+   * @param timePeriod current time period
+   * @param csvPrinter to write to
+   * @return PlanItException thrown if error, null otherwise
+   */
+  private PlanItException writeChangedLinkResultsForCurrentTimePeriodToCsvPrinter(final OutputConfiguration outputConfiguration, 
+      final OutputTypeConfiguration outputTypeConfiguration, final OutputAdapter outputAdapter, final Set<Mode> modes, final TimePeriod timePeriod, 
+      final CSVPrinter csvPrinter) {
+    
+    try {
+      forEachLinkOutputRow(outputConfiguration, new ArrayList<>(outputTypeConfiguration.getOutputProperties()), outputAdapter, modes, timePeriod, row -> {
+        try {
+          csvPrinter.printRecord(row);
+        }catch(IOException e) {
+          throw new PlanItRunTimeException("Unable to print link output row", e);
+        }
+      });
+      return null;
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      return new PlanItException("Error when writing change-only link output in PLANitIO OutputFormatter", e);
+    }
+  }
+
+  /**
+   * Collect the link results for the current time period as columnar table, one column per output property, and write it to file, on the
+   * asynchronous output writer when active, see {@link #forEachLinkOutputRow(OutputConfiguration, List, OutputAdapter, Set, TimePeriod, Consumer)}
+   * for the link segments included
+   * 
+   * @param outputConfiguration output configuration
+   * @param outputTypeConfiguration link output type configuration
+   * @param outputAdapter to collect results from
+   * @param modes to collect results for
+   * @param timePeriod current time period
+   * @param columnarFileName absolute name of the file to write
+   * @throws PlanItException thrown if error
+   */
+  private void writeColumnarLinkResultsForCurrentTimePeriod(final OutputConfiguration outputConfiguration, final OutputTypeConfiguration outputTypeConfiguration,
+      final OutputAdapter outputAdapter, final Set<Mode> modes, final TimePeriod timePeriod, final String columnarFileName) throws PlanItException {
+    
+    final List<OutputProperty> outputProperties = new ArrayList<>(outputTypeConfiguration.getOutputProperties());
+    final List<String> names = new ArrayList<>(outputProperties.size());
+    final List<DataType> dataTypes = new ArrayList<>(outputProperties.size());
+    outputProperties.forEach(outputProperty -> {
+      names.add(outputProperty.getName()); 
+      dataTypes.add(outputProperty.getDataType());
+    });
+    final ColumnarOutputTable table = new ColumnarOutputTable(names, dataTypes);
+    forEachLinkOutputRow(outputConfiguration, outputProperties, outputAdapter, modes, timePeriod, table::addRow);
+    
+    final Path columnarFile = Path.of(columnarFileName);
+    if(asynchronousOutputWriter != null) {
+      asynchronousOutputWriter.submit(() -> table.write(columnarFile, compressColumnarOutput));
+    }else {
+      table.write(columnarFile, compressColumnarOutput);
+    }
+  }
+
+  /**
+   * Perform a task on a metadata writer, on the asynchronous output writer when active so all metadata I/O is ordered with the output files
+   * it refers to and confined to a single thread
+   * 
+   * @param metadataTask to perform
+   * @throws PlanItException thrown if error
+   */
+  private void performMetadataTask(final AsynchronousOutputWriter.OutputTask metadataTask) throws PlanItException {
+    if(asynchronousOutputWriter != null) {
+      asynchronousOutputWriter.submit(metadataTask);
+      return;
+    }
+    try {
+      metadataTask.perform();
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Error when writing metadata in PLANitIO OutputFormatter", e);
+    }
+  }
+
   /**
    * Create a CSV file with output content based on the current (sub) output type
    * 
    * @param outputTypeConfiguration the OutputTypeConfiguration object containing the run information
-   * @param outputAdapter the outputAdapter
-   * @param timePeriod current time period          
-   * @param iterationIndex current iteration index
+   * @param csvFileName absolute name of the CSV file to create
    * @param createCsvFileForCurrentIteration lambda function which records data specific to the CSV file for the current iteration
    * @throws PlanItException thrown if there is an error
-   * @return name of CSV output file
    */
-  private String createCsvFileNameAndFileForTimePeriodCurrentIteration(
-      final OutputTypeConfiguration outputTypeConfiguration, final OutputAdapter outputAdapter, final TimePeriod timePeriod, int iterationIndex,
+  private void createCsvFileForTimePeriodCurrentIteration(
+      final OutputTypeConfiguration outputTypeConfiguration, final String csvFileName, 
       final  Function<CSVPrinter, PlanItException> createCsvFileForCurrentIteration) throws PlanItException {
 
-    // create the name based on iteration, time period and related info
-    // String csvFileName = generateOutputFileName(csvDirectory, csvNameRoot, csvNameExtension,
-    // timePeriod, outputTypeConfiguration.getOutputType(), runId, iterationIndex);
-    String csvFileName = generateAbsoluteOutputFileName(
-        csvDirectory, csvNameRoot, csvNameExtension, timePeriod, outputTypeConfiguration.getOutputType(), outputAdapter.getRunId(), iterationIndex);
+    if(asynchronousOutputWriter != null) {
+      writeCsvFileAsynchronously(outputTypeConfiguration, csvFileName, createCsvFileForCurrentIteration);
+      return;
+    }
+    
     try {
       // create the header (first line) of the file
-      CSVPrinter csvIterationPrinter = openCsvFileAndWriteHeaders(outputTypeConfiguration, csvFileName);
+      CSVPrinter csvIterationPrinter;
+      if(outputCompressionCodec == PlanitCompressionCodec.NONE) {
+        csvIterationPrinter = openCsvFileAndWriteHeaders(outputTypeConfiguration, csvFileName);
+      }else {
+        csvIterationPrinter = createCsvPrinterAndWriteHeaders(outputTypeConfiguration, 
+            new OutputStreamWriter(outputCompressionCodec.openOutputStream(Path.of(csvFileName), outputCompressionLevel), StandardCharsets.UTF_8));
+      }
 
       // create content by delegating to (sub) output type specific function
       PlanItException ple = createCsvFileForCurrentIteration.apply(csvIterationPrinter);
@@ -320,8 +821,6 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
       LOGGER.severe(e.getMessage());
       throw new PlanItException("Error when creating CSV file name and file in PLANitIO OutputFormatter", e);
     }
-
-    return csvFileName;
   }
 
   /**
@@ -343,33 +842,55 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
       int iterationIndex,
       final Function<CSVPrinter, PlanItException> createCsvFileForCurrentIteration) throws PlanItException {
     
+    writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod, iterationIndex, 
+        outputCompressionCodec.appendFileSuffix(csvNameExtension),
+        csvFileName -> createCsvFileForTimePeriodCurrentIteration(outputTypeConfiguration, csvFileName, createCsvFileForCurrentIteration));
+  }
+
+  /**
+   * Write the results for the current mode and time period to a file created by the given output file writer and register it in the metadata
+   * 
+   * @param outputTypeConfiguration the current output type configuration
+   * @param currentOutputType the current (sub)OutputType we're persisting
+   * @param outputAdapter the current output adapter
+   * @param timePeriod the current time period
+   * @param iterationIndex iterationIndex relevant for this data
+   * @param nameExtension extension of the output file
+   * @param outputFileWriter writes the output file given its absolute name
+   * @throws PlanItException thrown if there is an error
+   */
+  private void writeResultsForCurrentTimePeriod(
+      final OutputTypeConfiguration outputTypeConfiguration,
+      final OutputTypeEnum currentOutputType, 
+      final OutputAdapter outputAdapter, 
+      final TimePeriod timePeriod, 
+      int iterationIndex,
+      final String nameExtension,
+      final OutputFileWriter outputFileWriter) throws PlanItException {
+    
+    if(!isIterationPersisted(iterationIndex)) {
+      return;
+    }
+    
     try {
-      OutputType outputType = outputTypeConfiguration.getOutputType();
-      boolean isNewTimePeriod = ((!metadata.containsKey(currentOutputType)) || (metadata.get(currentOutputType)
-          .getOutputconfiguration().getTimeperiod().getId() != timePeriod.getXmlId()));
+      final MetadataStreamWriter currentMetadataWriter = metadataWriters.get(currentOutputType);
+      boolean isNewTimePeriod = currentMetadataWriter == null || !Objects.equals(currentMetadataWriter.getTimePeriodXmlId(), timePeriod.getXmlId());
       if (isNewTimePeriod) {
-        if (metadata.containsKey(currentOutputType)) {
-          JAXBUtils.generateXmlFileFromObject(metadata.get(currentOutputType), XMLElementMetadata.class,
-              Paths.get(xmlFileNameMap.get(outputType)),PlanitSchema.createPlanitSchemaUri(PlanitSchema.METADATA_XSD));
+        if (currentMetadataWriter != null) {
+          performMetadataTask(currentMetadataWriter::close);
         }
-        metadata.put(currentOutputType, new XMLElementMetadata());
-        XMLElementSimulation simulation = new XMLElementSimulation();
-        metadata.get(currentOutputType).setSimulation(simulation);
-        initializeMetadataObject(currentOutputType, outputTypeConfiguration, outputAdapter, timePeriod);
+        metadataWriters.put(currentOutputType, openMetadataWriter(currentOutputType, outputTypeConfiguration, outputAdapter, timePeriod));
       }
 
-      String csvFileName = createCsvFileNameAndFileForTimePeriodCurrentIteration(outputTypeConfiguration, outputAdapter, timePeriod, iterationIndex, createCsvFileForCurrentIteration);
+      // create the name based on iteration, time period and related info
+      String csvFileName = generateAbsoluteOutputFileName(
+          csvDirectory, csvNameRoot, nameExtension, timePeriod, outputTypeConfiguration.getOutputType(), outputAdapter.getRunId(), iterationIndex);
+      outputFileWriter.write(csvFileName);
 
       // add metadata to the XML content
-      String relativeCsvFileName = generateRelativeOutputFileName(outputTypeConfiguration.getOutputType(), outputAdapter, timePeriod, iterationIndex);
+      String relativeCsvFileName = generateRelativeOutputFileName(outputTypeConfiguration.getOutputType(), outputAdapter, timePeriod, iterationIndex, nameExtension);
       updateMetadataSimulationOutputForCurrentIteration(iterationIndex, relativeCsvFileName, currentOutputType);
       addCsvFileNamePerOutputType(currentOutputType, csvFileName);
-
-      // MARK 6-1-2020: Why is this here and not immediately placed in the same if
-      // that checks for a new period at the top of this method?
-      if (isNewTimePeriod) {
-        xmlFileNameMap.put(outputType, generateAbsoluteOutputFileName(xmlDirectory, xmlNameRoot, xmlNameExtension, timePeriod, outputType, outputAdapter.getRunId()));
-      }
     } catch (PlanItException e) {
       throw e;
     } catch (Exception e) {
@@ -471,11 +992,115 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
       final TimePeriod timePeriod,
       int iterationIndex) throws PlanItException {
     
-    writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
-        iterationIndex, (csvPrinter) -> {
-          return writeOdResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, currentOutputType,
-              outputAdapter, modes, timePeriod, csvPrinter);
-        });
+    if(odOutputLayout == OdOutputLayout.DENSE_BINARY && currentOutputType instanceof OdSkimSubOutputType) {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod, iterationIndex, OdSkimBinaryMatrices.FILE_EXTENSION,
+          binaryFileName -> writeBinaryOdSkimResultsForCurrentTimePeriod((OdSkimSubOutputType) currentOutputType, outputAdapter, modes, binaryFileName));
+    }else if(odOutputLayout == OdOutputLayout.SPARSE_CSV && currentOutputType instanceof OdSkimSubOutputType) {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
+          iterationIndex, (csvPrinter) -> {
+            return writeSparseOdSkimResultsForCurrentTimePeriodToCsvPrinter(outputTypeConfiguration, (OdSkimSubOutputType) currentOutputType,
+                outputAdapter, modes, timePeriod, csvPrinter);
+          });
+    }else {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
+          iterationIndex, (csvPrinter) -> {
+            return writeOdResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, currentOutputType,
+                outputAdapter, modes, timePeriod, csvPrinter);
+          });
+    }
+  }
+
+  /**
+   * Write the non-zero cells of the OD skim matrices of the current time period to the CSV printer, zero cells are omitted
+   * 
+   * @param outputTypeConfiguration OD output type configuration
+   * @param odSkimOutputType skim to write
+   * @param outputAdapter to collect results from
+   * @param modes to write skim matrices for
+   * @param timePeriod current time period
+   * @param csvPrinter to write to
+   * @return PlanItException thrown if error, null otherwise
+   */
+  private PlanItException writeSparseOdSkimResultsForCurrentTimePeriodToCsvPrinter(final OutputTypeConfiguration outputTypeConfiguration, 
+      final OdSkimSubOutputType odSkimOutputType, final OutputAdapter outputAdapter, final Set<Mode> modes, final TimePeriod timePeriod, final CSVPrinter csvPrinter) {
+    
+    try {
+      final var odOutputTypeAdapter = (OdOutputTypeAdapter) outputAdapter.getOutputTypeAdapter(OutputType.OD);
+      final List<OutputProperty> outputProperties = new ArrayList<>(outputTypeConfiguration.getOutputProperties());
+      final Object[] row = new Object[outputProperties.size()];
+      for(Mode mode : modes) {
+        final var odSkimMatrix = odOutputTypeAdapter.getOdSkimMatrix(odSkimOutputType, mode);
+        if(odSkimMatrix.isEmpty()) {
+          continue;
+        }
+        for(var odIterator = odSkimMatrix.get().iterator(); odIterator.hasNext();) {
+          odIterator.next();
+          Double value = odIterator.getCurrentValue();
+          if(value == null || value == 0) {
+            continue;
+          }
+          for(int index = 0; index < row.length; ++index) {
+            row[index] = odOutputTypeAdapter.getOdOutputPropertyValue(outputProperties.get(index), odIterator, mode, timePeriod).orElse(null);
+          }
+          csvPrinter.printRecord(row);
+        }
+      }
+      return null;
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      return new PlanItException("Error when writing sparse OD skim output in PLANitIO OutputFormatter", e);
+    }
+  }
+
+  /**
+   * Collect the OD skim matrices of the current time period as dense binary matrices, one per mode, and write them to file, on the asynchronous
+   * output writer when active
+   * 
+   * @param odSkimOutputType skim to write
+   * @param outputAdapter to collect results from
+   * @param modes to write skim matrices for
+   * @param binaryFileName absolute name of the file to write
+   * @throws PlanItException thrown if error
+   */
+  private void writeBinaryOdSkimResultsForCurrentTimePeriod(
+      final OdSkimSubOutputType odSkimOutputType, final OutputAdapter outputAdapter, final Set<Mode> modes, final String binaryFileName) throws PlanItException {
+    
+    final var odOutputTypeAdapter = (OdOutputTypeAdapter) outputAdapter.getOutputTypeAdapter(OutputType.OD);
+    String[] zoneXmlIds = null;
+    final Map<String, float[]> matricesByModeXmlId = new LinkedHashMap<>();
+    for(Mode mode : modes) {
+      final var odSkimMatrix = odOutputTypeAdapter.getOdSkimMatrix(odSkimOutputType, mode);
+      if(odSkimMatrix.isEmpty()) {
+        continue;
+      }
+      final int numberOfZones = odSkimMatrix.get().getNumberOfOdZones();
+      if(zoneXmlIds == null) {
+        zoneXmlIds = new String[numberOfZones];
+      }
+      PlanItException.throwIf(zoneXmlIds.length != numberOfZones, "OD skim matrices of different modes differ in number of zones");
+      
+      final float[] matrix = OdSkimBinaryMatrices.createMatrix(numberOfZones);
+      for(var odIterator = odSkimMatrix.get().iterator(); odIterator.hasNext();) {
+        odIterator.next();
+        final var origin = odIterator.getCurrentOrigin();
+        final var destination = odIterator.getCurrentDestination();
+        zoneXmlIds[(int) origin.getOdZoneId()] = origin.getXmlId();
+        Double value = odIterator.getCurrentValue();
+        if(value != null) {
+          matrix[(int) (origin.getOdZoneId() * numberOfZones + destination.getOdZoneId())] = value.floatValue();
+        }
+      }
+      matricesByModeXmlId.put(mode.getXmlId(), matrix);
+    }
+    
+    final OdSkimBinaryMatrices matrices = new OdSkimBinaryMatrices(zoneXmlIds == null ? List.of() : Arrays.asList(zoneXmlIds));
+    matricesByModeXmlId.forEach(matrices::addMatrix);
+    final Path binaryFile = Path.of(binaryFileName);
+    if(asynchronousOutputWriter != null) {
+      asynchronousOutputWriter.submit(() -> matrices.write(binaryFile));
+    }else {
+      matrices.write(binaryFile);
+    }
   }
 
   /**
@@ -500,11 +1125,136 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
       final TimePeriod timePeriod,
       int iterationIndex) throws PlanItException {
     
-    writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
-        iterationIndex, (csvPrinter) -> {
-          return writePathResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, currentOutputType,
-              outputAdapter, modes, timePeriod, csvPrinter);
-        });
+    if(compactPathOutput && currentOutputType == OutputType.PATH) {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
+          iterationIndex, (csvPrinter) -> {
+            return writeCompactPathResultsForCurrentTimePeriodToCsvPrinter(outputTypeConfiguration, outputAdapter, modes, timePeriod, csvPrinter);
+          });
+      appendPathDictionary(outputAdapter);
+    }else {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
+          iterationIndex, (csvPrinter) -> {
+            return writePathResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, currentOutputType,
+                outputAdapter, modes, timePeriod, csvPrinter);
+          });
+    }
+  }
+
+  /**
+   * Write the path results for the current time period to the CSV printer in compact form: each path is interned in the path dictionary and
+   * the path column holds its path id. In delta mode only OD pairs whose path changed since the previously persisted iteration of the same
+   * time period are written, an OD pair that no longer has a path is written with path id {@link #REMOVED_PATH_ID}
+   * 
+   * @param outputTypeConfiguration path output type configuration
+   * @param outputAdapter to collect results from
+   * @param modes to write paths for
+   * @param timePeriod current time period
+   * @param csvPrinter to write to
+   * @return PlanItException thrown if error, null otherwise
+   */
+  private PlanItException writeCompactPathResultsForCurrentTimePeriodToCsvPrinter(final OutputTypeConfiguration outputTypeConfiguration, 
+      final OutputAdapter outputAdapter, final Set<Mode> modes, final TimePeriod timePeriod, final CSVPrinter csvPrinter) {
+    
+    try {
+      if(!timePeriod.equals(previousPathTimePeriod)) {
+        previousPathIdsByMode.values().forEach(previousPathIds -> Arrays.fill(previousPathIds, REMOVED_PATH_ID));
+        previousPathTimePeriod = timePeriod;
+      }
+      
+      final var pathOutputTypeAdapter = (PathOutputTypeAdapter) outputAdapter.getOutputTypeAdapter(OutputType.PATH);
+      final var pathIdentificationType = ((PathOutputTypeConfiguration) outputTypeConfiguration).getPathIdentificationType();
+      final List<OutputProperty> outputProperties = new ArrayList<>(outputTypeConfiguration.getOutputProperties());
+      final Object[] row = new Object[outputProperties.size()];
+      for(Mode mode : modes) {
+        final var odPathMatrix = pathOutputTypeAdapter.getOdPathMatrix(mode);
+        if(odPathMatrix.isEmpty()) {
+          continue;
+        }
+        
+        final int numberOfZones = odPathMatrix.get().getNumberOfOdZones();
+        int[] previousPathIds = previousPathIdsByMode.get(mode);
+        if(previousPathIds == null || previousPathIds.length != numberOfZones * numberOfZones) {
+          previousPathIds = new int[numberOfZones * numberOfZones];
+          Arrays.fill(previousPathIds, REMOVED_PATH_ID);
+          previousPathIdsByMode.put(mode, previousPathIds);
+        }
+        
+        for(var odIterator = odPathMatrix.get().iterator(); odIterator.hasNext();) {
+          odIterator.next();
+          final int odIndex = (int) (odIterator.getCurrentOrigin().getOdZoneId() * numberOfZones + odIterator.getCurrentDestination().getOdZoneId());
+          final var path = odIterator.getCurrentValue();
+          final int pathId;
+          if(path == null) {
+            /* OD pair without path, only written (in delta mode) when it had a path in the previously persisted iteration */
+            if(previousPathIds[odIndex] == REMOVED_PATH_ID) {
+              continue;
+            }
+            pathId = REMOVED_PATH_ID;
+          }else {
+            final int pathSize = (int) path.getSize();
+            if(pathLinkSegmentIdsBuffer == null || pathLinkSegmentIdsBuffer.length < pathSize) {
+              pathLinkSegmentIdsBuffer = new long[Math.max(pathSize, pathLinkSegmentIdsBuffer == null ? 0 : 2 * pathLinkSegmentIdsBuffer.length)];
+            }
+            int index = 0;
+            for(var edgeSegmentIterator = path.iterator(); edgeSegmentIterator.hasNext();) {
+              pathLinkSegmentIdsBuffer[index++] = edgeSegmentIterator.next().getId();
+            }
+            pathId = pathDictionary.intern(pathLinkSegmentIdsBuffer, pathSize);
+          }
+          
+          final boolean unchanged = previousPathIds[odIndex] == pathId;
+          previousPathIds[odIndex] = pathId;
+          if((deltaPathOutput && unchanged) || (!deltaPathOutput && path == null)) {
+            continue;
+          }
+          
+          for(int index = 0; index < row.length; ++index) {
+            final OutputProperty outputProperty = outputProperties.get(index);
+            if(outputProperty.getOutputPropertyType() == OutputPropertyType.PATH_STRING) {
+              row[index] = pathId;
+            }else if(path == null && outputProperty.getOutputPropertyType().name().startsWith("PATH")) {
+              /* removal row, path specific properties are absent, OD pair and context properties are still written */
+              row[index] = null;
+            }else {
+              row[index] = pathOutputTypeAdapter.getPathOutputPropertyValue(outputProperty, odIterator, mode, timePeriod, pathIdentificationType).orElse(null);
+            }
+          }
+          csvPrinter.printRecord(row);
+        }
+      }
+      return null;
+    }catch(Exception e) {
+      LOGGER.severe(e.getMessage());
+      return new PlanItException("Error when writing compact path output in PLANitIO OutputFormatter", e);
+    }
+  }
+
+  /**
+   * Location of the path dictionary of compact path output
+   * 
+   * @param runId of the assignment
+   * @return path dictionary file
+   */
+  private Path createPathDictionaryPath(long runId) {
+    return Paths.get(csvDirectory, csvNameRoot + "_RunId_" + runId + PATH_DICTIONARY_NAME_SUFFIX + PathDictionary.FILE_EXTENSION);
+  }
+
+  /**
+   * Append the paths interned since the previous append to the path dictionary file, on the asynchronous output writer when active, so the
+   * dictionary on disk covers all persisted path output at any time
+   * 
+   * @param outputAdapter the output adapter
+   * @throws PlanItException thrown if error
+   */
+  private void appendPathDictionary(final OutputAdapter outputAdapter) throws PlanItException {
+    final PathDictionary.PendingPaths pendingPaths = pathDictionary.takePendingPaths();
+    final Path pathDictionaryPath = createPathDictionaryPath(outputAdapter.getRunId());
+    if(asynchronousOutputWriter != null) {
+      asynchronousOutputWriter.submit(() -> pendingPaths.appendTo(pathDictionaryPath));
+    }else {
+      pendingPaths.appendTo(pathDictionaryPath);
+    }
+    pathDictionaryFileName = pathDictionaryPath.toAbsolutePath().toString();
   }
 
   /**
@@ -529,11 +1279,96 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
       final TimePeriod timePeriod,
       int iterationIndex) throws PlanItException {
     
-    writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
-        iterationIndex, (csvPrinter) -> {
-          return writeLinkResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, currentOutputType,
-              outputAdapter, modes, timePeriod, csvPrinter);
-        });
+    if(columnarLinkOutput && currentOutputType == OutputType.LINK) {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod, iterationIndex, ColumnarOutputTable.FILE_EXTENSION,
+          columnarFileName -> writeColumnarLinkResultsForCurrentTimePeriod(outputConfiguration, outputTypeConfiguration, outputAdapter, modes, timePeriod, columnarFileName));
+    }else if(linkOutputChangeTolerance >= 0 && currentOutputType == OutputType.LINK) {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
+          iterationIndex, (csvPrinter) -> {
+            return writeChangedLinkResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, outputAdapter, modes, timePeriod, csvPrinter);
+          });
+    }else {
+      writeResultsForCurrentTimePeriod(outputTypeConfiguration, currentOutputType, outputAdapter, timePeriod,
+          iterationIndex, (csvPrinter) -> {
+            return writeLinkResultsForCurrentTimePeriodToCsvPrinter(outputConfiguration, outputTypeConfiguration, currentOutputType,
+                outputAdapter, modes, timePeriod, csvPrinter);
+          });
+    }
+    
+    if(persistBinaryLinkSegmentCosts && currentOutputType == OutputType.LINK) {
+      collectBinaryLinkSegmentCosts(outputAdapter, modes, timePeriod);
+    }
+  }
+
+  /**
+   * Collect the current link segment costs of all modes for the time period, replacing any previously collected costs of this time period, so
+   * upon completion the costs of the final iteration remain
+   * 
+   * @param outputAdapter to collect costs from
+   * @param modes to collect costs for
+   * @param timePeriod to collect costs for
+   */
+  private void collectBinaryLinkSegmentCosts(final OutputAdapter outputAdapter, final Set<Mode> modes, final TimePeriod timePeriod) {
+    final var linkOutputTypeAdapter = (MacroscopicLinkOutputTypeAdapter) outputAdapter.getOutputTypeAdapter(OutputType.LINK);
+    if(binaryCostModes == null) {
+      /* fix dimensions on first use */
+      binaryCostModes = new ArrayList<>(modes);
+      binaryCostModes.sort(Comparator.comparingLong(Mode::getId));
+      final Map<Long, List<MacroscopicLinkSegment>> linkSegmentsByLayer = new LinkedHashMap<>();
+      for(Mode mode : binaryCostModes) {
+        Optional<Long> layerId = linkOutputTypeAdapter.getInfrastructureLayerIdForMode(mode);
+        if(layerId.isPresent() && !linkSegmentsByLayer.containsKey(layerId.get())) {
+          final List<MacroscopicLinkSegment> layerLinkSegments = new ArrayList<>();
+          linkOutputTypeAdapter.getPhysicalLinkSegments(layerId.get()).forEach(layerLinkSegments::add);
+          linkSegmentsByLayer.put(layerId.get(), layerLinkSegments);
+        }
+      }
+      final List<MacroscopicLinkSegment> linkSegments = new ArrayList<>();
+      linkSegmentsByLayer.values().forEach(linkSegments::addAll);
+      binaryCostNetworkFingerprint = PlanitBinaryLinkSegmentCosts.createNetworkFingerprint(linkSegments);
+      binaryCostNumberOfLinkSegmentIds = 1 + (int) linkSegments.stream().mapToLong(MacroscopicLinkSegment::getId).max().orElse(-1);
+    }
+
+    final int numberOfModes = binaryCostModes.size();
+    final double[] costs = new double[binaryCostNumberOfLinkSegmentIds * numberOfModes];
+    Arrays.fill(costs, Double.NaN);
+    final OutputProperty costProperty = OutputProperty.of(OutputPropertyType.LINK_SEGMENT_COST);
+    for(int modeIndex = 0; modeIndex < numberOfModes; ++modeIndex) {
+      final Mode mode = binaryCostModes.get(modeIndex);
+      if(!modes.contains(mode)) {
+        continue;
+      }
+      Optional<Long> layerId = linkOutputTypeAdapter.getInfrastructureLayerIdForMode(mode);
+      if(layerId.isEmpty()) {
+        continue;
+      }
+      for(MacroscopicLinkSegment linkSegment : linkOutputTypeAdapter.getPhysicalLinkSegments(layerId.get())) {
+        Optional<?> cost = linkOutputTypeAdapter.getLinkSegmentOutputPropertyValue(costProperty, linkSegment, mode, timePeriod);
+        if(cost.isPresent() && cost.get() instanceof Number) {
+          costs[(int) linkSegment.getId() * numberOfModes + modeIndex] = ((Number) cost.get()).doubleValue();
+        }
+      }
+    }
+    binaryCostsByTimePeriod.put(timePeriod, costs);
+  }
+
+  /**
+   * Persist the collected link segment costs as binary file in the CSV output directory
+   * 
+   * @param outputAdapter the outputAdapter
+   * @throws PlanItException thrown if error
+   */
+  private void persistBinaryLinkSegmentCosts(final OutputAdapter outputAdapter) throws PlanItException {
+    if(binaryCostsByTimePeriod.isEmpty()) {
+      LOGGER.warning(createLoggingPrefix(outputAdapter.getRunId()) + "No link segment costs available, binary link segment costs not persisted");
+      return;
+    }
+    final Path binaryCostsPath = Paths.get(csvDirectory,
+        csvNameRoot + "_RunId_" + outputAdapter.getRunId() + BINARY_LINK_SEGMENT_COSTS_NAME_SUFFIX + PlanitBinaryLinkSegmentCosts.FILE_EXTENSION);
+    PlanitBinaryLinkSegmentCosts.write(binaryCostsPath, binaryCostNetworkFingerprint, binaryCostNumberOfLinkSegmentIds, binaryCostModes,
+        new ArrayList<>(binaryCostsByTimePeriod.keySet()), new ArrayList<>(binaryCostsByTimePeriod.values()));
+    binaryLinkSegmentCostsFileName = binaryCostsPath.toAbsolutePath().toString();
+    LOGGER.info(createLoggingPrefix(outputAdapter.getRunId()) + "Binary link segment costs persisted: " + binaryLinkSegmentCostsFileName);
   }
 
   /**
@@ -553,7 +1388,24 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
     csvNameExtension = DEFAULT_CSV_NAME_EXTENSION;
     resetCsvDirectory = false;
     csvDirectory = null;
-    metadata = new HashMap<OutputTypeEnum, XMLElementMetadata>();
+    metadataWriters = new HashMap<OutputTypeEnum, MetadataStreamWriter>();
+    outputCompressionCodec = DEFAULT_OUTPUT_COMPRESSION_CODEC;
+    outputCompressionLevel = -1;
+    columnarLinkOutput = DEFAULT_COLUMNAR_LINK_OUTPUT;
+    compressColumnarOutput = DEFAULT_COMPRESS_COLUMNAR_OUTPUT;
+    odOutputLayout = DEFAULT_OD_OUTPUT_LAYOUT;
+    compactPathOutput = DEFAULT_COMPACT_PATH_OUTPUT;
+    deltaPathOutput = DEFAULT_DELTA_PATH_OUTPUT;
+    previousPathIdsByMode = new HashMap<>();
+    persistEveryNthIteration = DEFAULT_PERSIST_EVERY_NTH_ITERATION;
+    persistRelativeGapThreshold = DEFAULT_PERSIST_RELATIVE_GAP_THRESHOLD;
+    linkOutputChangeTolerance = DEFAULT_LINK_OUTPUT_CHANGE_TOLERANCE;
+    previousLinkFlowsAndCostsByMode = new HashMap<>();
+    asynchronousOutput = DEFAULT_ASYNCHRONOUS_OUTPUT;
+    asynchronousOutputQueueCapacity = DEFAULT_ASYNCHRONOUS_OUTPUT_QUEUE_CAPACITY;
+    asynchronousOutputMaxPendingBytes = DEFAULT_ASYNCHRONOUS_OUTPUT_MAX_PENDING_BYTES;
+    persistBinaryLinkSegmentCosts = DEFAULT_PERSIST_BINARY_LINK_SEGMENT_COSTS;
+    binaryCostsByTimePeriod = new LinkedHashMap<>();
   }
 
   /**
@@ -571,10 +1423,34 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
     
     createOrOpenOutputDirectory(xmlDirectory, resetXmlDirectory);
     createOrOpenOutputDirectory(csvDirectory, resetCsvDirectory);
+    
+    binaryCostModes = null;
+    binaryCostsByTimePeriod.clear();
+    binaryLinkSegmentCostsFileName = null;
+    
+    pathDictionary = compactPathOutput ? new PathDictionary() : null;
+    previousPathIdsByMode.clear();
+    previousPathTimePeriod = null;
+    pathLinkSegmentIdsBuffer = null;
+    pathDictionaryFileName = null;
+    
+    previousLinkFlowsAndCostsByMode.clear();
+    previousLinkTimePeriod = null;
+    
+    persistOnlyFinalIteration = outputConfiguration.isPersistOnlyFinalIteration();
+    relativeGapSupplierMissingLogged = false;
+    PlanItException.throwIf(!persistOnlyFinalIteration && finalIterationSupplier == null && (persistEveryNthIteration > 1 || persistRelativeGapThreshold >= 0),
+        "Final iteration supplier required when persisting every nth iteration or by relative gap threshold, otherwise the final iteration may not be persisted");
+    
+    metadataWriters.clear();
+    
+    if(asynchronousOutput) {
+      asynchronousOutputWriter = new AsynchronousOutputWriter(asynchronousOutputQueueCapacity, asynchronousOutputMaxPendingBytes, "PLANitIO-output-" + runId);
+    }
   }
 
   /**
-   * Finalize the persistence after the simulation. Here we generate the XML meta-data file(s)
+   * Finalize the persistence after the simulation. Here we complete the XML meta-data file(s)
    * 
    * @param outputConfiguration OutputTypeConfiguration of the assignment that have been activated
    * @param outputAdapter the outputAdapter
@@ -582,25 +1458,30 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
    */
   @Override
   public void finaliseAfterSimulation(final OutputConfiguration outputConfiguration, final OutputAdapter outputAdapter) throws PlanItException {
-    try {
-      final String metaDataSchemaUri = PlanitSchema.createPlanitSchemaUri(PlanitSchema.METADATA_XSD);
-      for (OutputType outputType : outputConfiguration.getActivatedOutputTypes()) {
-        OutputTypeConfiguration outputTypeConfiguration = outputConfiguration.getOutputTypeConfiguration(outputType);
-        if (xmlFileNameMap.containsKey(outputType)) {
-          Path xmlFilePath = Paths.get(xmlFileNameMap.get(outputType));
-          if (metadata.containsKey(outputType)) {
-            JAXBUtils.generateXmlFileFromObject( metadata.get(outputType), XMLElementMetadata.class, xmlFilePath,metaDataSchemaUri);
-          } else if (outputTypeConfiguration.hasActiveSubOutputTypes()) {
-            Set<SubOutputTypeEnum> activeSubOutputTypes = outputTypeConfiguration.getActiveSubOutputTypes();
-            for (SubOutputTypeEnum subOutputTypeEnum : activeSubOutputTypes) {
-              JAXBUtils.generateXmlFileFromObject(metadata.get(subOutputTypeEnum), XMLElementMetadata.class,xmlFilePath,metaDataSchemaUri);
-            }
-          }
-        }
-      }      
-    } catch (Exception e) {
-      LOGGER.severe(e.getMessage());
-      throw new PlanItException("Error when finalising after simulation in PLANitIO OutputFormatter", e);
+    if(asynchronousOutputWriter != null) {
+      /* all pending output must be written before the final metadata refers to it */
+      try {
+        asynchronousOutputWriter.drainAndClose();
+      }finally {
+        asynchronousOutputWriter = null;
+      }
+    }
+    
+    /* close the metadata documents of the final time period, the writer thread has terminated so closing happens on this thread */
+    for(MetadataStreamWriter metadataWriter : metadataWriters.values()) {
+      metadataWriter.close();
+    }
+    
+    if(persistBinaryLinkSegmentCosts) {
+      persistBinaryLinkSegmentCosts(outputAdapter);
+    }
+    
+    if(pathDictionary != null) {
+      /* creates the dictionary when no path output was persisted at all */
+      appendPathDictionary(outputAdapter);
+      LOGGER.info(createLoggingPrefix(outputAdapter.getRunId()) + 
+          String.format("Path dictionary with %d unique paths persisted: %s", pathDictionary.size(), pathDictionaryFileName));
+      pathDictionary = null;
     }
     
     logOutputInformation(outputAdapter);    
@@ -708,6 +1589,312 @@ public class PlanItOutputFormatter extends CsvFileOutputFormatter
     return csvFileNameMap.get(outputType);
   }
   
+  /**
+   * Compression codec of CSV and XML output files, when compressed the suffix of the codec is appended to the file names
+   * 
+   * @return compression codec
+   */
+  public PlanitCompressionCodec getOutputCompressionCodec() {
+    return outputCompressionCodec;
+  }
+
+  /**
+   * Set compression codec of CSV and XML output files
+   * 
+   * @param outputCompressionCodec to use
+   */
+  public void setOutputCompressionCodec(final PlanitCompressionCodec outputCompressionCodec) {
+    this.outputCompressionCodec = outputCompressionCodec == null ? PlanitCompressionCodec.NONE : outputCompressionCodec;
+  }
+
+  /**
+   * Compression level of CSV and XML output files
+   * 
+   * @return compression level, negative when the default level of the codec is used
+   */
+  public int getOutputCompressionLevel() {
+    return outputCompressionLevel;
+  }
+
+  /**
+   * Set compression level of CSV and XML output files
+   * 
+   * @param outputCompressionLevel to use, negative for the default level of the codec
+   */
+  public void setOutputCompressionLevel(final int outputCompressionLevel) {
+    this.outputCompressionLevel = outputCompressionLevel;
+  }
+
+  /**
+   * Whether link output is persisted in columnar binary format, one (optionally compressed) block per output property, instead of CSV. The 
+   * columns are recorded in the metadata the same way as for CSV output
+   * 
+   * @return true when columnar, false otherwise
+   */
+  public boolean isColumnarLinkOutput() {
+    return columnarLinkOutput;
+  }
+
+  /**
+   * Set whether link output is persisted in columnar binary format instead of CSV
+   * 
+   * @param columnarLinkOutput when true columnar, otherwise CSV
+   */
+  public void setColumnarLinkOutput(final boolean columnarLinkOutput) {
+    this.columnarLinkOutput = columnarLinkOutput;
+  }
+
+  /**
+   * Whether the columns of columnar binary output are compressed
+   * 
+   * @return true when compressed, false otherwise
+   */
+  public boolean isCompressColumnarOutput() {
+    return compressColumnarOutput;
+  }
+
+  /**
+   * Set whether the columns of columnar binary output are compressed
+   * 
+   * @param compressColumnarOutput when true compressed, otherwise not
+   */
+  public void setCompressColumnarOutput(final boolean compressColumnarOutput) {
+    this.compressColumnarOutput = compressColumnarOutput;
+  }
+
+  /**
+   * Whether output files are written asynchronously on a dedicated writer thread, such that the assignment does not wait for disk I/O. 
+   * The output content is still collected on the assignment thread
+   * 
+   * @return true when asynchronous, false otherwise
+   */
+  public boolean isAsynchronousOutput() {
+    return asynchronousOutput;
+  }
+
+  /**
+   * Set whether output files are written asynchronously on a dedicated writer thread, takes effect on the next simulation
+   * 
+   * @param asynchronousOutput when true asynchronous, otherwise synchronous
+   */
+  public void setAsynchronousOutput(final boolean asynchronousOutput) {
+    this.asynchronousOutput = asynchronousOutput;
+  }
+
+  /**
+   * Maximum number of pending output snapshots when writing asynchronously, beyond which the assignment waits for the writer thread
+   * 
+   * @return queue capacity
+   */
+  public int getAsynchronousOutputQueueCapacity() {
+    return asynchronousOutputQueueCapacity;
+  }
+
+  /**
+   * Set the maximum number of pending output snapshots when writing asynchronously
+   * 
+   * @param asynchronousOutputQueueCapacity to use, at least one
+   */
+  public void setAsynchronousOutputQueueCapacity(final int asynchronousOutputQueueCapacity) {
+    this.asynchronousOutputQueueCapacity = asynchronousOutputQueueCapacity;
+  }
+
+  /**
+   * Maximum number of bytes held by pending CSV output snapshots when writing asynchronously, beyond which the assignment waits for the writer
+   * thread. A single snapshot larger than this maximum is still accepted once no other snapshot is pending
+   * 
+   * @return maximum number of pending bytes
+   */
+  public long getAsynchronousOutputMaxPendingBytes() {
+    return asynchronousOutputMaxPendingBytes;
+  }
+
+  /**
+   * Set the maximum number of bytes held by pending CSV output snapshots when writing asynchronously, takes effect on the next simulation
+   * 
+   * @param asynchronousOutputMaxPendingBytes to use
+   */
+  public void setAsynchronousOutputMaxPendingBytes(final long asynchronousOutputMaxPendingBytes) {
+    this.asynchronousOutputMaxPendingBytes = asynchronousOutputMaxPendingBytes;
+  }
+
+  /**
+   * Layout of persisted OD skim output, when not the default the layout is recorded in the description of the XML metadata
+   * 
+   * @return OD output layout
+   */
+  public OdOutputLayout getOdOutputLayout() {
+    return odOutputLayout;
+  }
+
+  /**
+   * Set the layout of persisted OD skim output
+   * 
+   * @param odOutputLayout to use
+   */
+  public void setOdOutputLayout(final OdOutputLayout odOutputLayout) {
+    this.odOutputLayout = odOutputLayout;
+  }
+
+  /**
+   * Whether path output refers to paths by their path id in a path dictionary, persisted once per run, rather than listing each path in full
+   * 
+   * @return true when compact, false otherwise
+   */
+  public boolean isCompactPathOutput() {
+    return compactPathOutput;
+  }
+
+  /**
+   * Set whether path output refers to paths by their path id in a path dictionary, takes effect on the next simulation
+   * 
+   * @param compactPathOutput when true compact, otherwise each path is listed in full
+   */
+  public void setCompactPathOutput(final boolean compactPathOutput) {
+    this.compactPathOutput = compactPathOutput;
+  }
+
+  /**
+   * Whether compact path output only contains OD pairs whose path changed since the previously persisted iteration of the same time period. An OD
+   * pair that lost its path is written with path id {@link #REMOVED_PATH_ID}
+   * 
+   * @return true when only changes are persisted, false otherwise
+   */
+  public boolean isDeltaPathOutput() {
+    return deltaPathOutput;
+  }
+
+  /**
+   * Set whether compact path output only contains OD pairs whose path changed since the previously persisted iteration, only effective
+   * for compact path output
+   * 
+   * @param deltaPathOutput when true only changes are persisted, otherwise all paths
+   */
+  public void setDeltaPathOutput(final boolean deltaPathOutput) {
+    this.deltaPathOutput = deltaPathOutput;
+  }
+
+  /**
+   * Returns the name of the path dictionary persisted by the most recent run with compact path output
+   * 
+   * @return file name, null if not persisted
+   */
+  public String getPathDictionaryFileName() {
+    return pathDictionaryFileName;
+  }
+
+  /**
+   * Interval of persisted iterations, only iterations that are a multiple of this interval are persisted
+   * 
+   * @return interval, 1 when every iteration is persisted
+   */
+  public int getPersistEveryNthIteration() {
+    return persistEveryNthIteration;
+  }
+
+  /**
+   * Set the interval of persisted iterations, e.g. 10 persists iterations 10, 20, 30 and so on. The final (converged) iteration is always
+   * persisted irrespective of the interval. The formatter recognises it when the output configuration only persists the final iteration, in which
+   * case the interval does not apply, otherwise a final iteration supplier is mandatory, see {@link #setFinalIterationSupplier(BooleanSupplier)}, 
+   * and initialising the simulation fails without it
+   * 
+   * @param persistEveryNthIteration interval, 1 (or less) persists every iteration
+   */
+  public void setPersistEveryNthIteration(final int persistEveryNthIteration) {
+    this.persistEveryNthIteration = persistEveryNthIteration;
+  }
+
+  /**
+   * Relative gap at or below which iterations are persisted
+   * 
+   * @return threshold, negative when not applied
+   */
+  public double getPersistRelativeGapThreshold() {
+    return persistRelativeGapThreshold;
+  }
+
+  /**
+   * Only persist iterations with a relative gap at or below the threshold. The relative gap is not available to the formatter via the output
+   * adapter, so it is obtained from the given supplier, e.g. {@code () -> assignment.getGapFunction().getGap()}. The final (converged) iteration
+   * is always persisted, so unless the output configuration only persists the final iteration a final iteration supplier is mandatory, see
+   * {@link #setFinalIterationSupplier(BooleanSupplier)}
+   * 
+   * @param persistRelativeGapThreshold threshold, negative to no longer apply it
+   * @param relativeGapSupplier provides the relative gap of the current iteration
+   */
+  public void setPersistRelativeGapThreshold(final double persistRelativeGapThreshold, final DoubleSupplier relativeGapSupplier) {
+    this.persistRelativeGapThreshold = persistRelativeGapThreshold;
+    this.relativeGapSupplier = relativeGapSupplier;
+  }
+
+  /**
+   * Indicator of the final (converged) iteration, used to always persist it when iterations are filtered by interval or relative gap threshold.
+   * The formatter is not informed about convergence via the output adapter, so it is obtained from the given supplier
+   * 
+   * @return final iteration supplier, null when not set
+   */
+  public BooleanSupplier getFinalIterationSupplier() {
+    return finalIterationSupplier;
+  }
+
+  /**
+   * Set the indicator of the final (converged) iteration, e.g. based on the stop criterion of the assignment. Mandatory when iterations are
+   * filtered by interval or relative gap threshold, unless the output configuration only persists the final iteration
+   * 
+   * @param finalIterationSupplier provides true when the current iteration is the final iteration, null to no longer apply it
+   */
+  public void setFinalIterationSupplier(final BooleanSupplier finalIterationSupplier) {
+    this.finalIterationSupplier = finalIterationSupplier;
+  }
+
+  /**
+   * Absolute change in flow or cost since the previously persisted iteration of the same time period a link segment requires to be included
+   * in link output
+   * 
+   * @return tolerance, negative when all link segments are persisted
+   */
+  public double getLinkOutputChangeTolerance() {
+    return linkOutputChangeTolerance;
+  }
+
+  /**
+   * Set the absolute change in flow or cost a link segment requires to be included in link output, applies to CSV and columnar link output.
+   * Consumers reconstruct the full state of an iteration by carrying forward the most recently persisted row of each link segment
+   * 
+   * @param linkOutputChangeTolerance tolerance, negative to persist all link segments
+   */
+  public void setLinkOutputChangeTolerance(final double linkOutputChangeTolerance) {
+    this.linkOutputChangeTolerance = linkOutputChangeTolerance;
+  }
+
+  /**
+   * Whether link segment costs of the final iteration are persisted as binary file, which can be provided as initial link segment costs
+   * to a subsequent run (warm start)
+   * 
+   * @return true when persisted, false otherwise
+   */
+  public boolean isPersistBinaryLinkSegmentCosts() {
+    return persistBinaryLinkSegmentCosts;
+  }
+
+  /**
+   * Set whether link segment costs of the final iteration are persisted as binary file, requires link output to be activated
+   * 
+   * @param persistBinaryLinkSegmentCosts when true persisted, otherwise not
+   */
+  public void setPersistBinaryLinkSegmentCosts(final boolean persistBinaryLinkSegmentCosts) {
+    this.persistBinaryLinkSegmentCosts = persistBinaryLinkSegmentCosts;
+  }
+
+  /**
+   * Returns the name of the binary link segment cost file persisted by the most recent run
+   * 
+   * @return file name, null if not persisted
+   */
+  public String getBinaryLinkSegmentCostsFileName() {
+    return binaryLinkSegmentCostsFileName;
+  }
+
   /**
    * {@inheritDoc}
    */
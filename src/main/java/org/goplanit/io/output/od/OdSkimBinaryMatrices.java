@@ -0,0 +1,244 @@
+package org.goplanit.io.output.od;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Dense OD skim matrices, one n by n float matrix per mode, persisted as a single binary file. Layout (little endian):
+ * <ul>
+ * <li>magic number, version, number of zones n, number of matrices</li>
+ * <li>per zone: XML id (length prefixed UTF-8), the position of a zone is its index in each matrix</li>
+ * <li>per matrix: mode XML id (length prefixed UTF-8) followed by n times n floats in origin major order</li>
+ * </ul>
+ * Absent values are stored as NaN.
+ *
+ * @author markr
+ *
+ */
+public class OdSkimBinaryMatrices {
+
+  /** magic number at the start of each file, "PLSK" */
+  private static final int MAGIC = 0x504C534B;
+
+  /** current version of the format */
+  private static final int VERSION = 1;
+
+  /** size of the write buffer */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** file extension of binary OD skim files */
+  public static final String FILE_EXTENSION = ".odskim";
+
+  /** XML ids of the zones, in matrix index order */
+  private final List<String> zoneXmlIds;
+
+  /** matrices by mode XML id, in order of addition */
+  private final Map<String, float[]> matricesByModeXmlId;
+
+  /**
+   * Read a length prefixed UTF-8 string
+   *
+   * @param buffer to read from
+   * @return string
+   */
+  private static String getString(final ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write a length prefixed UTF-8 string
+   *
+   * @param out to write to
+   * @param buffer to stage in, flushed to out when full
+   * @param value to write
+   * @throws IOException thrown if error
+   */
+  private static void putString(final OutputStream out, final ByteBuffer buffer, final String value) throws IOException {
+    byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+    flushIfFull(out, buffer, Integer.BYTES);
+    buffer.putInt(bytes.length);
+    out.write(buffer.array(), 0, buffer.position());
+    buffer.clear();
+    out.write(bytes);
+  }
+
+  /**
+   * Flush the buffer to out when it cannot hold the given number of bytes
+   *
+   * @param out to write to
+   * @param buffer to flush
+   * @param required number of bytes
+   * @throws IOException thrown if error
+   */
+  private static void flushIfFull(final OutputStream out, final ByteBuffer buffer, final int required) throws IOException {
+    if(buffer.remaining() < required) {
+      out.write(buffer.array(), 0, buffer.position());
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Constructor
+   *
+   * @param zoneXmlIds XML ids of the zones, in matrix index order
+   */
+  public OdSkimBinaryMatrices(final List<String> zoneXmlIds) {
+    this.zoneXmlIds = new ArrayList<>(zoneXmlIds);
+    this.matricesByModeXmlId = new LinkedHashMap<>();
+  }
+
+  /**
+   * Create an n by n matrix with all values absent
+   *
+   * @param numberOfZones n
+   * @return matrix in origin major order
+   */
+  public static float[] createMatrix(final int numberOfZones) {
+    float[] matrix = new float[numberOfZones * numberOfZones];
+    Arrays.fill(matrix, Float.NaN);
+    return matrix;
+  }
+
+  /**
+   * Add the matrix of a mode
+   *
+   * @param modeXmlId XML id of the mode
+   * @param matrix n by n values in origin major order, not copied
+   */
+  public void addMatrix(final String modeXmlId, final float[] matrix) {
+    PlanItRunTimeException.throwIf(matrix.length != getNumberOfZones() * getNumberOfZones(),
+        "OD skim matrix of mode %s has %d values, expected %d", modeXmlId, matrix.length, getNumberOfZones() * getNumberOfZones());
+    matricesByModeXmlId.put(modeXmlId, matrix);
+  }
+
+  /**
+   * Number of zones, i.e., n
+   *
+   * @return number of zones
+   */
+  public int getNumberOfZones() {
+    return zoneXmlIds.size();
+  }
+
+  /**
+   * XML ids of the zones, in matrix index order
+   *
+   * @return zone XML ids
+   */
+  public List<String> getZoneXmlIds() {
+    return Collections.unmodifiableList(zoneXmlIds);
+  }
+
+  /**
+   * XML ids of the modes with a matrix, in order of addition
+   *
+   * @return mode XML ids
+   */
+  public List<String> getModeXmlIds() {
+    return Collections.unmodifiableList(new ArrayList<>(matricesByModeXmlId.keySet()));
+  }
+
+  /**
+   * Matrix of a mode
+   *
+   * @param modeXmlId XML id of the mode
+   * @return n by n values in origin major order, null if not present
+   */
+  public float[] getMatrix(final String modeXmlId) {
+    return matricesByModeXmlId.get(modeXmlId);
+  }
+
+  /**
+   * Value of an origin-destination pair
+   *
+   * @param modeXmlId XML id of the mode
+   * @param originIndex index of the origin zone
+   * @param destinationIndex index of the destination zone
+   * @return value, NaN when absent or no matrix is present for the mode
+   */
+  public double getValue(final String modeXmlId, final int originIndex, final int destinationIndex) {
+    float[] matrix = matricesByModeXmlId.get(modeXmlId);
+    return matrix == null ? Double.NaN : matrix[originIndex * getNumberOfZones() + destinationIndex];
+  }
+
+  /**
+   * Write the matrices to file
+   *
+   * @param file to write to, overwritten if it exists
+   * @throws PlanItException thrown if error
+   */
+  public void write(final Path file) throws PlanItException {
+    try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)){
+      final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(getNumberOfZones()).putInt(matricesByModeXmlId.size());
+      for(String zoneXmlId : zoneXmlIds) {
+        putString(out, buffer, zoneXmlId);
+      }
+      for(Map.Entry<String, float[]> entry : matricesByModeXmlId.entrySet()) {
+        putString(out, buffer, entry.getKey());
+        for(float value : entry.getValue()) {
+          flushIfFull(out, buffer, Float.BYTES);
+          buffer.putFloat(value);
+        }
+      }
+      out.write(buffer.array(), 0, buffer.position());
+    }catch(Exception e) {
+      throw new PlanItException("Unable to write binary OD skim matrices to %s", e, file);
+    }
+  }
+
+  /**
+   * Read the matrices from file
+   *
+   * @param file to read
+   * @return read matrices
+   * @throws PlanItException thrown if error
+   */
+  public static OdSkimBinaryMatrices read(final Path file) throws PlanItException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+      PlanItException.throwIf(buffer.getInt() != MAGIC, "File %s is not a binary OD skim file", file);
+      final int version = buffer.getInt();
+      PlanItException.throwIf(version != VERSION, "Binary OD skim file %s has version %d, only version %d is supported", file, version, VERSION);
+      final int numberOfZones = buffer.getInt();
+      final int numberOfMatrices = buffer.getInt();
+
+      final List<String> zoneXmlIds = new ArrayList<>(numberOfZones);
+      for(int index = 0; index < numberOfZones; ++index) {
+        zoneXmlIds.add(getString(buffer));
+      }
+      final OdSkimBinaryMatrices matrices = new OdSkimBinaryMatrices(zoneXmlIds);
+      for(int index = 0; index < numberOfMatrices; ++index) {
+        String modeXmlId = getString(buffer);
+        float[] matrix = new float[numberOfZones * numberOfZones];
+        buffer.asFloatBuffer().get(matrix);
+        buffer.position(buffer.position() + matrix.length * Float.BYTES);
+        matrices.addMatrix(modeXmlId, matrix);
+      }
+      return matrices;
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to read binary OD skim matrices from %s", e, file);
+    }
+  }
+}
@@ -0,0 +1,376 @@
+package org.goplanit.io.output.path;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.goplanit.utils.exceptions.PlanItException;
+
+/**
+ * Dictionary of unique paths, each a sequence of link segment ids, identified by a path id equal to the order in which it was first interned.
+ * Compact path output refers to paths by their path id rather than repeating the sequence for each OD pair and iteration. Persisted layout
+ * (little endian):
+ * <ul>
+ * <li>magic number, version, number of paths</li>
+ * <li>per path, in path id order: number of link segments followed by the link segment ids (longs)</li>
+ * </ul>
+ * The dictionary can be persisted incrementally, see {@link #takePendingPaths()}, in which case the number of paths in the header is updated
+ * after the paths are appended, so an interrupted append leaves a readable file.
+ *
+ * @author markr
+ *
+ */
+public class PathDictionary {
+
+  /** magic number at the start of each file, "PLPD" */
+  private static final int MAGIC = 0x504C5044;
+
+  /** current version of the format */
+  private static final int VERSION = 1;
+
+  /** size of the write buffer */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** initial capacity of the link segment id storage */
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /** file extension of path dictionary files */
+  public static final String FILE_EXTENSION = ".pathdict";
+
+  /** offset of the number of paths in the header */
+  private static final int NUMBER_OF_PATHS_OFFSET = 2 * Integer.BYTES;
+
+  /**
+   * Key of a path in the dictionary, compares by content of the first length link segment ids
+   */
+  private static final class PathKey {
+
+    /** link segment ids of path, only the first length entries are used */
+    private final long[] linkSegmentIds;
+
+    /** number of link segment ids of path */
+    private final int length;
+
+    /** cached hash code */
+    private final int hashCode;
+
+    /**
+     * Constructor
+     *
+     * @param linkSegmentIds of path
+     * @param length number of link segment ids used
+     */
+    private PathKey(final long[] linkSegmentIds, final int length) {
+      this.linkSegmentIds = linkSegmentIds;
+      this.length = length;
+      int hash = 1;
+      for(int index = 0; index < length; ++index) {
+        hash = 31 * hash + Long.hashCode(linkSegmentIds[index]);
+      }
+      this.hashCode = hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object other) {
+      if(!(other instanceof PathKey)) {
+        return false;
+      }
+      final PathKey otherKey = (PathKey) other;
+      return Arrays.equals(linkSegmentIds, 0, length, otherKey.linkSegmentIds, 0, otherKey.length);
+    }
+  }
+
+  /**
+   * Paths added to a dictionary since the previous call to {@link PathDictionary#takePendingPaths()}, copied so they can be appended to file,
+   * possibly on another thread, while the dictionary keeps growing
+   */
+  public static final class PendingPaths {
+
+    /** path id of the first pending path */
+    private final int firstPathId;
+
+    /** number of link segments per pending path */
+    private final int[] lengths;
+
+    /** link segment ids of the pending paths, concatenated */
+    private final long[] linkSegmentIds;
+
+    /**
+     * Constructor
+     *
+     * @param firstPathId path id of the first pending path
+     * @param lengths number of link segments per pending path
+     * @param linkSegmentIds link segment ids of the pending paths, concatenated
+     */
+    private PendingPaths(final int firstPathId, final int[] lengths, final long[] linkSegmentIds) {
+      this.firstPathId = firstPathId;
+      this.lengths = lengths;
+      this.linkSegmentIds = linkSegmentIds;
+    }
+
+    /**
+     * Number of pending paths
+     *
+     * @return number of paths
+     */
+    public int size() {
+      return lengths.length;
+    }
+
+    /**
+     * Append the pending paths to the dictionary file. When the first pending path is the first path of the dictionary the file is created (or
+     * truncated) first, otherwise it must hold all paths preceding the pending ones, i.e., the pending paths of earlier calls are to be appended
+     * in order
+     *
+     * @param file to append to
+     * @throws PlanItException thrown if error
+     */
+    public void appendTo(final Path file) throws PlanItException {
+      final boolean create = firstPathId == 0;
+      try(FileChannel channel = create ?
+          FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING) :
+          FileChannel.open(file, StandardOpenOption.WRITE)){
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if(create) {
+          buffer.putInt(MAGIC).putInt(VERSION).putInt(0);
+        }else {
+          channel.position(channel.size());
+        }
+        writePaths(buffer, channel, lengths, linkSegmentIds);
+
+        /* number of paths is updated last, so the file remains consistent when appending fails halfway */
+        final ByteBuffer numberOfPaths = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        numberOfPaths.putInt(firstPathId + lengths.length).flip();
+        while(numberOfPaths.hasRemaining()) {
+          channel.write(numberOfPaths, NUMBER_OF_PATHS_OFFSET + numberOfPaths.position());
+        }
+      }catch(Exception e) {
+        throw new PlanItException("Unable to append to path dictionary %s", e, file);
+      }
+    }
+  }
+
+  /** path id by path */
+  private final Map<PathKey, Integer> pathIds;
+
+  /** link segment ids of all paths, concatenated in path id order */
+  private long[] linkSegmentIds;
+
+  /** offsets of each path in linkSegmentIds, path i spans offsets[i] up to offsets[i+1] */
+  private int[] offsets;
+
+  /** number of paths */
+  private int numberOfPaths;
+
+  /** number of paths taken by {@link #takePendingPaths()} so far */
+  private int numberOfTakenPaths;
+
+  /**
+   * Add a path that is not yet present
+   *
+   * @param path link segment ids of path, only the first length entries are used
+   * @param length number of link segment ids of path
+   * @return path id of added path
+   */
+  private int add(final long[] path, final int length) {
+    final int offset = offsets[numberOfPaths];
+    if(offset + length > linkSegmentIds.length) {
+      linkSegmentIds = Arrays.copyOf(linkSegmentIds, Math.max(linkSegmentIds.length * 2, offset + length));
+    }
+    if(numberOfPaths + 2 > offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    System.arraycopy(path, 0, linkSegmentIds, offset, length);
+    offsets[numberOfPaths + 1] = offset + length;
+    return numberOfPaths++;
+  }
+
+  /**
+   * Write paths to the channel, each as its number of link segments followed by its link segment ids
+   *
+   * @param buffer to stage the bytes in, may already hold bytes to write first
+   * @param channel to write to
+   * @param lengths number of link segments per path
+   * @param linkSegmentIds link segment ids of the paths, concatenated
+   * @throws IOException thrown if error
+   */
+  private static void writePaths(final ByteBuffer buffer, final WritableByteChannel channel, final int[] lengths, final long[] linkSegmentIds) throws IOException {
+    int offset = 0;
+    for(int length : lengths) {
+      if(buffer.remaining() < Integer.BYTES) {
+        flush(buffer, channel);
+      }
+      buffer.putInt(length);
+      for(final int end = offset + length; offset < end; ++offset) {
+        if(buffer.remaining() < Long.BYTES) {
+          flush(buffer, channel);
+        }
+        buffer.putLong(linkSegmentIds[offset]);
+      }
+    }
+    flush(buffer, channel);
+  }
+
+  /**
+   * Write the buffer to the channel completely and clear it for reuse
+   *
+   * @param buffer to write
+   * @param channel to write to
+   * @throws IOException thrown if error
+   */
+  private static void flush(final ByteBuffer buffer, final WritableByteChannel channel) throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Number of link segments per path for a range of path ids
+   *
+   * @param fromPathId first path id, inclusive
+   * @param toPathId last path id, exclusive
+   * @return number of link segments per path
+   */
+  private int[] getLengths(final int fromPathId, final int toPathId) {
+    final int[] lengths = new int[toPathId - fromPathId];
+    for(int pathId = fromPathId; pathId < toPathId; ++pathId) {
+      lengths[pathId - fromPathId] = offsets[pathId + 1] - offsets[pathId];
+    }
+    return lengths;
+  }
+
+  /**
+   * Constructor, creates an empty dictionary
+   */
+  public PathDictionary() {
+    this.pathIds = new HashMap<>();
+    this.linkSegmentIds = new long[INITIAL_CAPACITY];
+    this.offsets = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Intern a path, adding it when not yet present
+   *
+   * @param path link segment ids of path
+   * @return path id of path
+   */
+  public int intern(final long[] path) {
+    return intern(path, path.length);
+  }
+
+  /**
+   * Intern a path held in the first entries of a (reusable) buffer, adding it when not yet present. The buffer is copied when the path is added,
+   * so the caller may reuse it afterwards
+   *
+   * @param path buffer holding the link segment ids of the path
+   * @param length number of link segment ids of the path
+   * @return path id of path
+   */
+  public int intern(final long[] path, final int length) {
+    Integer pathId = pathIds.get(new PathKey(path, length));
+    if(pathId == null) {
+      pathId = add(path, length);
+      pathIds.put(new PathKey(Arrays.copyOf(path, length), length), pathId);
+    }
+    return pathId;
+  }
+
+  /**
+   * Take the paths added since the previous call, so they can be appended to the persisted dictionary, see {@link PendingPaths#appendTo(Path)}.
+   * The first call takes all paths
+   *
+   * @return pending paths, possibly none
+   */
+  public PendingPaths takePendingPaths() {
+    final PendingPaths pendingPaths = new PendingPaths(numberOfTakenPaths, getLengths(numberOfTakenPaths, numberOfPaths),
+        Arrays.copyOfRange(linkSegmentIds, offsets[numberOfTakenPaths], offsets[numberOfPaths]));
+    numberOfTakenPaths = numberOfPaths;
+    return pendingPaths;
+  }
+
+  /**
+   * Number of unique paths
+   *
+   * @return number of paths
+   */
+  public int size() {
+    return numberOfPaths;
+  }
+
+  /**
+   * Link segment ids of a path
+   *
+   * @param pathId of path
+   * @return copy of its link segment ids
+   */
+  public long[] getPath(final int pathId) {
+    return Arrays.copyOfRange(linkSegmentIds, offsets[pathId], offsets[pathId + 1]);
+  }
+
+  /**
+   * Write the dictionary to file
+   *
+   * @param file to write to, overwritten if it exists
+   * @throws PlanItException thrown if error
+   */
+  public void write(final Path file) throws PlanItException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+      final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(numberOfPaths);
+      writePaths(buffer, channel, getLengths(0, numberOfPaths), linkSegmentIds);
+    }catch(Exception e) {
+      throw new PlanItException("Unable to write path dictionary to %s", e, file);
+    }
+  }
+
+  /**
+   * Read a dictionary from file
+   *
+   * @param file to read
+   * @return dictionary with paths in path id order
+   * @throws PlanItException thrown if error
+   */
+  public static PathDictionary read(final Path file) throws PlanItException {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+      PlanItException.throwIf(buffer.getInt() != MAGIC, "File %s is not a path dictionary file", file);
+      final int version = buffer.getInt();
+      PlanItException.throwIf(version != VERSION, "Path dictionary %s has version %d, only version %d is supported", file, version, VERSION);
+      final int numberOfPaths = buffer.getInt();
+
+      final PathDictionary dictionary = new PathDictionary();
+      for(int pathId = 0; pathId < numberOfPaths; ++pathId) {
+        long[] path = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(path);
+        buffer.position(buffer.position() + path.length * Long.BYTES);
+        dictionary.intern(path);
+      }
+      PlanItException.throwIf(dictionary.size() != numberOfPaths, "Path dictionary %s contains duplicate paths", file);
+      return dictionary;
+    }catch(PlanItException e) {
+      throw e;
+    }catch(Exception e) {
+      throw new PlanItException("Unable to read path dictionary from %s", e, file);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package org.goplanit.io.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Performs independent tasks using a bounded number of threads and collects their results in task order, so the outcome does not depend on
+ * the order in which tasks complete. With a single thread (or task) the tasks are performed sequentially on the calling thread. The first
+ * failing task, in task order, determines the exception thrown, remaining tasks are cancelled. PLANit exceptions thrown by a task are
+ * rethrown as is, other exceptions are wrapped with the description of the tasks.
+ *
+ * @author markr
+ *
+ */
+public class PlanitConcurrentTasks {
+
+  /**
+   * Exception thrown by a task, unwrapped when thrown on a pool thread
+   *
+   * @param e caught exception
+   * @return exception thrown by the task
+   */
+  private static Throwable getTaskException(final Exception e) {
+    return e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  /**
+   * Perform the tasks and collect their results
+   *
+   * @param <T> result type of the tasks
+   * @param tasks to perform
+   * @param numberOfThreads maximum number of threads to use, one or less performs the tasks sequentially on the calling thread
+   * @return results in task order
+   * @throws InterruptedException thrown if interrupted while waiting for a task
+   * @throws Exception thrown by the first failing task, in task order, wrapped in an {@link ExecutionException} when performed on a pool thread
+   */
+  private static <T> List<T> invoke(final List<? extends Callable<T>> tasks, int numberOfThreads) throws Exception {
+    final List<T> results = new ArrayList<>(tasks.size());
+    final int numberOfPoolThreads = Math.min(numberOfThreads, tasks.size());
+    if(numberOfPoolThreads <= 1) {
+      for(var task : tasks) {
+        results.add(task.call());
+      }
+      return results;
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(numberOfPoolThreads);
+    try {
+      final List<Future<T>> futures = new ArrayList<>(tasks.size());
+      for(var task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for(var future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Perform the tasks and collect their results, failures are reported as {@link PlanItRunTimeException}
+   *
+   * @param <T> result type of the tasks
+   * @param tasks to perform
+   * @param numberOfThreads maximum number of threads to use, one or less performs the tasks sequentially on the calling thread
+   * @param description of the tasks used in error messages, e.g. "persisting PLANit network shards"
+   * @return results in task order
+   */
+  public static <T> List<T> invokeAll(final List<? extends Callable<T>> tasks, int numberOfThreads, final String description) {
+    try {
+      return invoke(tasks, numberOfThreads);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PlanItRunTimeException(String.format("Interrupted while %s", description), e);
+    } catch (Exception e) {
+      final Throwable cause = getTaskException(e);
+      if(cause instanceof PlanItRunTimeException) {
+        throw (PlanItRunTimeException) cause;
+      }
+      throw new PlanItRunTimeException(String.format("Error while %s", description), cause);
+    }
+  }
+
+  /**
+   * Perform the tasks and collect their results, failures are reported as {@link PlanItException}
+   *
+   * @param <T> result type of the tasks
+   * @param tasks to perform
+   * @param numberOfThreads maximum number of threads to use, one or less performs the tasks sequentially on the calling thread
+   * @param description of the tasks used in error messages, e.g. "parsing XML inputs in PLANitIO"
+   * @return results in task order
+   * @throws PlanItException thrown if a task fails or the calling thread is interrupted
+   */
+  public static <T> List<T> invokeAllChecked(final List<? extends Callable<T>> tasks, int numberOfThreads, final String description) throws PlanItException {
+    try {
+      return invoke(tasks, numberOfThreads);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PlanItException(String.format("Interrupted while %s", description), e);
+    } catch (Exception e) {
+      final Throwable cause = getTaskException(e);
+      if(cause instanceof PlanItException) {
+        throw (PlanItException) cause;
+      }
+      throw new PlanItException(String.format("Error while %s", description), cause);
+    }
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Generic utilities used throughout PLANitIO
+ */
+package org.goplanit.io.util;
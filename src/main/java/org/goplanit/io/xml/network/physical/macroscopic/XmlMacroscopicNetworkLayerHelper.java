@@ -1,11 +1,11 @@
 package org.goplanit.io.xml.network.physical.macroscopic;
 
-import java.util.List;
 import java.util.logging.Logger;
 
+import org.goplanit.io.xml.util.GmlCoordinateParser;
+import org.goplanit.io.xml.util.PlanitXmlStreamParser;
 import org.goplanit.utils.exceptions.PlanItException;
 import org.goplanit.utils.geo.PlanitJtsCrsUtils;
-import org.goplanit.utils.geo.PlanitJtsUtils;
 import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegmentType;
 import org.goplanit.xml.generated.LengthUnit;
 import org.goplanit.xml.generated.XMLElementLayerConfiguration;
@@ -13,8 +13,8 @@ import org.goplanit.xml.generated.XMLElementLinkLengthType;
 import org.goplanit.xml.generated.XMLElementLinkSegmentType;
 import org.goplanit.xml.generated.XMLElementLinkSegmentTypes;
 import org.goplanit.xml.generated.XMLElementLinks;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Point;
 
 import net.opengis.gml.DirectPositionListType;
 import net.opengis.gml.LineStringType;
@@ -54,16 +54,34 @@ public class XmlMacroscopicNetworkLayerHelper {
     return length;    
   }
 
+  /**
+   * Create packed coordinate sequence of a gml:posList honouring its srsDimension. Parsed from the text when available, otherwise from the
+   * JAXB values, i.e., when the memory model was unmarshalled in full
+   *
+   * @param positionList to create sequence for
+   * @param posListText text of the position list, null when not captured
+   * @param lineStringType the position list belongs to
+   * @return packed coordinate sequence
+   */
+  private static CoordinateSequence createPackedCoordinateSequence(DirectPositionListType positionList, CharSequence posListText, LineStringType lineStringType) {
+    final int dimension = GmlCoordinateParser.getDimension(positionList.getSrsDimension(), lineStringType.getSrsDimension());
+    if(posListText != null) {
+      return GmlCoordinateParser.createPackedCoordinateSequence(posListText, dimension);
+    }
+    return GmlCoordinateParser.createPackedCoordinateSequence(positionList.getValue(), dimension);
+  }
+
   /**
    * Get the link length from the gml:LineString element in the XML file, if
    * this has been set
    * 
    * @param generatedLink object storing link data from XML file
+   * @param posListText text of the gml:posList of the line string, null when not captured, see {@link #parseLinkGeometry(XMLElementLinks.Link, CharSequence)}
    * @param jtsUtils to compute length from geometry
    * @return final length value
    * @throws PlanItException thown if error
    */
-  public static Double parseLengthFromLineString(XMLElementLinks.Link generatedLink, PlanitJtsCrsUtils jtsUtils) throws PlanItException {
+  public static Double parseLengthFromLineString(XMLElementLinks.Link generatedLink, CharSequence posListText, PlanitJtsCrsUtils jtsUtils) throws PlanItException {
     Double length = 0.0;
     
     LineStringType lineStringType = generatedLink.getLineString();
@@ -75,34 +93,31 @@ public class XmlMacroscopicNetworkLayerHelper {
         return length;
       }
       
-      List<Double> posList = lineStringType.getPosList().getValue();
-      Point startPosition = null;
-      Point endPosition = null;
-      for (int i = 0; i < posList.size(); i += 2) {
-        endPosition = PlanitJtsUtils.createPoint(posList.get(i), posList.get(i + 1));
-        if (startPosition != null) {
-          length += jtsUtils.getDistanceInKilometres(startPosition, endPosition);
-        }
-        startPosition = endPosition;
-      }
+      /* packed line string, avoids a point per vertex */
+      length = jtsUtils.getDistanceInKilometres(GmlCoordinateParser.createLineString(createPackedCoordinateSequence(positionList, posListText, lineStringType)));
     }
     return length;    
   }
   
   /**
-   * parse the geometry from the xml link
+   * parse the geometry from the xml link. Coordinates are parsed straight into a packed coordinate sequence, so the geometry is backed
+   * by a single array rather than a coordinate object per vertex. A gml:posList is parsed from its text when captured while unmarshalling,
+   * see {@link PlanitXmlStreamParser#setCapturedTextElement(javax.xml.namespace.QName)}, rather than from the (boxed) JAXB value.
+   * Its dimension is taken from its srsDimension, or that of the line string, and defaults to two
    * 
    * @param generatedLink XML link
+   * @param posListText text of the gml:posList of the line string, null when not captured
    * @return created LineString if any, null if not present
    */
-  public static LineString parseLinkGeometry(org.goplanit.xml.generated.XMLElementLinks.Link generatedLink) {
+  public static LineString parseLinkGeometry(org.goplanit.xml.generated.XMLElementLinks.Link generatedLink, CharSequence posListText) {
     /* geometry of link */
     if(generatedLink.getLineString()!=null) {
       LineStringType lst = generatedLink.getLineString();
       if(lst.getCoordinates() != null) {
-        return PlanitJtsUtils.createLineStringFromCsvString(lst.getCoordinates().getValue(), lst.getCoordinates().getTs(), lst.getCoordinates().getCs());
+        return GmlCoordinateParser.createLineString(GmlCoordinateParser.createPackedCoordinateSequence(
+            lst.getCoordinates().getValue(), lst.getCoordinates().getTs(), lst.getCoordinates().getCs()));
       }else if(lst.getPosList()!=null) {
-        return PlanitJtsUtils.createLineString(lst.getPosList().getValue());
+        return GmlCoordinateParser.createLineString(createPackedCoordinateSequence(lst.getPosList(), posListText, lst));
       }
     }
     return null;    
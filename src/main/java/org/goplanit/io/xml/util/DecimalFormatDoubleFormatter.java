@@ -0,0 +1,45 @@
+package org.goplanit.io.xml.util;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Formats doubles with a {@link DecimalFormat}, used when the decimal format has properties the fixed precision formatter does not support, e.g.,
+ * grouping, a minimum number of fraction digits or a rounding mode other than half even. A decimal format is not thread safe, so each thread
+ * formats with its own copy of the decimal format provided upon construction.
+ *
+ * @author markr
+ *
+ */
+class DecimalFormatDoubleFormatter implements PlanitDoubleFormatter {
+
+  /** copy of the decimal format per thread */
+  private final ThreadLocal<DecimalFormat> decimalFormats;
+
+  /**
+   * Constructor
+   *
+   * @param decimalFormat to format with, copied so later changes to it are not reflected
+   * @param decimalSeparator to use, replaces the decimal separator of the decimal format
+   */
+  DecimalFormatDoubleFormatter(final DecimalFormat decimalFormat, char decimalSeparator) {
+    final DecimalFormat template = (DecimalFormat) decimalFormat.clone();
+    final DecimalFormatSymbols symbols = template.getDecimalFormatSymbols();
+    symbols.setDecimalSeparator(decimalSeparator);
+    symbols.setMonetaryDecimalSeparator(decimalSeparator);
+    template.setDecimalFormatSymbols(symbols);
+    this.decimalFormats = ThreadLocal.withInitial(() -> (DecimalFormat) template.clone());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void appendTo(double value, final StringBuilder target) {
+    if(!Double.isFinite(value)) {
+      target.append(value);
+      return;
+    }
+    target.append(decimalFormats.get().format(value));
+  }
+}
@@ -0,0 +1,205 @@
+package org.goplanit.io.xml.util;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Tokenizes separator delimited double values from chunks of characters, for example as provided by a StAX reader for
+ * (large) text nodes. Tokens may span multiple chunks. Values are parsed without creating intermediate strings for the common case of
+ * plain decimal notation, the (rare) remaining cases fall back on {@link Double#parseDouble(String)}. Parsed values are pushed
+ * to the registered consumer together with their (zero based) position in the sequence.
+ * <p>
+ * Not thread safe, use one instance per thread.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class DelimitedDoubleTokenizer implements PlanitXmlStreamParser.CharacterChunkConsumer {
+
+  /**
+   * Consumer of parsed values
+   */
+  @FunctionalInterface
+  public interface IndexedDoubleConsumer {
+
+    /** Consume parsed value
+     *
+     * @param index position of the value in the sequence
+     * @param value parsed
+     */
+    void accept(int index, double value);
+  }
+
+  /** powers of ten that are exactly representable as a double */
+  private static final double[] EXACT_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  /** largest mantissa that is exactly representable as a double */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /** maximum length of a single token */
+  private static final int MAX_TOKEN_LENGTH = 64;
+
+  /** separator between values */
+  private final char separator;
+
+  /** consumer of the parsed values */
+  private IndexedDoubleConsumer consumer;
+
+  /** token characters collected so far (tokens may span chunks) */
+  private final char[] token = new char[MAX_TOKEN_LENGTH];
+
+  /** length of the current token */
+  private int tokenLength;
+
+  /** number of values parsed so far */
+  private int count;
+
+  /** true when whitespace followed the characters of the current token, i.e., the token may not continue */
+  private boolean tokenEnded;
+
+  /** number of empty values since the last non-empty value, only allowed at the end of the sequence */
+  private int emptyTokens;
+
+  /**
+   * Parse token collected so far, if it is not empty
+   */
+  private void completeToken() {
+    if(tokenLength == 0) {
+      return;
+    }
+    consumer.accept(count++, parseDouble(token, tokenLength));
+    tokenLength = 0;
+    tokenEnded = false;
+  }
+
+  /**
+   * Append a (non-whitespace, non-separator) character to the current token
+   *
+   * @param c to append
+   */
+  private void appendToToken(char c) {
+    if(emptyTokens > 0) {
+      throw new PlanItRunTimeException(String.format("Empty value found at position %d, values must not be empty", count));
+    }
+    if(tokenEnded) {
+      throw new PlanItRunTimeException(String.format("Value %s followed by %s without separator, whitespace is not allowed within a value", 
+          new String(token, 0, tokenLength), c));
+    }
+    if(tokenLength == MAX_TOKEN_LENGTH) {
+      throw new PlanItRunTimeException(String.format("Value %s... exceeds maximum length of a number", new String(token, 0, tokenLength)));
+    }
+    token[tokenLength++] = c;
+  }
+
+  /**
+   * Parse a double from the given characters. Plain decimal values with at most 15 significant digits are parsed directly,
+   * which is exact because both the mantissa and the power of ten are exactly representable. All other cases are
+   * delegated to {@link Double#parseDouble(String)}
+   *
+   * @param chars to parse
+   * @param length number of characters to parse
+   * @return parsed value
+   */
+  public static double parseDouble(final char[] chars, final int length) {
+    int index = 0;
+    boolean negative = false;
+    if(chars[0] == '-' || chars[0] == '+') {
+      negative = chars[0] == '-';
+      ++index;
+    }
+
+    long mantissa = 0;
+    int fractionDigits = 0;
+    int digits = 0;
+    boolean fraction = false;
+    for(; index < length; ++index) {
+      char c = chars[index];
+      if(c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        ++digits;
+        if(fraction) {
+          ++fractionDigits;
+        }
+      }else if(c == '.' && !fraction) {
+        fraction = true;
+      }else {
+        /* exponent, special values etc. */
+        break;
+      }
+    }
+
+    if(index < length || digits == 0 || digits > 15 || mantissa >= MAX_EXACT_MANTISSA || fractionDigits >= EXACT_POWERS_OF_TEN.length) {
+      try {
+        return Double.parseDouble(new String(chars, 0, length));
+      }catch(NumberFormatException e) {
+        throw new PlanItRunTimeException(String.format("Unable to parse %s as a number", new String(chars, 0, length)), e);
+      }
+    }
+
+    double value = fractionDigits == 0 ? mantissa : mantissa / EXACT_POWERS_OF_TEN[fractionDigits];
+    return negative ? -value : value;
+  }
+
+  /** Constructor
+   *
+   * @param separator between values
+   * @param consumer of the parsed values
+   */
+  public DelimitedDoubleTokenizer(final char separator, final IndexedDoubleConsumer consumer) {
+    this.separator = separator;
+    this.consumer = consumer;
+  }
+
+  /**
+   * Reset the tokenizer such that a new sequence can be parsed with the same consumer
+   */
+  public void reset() {
+    reset(consumer);
+  }
+
+  /**
+   * Reset the tokenizer such that a new sequence can be parsed
+   *
+   * @param consumer to use for the new sequence
+   */
+  public void reset(final IndexedDoubleConsumer consumer) {
+    this.consumer = consumer;
+    this.tokenLength = 0;
+    this.count = 0;
+    this.tokenEnded = false;
+    this.emptyTokens = 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void accept(final char[] chars, final int start, final int length) {
+    final int end = start + length;
+    for(int index = start; index < end; ++index) {
+      char c = chars[index];
+      if(c == separator) {
+        if(tokenLength == 0) {
+          ++emptyTokens;
+        }
+        completeToken();
+      }else if(Character.isWhitespace(c)) {
+        tokenEnded = tokenLength > 0;
+      }else {
+        appendToToken(c);
+      }
+    }
+  }
+
+  /**
+   * Complete the sequence, i.e., parse any remaining token. Trailing empty values are ignored
+   *
+   * @return number of values parsed in this sequence
+   */
+  public int complete() {
+    completeToken();
+    return count;
+  }
+
+}
@@ -0,0 +1,110 @@
+package org.goplanit.io.xml.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Formats doubles rounded to a maximum number of fraction digits (half even, as {@link java.text.DecimalFormat}) without trailing zeros or
+ * grouping. Values are scaled and rounded to a long and its digits are appended directly, only values too large to be represented exactly
+ * after scaling, or too close to a tie to be rounded reliably after scaling, fall back on {@link BigDecimal}.
+ *
+ * @author markr
+ *
+ */
+class FixedPrecisionDoubleFormatter implements PlanitDoubleFormatter {
+
+  /** maximum supported number of fraction digits */
+  static final int MAX_FRACTION_DIGITS = 17;
+
+  /** powers of ten that fit in a long */
+  private static final long[] POWERS_OF_TEN = {
+      1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L,
+      10000000000000L, 100000000000000L, 1000000000000000L, 10000000000000000L, 100000000000000000L};
+
+  /** largest scaled value that is exactly representable as a long after rounding */
+  private static final double MAX_EXACT_SCALED_VALUE = 1L << 53;
+
+  /** number of fraction digits to round to */
+  private final int maximumFractionDigits;
+
+  /** decimal separator to use */
+  private final char decimalSeparator;
+
+  /** 10 to the power of maximumFractionDigits */
+  private final long scale;
+
+  /**
+   * Append the value via BigDecimal, rounding its exact binary value, used when the scaled value cannot be rounded reliably
+   *
+   * @param value to format
+   * @param target to append to
+   */
+  private void appendViaBigDecimal(double value, final StringBuilder target) {
+    BigDecimal rounded = new BigDecimal(value).setScale(maximumFractionDigits, RoundingMode.HALF_EVEN).stripTrailingZeros();
+    if(rounded.signum() == 0) {
+      target.append('0');
+      return;
+    }
+    String plain = rounded.toPlainString();
+    target.append(decimalSeparator == '.' ? plain : plain.replace('.', decimalSeparator));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maximumFractionDigits to round to
+   * @param decimalSeparator to use
+   */
+  FixedPrecisionDoubleFormatter(int maximumFractionDigits, char decimalSeparator) {
+    PlanItRunTimeException.throwIf(maximumFractionDigits < 0 || maximumFractionDigits > MAX_FRACTION_DIGITS,
+        "Maximum fraction digits must be between 0 and %d, found %d", MAX_FRACTION_DIGITS, maximumFractionDigits);
+    this.maximumFractionDigits = maximumFractionDigits;
+    this.decimalSeparator = decimalSeparator;
+    this.scale = POWERS_OF_TEN[maximumFractionDigits];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void appendTo(double value, final StringBuilder target) {
+    if(!Double.isFinite(value)) {
+      target.append(value);
+      return;
+    }
+
+    /* scaling may introduce rounding errors, so values (too) close to a tie are rounded exactly instead */
+    double scaledValue = Math.abs(value) * scale;
+    if(scaledValue >= MAX_EXACT_SCALED_VALUE || Math.abs(scaledValue - Math.floor(scaledValue) - 0.5) <= 2 * Math.ulp(scaledValue)) {
+      appendViaBigDecimal(value, target);
+      return;
+    }
+
+    long rounded = (long) Math.rint(scaledValue);
+    if(rounded == 0) {
+      target.append('0');
+      return;
+    }
+    if(value < 0) {
+      target.append('-');
+    }
+    target.append(rounded / scale);
+
+    long fraction = rounded % scale;
+    if(fraction == 0) {
+      return;
+    }
+    int fractionDigits = maximumFractionDigits;
+    while(fraction % 10 == 0) {
+      fraction /= 10;
+      --fractionDigits;
+    }
+    target.append(decimalSeparator);
+    for(long power = POWERS_OF_TEN[fractionDigits - 1]; power > fraction; power /= 10) {
+      target.append('0');
+    }
+    target.append(fraction);
+  }
+}
@@ -0,0 +1,205 @@
+package org.goplanit.io.xml.util;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.geo.PlanitJtsUtils;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Parse GML coordinates (gml:posList and gml:coordinates) straight into packed coordinate sequences, i.e., a single {@code double[]} per geometry,
+ * instead of creating a {@code Coordinate} object per vertex. Textual coordinates are parsed character by character without splitting them into
+ * intermediate strings.
+ *
+ * @author markr
+ *
+ */
+public final class GmlCoordinateParser {
+
+  /** default tuple separator of gml:coordinates */
+  public static final char DEFAULT_TUPLE_SEPARATOR = ' ';
+
+  /** default coordinate separator of gml:coordinates */
+  public static final char DEFAULT_COORDINATE_SEPARATOR = ',';
+
+  /** dimension of gml:posList when not explicitly specified */
+  public static final int DEFAULT_DIMENSION = 2;
+
+  /** maximum length of a single ordinate */
+  private static final int MAX_TOKEN_LENGTH = 64;
+
+  /** geometry factory creating geometries backed by packed coordinate sequences */
+  public static final GeometryFactory PACKED_GEOMETRY_FACTORY = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+  /** Constructor, not to be instantiated */
+  private GmlCoordinateParser() {
+  }
+
+  /**
+   * Extract single character separator
+   *
+   * @param separator as provided, may be null
+   * @param defaultSeparator to use when null
+   * @return separator, null when separator consists of more than one character
+   */
+  private static Character toSeparatorChar(final String separator, final char defaultSeparator) {
+    if(separator == null || separator.isEmpty()) {
+      return defaultSeparator;
+    }
+    return separator.length() == 1 ? separator.charAt(0) : null;
+  }
+
+  /**
+   * Dimension of a gml:posList. Its own srsDimension takes precedence over the srsDimension of the enclosing geometry, when neither is set the
+   * {@link #DEFAULT_DIMENSION} applies
+   *
+   * @param posListSrsDimension srsDimension attribute of the gml:posList, may be null
+   * @param geometrySrsDimension srsDimension attribute of the enclosing geometry, may be null
+   * @return dimension to use
+   */
+  public static int getDimension(final BigInteger posListSrsDimension, final BigInteger geometrySrsDimension) {
+    final BigInteger srsDimension = posListSrsDimension != null ? posListSrsDimension : geometrySrsDimension;
+    if(srsDimension == null) {
+      return DEFAULT_DIMENSION;
+    }
+    PlanItRunTimeException.throwIf(srsDimension.signum() <= 0 || srsDimension.bitLength() >= Integer.SIZE, "Invalid srsDimension %s", srsDimension);
+    return srsDimension.intValue();
+  }
+
+  /**
+   * Create a packed coordinate sequence from the text of a gml:posList element, e.g. "x1 y1 x2 y2". Ordinates are whitespace separated and ordered
+   * per position, they are parsed straight into the packed array without boxing or intermediate strings
+   *
+   * @param posList text to parse
+   * @param dimension number of ordinates per position, see {@link #getDimension(BigInteger, BigInteger)}
+   * @return packed coordinate sequence
+   */
+  public static PackedCoordinateSequence.Double createPackedCoordinateSequence(final CharSequence posList, final int dimension) {
+    double[] packed = new double[Math.max(dimension, posList.length() / 8)];
+    int numberOfOrdinates = 0;
+
+    final char[] token = new char[MAX_TOKEN_LENGTH];
+    int tokenLength = 0;
+    final int length = posList.length();
+    for(int index = 0; index <= length; ++index) {
+      final char c = index < length ? posList.charAt(index) : ' ';
+      if(!Character.isWhitespace(c)) {
+        PlanItRunTimeException.throwIf(tokenLength == MAX_TOKEN_LENGTH, "Ordinate %s... exceeds maximum length of a number", new String(token, 0, tokenLength));
+        token[tokenLength++] = c;
+        continue;
+      }
+
+      /* ordinate complete */
+      if(tokenLength > 0) {
+        if(numberOfOrdinates == packed.length) {
+          packed = Arrays.copyOf(packed, packed.length * 2);
+        }
+        packed[numberOfOrdinates++] = DelimitedDoubleTokenizer.parseDouble(token, tokenLength);
+        tokenLength = 0;
+      }
+    }
+
+    PlanItRunTimeException.throwIf(numberOfOrdinates == 0, "No ordinates found in position list");
+    PlanItRunTimeException.throwIf(numberOfOrdinates % dimension != 0, "Number of ordinates (%d) in position list is not a multiple of its dimension (%d)", numberOfOrdinates, dimension);
+    return (PackedCoordinateSequence.Double) PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(
+        numberOfOrdinates == packed.length ? packed : Arrays.copyOf(packed, numberOfOrdinates), dimension);
+  }
+
+  /**
+   * Create a packed coordinate sequence from a gml:posList that was already unmarshalled by JAXB, i.e., its text is no longer available. Prefer
+   * {@link #createPackedCoordinateSequence(CharSequence, int)} where possible, which avoids the boxed values altogether
+   *
+   * @param posList ordinates of all positions, ordered per position
+   * @param dimension number of ordinates per position, see {@link #getDimension(BigInteger, BigInteger)}
+   * @return packed coordinate sequence
+   */
+  public static PackedCoordinateSequence.Double createPackedCoordinateSequence(final List<Double> posList, final int dimension) {
+    PlanItRunTimeException.throwIf(posList.isEmpty(), "No ordinates found in position list");
+    PlanItRunTimeException.throwIf(posList.size() % dimension != 0, "Number of ordinates (%d) in position list is not a multiple of its dimension (%d)", posList.size(), dimension);
+    final double[] packed = new double[posList.size()];
+    int index = 0;
+    for(double ordinate : posList) {
+      packed[index++] = ordinate;
+    }
+    return (PackedCoordinateSequence.Double) PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(packed, dimension);
+  }
+
+  /**
+   * Create a packed coordinate sequence from the text of a gml:coordinates element, e.g. "x1,y1 x2,y2". The dimension is derived from the first tuple,
+   * all other tuples are required to have the same dimension
+   *
+   * @param coordinates text to parse
+   * @param tupleSeparator separator between tuples, default (space) when null
+   * @param coordinateSeparator separator between ordinates within a tuple, default (comma) when null
+   * @return packed coordinate sequence
+   */
+  public static PackedCoordinateSequence.Double createPackedCoordinateSequence(final String coordinates, final String tupleSeparator, final String coordinateSeparator) {
+    final Character ts = toSeparatorChar(tupleSeparator, DEFAULT_TUPLE_SEPARATOR);
+    final Character cs = toSeparatorChar(coordinateSeparator, DEFAULT_COORDINATE_SEPARATOR);
+    if(ts == null || cs == null) {
+      /* multi character separators are rare, use generic parsing and pack afterwards */
+      LineString lineString = PlanitJtsUtils.createLineStringFromCsvString(coordinates, tupleSeparator, coordinateSeparator);
+      return (PackedCoordinateSequence.Double) PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(lineString.getCoordinateSequence());
+    }
+    final boolean whitespaceTupleSeparator = Character.isWhitespace(ts);
+
+    double[] packed = new double[Math.max(DEFAULT_DIMENSION, coordinates.length() / 8)];
+    int numberOfOrdinates = 0;
+    int dimension = 0;
+    int ordinatesInTuple = 0;
+
+    final char[] token = new char[MAX_TOKEN_LENGTH];
+    int tokenLength = 0;
+    final int length = coordinates.length();
+    for(int index = 0; index <= length; ++index) {
+      final char c = index < length ? coordinates.charAt(index) : ts;
+      final boolean tupleEnd = c == ts || (whitespaceTupleSeparator && Character.isWhitespace(c));
+      if(!tupleEnd && c != cs) {
+        if(!Character.isWhitespace(c)) {
+          PlanItRunTimeException.throwIf(tokenLength == MAX_TOKEN_LENGTH, "Ordinate %s... exceeds maximum length of a number", new String(token, 0, tokenLength));
+          token[tokenLength++] = c;
+        }
+        continue;
+      }
+
+      /* ordinate complete */
+      if(tokenLength > 0) {
+        if(numberOfOrdinates == packed.length) {
+          packed = Arrays.copyOf(packed, packed.length * 2);
+        }
+        packed[numberOfOrdinates++] = DelimitedDoubleTokenizer.parseDouble(token, tokenLength);
+        ++ordinatesInTuple;
+        tokenLength = 0;
+      }
+
+      /* tuple complete */
+      if(tupleEnd && ordinatesInTuple > 0) {
+        if(dimension == 0) {
+          dimension = ordinatesInTuple;
+        }
+        PlanItRunTimeException.throwIf(ordinatesInTuple != dimension, "Inconsistent dimension of coordinates, expected %d ordinates but found %d", dimension, ordinatesInTuple);
+        ordinatesInTuple = 0;
+      }
+    }
+
+    PlanItRunTimeException.throwIf(dimension == 0, "No coordinates found in %s", coordinates);
+    return (PackedCoordinateSequence.Double) PackedCoordinateSequenceFactory.DOUBLE_FACTORY.create(
+        numberOfOrdinates == packed.length ? packed : Arrays.copyOf(packed, numberOfOrdinates), dimension);
+  }
+
+  /**
+   * Create a line string backed by the given coordinate sequence
+   *
+   * @param coordinateSequence to use
+   * @return line string
+   */
+  public static LineString createLineString(final CoordinateSequence coordinateSequence) {
+    return PACKED_GEOMETRY_FACTORY.createLineString(coordinateSequence);
+  }
+}
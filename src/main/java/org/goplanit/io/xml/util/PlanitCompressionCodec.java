@@ -0,0 +1,211 @@
+package org.goplanit.io.xml.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Compression codecs supported for PLANit XML inputs and outputs and CSV results. Reading is transparent: the codec of a file is detected
+ * from its leading (magic) bytes, so compressed and uncompressed files can be mixed regardless of their extension. When writing, the codec
+ * suffix is appended to the file name, e.g. {@code network.xml.gz}.
+ * <p>
+ * GZIP is provided by the JDK. ZSTD requires the optional zstd-jni library on the classpath, its classes are only resolved when ZSTD is used,
+ * so it is not a mandatory dependency.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public enum PlanitCompressionCodec {
+
+  /** no compression */
+  NONE("", 0),
+
+  /** gzip (deflate) compression, levels 1 (fastest) to 9 (smallest) */
+  GZIP(".gz", 6),
+
+  /** Zstandard compression, levels 1 (fastest) to 22 (smallest), requires zstd-jni */
+  ZSTD(".zst", 3);
+
+  /** buffer size used for (de)compressing streams */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** message when ZSTD is used without zstd-jni on the classpath */
+  private static final String ZSTD_NOT_AVAILABLE = "ZSTD compression requires zstd-jni (com.github.luben:zstd-jni) on the classpath";
+
+  /** file name suffix of codec */
+  private final String fileSuffix;
+
+  /** default compression level of codec */
+  private final int defaultLevel;
+
+  /**
+   * Constructor
+   *
+   * @param fileSuffix to use
+   * @param defaultLevel to use
+   */
+  private PlanitCompressionCodec(final String fileSuffix, final int defaultLevel) {
+    this.fileSuffix = fileSuffix;
+    this.defaultLevel = defaultLevel;
+  }
+
+  /**
+   * Create ZSTD compressing stream
+   *
+   * @param outputStream to wrap
+   * @param level compression level
+   * @return created stream
+   * @throws IOException thrown if error
+   */
+  private static OutputStream createZstdOutputStream(final OutputStream outputStream, final int level) throws IOException {
+    try {
+      return new ZstdOutputStream(outputStream, level);
+    }catch(NoClassDefFoundError | UnsatisfiedLinkError e) {
+      throw new PlanItRunTimeException(ZSTD_NOT_AVAILABLE, e);
+    }
+  }
+
+  /**
+   * Create ZSTD decompressing stream
+   *
+   * @param inputStream to wrap
+   * @return created stream
+   * @throws IOException thrown if error
+   */
+  private static InputStream createZstdInputStream(final InputStream inputStream) throws IOException {
+    try {
+      return new ZstdInputStream(inputStream);
+    }catch(NoClassDefFoundError | UnsatisfiedLinkError e) {
+      throw new PlanItRunTimeException(ZSTD_NOT_AVAILABLE, e);
+    }
+  }
+
+  /**
+   * Detect the codec from the leading bytes of a stream, the stream is reset afterwards
+   *
+   * @param inputStream supporting mark and reset
+   * @return detected codec, NONE when not compressed (or unknown)
+   * @throws IOException thrown if error
+   */
+  private static PlanitCompressionCodec detect(final InputStream inputStream) throws IOException {
+    inputStream.mark(4);
+    byte[] magic = new byte[4];
+    int read = inputStream.readNBytes(magic, 0, magic.length);
+    inputStream.reset();
+    if(read >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+      return GZIP;
+    }
+    if(read == 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5 && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+      return ZSTD;
+    }
+    return NONE;
+  }
+
+  /**
+   * File name suffix of this codec, empty for NONE
+   *
+   * @return suffix
+   */
+  public String getFileSuffix() {
+    return fileSuffix;
+  }
+
+  /**
+   * Default compression level of this codec
+   *
+   * @return default level
+   */
+  public int getDefaultLevel() {
+    return defaultLevel;
+  }
+
+  /**
+   * Append the suffix of this codec to the given file name, unless already present
+   *
+   * @param fileName to append to
+   * @return file name with suffix
+   */
+  public String appendFileSuffix(final String fileName) {
+    return fileName.endsWith(fileSuffix) ? fileName : fileName + fileSuffix;
+  }
+
+  /**
+   * Wrap the output stream such that all written data is compressed with this codec
+   *
+   * @param outputStream to wrap, closed when the returned stream is closed
+   * @param level compression level, a negative level uses the default level of the codec
+   * @return compressing stream
+   * @throws IOException thrown if error
+   */
+  public OutputStream wrap(final OutputStream outputStream, final int level) throws IOException {
+    final int effectiveLevel = level < 0 ? defaultLevel : level;
+    switch (this) {
+    case GZIP:
+      return new GZIPOutputStream(outputStream, BUFFER_SIZE) {
+        {
+          def.setLevel(Math.min(effectiveLevel, Deflater.BEST_COMPRESSION));
+        }
+      };
+    case ZSTD:
+      return createZstdOutputStream(outputStream, effectiveLevel);
+    default:
+      return outputStream;
+    }
+  }
+
+  /**
+   * Open a buffered output stream on the given file, compressed with this codec. The file name is used as is, see {@link #appendFileSuffix(String)}
+   *
+   * @param file to open, created or truncated
+   * @param level compression level, a negative level uses the default level of the codec
+   * @return opened stream
+   * @throws IOException thrown if error
+   */
+  public OutputStream openOutputStream(final Path file, final int level) throws IOException {
+    final OutputStream fileStream = Files.newOutputStream(file);
+    try {
+      return new BufferedOutputStream(wrap(fileStream, level), BUFFER_SIZE);
+    }catch(IOException | RuntimeException e) {
+      fileStream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Open an input stream on the given file, decompressing it when it is compressed with one of the supported codecs
+   *
+   * @param file to open
+   * @return opened (buffered) stream
+   * @throws IOException thrown if error
+   */
+  public static InputStream openInputStream(final File file) throws IOException {
+    final InputStream bufferedFileStream = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+    try {
+      switch (detect(bufferedFileStream)) {
+      case GZIP:
+        return new BufferedInputStream(new GZIPInputStream(bufferedFileStream, BUFFER_SIZE), BUFFER_SIZE);
+      case ZSTD:
+        return new BufferedInputStream(createZstdInputStream(bufferedFileStream), BUFFER_SIZE);
+      default:
+        return bufferedFileStream;
+      }
+    }catch(IOException | RuntimeException e) {
+      bufferedFileStream.close();
+      throw e;
+    }
+  }
+}
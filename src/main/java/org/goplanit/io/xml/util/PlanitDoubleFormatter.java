@@ -0,0 +1,87 @@
+package org.goplanit.io.xml.util;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+
+/**
+ * Formats double values when persisting, as a faster alternative to {@link java.text.DecimalFormat}. Values are appended to a caller
+ * provided buffer, so a single buffer can be reused for many values. Implementations are immutable and therefore thread safe, so a
+ * single instance can be shared across writers and threads.
+ * <p>
+ * Non-finite values are persisted as {@code NaN}, {@code Infinity} and {@code -Infinity} such that they can be parsed again.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public interface PlanitDoubleFormatter {
+
+  /**
+   * Append the formatted value
+   *
+   * @param value to format
+   * @param target to append to
+   */
+  public void appendTo(double value, StringBuilder target);
+
+  /**
+   * Format the value
+   *
+   * @param value to format
+   * @return formatted value
+   */
+  public default String format(double value) {
+    StringBuilder sb = new StringBuilder(24);
+    appendTo(value, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Create formatter that rounds to a maximum number of fraction digits and omits trailing zeros, similar to a {@link java.text.DecimalFormat}
+   * without grouping
+   *
+   * @param maximumFractionDigits to round to, between 0 and 17
+   * @param decimalSeparator to use
+   * @return created formatter
+   */
+  public static PlanitDoubleFormatter fixedPrecision(int maximumFractionDigits, char decimalSeparator) {
+    return new FixedPrecisionDoubleFormatter(maximumFractionDigits, decimalSeparator);
+  }
+
+  /**
+   * Create formatter equivalent to the given decimal format. When the decimal format only limits the number of fraction digits, i.e., it rounds
+   * half even without grouping, minimum fraction digits, affixes or exponent, the (faster) fixed precision formatter is used, otherwise the
+   * values are formatted by (a copy of) the decimal format itself
+   *
+   * @param decimalFormat to derive the formatter from
+   * @param decimalSeparator to use
+   * @return created formatter
+   */
+  public static PlanitDoubleFormatter of(final DecimalFormat decimalFormat, char decimalSeparator) {
+    boolean fixedPrecision = decimalFormat.getRoundingMode() == RoundingMode.HALF_EVEN
+        && !decimalFormat.isGroupingUsed()
+        && decimalFormat.getMinimumFractionDigits() == 0
+        && decimalFormat.getMaximumFractionDigits() <= FixedPrecisionDoubleFormatter.MAX_FRACTION_DIGITS
+        && decimalFormat.getMinimumIntegerDigits() == 1
+        && decimalFormat.getMaximumIntegerDigits() >= Double.MAX_EXPONENT
+        && decimalFormat.getMultiplier() == 1
+        && decimalFormat.getPositivePrefix().isEmpty() && decimalFormat.getPositiveSuffix().isEmpty()
+        && decimalFormat.getNegativePrefix().equals("-") && decimalFormat.getNegativeSuffix().isEmpty()
+        && decimalFormat.toPattern().indexOf('E') < 0;
+    if(fixedPrecision) {
+      return fixedPrecision(decimalFormat.getMaximumFractionDigits(), decimalSeparator);
+    }
+    return new DecimalFormatDoubleFormatter(decimalFormat, decimalSeparator);
+  }
+
+  /**
+   * Create formatter that persists the shortest representation that parses to the same value (as {@link Double#toString(double)}), i.e.,
+   * without loss of precision
+   *
+   * @param decimalSeparator to use
+   * @return created formatter
+   */
+  public static PlanitDoubleFormatter shortestRoundTrip(char decimalSeparator) {
+    return new ShortestRoundTripDoubleFormatter(decimalSeparator);
+  }
+}
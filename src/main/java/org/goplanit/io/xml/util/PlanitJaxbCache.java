@@ -0,0 +1,294 @@
+package org.goplanit.io.xml.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * Process wide, thread safe cache of JAXB contexts (per root element class), compiled XSD schemas (per schema location) and pooled
+ * (un)marshallers. Creating a JAXB context and compiling a schema are by far the most expensive steps when reading or writing small PLANit
+ * XML files, so these are done at most once per process. Contexts and schemas are thread safe and shared, (un)marshallers are not and are
+ * therefore borrowed from a pool for the duration of a single call and returned afterwards.
+ *
+ * @author markr
+ *
+ */
+public final class PlanitJaxbCache {
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitJaxbCache.class.getCanonicalName());
+
+  /** JAXB contexts by root element class */
+  private static final Map<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+
+  /** compiled schemas by schema location */
+  private static final Map<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
+  /** idle unmarshallers by root element class */
+  private static final Map<Class<?>, Queue<Unmarshaller>> UNMARSHALLERS = new ConcurrentHashMap<>();
+
+  /** idle marshallers by root element class */
+  private static final Map<Class<?>, Queue<Marshaller>> MARSHALLERS = new ConcurrentHashMap<>();
+
+  /** Constructor, not to be instantiated */
+  private PlanitJaxbCache() {
+  }
+
+  /**
+   * Create JAXB context for the given root element class
+   *
+   * @param rootElementClazz to create context for
+   * @return created context
+   */
+  private static JAXBContext createContext(final Class<?> rootElementClazz) {
+    try {
+      LOGGER.fine(String.format("Creating JAXB context for %s", rootElementClazz.getSimpleName()));
+      return JAXBContext.newInstance(rootElementClazz);
+    }catch(JAXBException e) {
+      throw new PlanItRunTimeException(String.format("Unable to create JAXB context for %s", rootElementClazz.getSimpleName()), e);
+    }
+  }
+
+  /**
+   * Compile the schema at the given location, either a URL or a local file. Schemas bundled on the classpath (see {@link PlanitSchemaCatalog})
+   * are used in favour of their remote location, including any schemas they import
+   *
+   * @param schemaLocation to compile
+   * @return compiled schema
+   */
+  private static Schema createSchema(final String schemaLocation) {
+    try {
+      final String resolvedSchemaLocation = PlanitSchemaCatalog.resolve(schemaLocation);
+      LOGGER.fine(String.format("Compiling XML schema %s", resolvedSchemaLocation));
+      /* schema factories are not thread safe, so one per compilation */
+      SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+      schemaFactory.setResourceResolver(PlanitSchemaCatalog.createResourceResolver());
+      URL schemaUrl;
+      try {
+        schemaUrl = new URL(resolvedSchemaLocation);
+      }catch(MalformedURLException e) {
+        schemaUrl = new File(resolvedSchemaLocation).toURI().toURL();
+      }
+      return schemaFactory.newSchema(schemaUrl);
+    }catch(Exception e) {
+      throw new PlanItRunTimeException(String.format("Unable to compile XML schema %s", schemaLocation), e);
+    }
+  }
+
+  /**
+   * Borrow an unmarshaller for the given root element class from the pool, or create one when none is idle
+   *
+   * @param rootElementClazz to borrow unmarshaller for
+   * @return unmarshaller
+   * @throws JAXBException thrown if error
+   */
+  private static Unmarshaller borrowUnmarshaller(final Class<?> rootElementClazz) throws JAXBException {
+    Unmarshaller unmarshaller = UNMARSHALLERS.computeIfAbsent(rootElementClazz, c -> new ConcurrentLinkedQueue<>()).poll();
+    return unmarshaller != null ? unmarshaller : getContext(rootElementClazz).createUnmarshaller();
+  }
+
+  /**
+   * Borrow a marshaller for the given root element class from the pool, or create one when none is idle
+   *
+   * @param rootElementClazz to borrow marshaller for
+   * @return marshaller
+   * @throws JAXBException thrown if error
+   */
+  private static Marshaller borrowMarshaller(final Class<?> rootElementClazz) throws JAXBException {
+    Marshaller marshaller = MARSHALLERS.computeIfAbsent(rootElementClazz, c -> new ConcurrentLinkedQueue<>()).poll();
+    return marshaller != null ? marshaller : getContext(rootElementClazz).createMarshaller();
+  }
+
+  /**
+   * Collect the (shared) JAXB context for the given root element class, created on first use
+   *
+   * @param rootElementClazz to collect context for
+   * @return JAXB context
+   */
+  public static JAXBContext getContext(final Class<?> rootElementClazz) {
+    PlanItRunTimeException.throwIfNull(rootElementClazz, "Root element class for JAXB context is not provided");
+    return CONTEXTS.computeIfAbsent(rootElementClazz, PlanitJaxbCache::createContext);
+  }
+
+  /**
+   * Collect the (shared) compiled schema for the given schema location, compiled on first use
+   *
+   * @param schemaLocation URL or file location of the XSD
+   * @return compiled schema
+   */
+  public static Schema getSchema(final String schemaLocation) {
+    PlanItRunTimeException.throwIfNull(schemaLocation, "Schema location is not provided");
+    return SCHEMAS.computeIfAbsent(schemaLocation, PlanitJaxbCache::createSchema);
+  }
+
+  /**
+   * Collect the (shared) compiled schema for one of the PLANit schemas, e.g. {@link PlanitSchema#MACROSCOPIC_NETWORK_XSD}, at its published location,
+   * see {@link PlanitSchema#createPlanitSchemaUri(String)}
+   *
+   * @param planitSchemaName XSD file name of the schema
+   * @return compiled schema
+   */
+  public static Schema getPlanitSchema(final String planitSchemaName) {
+    return getSchema(PlanitSchema.createPlanitSchemaUri(planitSchemaName));
+  }
+
+  /**
+   * Unmarshal the given file into the given root element class using a pooled unmarshaller. Compressed files are decompressed transparently,
+   * see {@link PlanitCompressionCodec}
+   *
+   * @param <R> type of root element
+   * @param rootElementClazz of root element
+   * @param xmlFile to unmarshal
+   * @return unmarshalled root element
+   * @throws JAXBException thrown if file cannot be unmarshalled into the root element class
+   */
+  public static <R> R unmarshal(final Class<R> rootElementClazz, final File xmlFile) throws JAXBException {
+    Unmarshaller unmarshaller = borrowUnmarshaller(rootElementClazz);
+    try(InputStream inputStream = PlanitCompressionCodec.openInputStream(xmlFile)) {
+      Object result = unmarshaller.unmarshal(new StreamSource(inputStream, xmlFile.toURI().toString()));
+      if(result instanceof JAXBElement) {
+        result = ((JAXBElement<?>) result).getValue();
+      }
+      if(!rootElementClazz.isInstance(result)) {
+        throw new JAXBException(String.format("Root element of %s is not of type %s", xmlFile, rootElementClazz.getSimpleName()));
+      }
+      return rootElementClazz.cast(result);
+    }catch(IOException e) {
+      throw new JAXBException(String.format("Unable to read %s", xmlFile), e);
+    }finally {
+      UNMARSHALLERS.computeIfAbsent(rootElementClazz, c -> new ConcurrentLinkedQueue<>()).offer(unmarshaller);
+    }
+  }
+
+  /**
+   * Marshal the given root element to file using a pooled marshaller, overwriting the file if it exists
+   *
+   * @param xmlRootElement to marshal
+   * @param rootElementClazz class of the root element
+   * @param xmlFilePath to marshal to
+   * @param schemaLocationUri to reference in the file as schema location, ignored if null
+   * @throws Exception thrown if error
+   */
+  public static void marshal(final Object xmlRootElement, final Class<?> rootElementClazz, final Path xmlFilePath, final String schemaLocationUri) throws Exception {
+    marshal(xmlRootElement, rootElementClazz, xmlFilePath, schemaLocationUri, PlanitCompressionCodec.NONE, -1);
+  }
+
+  /**
+   * Marshal the given root element to file using a pooled marshaller, compressed with the given codec, overwriting the file if it exists. The file
+   * name is used as is, so it should carry the suffix of the codec, see {@link PlanitCompressionCodec#appendFileSuffix(String)}
+   *
+   * @param xmlRootElement to marshal
+   * @param rootElementClazz class of the root element
+   * @param xmlFilePath to marshal to
+   * @param schemaLocationUri to reference in the file as schema location, ignored if null
+   * @param codec to compress with
+   * @param compressionLevel to use, negative for the default level of the codec
+   * @throws Exception thrown if error
+   */
+  public static void marshal(final Object xmlRootElement, final Class<?> rootElementClazz, final Path xmlFilePath, final String schemaLocationUri,
+      final PlanitCompressionCodec codec, final int compressionLevel) throws Exception {
+    try(OutputStream outputStream = codec.openOutputStream(xmlFilePath, compressionLevel)){
+      marshal(xmlRootElement, rootElementClazz, outputStream, schemaLocationUri);
+    }
+  }
+
+  /**
+   * Marshal the given root element as formatted (UTF-8) XML to the given stream using a pooled marshaller, the stream is not closed
+   *
+   * @param xmlRootElement to marshal
+   * @param rootElementClazz class of the root element
+   * @param outputStream to marshal to
+   * @param schemaLocationUri to reference in the document as schema location, ignored if null
+   * @throws Exception thrown if error
+   */
+  public static void marshal(final Object xmlRootElement, final Class<?> rootElementClazz, final OutputStream outputStream, final String schemaLocationUri) 
+      throws Exception {
+    /* schema location cannot be unset on a marshaller once set, so without one, use a dedicated marshaller that is not pooled */
+    final boolean pooled = schemaLocationUri != null;
+    Marshaller marshaller = pooled ? borrowMarshaller(rootElementClazz) : getContext(rootElementClazz).createMarshaller();
+    try {
+      marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+      if(pooled) {
+        /* pooled marshallers are shared between files with different schema locations, so always (re)set */
+        marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, schemaLocationUri);
+      }
+      marshaller.marshal(xmlRootElement, outputStream);
+    }finally {
+      if(pooled) {
+        MARSHALLERS.computeIfAbsent(rootElementClazz, c -> new ConcurrentLinkedQueue<>()).offer(marshaller);
+      }
+    }
+  }
+
+  /**
+   * Marshal the given root element as a complete document onto the given StAX writer using a pooled marshaller, the writer is flushed but not
+   * closed. Combined with a {@link PlanitXmlStreamWriter} the result is identical to marshalling with formatted output to a stream
+   *
+   * @param xmlRootElement to marshal
+   * @param rootElementClazz class of the root element
+   * @param xmlStreamWriter to marshal to
+   * @param schemaLocationUri to reference in the document as schema location, ignored if null
+   * @throws Exception thrown if error
+   */
+  public static void marshal(final Object xmlRootElement, final Class<?> rootElementClazz, final XMLStreamWriter xmlStreamWriter, final String schemaLocationUri) 
+      throws Exception {
+    final boolean pooled = schemaLocationUri != null;
+    Marshaller marshaller = pooled ? borrowMarshaller(rootElementClazz) : getContext(rootElementClazz).createMarshaller();
+    try {
+      if(pooled) {
+        marshaller.setProperty(Marshaller.JAXB_NO_NAMESPACE_SCHEMA_LOCATION, schemaLocationUri);
+      }
+      marshaller.marshal(xmlRootElement, xmlStreamWriter);
+    }finally {
+      if(pooled) {
+        MARSHALLERS.computeIfAbsent(rootElementClazz, c -> new ConcurrentLinkedQueue<>()).offer(marshaller);
+      }
+    }
+  }
+
+  /**
+   * Validate the given XML file against the (cached) schema at the given location, compressed files are decompressed transparently
+   *
+   * @param xmlFile to validate
+   * @param schemaLocation URL or file location of the XSD
+   * @throws Exception thrown if file is not valid, or it cannot be validated
+   */
+  public static void validate(final File xmlFile, final String schemaLocation) throws Exception {
+    /* validators are not thread safe but cheap to create from a compiled schema */
+    try(InputStream inputStream = PlanitCompressionCodec.openInputStream(xmlFile)){
+      getSchema(schemaLocation).newValidator().validate(new StreamSource(inputStream, xmlFile.toURI().toString()));
+    }
+  }
+
+  /**
+   * Clear all cached contexts, schemas and pooled (un)marshallers
+   */
+  public static void clear() {
+    UNMARSHALLERS.clear();
+    MARSHALLERS.clear();
+    SCHEMAS.clear();
+    CONTEXTS.clear();
+  }
+}
@@ -0,0 +1,147 @@
+package org.goplanit.io.xml.util;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.bootstrap.DOMImplementationRegistry;
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+
+/**
+ * Local catalog of XSD schemas bundled as classpath resources. Schema locations referring to one of the published PLANit schema locations
+ * (development, release or goplanit.org) are mapped onto {@code xsd/<schema file name>} on the classpath. Schemas imported by the PLANit schemas
+ * are mapped onto the layout of the versioned artifacts they are bundled from, i.e., {@code schemas.opengis.net/<path>} onto {@code xsd/ogc/<path>}
+ * and {@code www.w3.org/<path>} onto {@code xsd/w3c/<path>}, any other http(s) location is mapped onto {@code xsd/<host>/<path>}. When a schema is
+ * bundled it is used instead of the remote location, so validation does not require network access. When it is not, the remote location is used as
+ * is. The bundled schemas are unpacked at build time, see the maven-dependency-plugin configuration of this module.
+ *
+ * @author markr
+ *
+ */
+public final class PlanitSchemaCatalog {
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitSchemaCatalog.class.getCanonicalName());
+
+  /** classpath directory of the bundled schemas */
+  public static final String XSD_RESOURCE_DIR = "xsd/";
+
+  /** published locations of PLANit schemas, the schema file name is the first group */
+  private static final List<Pattern> PLANIT_SCHEMA_LOCATIONS = List.of(
+      Pattern.compile("^" + Pattern.quote(PlanitSchema.XSD_SCHEMA_URI_DEVELOPMENT_GENERIC) + "([^/]+)$"),
+      Pattern.compile("^" + Pattern.quote(PlanitSchema.RESOURCES_RELEASE_GENERIC) + "[^/]+/xsd/([^/]+)$"),
+      Pattern.compile("^https?://www\\.goplanit\\.org/xsd/([^/]+)$"));
+
+  /** classpath directory of schemas imported by the PLANit schemas per host, for hosts bundled from a versioned schema artifact */
+  private static final Map<String, String> IMPORTED_SCHEMA_HOST_DIRS = Map.of(
+      "schemas.opengis.net", XSD_RESOURCE_DIR + "ogc",
+      "www.w3.org", XSD_RESOURCE_DIR + "w3c");
+
+  /** Constructor, not to be instantiated */
+  private PlanitSchemaCatalog() {
+  }
+
+  /**
+   * Map a schema location to the classpath resource it is bundled as
+   *
+   * @param schemaLocation to map
+   * @return resource name, null if location cannot be mapped
+   */
+  private static String toResourceName(final String schemaLocation) {
+    for(Pattern planitSchemaLocation : PLANIT_SCHEMA_LOCATIONS) {
+      Matcher matcher = planitSchemaLocation.matcher(schemaLocation);
+      if(matcher.matches()) {
+        return XSD_RESOURCE_DIR + matcher.group(1);
+      }
+    }
+
+    try {
+      URI uri = new URI(schemaLocation);
+      if(uri.getHost() != null && ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+        String hostDir = IMPORTED_SCHEMA_HOST_DIRS.getOrDefault(uri.getHost(), XSD_RESOURCE_DIR + uri.getHost());
+        return hostDir + uri.getPath();
+      }
+    }catch(Exception e) {
+      /* not a URI, so not mapped */
+    }
+    return null;
+  }
+
+  /**
+   * Find the bundled version of the schema at the given location
+   *
+   * @param schemaLocation remote location of the schema
+   * @return URL of the bundled schema, null if not bundled
+   */
+  public static URL findBundledSchema(final String schemaLocation) {
+    if(schemaLocation == null) {
+      return null;
+    }
+    String resourceName = toResourceName(schemaLocation);
+    if(resourceName == null) {
+      return null;
+    }
+    return PlanitSchemaCatalog.class.getClassLoader().getResource(resourceName);
+  }
+
+  /**
+   * Resolve the schema location against the catalog
+   *
+   * @param schemaLocation to resolve
+   * @return location of the bundled schema when available, the schema location itself otherwise
+   */
+  public static String resolve(final String schemaLocation) {
+    URL bundledSchema = findBundledSchema(schemaLocation);
+    if(bundledSchema == null) {
+      LOGGER.fine(String.format("Schema %s not bundled, using remote location", schemaLocation));
+      return schemaLocation;
+    }
+    return bundledSchema.toString();
+  }
+
+  /**
+   * Create a resource resolver that resolves schemas included or imported by other schemas against the catalog. Resources that are not bundled
+   * are left to the default resolution
+   *
+   * @return resource resolver
+   */
+  public static LSResourceResolver createResourceResolver() {
+    final DOMImplementationLS domImplementation;
+    try {
+      domImplementation = (DOMImplementationLS) DOMImplementationRegistry.newInstance().getDOMImplementation("LS");
+    }catch(Exception e) {
+      LOGGER.warning(String.format("Unable to create schema resource resolver, bundled schemas are not used for imports: %s", e.getMessage()));
+      return (type, namespaceURI, publicId, systemId, baseURI) -> null;
+    }
+
+    return (type, namespaceURI, publicId, systemId, baseURI) -> {
+      if(systemId == null) {
+        return null;
+      }
+      String absoluteSystemId = systemId;
+      try {
+        if(baseURI != null && !new URI(systemId).isAbsolute()) {
+          absoluteSystemId = new URI(baseURI).resolve(systemId).toString();
+        }
+      }catch(Exception e) {
+        /* unresolvable relative location (e.g. opaque base), use as is */
+      }
+
+      URL bundledSchema = findBundledSchema(absoluteSystemId);
+      if(bundledSchema == null) {
+        return null;
+      }
+      LSInput input = domImplementation.createLSInput();
+      input.setPublicId(publicId);
+      input.setSystemId(bundledSchema.toString());
+      input.setBaseURI(baseURI);
+      return input;
+    };
+  }
+}
@@ -7,10 +7,8 @@ import org.goplanit.utils.exceptions.PlanItException;
 import org.goplanit.utils.exceptions.PlanItRunTimeException;
 import org.goplanit.utils.geo.PlanitCrsUtils;
 import org.goplanit.utils.geo.PlanitJtsCrsUtils;
-import org.goplanit.utils.misc.FileUtils;
 import org.goplanit.utils.misc.StringUtils;
 import org.goplanit.xml.generated.XMLElementPLANit;
-import org.goplanit.xml.utils.JAXBUtils;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 /**
@@ -63,6 +61,26 @@ public class PlanitXmlJaxbParser<T> {
     return null;
   }
 
+  /**
+   * Unmarshal the combined PLANit file(s) that exist and extract the sub entity from the first one that has it
+   *
+   * @param rootElementIndex to obtain combined files from
+   * @return sub entity root element, null if not found
+   */
+  private T parseSubEntityRootElementFromCombinedXmlFiles(final PlanitXmlRootElementIndex rootElementIndex) {
+    for(File combinedXmlFile : rootElementIndex.getFilesWithRootElement(XMLElementPLANit.class)) {
+      XMLElementPLANit xmlRawPLANitAll = parseXmlRootElement(XMLElementPLANit.class, combinedXmlFile);
+      if(xmlRawPLANitAll == null) {
+        continue;
+      }
+      T rootElement = getSubEntityRootElementFromCombinedXmlRootElement(xmlRawPLANitAll);
+      if(rootElement != null) {
+        return rootElement;
+      }
+    }
+    return null;
+  }
+
   /**
    * Default extension for XML input files
    */
@@ -102,13 +120,29 @@ public class PlanitXmlJaxbParser<T> {
       PlanItRunTimeException.throwIfNull(inputPathDirectory, "Input path directory for XML reader is not provided, unable to parse");
       PlanItRunTimeException.throwIfNull(xmlFileExtension, "No XML file extension provided, unable to parse files if extension is unknown");
       
-      /* first try based on dedicated file for this entity T... */
-      final File[] xmlFileNames = FileUtils.getFilesWithExtensionFromDir(inputPathDirectory, xmlFileExtension);
-      PlanItRunTimeException.throwIf(xmlFileNames.length == 0,String.format("Directory %s contains no files with extension %s",inputPathDirectory, xmlFileExtension));
-      T rootElement = JAXBUtils.generateInstanceFromXml(clazz, xmlFileNames);
+      /* only peek at root elements to identify which file to unmarshal with which class */
+      final var rootElementIndex = PlanitXmlRootElementIndex.create(inputPathDirectory, xmlFileExtension);
+      if(PlanitXmlRootElementIndex.getRootElementName(clazz) != null && PlanitXmlRootElementIndex.getRootElementName(XMLElementPLANit.class) != null) {
+        
+        /* first try based on dedicated file for this entity T, otherwise embedded in single PLANit XML file for more than one entity */
+        T rootElement = parseFirstXmlRootElement(clazz, rootElementIndex);
+        if(rootElement == null) {
+          rootElement = parseSubEntityRootElementFromCombinedXmlFiles(rootElementIndex);
+        }
+        if(rootElement==null) {
+          LOGGER.severe(String.format("Unable to parse any appropriate XML input file from %s with extension %s, either no file is present, or file is not conforming to underlying XSD",inputPathDirectory, xmlFileExtension));
+          return false;
+        }
+        setXmlRootElement(rootElement);
+        return true;
+      }
+      
+      /* root element names unknown, so try all files: first try based on dedicated file for this entity T... */
+      final File[] xmlFileNames = rootElementIndex.getFiles();
+      T rootElement = parseFirstXmlRootElement(clazz, xmlFileNames);
       if(rootElement==null) {
         /*...not available, try and see if embedded in single PLANit XML file for more than one entity */
-        XMLElementPLANit xmlRawPLANitAll = JAXBUtils.generateInstanceFromXml(XMLElementPLANit.class, xmlFileNames);
+        XMLElementPLANit xmlRawPLANitAll = parseFirstXmlRootElement(XMLElementPLANit.class, xmlFileNames);
         if(xmlRawPLANitAll==null) {
           LOGGER.severe(String.format("Unable to parse any appropriate XML input file from %s with extension %s, either no file is present, or file is not conforming to underlying XSD",inputPathDirectory, xmlFileExtension));
           return false;
@@ -124,6 +158,58 @@ public class PlanitXmlJaxbParser<T> {
     return true;
   }
 
+  /**
+   * Unmarshal the first of the given files that can be unmarshalled into the given root element class
+   *
+   * @param <R> type of root element
+   * @param rootElementClazz of root element
+   * @param xmlFiles to try in order
+   * @return unmarshalled root element, null if none of the files could be unmarshalled
+   */
+  private static <R> R parseFirstXmlRootElement(final Class<R> rootElementClazz, final File[] xmlFiles) {
+    for(File xmlFile : xmlFiles) {
+      try {
+        return PlanitJaxbCache.unmarshal(rootElementClazz, xmlFile);
+      }catch(Exception e) {
+        LOGGER.fine(String.format("Unable to parse %s as %s: %s", xmlFile, rootElementClazz.getSimpleName(), e.getMessage()));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Unmarshal the given file into the given root element class, using the process wide JAXB context and unmarshaller pool of {@link PlanitJaxbCache}
+   *
+   * @param <R> type of root element
+   * @param rootElementClazz of root element
+   * @param xmlFile to unmarshal
+   * @return unmarshalled root element, null if it could not be unmarshalled
+   */
+  public static <R> R parseXmlRootElement(final Class<R> rootElementClazz, final File xmlFile) {
+    try {
+      return PlanitJaxbCache.unmarshal(rootElementClazz, xmlFile);
+    }catch(Exception e) {
+      LOGGER.severe(String.format("Unable to parse %s as %s: %s", xmlFile, rootElementClazz.getSimpleName(), e.getMessage()));
+    }
+    return null;
+  }
+
+  /**
+   * Unmarshal the first file in the index that has the root element of the given root element class. Files with other root elements are not touched
+   *
+   * @param <R> type of root element
+   * @param rootElementClazz of root element
+   * @param rootElementIndex to select file from
+   * @return unmarshalled root element, null if no file has the root element (or it could not be unmarshalled)
+   */
+  public static <R> R parseFirstXmlRootElement(final Class<R> rootElementClazz, final PlanitXmlRootElementIndex rootElementIndex) {
+    File xmlFile = rootElementIndex.findFirstFileWithRootElement(rootElementClazz);
+    if(xmlFile == null) {
+      return null;
+    }
+    return parseXmlRootElement(rootElementClazz, xmlFile);
+  }
+
   /** Create a crs based on passed in srs name. If no srs name is provided the default will be created
    * 
    * @param srsName to use
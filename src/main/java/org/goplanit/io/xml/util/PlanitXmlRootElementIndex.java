@@ -0,0 +1,189 @@
+package org.goplanit.io.xml.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.goplanit.utils.misc.FileUtils;
+
+/**
+ * Index of the root elements of the XML files in a directory. Root elements are found by peeking at the first start element of each file
+ * only, so files do not need to be unmarshalled to find out what they contain. This allows readers to unmarshal exactly one file with exactly
+ * one target class rather than trying all files with all possible root element classes.
+ * <p>
+ * The index is a snapshot of the directory taken upon creation and is not shared between instances. Scope an index to a single read of its
+ * directory, e.g., the input builder creates one for its project path and reuses it for all components it parses. Create a new index to pick
+ * up files that are added or rewritten afterwards.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitXmlRootElementIndex {
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitXmlRootElementIndex.class.getCanonicalName());
+
+  /** default value of JAXB annotation attributes indicating no explicit value is set */
+  private static final String JAXB_ANNOTATION_DEFAULT = "##default";
+
+  /** files in the directory in the order provided by the file system */
+  private final File[] xmlFiles;
+
+  /** root element per file in the same order as the files, null entries for files that could not be sniffed */
+  private final QName[] rootElementNames;
+
+  /**
+   * Peek at the root element of the XML file without parsing the remainder of the file
+   *
+   * @param xmlFile to sniff
+   * @return root element name, null if not found or file is not valid XML
+   */
+  private static QName sniffRootElement(final File xmlFile) {
+    try(InputStream inputStream = PlanitCompressionCodec.openInputStream(xmlFile)){
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+      try {
+        while(reader.hasNext()) {
+          if(reader.next() == XMLStreamConstants.START_ELEMENT) {
+            return reader.getName();
+          }
+        }
+      }finally {
+        reader.close();
+      }
+    }catch(Exception e) {
+      LOGGER.fine(String.format("Unable to identify XML root element of %s: %s", xmlFile, e.getMessage()));
+    }
+    return null;
+  }
+
+  /** Constructor
+   *
+   * @param xmlFiles to index
+   */
+  private PlanitXmlRootElementIndex(final File[] xmlFiles) {
+    this.xmlFiles = xmlFiles;
+    this.rootElementNames = new QName[xmlFiles.length];
+    for(int index = 0; index < xmlFiles.length; ++index) {
+      rootElementNames[index] = sniffRootElement(xmlFiles[index]);
+    }
+  }
+
+  /**
+   * Create root element index for the files in the given directory with the given extension, including files with the given extension followed
+   * by the suffix of a compression codec, e.g. {@code .xml.gz}. The root element of each file is sniffed once upon creation
+   *
+   * @param inputPathDirectory to use
+   * @param xmlFileExtension to use
+   * @return created index
+   */
+  public static PlanitXmlRootElementIndex create(final String inputPathDirectory, final String xmlFileExtension) {
+    PlanItRunTimeException.throwIfNull(inputPathDirectory, "Input path directory for XML reader is not provided, unable to parse");
+    PlanItRunTimeException.throwIfNull(xmlFileExtension, "No XML file extension provided, unable to parse files if extension is unknown");
+
+    final Set<File> xmlFileSet = new LinkedHashSet<>(Arrays.asList(FileUtils.getFilesWithExtensionFromDir(inputPathDirectory, xmlFileExtension)));
+    for(PlanitCompressionCodec codec : PlanitCompressionCodec.values()) {
+      if(codec != PlanitCompressionCodec.NONE && !xmlFileExtension.endsWith(codec.getFileSuffix())) {
+        xmlFileSet.addAll(Arrays.asList(FileUtils.getFilesWithExtensionFromDir(inputPathDirectory, xmlFileExtension + codec.getFileSuffix())));
+      }
+    }
+    final File[] xmlFiles = xmlFileSet.toArray(File[]::new);
+    PlanItRunTimeException.throwIf(xmlFiles.length == 0,String.format("Directory %s contains no files with extension %s",inputPathDirectory, xmlFileExtension));
+    return new PlanitXmlRootElementIndex(xmlFiles);
+  }
+
+  /**
+   * Collect the root element name of a JAXB root element class based on its annotation
+   *
+   * @param jaxbRootElementClazz to collect root element name for
+   * @return root element name, null if class is not annotated as root element
+   */
+  public static QName getRootElementName(final Class<?> jaxbRootElementClazz) {
+    XmlRootElement annotation = jaxbRootElementClazz.getAnnotation(XmlRootElement.class);
+    if(annotation == null) {
+      return null;
+    }
+    String namespace = JAXB_ANNOTATION_DEFAULT.equals(annotation.namespace()) ? "" : annotation.namespace();
+    return new QName(namespace, annotation.name());
+  }
+
+  /**
+   * Collect all files with the given root element, in file order
+   *
+   * @param rootElementName to match (namespace is only matched when not empty)
+   * @return matching files, empty if none
+   */
+  public List<File> getFilesWithRootElement(final QName rootElementName) {
+    if(rootElementName == null) {
+      return Collections.emptyList();
+    }
+    List<File> matches = new ArrayList<>(1);
+    for(int index = 0; index < xmlFiles.length; ++index) {
+      QName fileRootElement = rootElementNames[index];
+      if(fileRootElement == null || !rootElementName.getLocalPart().equals(fileRootElement.getLocalPart())) {
+        continue;
+      }
+      if(!rootElementName.getNamespaceURI().isEmpty() && !rootElementName.getNamespaceURI().equals(fileRootElement.getNamespaceURI())) {
+        continue;
+      }
+      matches.add(xmlFiles[index]);
+    }
+    return matches;
+  }
+
+  /**
+   * Collect all files with the root element of the given JAXB root element class, in file order
+   *
+   * @param jaxbRootElementClazz to match
+   * @return matching files, empty if none (or class is not annotated as root element)
+   */
+  public List<File> getFilesWithRootElement(final Class<?> jaxbRootElementClazz) {
+    return getFilesWithRootElement(getRootElementName(jaxbRootElementClazz));
+  }
+
+  /**
+   * Collect the first file with the given root element (local name)
+   *
+   * @param rootElementLocalName to match
+   * @return first matching file, null if none
+   */
+  public File findFirstFileWithRootElement(final String rootElementLocalName) {
+    List<File> matches = getFilesWithRootElement(new QName(rootElementLocalName));
+    return matches.isEmpty() ? null : matches.get(0);
+  }
+
+  /**
+   * Collect the first file with the root element of the given JAXB root element class
+   *
+   * @param jaxbRootElementClazz to match
+   * @return first matching file, null if none
+   */
+  public File findFirstFileWithRootElement(final Class<?> jaxbRootElementClazz) {
+    List<File> matches = getFilesWithRootElement(jaxbRootElementClazz);
+    return matches.isEmpty() ? null : matches.get(0);
+  }
+
+  /**
+   * All indexed files
+   *
+   * @return files
+   */
+  public File[] getFiles() {
+    return xmlFiles;
+  }
+}
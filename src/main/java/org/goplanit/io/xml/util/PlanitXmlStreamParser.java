@@ -0,0 +1,390 @@
+package org.goplanit.io.xml.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+
+/**
+ * StAX based pull parser for PLANit XML files. Rather than unmarshalling an entire document into the JAXB memory model (see {@link PlanitXmlJaxbParser}),
+ * it allows the user to walk the document element by element and only unmarshal the (small) sub-trees it is interested in, one at a time. This
+ * keeps the peak memory footprint close to that of the PLANit memory model being populated instead of the JAXB memory model of the entire file.
+ * <p>
+ * Navigation contract: every operation that consumes an element (unmarshal, skip, text extraction, or iterating all children) leaves the reader
+ * on the event directly after the end of that element, while {@link #nextChildElement()} positions the reader on the start of the next child without
+ * consuming it.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitXmlStreamParser implements AutoCloseable {
+
+  /**
+   * Consumer of chunks of character content of an element, the provided array is only valid for the duration of the call
+   */
+  @FunctionalInterface
+  public interface CharacterChunkConsumer {
+
+    /** Consume chunk of characters
+     *
+     * @param chars array containing the characters
+     * @param start of the chunk in the array
+     * @param length of the chunk
+     */
+    void accept(char[] chars, int start, int length);
+  }
+
+  /** the logger to use */
+  private static final Logger LOGGER = Logger.getLogger(PlanitXmlStreamParser.class.getCanonicalName());
+
+  /** the root element name used for combined PLANit input files */
+  public static final String PLANIT_ROOT_ELEMENT = "PLANit";
+
+  /** the class that acts as root element of the JAXB context used for unmarshalling sub-trees */
+  private final Class<?> jaxbContextClazz;
+
+  /** the (local) name of the element acting as root element for this parser */
+  private final String rootElementName;
+
+  /** the unmarshaller used for sub-trees, lazily created */
+  private Unmarshaller unmarshaller;
+
+  /** file the reader is currently opened on */
+  private File currentFile;
+
+  /** the input stream underlying the reader */
+  private InputStream inputStream;
+
+  /** the StAX reader */
+  private XMLStreamReader reader;
+
+  /** qualified name of text only elements of which the text is captured rather than unmarshalled, null when none */
+  private QName capturedTextElement;
+
+  /** texts captured during the most recent unmarshalling, in document order */
+  private final List<String> capturedTexts = new ArrayList<>();
+
+  /**
+   * Reader handed to JAXB when text is captured. The text of each captured element is collected here and JAXB is presented with an empty
+   * element instead (attributes remain available), so it never converts the text itself
+   */
+  private class TextCapturingReader extends StreamReaderDelegate {
+
+    /**
+     * Constructor
+     *
+     * @param reader to delegate to
+     */
+    TextCapturingReader(final XMLStreamReader reader) {
+      super(reader);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int next() throws XMLStreamException {
+      if(getEventType() == XMLStreamConstants.START_ELEMENT && capturedTextElement.equals(getName())) {
+        /* moves the reader onto the end element */
+        capturedTexts.add(getElementText());
+        return getEventType();
+      }
+      return super.next();
+    }
+  }
+
+  /**
+   * Open a StAX reader on the given file and position it on the first start element, i.e., the root element of the document
+   *
+   * @param xmlFile to open
+   * @throws Exception thrown if error
+   */
+  private void open(final File xmlFile) throws Exception {
+    this.currentFile = xmlFile;
+    this.inputStream = PlanitCompressionCodec.openInputStream(xmlFile);
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    this.reader = factory.createXMLStreamReader(inputStream);
+    while(reader.hasNext() && reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+      reader.next();
+    }
+  }
+
+  /**
+   * Try to position the reader on the start of the root element of this parser within the given file. The root element
+   * is either the document root, or a direct child of a combined PLANit root element
+   *
+   * @param xmlFile to try
+   * @return true when found, false otherwise
+   * @throws Exception thrown if error
+   */
+  private boolean locateRootElementInFile(final File xmlFile) throws Exception {
+    open(xmlFile);
+    if(!reader.isStartElement()) {
+      return false;
+    }
+
+    if(rootElementName.equals(reader.getLocalName())) {
+      return true;
+    }
+
+    if(PLANIT_ROOT_ELEMENT.equals(reader.getLocalName())) {
+      enterElement();
+      while(nextChildElement()) {
+        if(rootElementName.equals(reader.getLocalName())) {
+          return true;
+        }
+        skipElement();
+      }
+    }
+    return false;
+  }
+
+  /** Constructor
+   *
+   * @param jaxbContextClazz class used to collect the (cached) JAXB context for unmarshalling sub-trees of the document
+   * @param rootElementName local name of the element acting as root for this parser
+   */
+  public PlanitXmlStreamParser(final Class<?> jaxbContextClazz, final String rootElementName) {
+    this.jaxbContextClazz = jaxbContextClazz;
+    this.rootElementName = rootElementName;
+  }
+
+  /**
+   * Find the first file in the input directory with the given extension that contains the root element of this parser and
+   * position the reader at its start element
+   *
+   * @param inputPathDirectory to use
+   * @param xmlFileExtension to use
+   * @return true when success, false when no appropriate file could be found
+   */
+  public boolean initialiseAndLocateRootElement(final String inputPathDirectory, final String xmlFileExtension) {
+
+    /* only consider dedicated files followed by combined files based on their root element */
+    final var rootElementIndex = PlanitXmlRootElementIndex.create(inputPathDirectory, xmlFileExtension);
+    final List<File> candidateXmlFiles = new ArrayList<>(rootElementIndex.getFilesWithRootElement(new QName(rootElementName)));
+    candidateXmlFiles.addAll(rootElementIndex.getFilesWithRootElement(new QName(PLANIT_ROOT_ELEMENT)));
+    for(File xmlFile : candidateXmlFiles) {
+      try {
+        if(locateRootElementInFile(xmlFile)) {
+          LOGGER.fine(String.format("Streaming <%s> from %s", rootElementName, xmlFile.toString()));
+          return true;
+        }
+      }catch(Exception e) {
+        LOGGER.fine(String.format("Unable to stream %s: %s", xmlFile.toString(), e.getMessage()));
+      }
+      close();
+    }
+
+    LOGGER.severe(String.format("Unable to locate <%s> element in any XML input file in %s with extension %s",rootElementName, inputPathDirectory, xmlFileExtension));
+    return false;
+  }
+
+  /**
+   * Verify the reader is positioned on a start element with the given local name
+   *
+   * @param localName to check
+   * @return true when on start element with given name, false otherwise
+   */
+  public boolean isStartElement(final String localName) {
+    return reader.isStartElement() && localName.equals(reader.getLocalName());
+  }
+
+  /**
+   * Local name of the current element
+   *
+   * @return local name
+   */
+  public String getLocalName() {
+    return reader.getLocalName();
+  }
+
+  /**
+   * Collect attribute value of current start element (no namespace)
+   *
+   * @param attributeName to collect
+   * @return value, null if not present
+   */
+  public String getAttributeValue(final String attributeName) {
+    return reader.getAttributeValue(null, attributeName);
+  }
+
+  /**
+   * Step into the current start element such that its children can be iterated over via {@link #nextChildElement()}
+   *
+   * @throws XMLStreamException thrown if error
+   */
+  public void enterElement() throws XMLStreamException {
+    reader.next();
+  }
+
+  /**
+   * Move to the start of the next child element of the element that is currently being iterated over. When no more child elements
+   * exist, the end element of the parent is consumed and false is returned
+   *
+   * @return true when positioned on the start of the next child, false when no more children exist
+   * @throws XMLStreamException thrown if error
+   */
+  public boolean nextChildElement() throws XMLStreamException {
+    while(reader.hasNext()) {
+      int eventType = reader.getEventType();
+      if(eventType == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      if(eventType == XMLStreamConstants.END_ELEMENT) {
+        reader.next();
+        return false;
+      }
+      reader.next();
+    }
+    return false;
+  }
+
+  /**
+   * Skip the current element including all its children
+   *
+   * @throws XMLStreamException thrown if error
+   */
+  public void skipElement() throws XMLStreamException {
+    int depth = 0;
+    do {
+      int eventType = reader.getEventType();
+      if(eventType == XMLStreamConstants.START_ELEMENT) {
+        ++depth;
+      }else if(eventType == XMLStreamConstants.END_ELEMENT) {
+        --depth;
+      }
+      reader.next();
+    }while(depth > 0 && reader.hasNext());
+  }
+
+  /**
+   * Collect the text content of the current (text only) element, consumes the element
+   *
+   * @return text content
+   * @throws XMLStreamException thrown if error
+   */
+  public String getElementText() throws XMLStreamException {
+    String text = reader.getElementText();
+    reader.next();
+    return text;
+  }
+
+  /**
+   * Stream the text content of the current (text only) element in chunks to the consumer, without materialising it as a single string. Consumes the
+   * element
+   *
+   * @param consumer to push character chunks to
+   * @throws XMLStreamException thrown if error, or element is not text only
+   */
+  public void streamElementText(final CharacterChunkConsumer consumer) throws XMLStreamException {
+    reader.next();
+    while(reader.hasNext()) {
+      switch (reader.getEventType()) {
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          consumer.accept(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          reader.next();
+          return;
+        case XMLStreamConstants.START_ELEMENT:
+          throw new XMLStreamException(String.format("Text only element expected, found nested <%s> element instead", reader.getLocalName()), reader.getLocation());
+        default:
+          /* comments, processing instructions */
+          break;
+      }
+      reader.next();
+    }
+  }
+
+  /**
+   * Unmarshal the current element into the JAXB memory model, consumes the element
+   *
+   * @param <E> type of the element
+   * @param elementClazz class of the element
+   * @return unmarshalled element
+   */
+  public <E> E unmarshalElement(final Class<E> elementClazz) {
+    try {
+      if(unmarshaller == null) {
+        unmarshaller = PlanitJaxbCache.getContext(jaxbContextClazz).createUnmarshaller();
+      }
+      capturedTexts.clear();
+      return unmarshaller.unmarshal(capturedTextElement == null ? reader : new TextCapturingReader(reader), elementClazz).getValue();
+    }catch(JAXBException e) {
+      throw new PlanItRunTimeException(String.format("Unable to unmarshal <%s> element in %s", reader.getLocalName(), currentFile), e);
+    }
+  }
+
+  /**
+   * Capture the text of all elements with the given name rather than unmarshalling it, when set such elements are unmarshalled
+   * without content and their text is available via {@link #getCapturedTexts()} after each call to {@link #unmarshalElement(Class)}. Allows the
+   * caller to parse large text content, e.g. coordinates, directly instead of via the (boxed) JAXB memory model
+   *
+   * @param capturedTextElement qualified name of text only elements to capture, null to capture none
+   */
+  public void setCapturedTextElement(final QName capturedTextElement) {
+    this.capturedTextElement = capturedTextElement;
+    this.capturedTexts.clear();
+  }
+
+  /**
+   * Texts of the captured elements in the most recently unmarshalled element, in document order
+   *
+   * @return captured texts, empty when none
+   */
+  public List<String> getCapturedTexts() {
+    return capturedTexts;
+  }
+
+  /** The underlying StAX reader, use with care so as to not violate the navigation contract of this parser
+   *
+   * @return reader
+   */
+  public XMLStreamReader getReader() {
+    return reader;
+  }
+
+  /** File currently being streamed
+   *
+   * @return file
+   */
+  public File getCurrentFile() {
+    return currentFile;
+  }
+
+  /**
+   * Release the underlying reader and stream (if any)
+   */
+  @Override
+  public void close() {
+    try {
+      if(reader != null) {
+        reader.close();
+      }
+      if(inputStream != null) {
+        inputStream.close();
+      }
+    }catch(Exception e) {
+      LOGGER.warning(String.format("Unable to close XML stream reader on %s", currentFile));
+    }
+    reader = null;
+    inputStream = null;
+    currentFile = null;
+  }
+}
@@ -0,0 +1,764 @@
+package org.goplanit.io.xml.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * StAX writer for PLANit XML files, the counterpart of {@link PlanitXmlStreamParser}. It formats the document exactly like a JAXB marshaller with
+ * formatted output writing UTF-8 does, i.e., the standalone XML declaration, four spaces of indentation per level, elements without content as empty
+ * elements, the same character escaping, and a trailing new line. This way (parts of) a document can be marshalled with JAXB onto this writer, see
+ * {@link PlanitJaxbCache#marshal(Object, Class, XMLStreamWriter, String)}, while other parts are written one element at a time, resulting in the same
+ * document as marshalling the complete JAXB memory model.
+ * <p>
+ * Elements too large to hold in memory are typically left empty in the JAXB memory model and written by an {@link EmptyElementHandler} when the
+ * marshaller reaches them. The writer is not namespace repairing, prefixes are expected to be declared by the marshaller or the user.
+ * </p>
+ *
+ * @author markr
+ *
+ */
+public class PlanitXmlStreamWriter implements XMLStreamWriter {
+
+  /**
+   * Handler that may write the content of an element that is about to be closed without any content, e.g., a placeholder in the JAXB memory model
+   */
+  @FunctionalInterface
+  public interface EmptyElementHandler {
+
+    /** Write the content of the element, if any, when nothing is written the element remains empty
+     *
+     * @param localName of the element
+     * @param parentLocalName of the element's parent, null for the root element
+     * @param writer to write the content with
+     * @throws XMLStreamException thrown if error
+     */
+    void writeContent(String localName, String parentLocalName, PlanitXmlStreamWriter writer) throws XMLStreamException;
+  }
+
+  /**
+   * Open element and the namespace bindings declared on it
+   */
+  private static final class OpenElement {
+
+    /** local name */
+    private final String localName;
+
+    /** qualified name, i.e., including prefix if any */
+    private final String qualifiedName;
+
+    /** namespace URI per prefix declared on this element, null if none */
+    private Map<String, String> namespaceUris;
+
+    /**
+     * Constructor
+     *
+     * @param localName of the element
+     * @param qualifiedName of the element
+     */
+    private OpenElement(final String localName, final String qualifiedName) {
+      this.localName = localName;
+      this.qualifiedName = qualifiedName;
+    }
+
+    /**
+     * Bind prefix to namespace URI in the scope of this element
+     *
+     * @param prefix to bind
+     * @param namespaceURI to bind to
+     */
+    private void bind(final String prefix, final String namespaceURI) {
+      if(namespaceUris == null) {
+        namespaceUris = new HashMap<>();
+      }
+      namespaceUris.put(prefix, namespaceURI);
+    }
+  }
+
+  /** XML declaration written by JAXB marshallers for UTF-8 documents */
+  public static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+  /** indentation per level, identical to JAXB formatted output */
+  private static final String INDENT = "    ";
+
+  /** the character stream written to */
+  private final Writer writer;
+
+  /** the open elements, innermost first */
+  private final Deque<OpenElement> openElements = new ArrayDeque<>();
+
+  /** namespace bindings outside of any element, e.g., via {@link #setPrefix(String, String)} before the root element */
+  private final OpenElement documentScope = new OpenElement(null, null);
+
+  /** namespace context provided by the user, consulted for namespaces that are not bound on this writer, may be null */
+  private NamespaceContext userNamespaceContext;
+
+  /** true when the start tag written last is pending, i.e., not yet closed as it is unknown whether the element has any content */
+  private boolean startElementPending = false;
+
+  /** namespace declarations of the pending start element, as prefix and namespace URI pairs */
+  private final List<String[]> pendingNamespaces = new ArrayList<>();
+
+  /** true when character content was written since the last start or end tag, in which case no indentation is added */
+  private boolean seenText = false;
+
+  /** handler of elements without content, may be null */
+  private EmptyElementHandler emptyElementHandler;
+
+  /** true while the empty element handler writes content, so it is not invoked for the elements it writes itself */
+  private boolean inEmptyElementHandler = false;
+
+  /**
+   * Write to the character stream
+   *
+   * @param value to write
+   * @throws XMLStreamException thrown if error
+   */
+  private void write(final String value) throws XMLStreamException {
+    try {
+      writer.write(value);
+    }catch(IOException e) {
+      throw new XMLStreamException("Unable to write to PLANit XML stream", e);
+    }
+  }
+
+  /**
+   * Write escaped characters to the character stream, escaping as JAXB does for UTF-8
+   *
+   * @param chars to write
+   * @param start of the characters to write
+   * @param length number of characters to write
+   * @param isAttributeValue when true escaped as attribute value, otherwise as character content
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeEscaped(final CharSequence chars, final int start, final int length, boolean isAttributeValue) throws XMLStreamException {
+    try {
+      int unescapedStart = start;
+      final int end = start + length;
+      for(int index = start; index < end; ++index) {
+        final String escaped;
+        switch (chars.charAt(index)) {
+        case '&':
+          escaped = "&amp;";
+          break;
+        case '<':
+          escaped = "&lt;";
+          break;
+        case '>':
+          escaped = "&gt;";
+          break;
+        case '\r':
+          escaped = "&#13;";
+          break;
+        case '"':
+          escaped = isAttributeValue ? "&quot;" : null;
+          break;
+        case '\n':
+          escaped = isAttributeValue ? "&#10;" : null;
+          break;
+        default:
+          escaped = null;
+        }
+        if(escaped != null) {
+          writer.append(chars, unescapedStart, index);
+          writer.write(escaped);
+          unescapedStart = index + 1;
+        }
+      }
+      writer.append(chars, unescapedStart, end);
+    }catch(IOException e) {
+      throw new XMLStreamException("Unable to write to PLANit XML stream", e);
+    }
+  }
+
+  /**
+   * Write a new line followed by the indentation of the given depth
+   *
+   * @param depth of the element
+   * @throws XMLStreamException thrown if error
+   */
+  private void writeIndent(final int depth) throws XMLStreamException {
+    write("\n");
+    write(INDENT.repeat(depth));
+  }
+
+  /**
+   * Write the namespace declarations of the pending start element. JAXB declares namespaces on a StAX writer in the reverse order of its formatted
+   * stream output, so they are written in reverse
+   *
+   * @throws XMLStreamException thrown if error
+   */
+  private void writePendingNamespaces() throws XMLStreamException {
+    for(int index = pendingNamespaces.size() - 1; index >= 0; --index) {
+      final String prefix = pendingNamespaces.get(index)[0];
+      final String namespaceURI = pendingNamespaces.get(index)[1];
+      write(prefix.isEmpty() ? " xmlns=\"" : " xmlns:" + prefix + "=\"");
+      writeEscaped(namespaceURI, 0, namespaceURI.length(), true);
+      write("\"");
+    }
+    pendingNamespaces.clear();
+  }
+
+  /**
+   * Complete the pending start tag, if any, because content follows or the element ends
+   *
+   * @param empty when true the start tag is closed as empty element, otherwise as start tag
+   * @throws XMLStreamException thrown if error
+   */
+  private void completeStartElement(boolean empty) throws XMLStreamException {
+    if(!startElementPending) {
+      return;
+    }
+    writePendingNamespaces();
+    startElementPending = false;
+    write(empty ? "/>" : ">");
+  }
+
+  /**
+   * Qualified name of the given prefix and local name
+   *
+   * @param prefix to use, may be null or empty
+   * @param localName to use
+   * @return qualified name
+   */
+  private static String toQualifiedName(final String prefix, final String localName) {
+    return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+  }
+
+  /**
+   * Start an element, its start tag is kept open until it is known whether the element has any content
+   *
+   * @param prefix of the element, may be null or empty
+   * @param localName of the element
+   * @throws XMLStreamException thrown if error
+   */
+  private void startElement(final String prefix, final String localName) throws XMLStreamException {
+    completeStartElement(false);
+    if(!seenText) {
+      writeIndent(openElements.size());
+    }
+    seenText = false;
+
+    final OpenElement element = new OpenElement(localName, toQualifiedName(prefix, localName));
+    openElements.push(element);
+    write("<");
+    write(element.qualifiedName);
+    startElementPending = true;
+  }
+
+  /**
+   * Write an attribute on the pending start element
+   *
+   * @param prefix of the attribute, may be null or empty
+   * @param localName of the attribute
+   * @param value of the attribute
+   * @throws XMLStreamException thrown if no start element is pending
+   */
+  private void attribute(final String prefix, final String localName, final String value) throws XMLStreamException {
+    if(!startElementPending) {
+      throw new XMLStreamException("Attributes can only be written directly after a start element");
+    }
+    writePendingNamespaces();
+    write(" ");
+    write(toQualifiedName(prefix, localName));
+    write("=\"");
+    writeEscaped(value, 0, value.length(), true);
+    write("\"");
+  }
+
+  /**
+   * Prefix bound to the given namespace URI in the given scope
+   *
+   * @param scope to look in
+   * @param namespaceURI to look up
+   * @return prefix, null if not bound
+   */
+  private static String lookupPrefix(final OpenElement scope, final String namespaceURI) {
+    if(scope.namespaceUris != null) {
+      for(Map.Entry<String, String> entry : scope.namespaceUris.entrySet()) {
+        if(entry.getValue().equals(namespaceURI)) {
+          return entry.getKey();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Prefix bound to the given namespace URI
+   *
+   * @param namespaceURI to look up
+   * @return prefix, null if not bound
+   */
+  private String lookupPrefix(final String namespaceURI) {
+    for(OpenElement element : openElements) {
+      final String prefix = lookupPrefix(element, namespaceURI);
+      if(prefix != null) {
+        return prefix;
+      }
+    }
+    final String prefix = lookupPrefix(documentScope, namespaceURI);
+    if(prefix != null) {
+      return prefix;
+    }
+    return userNamespaceContext != null ? userNamespaceContext.getPrefix(namespaceURI) : null;
+  }
+
+  /**
+   * Namespace URI bound to the given prefix
+   *
+   * @param prefix to look up
+   * @return namespace URI, null if not bound
+   */
+  private String lookupNamespaceURI(final String prefix) {
+    for(OpenElement element : openElements) {
+      if(element.namespaceUris != null && element.namespaceUris.containsKey(prefix)) {
+        return element.namespaceUris.get(prefix);
+      }
+    }
+    if(documentScope.namespaceUris != null && documentScope.namespaceUris.containsKey(prefix)) {
+      return documentScope.namespaceUris.get(prefix);
+    }
+    return userNamespaceContext != null ? userNamespaceContext.getNamespaceURI(prefix) : null;
+  }
+
+  /**
+   * Prefix to use for an element or attribute in the given namespace, the namespace must have been bound
+   *
+   * @param namespaceURI of the element or attribute
+   * @return prefix, empty for no namespace
+   * @throws XMLStreamException thrown if namespace is not bound
+   */
+  private String requirePrefix(final String namespaceURI) throws XMLStreamException {
+    if(namespaceURI == null || namespaceURI.isEmpty()) {
+      return XMLConstants.DEFAULT_NS_PREFIX;
+    }
+    final String prefix = lookupPrefix(namespaceURI);
+    if(prefix == null) {
+      throw new XMLStreamException(String.format("Namespace %s is not bound to a prefix", namespaceURI));
+    }
+    return prefix;
+  }
+
+  /**
+   * Constructor, the caller remains responsible for closing the character stream
+   *
+   * @param writer to write to
+   */
+  public PlanitXmlStreamWriter(final Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Create writer on an output stream, writing UTF-8, the caller remains responsible for closing the output stream
+   *
+   * @param outputStream to write to
+   * @return created writer
+   */
+  public static PlanitXmlStreamWriter create(final OutputStream outputStream) {
+    return new PlanitXmlStreamWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Set the handler invoked for elements that are about to be closed without any content
+   *
+   * @param emptyElementHandler to use, null to remove
+   */
+  public void setEmptyElementHandler(final EmptyElementHandler emptyElementHandler) {
+    this.emptyElementHandler = emptyElementHandler;
+  }
+
+  /**
+   * Write an element with the given character content, e.g., {@code <name>value</name>}
+   *
+   * @param localName of the element
+   * @param text content of the element
+   * @throws XMLStreamException thrown if error
+   */
+  public void writeTextElement(final String localName, final CharSequence text) throws XMLStreamException {
+    writeStartElement(localName);
+    writeCharacters(text);
+    writeEndElement();
+  }
+
+  /**
+   * Write character content without first converting it to a string
+   *
+   * @param text to write
+   * @throws XMLStreamException thrown if error
+   */
+  public void writeCharacters(final CharSequence text) throws XMLStreamException {
+    completeStartElement(false);
+    seenText = true;
+    writeEscaped(text, 0, text.length(), false);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeStartElement(String localName) throws XMLStreamException {
+    startElement(XMLConstants.DEFAULT_NS_PREFIX, localName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+    startElement(requirePrefix(namespaceURI), localName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+    startElement(prefix, localName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+    writeStartElement(namespaceURI, localName);
+    writeEndElement();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+    writeStartElement(prefix, localName, namespaceURI);
+    writeEndElement();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeEmptyElement(String localName) throws XMLStreamException {
+    writeStartElement(localName);
+    writeEndElement();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeEndElement() throws XMLStreamException {
+    if(openElements.isEmpty()) {
+      throw new XMLStreamException("No open element to end");
+    }
+
+    if(startElementPending && emptyElementHandler != null && !inEmptyElementHandler) {
+      final OpenElement element = openElements.pop();
+      final String parentLocalName = openElements.isEmpty() ? null : openElements.peek().localName;
+      openElements.push(element);
+      inEmptyElementHandler = true;
+      try {
+        emptyElementHandler.writeContent(element.localName, parentLocalName, this);
+      }finally {
+        inEmptyElementHandler = false;
+      }
+    }
+
+    final OpenElement element = openElements.peek();
+    if(startElementPending) {
+      completeStartElement(true);
+    }else {
+      if(!seenText) {
+        writeIndent(openElements.size() - 1);
+      }
+      write("</");
+      write(element.qualifiedName);
+      write(">");
+    }
+    openElements.pop();
+    seenText = false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeEndDocument() throws XMLStreamException {
+    while(!openElements.isEmpty()) {
+      writeEndElement();
+    }
+    write("\n");
+    flush();
+  }
+
+  /**
+   * Flush, the underlying character stream is not closed
+   *
+   * @throws XMLStreamException thrown if error
+   */
+  @Override
+  public void close() throws XMLStreamException {
+    flush();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() throws XMLStreamException {
+    try {
+      writer.flush();
+    }catch(IOException e) {
+      throw new XMLStreamException("Unable to flush PLANit XML stream", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeAttribute(String localName, String value) throws XMLStreamException {
+    attribute(XMLConstants.DEFAULT_NS_PREFIX, localName, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+    attribute(prefix, localName, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+    attribute(requirePrefix(namespaceURI), localName, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+    if(!startElementPending) {
+      throw new XMLStreamException("Namespaces can only be written directly after a start element");
+    }
+    final String nonNullPrefix = (prefix == null || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) ? XMLConstants.DEFAULT_NS_PREFIX : prefix;
+    openElements.peek().bind(nonNullPrefix, namespaceURI);
+    pendingNamespaces.add(new String[] {nonNullPrefix, namespaceURI});
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+    writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeComment(String data) throws XMLStreamException {
+    completeStartElement(false);
+    write("<!--");
+    write(data);
+    write("-->");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeProcessingInstruction(String target) throws XMLStreamException {
+    completeStartElement(false);
+    write("<?");
+    write(target);
+    write("?>");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+    completeStartElement(false);
+    write("<?");
+    write(target);
+    write(" ");
+    write(data);
+    write("?>");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeCData(String data) throws XMLStreamException {
+    completeStartElement(false);
+    seenText = true;
+    write("<![CDATA[");
+    write(data);
+    write("]]>");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeDTD(String dtd) throws XMLStreamException {
+    write(dtd);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeEntityRef(String name) throws XMLStreamException {
+    completeStartElement(false);
+    seenText = true;
+    write("&");
+    write(name);
+    write(";");
+  }
+
+  /**
+   * Write the XML declaration JAXB marshallers write, the output is always UTF-8
+   *
+   * @throws XMLStreamException thrown if error
+   */
+  @Override
+  public void writeStartDocument() throws XMLStreamException {
+    write(XML_DECLARATION);
+  }
+
+  /**
+   * Write the XML declaration JAXB marshallers write, irrespective of the requested version, the output is always UTF-8
+   *
+   * @param version ignored
+   * @throws XMLStreamException thrown if error
+   */
+  @Override
+  public void writeStartDocument(String version) throws XMLStreamException {
+    writeStartDocument();
+  }
+
+  /**
+   * Write the XML declaration JAXB marshallers write, irrespective of the requested encoding or version, the output is always UTF-8
+   *
+   * @param encoding ignored
+   * @param version ignored
+   * @throws XMLStreamException thrown if error
+   */
+  @Override
+  public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+    writeStartDocument();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeCharacters(String text) throws XMLStreamException {
+    writeCharacters((CharSequence) text);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+    completeStartElement(false);
+    seenText = true;
+    writeEscaped(CharBuffer.wrap(text), start, len, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getPrefix(String uri) throws XMLStreamException {
+    return lookupPrefix(uri);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setPrefix(String prefix, String uri) throws XMLStreamException {
+    (openElements.isEmpty() ? documentScope : openElements.peek()).bind(prefix, uri);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setDefaultNamespace(String uri) throws XMLStreamException {
+    setPrefix(XMLConstants.DEFAULT_NS_PREFIX, uri);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+    this.userNamespaceContext = context;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public NamespaceContext getNamespaceContext() {
+    return new NamespaceContext() {
+
+      @Override
+      public String getNamespaceURI(String prefix) {
+        return lookupNamespaceURI(prefix);
+      }
+
+      @Override
+      public String getPrefix(String namespaceURI) {
+        return lookupPrefix(namespaceURI);
+      }
+
+      @Override
+      public Iterator<String> getPrefixes(String namespaceURI) {
+        final String prefix = lookupPrefix(namespaceURI);
+        return prefix == null ? Collections.emptyIterator() : Collections.singletonList(prefix).iterator();
+      }
+    };
+  }
+
+  /**
+   * No properties are supported
+   *
+   * @param name of the property
+   * @return nothing
+   * @throws IllegalArgumentException always
+   */
+  @Override
+  public Object getProperty(String name) throws IllegalArgumentException {
+    throw new IllegalArgumentException(String.format("Property %s not supported by PLANit XML stream writer", name));
+  }
+}
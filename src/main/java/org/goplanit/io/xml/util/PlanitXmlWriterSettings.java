@@ -32,6 +32,18 @@ public class PlanitXmlWriterSettings extends SingleFileBasedConverterWriterSetti
   
   /** decimal separator, default is CharacterUtils.DECIMAL_POINT */
   protected Character decimalSeparator = CharacterUtils.DECIMAL_POINT;
+
+  /** compression codec of the persisted file, default is PlanitCompressionCodec.NONE */
+  protected PlanitCompressionCodec compressionCodec = PlanitCompressionCodec.NONE;
+
+  /** compression level, default is -1, i.e., the default level of the codec */
+  protected int compressionLevel = -1;
+
+  /** formatter of double values, default is null, i.e., a formatter derived from the decimal format and decimal separator */
+  protected PlanitDoubleFormatter doubleFormatter = null;
+
+  /** formatter derived from the decimal format and decimal separator, created upon first use */
+  private volatile PlanitDoubleFormatter derivedDoubleFormatter = null;
   
 
   /** Validate the settings
@@ -103,6 +115,36 @@ public class PlanitXmlWriterSettings extends SingleFileBasedConverterWriterSetti
    */
   public void setDecimalFormat(DecimalFormat decimalFormat) {
     this.decimalFormat = decimalFormat;
+    this.derivedDoubleFormatter = null;
+  }
+
+  /** Formatter used in writing double values, e.g., coordinates and od demands. Unless set explicitly, it is derived from the decimal format 
+   * using the decimal separator, see {@link PlanitDoubleFormatter#of(DecimalFormat, char)}. For decimal formats that only limit the number of
+   * fraction digits, such as the default, this is a fixed precision formatter that is considerably faster than the decimal format itself. 
+   * The formatter is thread safe either way
+   * 
+   * @return formatter used
+   */
+  public PlanitDoubleFormatter getDoubleFormatter() {
+    if(doubleFormatter != null) {
+      return doubleFormatter;
+    }
+    /* creation is idempotent, so concurrent first use at most creates an equivalent formatter more than once */
+    PlanitDoubleFormatter formatter = derivedDoubleFormatter;
+    if(formatter == null) {
+      formatter = PlanitDoubleFormatter.of(decimalFormat, decimalSeparator);
+      derivedDoubleFormatter = formatter;
+    }
+    return formatter;
+  }
+
+  /** Set formatter used in writing double values, e.g., {@link PlanitDoubleFormatter#shortestRoundTrip(char)} to persist without loss of 
+   * precision
+   * 
+   * @param doubleFormatter to use, null to derive a fixed precision formatter from the decimal format and decimal separator
+   */
+  public void setDoubleFormatter(PlanitDoubleFormatter doubleFormatter) {
+    this.doubleFormatter = doubleFormatter;
   }
   
   /** Separator to use for tuples of coordinates that are being persisted
@@ -153,9 +195,44 @@ public class PlanitXmlWriterSettings extends SingleFileBasedConverterWriterSetti
    */
   public void setDecimalSeparator(Character decimalSeparator) {
     this.decimalSeparator = decimalSeparator;
+    this.derivedDoubleFormatter = null;
   }
   
 
+  /** Compression codec of the persisted file, when compressed the suffix of the codec is appended to the file name
+   * 
+   * @return compression codec
+   */
+  public PlanitCompressionCodec getCompressionCodec() {
+    return compressionCodec;
+  }
+
+  /**
+   * Set compression codec of the persisted file
+   * 
+   * @param compressionCodec to use
+   */
+  public void setCompressionCodec(PlanitCompressionCodec compressionCodec) {
+    this.compressionCodec = compressionCodec;
+  }
+
+  /** Compression level used by the compression codec
+   * 
+   * @return compression level, negative when the default level of the codec is used
+   */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * Set compression level used by the compression codec
+   * 
+   * @param compressionLevel to use, negative for the default level of the codec
+   */
+  public void setCompressionLevel(int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+  }
+
   /**
    * Reset content
    */
@@ -0,0 +1,40 @@
+package org.goplanit.io.xml.util;
+
+/**
+ * Formats doubles with the shortest representation that parses to the same value, as {@link Double#toString(double)}, but appended to the
+ * target buffer without creating an intermediate string.
+ *
+ * @author markr
+ *
+ */
+class ShortestRoundTripDoubleFormatter implements PlanitDoubleFormatter {
+
+  /** decimal separator to use */
+  private final char decimalSeparator;
+
+  /**
+   * Constructor
+   *
+   * @param decimalSeparator to use
+   */
+  ShortestRoundTripDoubleFormatter(char decimalSeparator) {
+    this.decimalSeparator = decimalSeparator;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void appendTo(double value, final StringBuilder target) {
+    final int start = target.length();
+    target.append(value);
+    if(decimalSeparator != '.' && Double.isFinite(value)) {
+      for(int index = start; index < target.length(); ++index) {
+        if(target.charAt(index) == '.') {
+          target.setCharAt(index, decimalSeparator);
+          break;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.goplanit.io.output.columnar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.goplanit.output.enums.DataType;
+import org.goplanit.utils.exceptions.PlanItException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the columnar output table and reader
+ *
+ * @author markr
+ *
+ */
+public class ColumnarOutputTableTest {
+
+  /** temporary directory of the current test, removed afterwards */
+  @TempDir
+  Path tempDirectory;
+
+  /**
+   * Test that columnar output is read back column by column identical to the rows it was written from, with and without compression
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void columnar_output_reader_writer_test() throws Exception {
+    final int numberOfRows = 5000;
+    for(boolean compress : new boolean[] {false, true}) {
+      var table = new ColumnarOutputTable(
+          List.of("flow", "link_id", "mode", "used"), List.of(DataType.DOUBLE, DataType.LONG, DataType.STRING, DataType.BOOLEAN));
+      for(int row = 0; row < numberOfRows; ++row) {
+        table.addRow(new Object[] {row * 0.5, (long) row, row % 10 == 0 ? null : "mode_" + (row % 3), row % 2 == 0});
+      }
+
+      Path columnarFile = tempDirectory.resolve("link_output_" + compress + ColumnarOutputTable.FILE_EXTENSION);
+      table.write(columnarFile, compress);
+      var reader = new ColumnarOutputReader(columnarFile);
+      assertEquals(numberOfRows, reader.getNumberOfRows());
+      assertEquals(List.of("flow", "link_id", "mode", "used"), reader.getColumnNames());
+      assertEquals(DataType.STRING, reader.getDataType("mode"));
+
+      double[] flows = reader.readDoubleColumn("flow");
+      long[] linkIds = reader.readLongColumn("link_id");
+      String[] modes = reader.readStringColumn("mode");
+      boolean[] used = reader.readBooleanColumn("used");
+      for(int row = 0; row < numberOfRows; ++row) {
+        assertEquals(row * 0.5, flows[row], 0);
+        assertEquals(row, linkIds[row]);
+        assertEquals(row % 10 == 0 ? null : "mode_" + (row % 3), modes[row]);
+        assertEquals(row % 2 == 0, used[row]);
+      }
+    }
+  }
+
+  /**
+   * Test that a column with an unknown data type name is rejected with a PlanItException when opening the file
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void columnar_output_unknown_data_type_test() throws Exception {
+    var table = new ColumnarOutputTable(List.of("flow"), List.of(DataType.DOUBLE));
+    table.addRow(new Object[] {1.0});
+    Path columnarFile = tempDirectory.resolve("link_output" + ColumnarOutputTable.FILE_EXTENSION);
+    table.write(columnarFile, false);
+
+    /* replace the persisted data type name by an unknown name of the same length */
+    byte[] content = Files.readAllBytes(columnarFile);
+    byte[] dataTypeName = DataType.DOUBLE.name().getBytes(StandardCharsets.UTF_8);
+    int position = -1;
+    for(int index = 0; position < 0 && index + dataTypeName.length <= content.length; ++index) {
+      boolean match = true;
+      for(int offset = 0; match && offset < dataTypeName.length; ++offset) {
+        match = content[index + offset] == dataTypeName[offset];
+      }
+      position = match ? index : -1;
+    }
+    assertTrue(position >= 0);
+    content[position] = 'X';
+    Files.write(columnarFile, content);
+
+    assertThrows(PlanItException.class, () -> new ColumnarOutputReader(columnarFile));
+  }
+}
@@ -0,0 +1,75 @@
+package org.goplanit.io.output.formatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the asynchronous output writer
+ *
+ * @author markr
+ *
+ */
+public class AsynchronousOutputWriterTest {
+
+  /**
+   * A submission that does not fit within the maximum number of pending bytes waits until the pending snapshots are written, tasks are still
+   * performed in order of submission
+   */
+  @Test
+  public void max_pending_bytes_test() throws Exception {
+    final AsynchronousOutputWriter writer = new AsynchronousOutputWriter(8, 150, "asynchronous-output-writer-test");
+    final List<Integer> performed = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch firstTaskStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstTask = new CountDownLatch(1);
+    writer.submit(() -> {
+      firstTaskStarted.countDown();
+      releaseFirstTask.await();
+      performed.add(1);
+    }, 100);
+    assertTrue(firstTaskStarted.await(10, TimeUnit.SECONDS));
+
+    /* small task fits next to the pending snapshot */
+    writer.submit(() -> performed.add(2), 50);
+
+    /* large task does not fit and has to wait */
+    final CountDownLatch thirdTaskSubmitted = new CountDownLatch(1);
+    final Thread submitter = new Thread(() -> {
+      try {
+        writer.submit(() -> performed.add(3), 100);
+        thirdTaskSubmitted.countDown();
+      }catch(Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    submitter.start();
+    assertFalse(thirdTaskSubmitted.await(200, TimeUnit.MILLISECONDS));
+
+    releaseFirstTask.countDown();
+    assertTrue(thirdTaskSubmitted.await(10, TimeUnit.SECONDS));
+    submitter.join();
+    writer.drainAndClose();
+    assertEquals(List.of(1, 2, 3), performed);
+  }
+
+  /**
+   * A single snapshot larger than the maximum number of pending bytes is accepted when nothing else is pending
+   */
+  @Test
+  public void oversized_snapshot_test() throws Exception {
+    final AsynchronousOutputWriter writer = new AsynchronousOutputWriter(8, 10, "asynchronous-output-writer-test");
+    final List<Integer> performed = Collections.synchronizedList(new ArrayList<>());
+    writer.submit(() -> performed.add(1), 1000);
+    writer.submit(() -> performed.add(2), 1000);
+    writer.drainAndClose();
+    assertEquals(List.of(1, 2), performed);
+  }
+}
@@ -0,0 +1,39 @@
+package org.goplanit.io.output.formatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for recording output policies in the metadata description
+ *
+ * @author markr
+ *
+ */
+public class OutputPolicyTest {
+
+  /**
+   * Test that active output policies survive the metadata description next to other entries
+   */
+  @Test
+  public void metadata_description_test() {
+    final Map<OutputPolicy, Double> policies = new EnumMap<>(OutputPolicy.class);
+    policies.put(OutputPolicy.LINK_CHANGE_TOLERANCE, 0.5);
+    policies.put(OutputPolicy.EVERY_NTH_ITERATION, 10.0);
+    policies.put(OutputPolicy.RELATIVE_GAP_THRESHOLD, 1e-4);
+
+    final String entry = OutputPolicy.createMetadataDescription(policies);
+    assertEquals("output-policy=every-nth-iteration:10,relative-gap-threshold:1.0E-4,link-change-tolerance:0.5", entry);
+    assertEquals(policies, OutputPolicy.fromMetadataDescription("PLANit output " + entry + " " + OdOutputLayout.SPARSE_CSV.getMetadataDescription()));
+
+    assertEquals("", OutputPolicy.createMetadataDescription(new EnumMap<>(OutputPolicy.class)));
+    assertTrue(OutputPolicy.fromMetadataDescription("PLANit output").isEmpty());
+    assertTrue(OutputPolicy.fromMetadataDescription(null).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> OutputPolicy.fromMetadataDescription("output-policy=unknown:1"));
+  }
+}
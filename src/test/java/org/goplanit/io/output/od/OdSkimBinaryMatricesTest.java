@@ -0,0 +1,60 @@
+package org.goplanit.io.output.od;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.goplanit.io.output.formatter.OdOutputLayout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the dense binary OD skim matrices
+ *
+ * @author markr
+ *
+ */
+public class OdSkimBinaryMatricesTest {
+
+  /** temporary directory of the current test, removed afterwards */
+  @TempDir
+  Path tempDirectory;
+
+  /**
+   * Test that dense binary OD skim matrices are read back as written and that the OD output layout survives the metadata description
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void binary_od_skim_reader_writer_test() throws Exception {
+    final List<String> zoneXmlIds = List.of("1", "2", "3", "4");
+    final int numberOfZones = zoneXmlIds.size();
+    var matrices = new OdSkimBinaryMatrices(zoneXmlIds);
+    float[] carCosts = OdSkimBinaryMatrices.createMatrix(numberOfZones);
+    for(int origin = 0; origin < numberOfZones; ++origin) {
+      for(int destination = 0; destination < numberOfZones; ++destination) {
+        if(origin != destination) {
+          carCosts[origin * numberOfZones + destination] = origin + destination * 0.5f;
+        }
+      }
+    }
+    matrices.addMatrix("car", carCosts);
+    matrices.addMatrix("bus", OdSkimBinaryMatrices.createMatrix(numberOfZones));
+
+    Path skimFile = tempDirectory.resolve("od_skim" + OdSkimBinaryMatrices.FILE_EXTENSION);
+    matrices.write(skimFile);
+    var readMatrices = OdSkimBinaryMatrices.read(skimFile);
+    assertEquals(zoneXmlIds, readMatrices.getZoneXmlIds());
+    assertEquals(List.of("car", "bus"), readMatrices.getModeXmlIds());
+    assertEquals(2 + 1 * 0.5, readMatrices.getValue("car", 2, 1), 0);
+    assertTrue(Double.isNaN(readMatrices.getValue("car", 3, 3)));
+    assertTrue(Double.isNaN(readMatrices.getValue("bus", 0, 1)));
+
+    for(OdOutputLayout layout : OdOutputLayout.values()) {
+      assertEquals(layout, OdOutputLayout.fromMetadataDescription("PLANit output " + layout.getMetadataDescription()));
+    }
+    assertEquals(OdOutputLayout.DENSE_CSV, OdOutputLayout.fromMetadataDescription("PLANit output"));
+  }
+}
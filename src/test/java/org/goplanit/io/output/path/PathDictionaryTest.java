@@ -0,0 +1,82 @@
+package org.goplanit.io.output.path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the path dictionary
+ *
+ * @author markr
+ *
+ */
+public class PathDictionaryTest {
+
+  /** temporary directory of the current test, removed afterwards */
+  @TempDir
+  Path tempDirectory;
+
+  /**
+   * Test that identical paths are interned once in the path dictionary and that the dictionary is read back as written
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void path_dictionary_reader_writer_test() throws Exception {
+    var dictionary = new PathDictionary();
+    assertEquals(0, dictionary.intern(new long[] {1, 4, 7}));
+    assertEquals(1, dictionary.intern(new long[] {1, 4, 8}));
+    assertEquals(0, dictionary.intern(new long[] {1, 4, 7}));
+    assertEquals(2, dictionary.intern(new long[] {}));
+    assertEquals(3, dictionary.size());
+
+    Path dictionaryFile = tempDirectory.resolve("paths" + PathDictionary.FILE_EXTENSION);
+    dictionary.write(dictionaryFile);
+    var readDictionary = PathDictionary.read(dictionaryFile);
+    assertEquals(3, readDictionary.size());
+    assertArrayEquals(new long[] {1, 4, 8}, readDictionary.getPath(1));
+    assertArrayEquals(new long[] {}, readDictionary.getPath(2));
+    assertEquals(0, readDictionary.intern(new long[] {1, 4, 7}));
+  }
+
+  /**
+   * Test that appending the pending paths after each batch of interned paths yields the same file as writing the complete dictionary, and that
+   * paths interned from a reused buffer are not affected by later changes to that buffer
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void path_dictionary_append_test() throws Exception {
+    var dictionary = new PathDictionary();
+    Path appendedFile = tempDirectory.resolve("appended" + PathDictionary.FILE_EXTENSION);
+
+    long[] buffer = new long[] {1, 4, 7, 9};
+    assertEquals(0, dictionary.intern(buffer, 3));
+    buffer[2] = 8;
+    assertEquals(1, dictionary.intern(buffer, 3));
+    dictionary.takePendingPaths().appendTo(appendedFile);
+    assertEquals(2, PathDictionary.read(appendedFile).size());
+
+    buffer[2] = 7;
+    assertEquals(0, dictionary.intern(buffer, 3));
+    assertEquals(2, dictionary.intern(buffer, 4));
+    assertEquals(3, dictionary.intern(new long[] {}));
+    dictionary.takePendingPaths().appendTo(appendedFile);
+    assertEquals(0, dictionary.takePendingPaths().size());
+
+    var readDictionary = PathDictionary.read(appendedFile);
+    assertEquals(4, readDictionary.size());
+    assertArrayEquals(new long[] {1, 4, 7}, readDictionary.getPath(0));
+    assertArrayEquals(new long[] {1, 4, 8}, readDictionary.getPath(1));
+    assertArrayEquals(new long[] {1, 4, 7, 9}, readDictionary.getPath(2));
+
+    Path writtenFile = tempDirectory.resolve("written" + PathDictionary.FILE_EXTENSION);
+    dictionary.write(writtenFile);
+    assertArrayEquals(Files.readAllBytes(writtenFile), Files.readAllBytes(appendedFile));
+  }
+}
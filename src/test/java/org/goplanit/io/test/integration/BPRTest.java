@@ -112,6 +112,23 @@ public class BPRTest {
    */
   @Test
   public void test_bpr_parameters_test() {
+    run_bpr_parameters_test(false);
+  }
+
+  /**
+   * Same as {@link #test_bpr_parameters_test()} but writing the output files asynchronously, output files must be identical
+   */
+  @Test
+  public void test_bpr_parameters_asynchronous_output_test() {
+    run_bpr_parameters_test(true);
+  }
+
+  /**
+   * Run BPR parameters test case, verifying both results and persisted output files
+   *
+   * @param asynchronousOutput when true output files are written asynchronously
+   */
+  private void run_bpr_parameters_test(boolean asynchronousOutput) {
     try {
       String projectPath = Path.of(testCasePath.toString(),"bpr_parameters_test","xml","simple").toString();
       String description = "mode_test";
@@ -150,6 +167,7 @@ public class BPRTest {
       runner.setGapFunctionEpsilonGap(0.0);
       runner.setPersistZeroFlow(false);
       runner.setUseFixedConnectoidCost();
+      runner.setAsynchronousOutput(asynchronousOutput);
   
       TestOutputDto<MemoryOutputFormatter, CustomPlanItProject, PlanItInputBuilder4Testing> testOutputDto = 
           runner.setupAndExecuteWithCustomBprConfiguration(setCostParametersConsumer);
@@ -1,7 +1,11 @@
 package org.goplanit.io.test.integration;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.goplanit.converter.intermodal.IntermodalConverterFactory;
 import org.goplanit.converter.network.NetworkConverterFactory;
@@ -19,9 +23,12 @@ import org.goplanit.utils.locale.CountryNames;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.xmlunit.builder.Input;
 import org.xmlunit.matchers.CompareMatcher;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -83,6 +90,40 @@ public class ConverterTest {
     }
   }
   
+  /**
+   * Test that reading a PLANit network in native format in streaming mode and then writing it results in the same
+   * files as the original input that was read.
+   */
+  @Test
+  public void testPlanit2PlanitNetworkStreamingConverter() {
+    try {
+      final String projectPath = Path.of(TEST_CASE_PATH.toString(),"converter_test").toString();
+      final String inputPath = Path.of(projectPath, "input").toString();
+      
+      /* reader */
+      PlanitNetworkReader planitReader = PlanitNetworkReaderFactory.create();
+      planitReader.getSettings().setInputDirectory(inputPath);
+      planitReader.getSettings().setStreamingParse(true);
+      
+      /* writer */
+      PlanitNetworkWriter planitWriter = PlanitNetworkWriterFactory.create(projectPath, CountryNames.AUSTRALIA);
+      
+      /* convert */
+      NetworkConverterFactory.create(planitReader, planitWriter).convert();
+      
+      /* use non-deprecated hamcrest version instead of junit for comparing */
+      org.hamcrest.MatcherAssert.assertThat(
+          /* xml unit functionality comparing the two files */
+          Input.fromFile(Path.of(projectPath, "network.xml").toString()),
+          CompareMatcher.isSimilarTo(Input.fromFile(Path.of(inputPath,"network.xml").toString())));
+      
+    } catch (Exception e) {
+      LOGGER.severe(e.getMessage());
+      e.printStackTrace();
+      fail();
+    }
+  }
+  
   /**
    * Test that reading a planit intermodal network (network and (pt) zoning) in native format and then writing it results in the same
    * files as the original input that was read.
@@ -162,4 +203,45 @@ public class ConverterTest {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * Test that persisting an intermodal network with services concurrently results in files that are byte identical to the files persisted
+   * sequentially, i.e., the writers do not depend on each other's progress
+   *
+   * @param tempDirectory to persist in, removed afterwards
+   */
+  @Test
+  public void testPlanit2PlanitIntermodalServicesConcurrentWriter(@TempDir Path tempDirectory) {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(),"converter_test", "input").toString();
+      var networkZoningServices = PlanitIntermodalReaderFactory.create(inputPath).readWithServices();
+
+      final Path sequentialPath = Files.createDirectories(tempDirectory.resolve("sequential"));
+      final Path concurrentPath = Files.createDirectories(tempDirectory.resolve("concurrent"));
+      for(var outputPath : List.of(sequentialPath, concurrentPath)) {
+        PlanitIntermodalWriter planitWriter = PlanitIntermodalWriterFactory.create(outputPath.toString(), CountryNames.AUSTRALIA);
+        planitWriter.getSettings().setNumberOfWriteThreads(outputPath == sequentialPath ? 1 : 4);
+        planitWriter.writeWithServices(
+            networkZoningServices.first(), networkZoningServices.second(), networkZoningServices.third(), networkZoningServices.fourth());
+      }
+
+      List<Path> sequentialFiles;
+      try(Stream<Path> files = Files.list(sequentialPath)){
+        sequentialFiles = files.sorted().collect(Collectors.toList());
+      }
+      try(Stream<Path> files = Files.list(concurrentPath)){
+        assertEquals(
+            sequentialFiles.stream().map(Path::getFileName).collect(Collectors.toList()),
+            files.sorted().map(Path::getFileName).collect(Collectors.toList()));
+      }
+      assertEquals(4, sequentialFiles.size());
+      for(var sequentialFile : sequentialFiles) {
+        assertArrayEquals(Files.readAllBytes(sequentialFile), Files.readAllBytes(concurrentPath.resolve(sequentialFile.getFileName())));
+      }
+    } catch (Exception e) {
+      LOGGER.severe(e.getMessage());
+      e.printStackTrace();
+      fail();
+    }
+  }
+
+}
@@ -2,30 +2,43 @@ package org.goplanit.io.test.integration;
 
 import java.io.FileReader;
 import java.io.Reader;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.goplanit.demands.Demands;
+import org.goplanit.io.cost.PlanitBinaryLinkSegmentCosts;
 import org.goplanit.io.test.util.PlanItIOTestRunner;
 import org.goplanit.io.test.util.PlanItInputBuilder4Testing;
 import org.goplanit.logging.Logging;
 import org.goplanit.network.MacroscopicNetwork;
+import org.goplanit.output.enums.OutputType;
+import org.goplanit.output.formatter.MemoryOutputFormatter;
+import org.goplanit.output.formatter.MemoryOutputIterator;
 import org.goplanit.output.property.DownstreamNodeXmlIdOutputProperty;
 import org.goplanit.output.property.LinkSegmentCostOutputProperty;
 import org.goplanit.output.property.LinkSegmentXmlIdOutputProperty;
 import org.goplanit.output.property.ModeXmlIdOutputProperty;
+import org.goplanit.output.property.OutputPropertyType;
 import org.goplanit.output.property.UpstreamNodeXmlIdOutputProperty;
 import org.goplanit.project.CustomPlanItProject;
 import org.goplanit.utils.id.IdGenerator;
 import org.goplanit.utils.mode.Mode;
 import org.goplanit.utils.network.layer.macroscopic.MacroscopicLinkSegment;
 import org.goplanit.utils.network.layer.physical.Node;
+import org.goplanit.utils.test.TestOutputDto;
+import org.goplanit.utils.time.TimePeriod;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -139,6 +152,103 @@ public class InitialCostTest {
     }
   }
 
+  /**
+   * Test that initial costs persisted as binary link segment cost file are read back identical to the costs they were created from
+   */
+  @Test
+  public void test_reading_binary_initial_cost_values() {
+    final String projectPath = Path.of(intialCostTestCasePath.toString(),"readingInitialCostValues").toString();
+    String initialCostsFileLocation = Path.of(projectPath.toString(),"initial_link_segment_costs.csv").toString();
+    Path binaryCostsFile = null;
+    try {
+      /* planit */
+      PlanItInputBuilder4Testing planItInputBuilder = new PlanItInputBuilder4Testing(projectPath);
+      final CustomPlanItProject project = new CustomPlanItProject(planItInputBuilder);
+      MacroscopicNetwork network = (MacroscopicNetwork) project.createAndRegisterInfrastructureNetwork(MacroscopicNetwork.class.getCanonicalName());
+      Demands demands = project.createAndRegisterDemands(project.createAndRegisterZoning(network), network);
+      var initialCost = project.createAndRegisterInitialLinkSegmentCost(network, initialCostsFileLocation);
+
+      /* persist csv based costs as binary */
+      List<Mode> modes = new ArrayList<>();
+      network.getModes().forEach(modes::add);
+      List<MacroscopicLinkSegment> linkSegments = PlanitBinaryLinkSegmentCosts.collectLinkSegments(network, modes);
+      int numberOfLinkSegmentIds = 1 + (int) linkSegments.stream().mapToLong(MacroscopicLinkSegment::getId).max().orElse(-1);
+      double[] costs = new double[numberOfLinkSegmentIds * modes.size()];
+      Arrays.fill(costs, Double.NaN);
+      for(int modeIndex = 0; modeIndex < modes.size(); ++modeIndex) {
+        for(MacroscopicLinkSegment linkSegment : network.getLayerByMode(modes.get(modeIndex)).getLinkSegments()) {
+          costs[(int) linkSegment.getId() * modes.size() + modeIndex] = initialCost.getGeneralisedCost(modes.get(modeIndex), linkSegment);
+        }
+      }
+      binaryCostsFile = Files.createTempFile("initial_link_segment_costs", PlanitBinaryLinkSegmentCosts.FILE_EXTENSION);
+      PlanitBinaryLinkSegmentCosts.write(binaryCostsFile, PlanitBinaryLinkSegmentCosts.createNetworkFingerprint(linkSegments), numberOfLinkSegmentIds, modes,
+          List.of(demands.timePeriods.iterator().next()), List.<double[]>of(costs));
+
+      /* read back as initial costs */
+      var binaryInitialCost = project.createAndRegisterInitialLinkSegmentCost(network, binaryCostsFile.toString());
+      for(Mode mode : modes) {
+        for(MacroscopicLinkSegment linkSegment : network.getLayerByMode(mode).getLinkSegments()) {
+          assertEquals(initialCost.getGeneralisedCost(mode, linkSegment), binaryInitialCost.getGeneralisedCost(mode, linkSegment), 0.0001);
+        }
+      }
+    } catch (final Exception e) {
+      LOGGER.severe( e.getMessage());
+      fail(e.getMessage());
+    } finally {
+      if(binaryCostsFile != null) {
+        binaryCostsFile.toFile().delete();
+      }
+    }
+  }
+
+  /**
+   * Test that the binary link segment costs persisted by the PLANit output formatter after an assignment are read back as initial costs
+   * identical to the final link segment costs of that assignment
+   */
+  @Test
+  public void test_reading_binary_initial_cost_values_from_output(@TempDir Path tempDirectory) {
+    try {
+      String projectPath = Path.of(testCasePath.toString(),"explanatory","xml","original").toString();
+
+      /* run assignment persisting its final costs as binary file */
+      PlanItIOTestRunner runner = new PlanItIOTestRunner(projectPath, "binaryInitialCosts");
+      runner.setOutputDirectory(tempDirectory.toString());
+      runner.setPersistBinaryLinkSegmentCosts(true);
+      runner.setUseFixedConnectoidCost();
+      TestOutputDto<MemoryOutputFormatter, CustomPlanItProject, PlanItInputBuilder4Testing> testOutputDto = runner.setupAndExecuteDefaultAssignment();
+      assertNotNull(runner.getBinaryLinkSegmentCostsFileName());
+
+      /* read back as initial costs */
+      MacroscopicNetwork network = (MacroscopicNetwork) testOutputDto.getB().physicalNetworks.getFirst();
+      Demands demands = (Demands) testOutputDto.getB().demands.getFirst();
+      var binaryInitialCost = testOutputDto.getB().createAndRegisterInitialLinkSegmentCost(network, runner.getBinaryLinkSegmentCostsFileName());
+
+      /* compare against final iteration costs */
+      MemoryOutputFormatter memoryOutputFormatter = testOutputDto.getA();
+      int iteration = memoryOutputFormatter.getLastIteration();
+      int linkSegmentIdPosition = memoryOutputFormatter.getPositionOfOutputKeyProperty(OutputType.LINK, OutputPropertyType.LINK_SEGMENT_ID);
+      int costPosition = memoryOutputFormatter.getPositionOfOutputValueProperty(OutputType.LINK, OutputPropertyType.LINK_SEGMENT_COST);
+      int numberOfComparedCosts = 0;
+      for(TimePeriod timePeriod : demands.timePeriods) {
+        for(Mode mode : network.getModes()) {
+          MemoryOutputIterator memoryOutputIterator = memoryOutputFormatter.getIterator(mode, timePeriod, iteration, OutputType.LINK);
+          while(memoryOutputIterator.hasNext()) {
+            memoryOutputIterator.next();
+            long linkSegmentId = (Long) memoryOutputIterator.getKeys()[linkSegmentIdPosition];
+            double cost = (Double) memoryOutputIterator.getValues()[costPosition];
+            MacroscopicLinkSegment linkSegment = network.getLayerByMode(mode).getLinkSegments().get(linkSegmentId);
+            assertEquals(cost, binaryInitialCost.getGeneralisedCost(mode, linkSegment), 0.0001);
+            ++numberOfComparedCosts;
+          }
+        }
+      }
+      assertTrue(numberOfComparedCosts > 0);
+    } catch (final Exception e) {
+      LOGGER.severe( e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
   /**
    * Test that PlanItProject throws an exception when the input XML is missing some link segments which are included in the initial costs file
    */
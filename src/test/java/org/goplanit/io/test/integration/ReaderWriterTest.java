@@ -1,14 +1,47 @@
 package org.goplanit.io.test.integration;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.logging.Logger;
 
+import org.goplanit.demands.Demands;
+import org.goplanit.io.converter.PlanitExternalIdIndex;
+import org.goplanit.io.converter.demands.PlanitDemandsReaderFactory;
+import org.goplanit.io.converter.demands.PlanitDemandsReaderSettings;
+import org.goplanit.io.converter.demands.PlanitDemandsWriterFactory;
+import org.goplanit.io.converter.demands.PlanitDemandsWriterSettings;
+import org.goplanit.io.converter.network.PlanitNetworkReader;
+import org.goplanit.io.converter.network.PlanitNetworkReaderFactory;
+import org.goplanit.io.converter.network.PlanitNetworkShardManifest;
+import org.goplanit.io.converter.network.PlanitNetworkWriter;
+import org.goplanit.io.converter.network.PlanitNetworkWriterFactory;
+import org.goplanit.io.converter.snapshot.PlanitSnapshotFormat;
+import org.goplanit.io.converter.snapshot.PlanitSnapshotReader;
+import org.goplanit.io.converter.snapshot.PlanitSnapshotWriter;
+import org.goplanit.io.converter.zoning.PlanitZoningReaderFactory;
+import org.goplanit.io.xml.util.PlanitCompressionCodec;
 import org.goplanit.logging.Logging;
+import org.goplanit.network.MacroscopicNetwork;
 import org.goplanit.utils.id.IdGenerator;
+import org.goplanit.utils.id.IdGroupingToken;
+import org.goplanit.xml.generated.XMLElementMacroscopicDemand;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.goplanit.zoning.Zoning;
+import org.locationtech.jts.io.WKTReader;
 
 /**
  * Test the reader writer implementation separately
@@ -21,6 +54,84 @@ public class ReaderWriterTest {
   /** the logger */
   private static Logger LOGGER = null;
 
+  private static final Path TEST_CASE_PATH = Path.of("src","test","resources","testcases");
+
+  /** temporary directory of the current test, removed afterwards */
+  @TempDir
+  Path tempDirectory;
+
+  /**
+   * Create a (sub) directory of the temporary directory of the current test to write output to
+   *
+   * @param name of the directory
+   * @return created directory
+   * @throws IOException thrown if error
+   */
+  private Path createOutputDirectory(final String name) throws IOException {
+    return Files.createDirectories(tempDirectory.resolve(name));
+  }
+
+  /**
+   * Read demands on given network and zoning with or without streaming
+   *
+   * @param inputPath to use
+   * @param network to use
+   * @param zoning to use
+   * @param streaming when true streaming parse is activated
+   * @return parsed demands
+   */
+  private static Demands readDemands(final String inputPath, final MacroscopicNetwork network, final Zoning zoning, boolean streaming) {
+    var demandsSettings = new PlanitDemandsReaderSettings(inputPath);
+    demandsSettings.setStreamingParse(streaming);
+    return PlanitDemandsReaderFactory.create(demandsSettings, network, zoning).read();
+  }
+
+  /**
+   * Verify two demands on the same network and zoning have identical od demands
+   *
+   * @param network to use
+   * @param zoning to use
+   * @param demands expected
+   * @param otherDemands actual
+   */
+  private static void assertOdDemandsIdentical(final MacroscopicNetwork network, final Zoning zoning, final Demands demands, final Demands otherDemands) {
+    assertEquals(demands.timePeriods.size(), otherDemands.timePeriods.size());
+    for(var timePeriod : demands.timePeriods) {
+      var otherTimePeriod = otherDemands.timePeriods.getByXmlId(timePeriod.getXmlId());
+      assertNotNull(otherTimePeriod);
+      for(var mode : network.getModes()) {
+        var odDemands = demands.get(mode, timePeriod);
+        var otherOdDemands = otherDemands.get(mode, otherTimePeriod);
+        if(odDemands == null) {
+          assertNull(otherOdDemands);
+          continue;
+        }
+        assertNotNull(otherOdDemands);
+        for(var origin : zoning.getOdZones()) {
+          for(var destination : zoning.getOdZones()) {
+            double expected = odDemands.getValue(origin, destination);
+            double actual = otherOdDemands.getValue(origin, destination);
+            assertEquals(expected, actual, 1e-9);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Verify demands read with streaming parse are identical to the demands read via the JAXB memory model
+   *
+   * @param inputPath to use
+   */
+  private static void assertStreamingDemandsIdentical(final String inputPath) {
+    MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+    Zoning zoning = PlanitZoningReaderFactory.create(inputPath, network).read();
+
+    Demands demands = readDemands(inputPath, network, zoning, false);
+    Demands streamedDemands = readDemands(inputPath, network, zoning, true);
+    assertOdDemandsIdentical(network, zoning, demands, streamedDemands);
+  }
+
   @BeforeAll
   public static void setUp() throws Exception {
     if (LOGGER == null) {
@@ -34,6 +145,408 @@ public class ReaderWriterTest {
     IdGenerator.reset();
   }
 
+  /**
+   * Verify streaming demands parsing (od row matrices) results in the same demands as the regular parsing
+   */
+  @Test
+  public void streaming_demands_reader_test() {
+    try {
+      final Path routeChoicePath = Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml");
+      assertStreamingDemandsIdentical(Path.of(routeChoicePath.toString(), "biDirectionalLinksRouteChoiceSingleMode").toString());
+      assertStreamingDemandsIdentical(Path.of(routeChoicePath.toString(), "biDirectionalLinksRouteChoiceSingleModeWithPlusSignSeparator").toString());
+      assertStreamingDemandsIdentical(Path.of(routeChoicePath.toString(), "biDirectionalLinksRouteChoiceSingleModeWithTwoTimePeriods").toString());
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify demands persisted as gzip compressed XML are identical to the original demands when read back in, with and without streaming
+   */
+  @Test
+  public void compressed_demands_reader_writer_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml", "biDirectionalLinksRouteChoiceSingleModeWithTwoTimePeriods").toString();
+      MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+      Zoning zoning = PlanitZoningReaderFactory.create(inputPath, network).read();
+      Demands demands = readDemands(inputPath, network, zoning, false);
+
+      final Path outputPath = createOutputDirectory("xml");
+      var writerSettings = new PlanitDemandsWriterSettings(outputPath.toString());
+      writerSettings.setCompressionCodec(PlanitCompressionCodec.GZIP);
+      writerSettings.setCompressionLevel(9);
+      PlanitDemandsWriterFactory.create(writerSettings, zoning, new XMLElementMacroscopicDemand()).write(demands);
+      try(var files = Files.list(outputPath)){
+        assertTrue(files.allMatch(file -> file.toString().endsWith(PlanitCompressionCodec.GZIP.getFileSuffix())));
+      }
+
+      for(var streaming : new boolean[] {false, true}) {
+        Demands compressedDemands = readDemands(outputPath.toString(), network, zoning, streaming);
+        assertOdDemandsIdentical(network, zoning, demands, compressedDemands);
+      }
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify demands persisted with binary od matrices are identical to the original demands when read back in with binary od matrices activated,
+   * and that they are ignored otherwise
+   */
+  @Test
+  public void binary_od_matrix_reader_writer_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml", "biDirectionalLinksRouteChoiceSingleModeWithTwoTimePeriods").toString();
+      MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+      Zoning zoning = PlanitZoningReaderFactory.create(inputPath, network).read();
+      Demands demands = readDemands(inputPath, network, zoning, false);
+
+      final Path outputPath = createOutputDirectory("xml");
+      var writerSettings = new PlanitDemandsWriterSettings(outputPath.toString());
+      writerSettings.setBinaryOdMatrices(true);
+      PlanitDemandsWriterFactory.create(writerSettings, zoning, new XMLElementMacroscopicDemand()).write(demands);
+
+      for(var streaming : new boolean[] {false, true}) {
+        var demandsSettings = new PlanitDemandsReaderSettings(outputPath.toString());
+        demandsSettings.setStreamingParse(streaming);
+        demandsSettings.setBinaryOdMatrices(true);
+        Demands binaryDemands = PlanitDemandsReaderFactory.create(demandsSettings, network, zoning).read();
+        assertOdDemandsIdentical(network, zoning, demands, binaryDemands);
+
+        /* binary od matrices are ignored unless activated */
+        Demands xmlOnlyDemands = readDemands(outputPath.toString(), network, zoning, streaming);
+        for(var timePeriod : xmlOnlyDemands.timePeriods) {
+          for(var mode : network.getModes()) {
+            assertNull(xmlOnlyDemands.get(mode, timePeriod));
+          }
+        }
+      }
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify the external id index finds all network entities by their external id and that the network reader retains one index per network
+   */
+  @Test
+  public void external_id_index_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml", "SIMOMISOrouteChoiceTwoModesIdentifyLinksById").toString();
+      PlanitNetworkReader networkReader = PlanitNetworkReaderFactory.create(inputPath);
+      MacroscopicNetwork network = networkReader.read();
+      Zoning zoning = PlanitZoningReaderFactory.create(inputPath, network).read();
+      PlanitExternalIdIndex externalIdIndex = new PlanitExternalIdIndex(network, zoning);
+
+      for(var layer : network.getTransportLayers()) {
+        for(var linkSegment : layer.getLinkSegments()) {
+          if(linkSegment.getExternalId() != null) {
+            assertTrue(externalIdIndex.getLinkSegmentsByExternalId(linkSegment.getExternalId()).contains(linkSegment));
+          }
+        }
+        for(var node : layer.getNodes()) {
+          if(node.getExternalId() != null) {
+            assertTrue(externalIdIndex.getNodesByExternalId(node.getExternalId()).contains(node));
+          }
+        }
+      }
+      for(var zone : zoning.getOdZones()) {
+        if(zone.getExternalId() != null) {
+          assertTrue(externalIdIndex.getZonesByExternalId(zone.getExternalId()).contains(zone));
+        }
+      }
+      assertTrue(externalIdIndex.getLinkSegmentsByExternalId("unknown external id").isEmpty());
+      assertNull(externalIdIndex.getFirstLinkSegmentByExternalId("unknown external id"));
+
+      var readerIndex = networkReader.getExternalIdIndex(network);
+      assertSame(readerIndex, networkReader.getExternalIdIndex(network));
+      for(var linkSegment : network.getTransportLayers().getFirst().getLinkSegments()) {
+        if(linkSegment.getExternalId() != null) {
+          assertEquals(linkSegment.getExternalId(), networkReader.getLinkSegmentByExternalId(network, linkSegment.getExternalId()).getExternalId());
+        }
+      }
+      assertSame(readerIndex, networkReader.getExternalIdIndex(network));
+      assertNull(networkReader.getLinkSegmentByExternalId(network, "unknown external id"));
+      networkReader.resetExternalIdIndex();
+      assertNotSame(readerIndex, networkReader.getExternalIdIndex(network));
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify a network, zoning and demands restored from a binary snapshot are identical to the parsed originals, including zone geometries with
+   * holes, multiple parts and z ordinates, also when the snapshot is mapped in segments smaller than its values
+   */
+  @Test
+  public void snapshot_reader_writer_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml", "biDirectionalLinksRouteChoiceSingleModeWithTwoTimePeriods").toString();
+      MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+      Zoning zoning = PlanitZoningReaderFactory.create(inputPath, network).read();
+      Demands demands = readDemands(inputPath, network, zoning, false);
+
+      var geometryReader = new WKTReader();
+      var zoneGeometries = List.of(
+          geometryReader.read("POLYGON Z((0 0 1, 10 0 2, 10 10 3, 0 10 4, 0 0 1),(2 2 0, 3 2 0, 3 3 0, 2 2 0))"),
+          geometryReader.read("MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)),((5 5, 6 5, 6 6, 5 5)))"));
+      var zoneIterator = zoning.getOdZones().iterator();
+      for(var zoneGeometry : zoneGeometries) {
+        zoneIterator.next().setGeometry(zoneGeometry);
+      }
+
+      final Path snapshotFile = tempDirectory.resolve("network.snapshot");
+      long sourceFingerprint = PlanitSnapshotFormat.createSourceFingerprint(inputPath, ".xml");
+      new PlanitSnapshotWriter(snapshotFile).write(network, zoning, demands, sourceFingerprint);
+
+      for(int mappedSegmentSize : List.of(PlanitSnapshotReader.DEFAULT_MAPPED_SEGMENT_SIZE, 13)) {
+        var snapshotReader = new PlanitSnapshotReader(snapshotFile, IdGroupingToken.collectGlobalToken(), mappedSegmentSize);
+        assertTrue(snapshotReader.isUpToDate(inputPath, ".xml"));
+        snapshotReader.read();
+
+        MacroscopicNetwork restoredNetwork = snapshotReader.getNetwork();
+        assertEquals(network.getXmlId(), restoredNetwork.getXmlId());
+        assertEquals(network.getModes().size(), restoredNetwork.getModes().size());
+        assertEquals(network.getTransportLayers().size(), restoredNetwork.getTransportLayers().size());
+        var layer = network.getTransportLayers().getFirst();
+        var restoredLayer = restoredNetwork.getTransportLayers().getFirst();
+        assertEquals(layer.getNodes().size(), restoredLayer.getNodes().size());
+        assertEquals(layer.getLinks().size(), restoredLayer.getLinks().size());
+        assertEquals(layer.getLinkSegments().size(), restoredLayer.getLinkSegments().size());
+        assertEquals(layer.getLinkSegmentTypes().size(), restoredLayer.getLinkSegmentTypes().size());
+        for(var link : layer.getLinks()) {
+          var restoredLink = restoredLayer.getLinks().getByXmlId(link.getXmlId());
+          assertNotNull(restoredLink);
+          assertEquals(link.getLengthKm(), restoredLink.getLengthKm(), 1e-9);
+          assertEquals(link.getNodeA().getXmlId(), restoredLink.getNodeA().getXmlId());
+          assertEquals(link.getNodeB().getXmlId(), restoredLink.getNodeB().getXmlId());
+        }
+
+        Zoning restoredZoning = snapshotReader.getZoning();
+        assertEquals(zoning.getOdZones().size(), restoredZoning.getOdZones().size());
+        assertEquals(zoning.getOdConnectoids().size(), restoredZoning.getOdConnectoids().size());
+        for(var zone : zoning.getOdZones()) {
+          var restoredZone = restoredZoning.getOdZones().getByXmlId(zone.getXmlId());
+          assertEquals(zone.hasGeometry(), restoredZone.hasGeometry());
+          if(zone.hasGeometry()) {
+            assertTrue(zone.getGeometry().equalsExact(restoredZone.getGeometry()));
+            assertEquals(zone.getGeometry().toText(), restoredZone.getGeometry().toText());
+          }
+        }
+
+        Demands restoredDemands = snapshotReader.getDemands();
+        assertEquals(demands.timePeriods.size(), restoredDemands.timePeriods.size());
+        assertEquals(demands.userClasses.size(), restoredDemands.userClasses.size());
+        for(var timePeriod : demands.timePeriods) {
+          var restoredTimePeriod = restoredDemands.timePeriods.getByXmlId(timePeriod.getXmlId());
+          assertNotNull(restoredTimePeriod);
+          for(var mode : network.getModes()) {
+            var odDemands = demands.get(mode, timePeriod);
+            var restoredOdDemands = restoredDemands.get(restoredNetwork.getModes().getByXmlId(mode.getXmlId()), restoredTimePeriod);
+            if(odDemands == null) {
+              assertNull(restoredOdDemands);
+              continue;
+            }
+            assertNotNull(restoredOdDemands);
+            for(var origin : zoning.getOdZones()) {
+              var restoredOrigin = restoredZoning.getOdZones().getByXmlId(origin.getXmlId());
+              for(var destination : zoning.getOdZones()) {
+                var restoredDestination = restoredZoning.getOdZones().getByXmlId(destination.getXmlId());
+                assertEquals(odDemands.getValue(origin, destination), restoredOdDemands.getValue(restoredOrigin, restoredDestination), 1e-9);
+              }
+            }
+          }
+        }
+      }
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify demands persisted with streamed od rows are byte identical to the demands persisted via the JAXB memory model
+   */
+  @Test
+  public void streaming_demands_writer_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml", "biDirectionalLinksRouteChoiceSingleModeWithTwoTimePeriods").toString();
+      MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+      Zoning zoning = PlanitZoningReaderFactory.create(inputPath, network).read();
+      Demands demands = readDemands(inputPath, network, zoning, false);
+
+      final Path outputPath = createOutputDirectory("xml");
+      final Path streamedOutputPath = createOutputDirectory("streamed");
+      PlanitDemandsWriterFactory.create(new PlanitDemandsWriterSettings(outputPath.toString()), zoning, new XMLElementMacroscopicDemand()).write(demands);
+      var streamingSettings = new PlanitDemandsWriterSettings(streamedOutputPath.toString());
+      streamingSettings.setStreaming(true);
+      PlanitDemandsWriterFactory.create(streamingSettings, zoning, new XMLElementMacroscopicDemand()).write(demands);
+
+      final String fileName = streamingSettings.getFileName();
+      assertArrayEquals(Files.readAllBytes(outputPath.resolve(fileName)), Files.readAllBytes(streamedOutputPath.resolve(fileName)));
+      assertOdDemandsIdentical(network, zoning, demands, readDemands(streamedOutputPath.toString(), network, zoning, true));
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify a network persisted with the streaming network writer, writing nodes, links and link segments with StAX, is byte identical to the network
+   * persisted via the JAXB memory model
+   */
+  @Test
+  public void streaming_network_writer_test() {
+    try {
+      /* without geometry and with link lengths, and with geometry, names and external ids */
+      final List<Path> inputPaths = List.of(
+          Path.of(TEST_CASE_PATH.toString(), "route_choice", "xml", "biDirectionalLinksRouteChoiceSingleModeWithTwoTimePeriods"),
+          Path.of(TEST_CASE_PATH.toString(), "converter_test", "input"));
+      for(int index = 0; index < inputPaths.size(); ++index) {
+        MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPaths.get(index).toString()).read();
+
+        final Path outputPath = createOutputDirectory("xml_" + index);
+        final Path streamedOutputPath = createOutputDirectory("streamed_" + index);
+        PlanitNetworkWriterFactory.create(outputPath.toString()).write(network);
+        PlanitNetworkWriter streamingWriter = PlanitNetworkWriterFactory.create(streamedOutputPath.toString());
+        streamingWriter.getSettings().setStreaming(true);
+        streamingWriter.write(network);
+
+        final String fileName = streamingWriter.getSettings().getFileName();
+        assertArrayEquals(Files.readAllBytes(outputPath.resolve(fileName)), Files.readAllBytes(streamedOutputPath.resolve(fileName)));
+      }
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify two networks have the same layers in the same order, with identical ids and xml ids for layers, nodes, links and link segments
+   *
+   * @param network expected
+   * @param otherNetwork actual
+   */
+  private static void assertNetworkLayersIdentical(final MacroscopicNetwork network, final MacroscopicNetwork otherNetwork) {
+    assertEquals(network.getXmlId(), otherNetwork.getXmlId());
+    assertEquals(network.getModes().size(), otherNetwork.getModes().size());
+    assertEquals(network.getTransportLayers().size(), otherNetwork.getTransportLayers().size());
+    var otherLayers = otherNetwork.getTransportLayers().iterator();
+    for(var layer : network.getTransportLayers()) {
+      var otherLayer = otherLayers.next();
+      assertEquals(layer.getId(), otherLayer.getId());
+      assertEquals(layer.getXmlId(), otherLayer.getXmlId());
+      assertEquals(layer.getNodes().size(), otherLayer.getNodes().size());
+      assertEquals(layer.getLinks().size(), otherLayer.getLinks().size());
+      assertEquals(layer.getLinkSegments().size(), otherLayer.getLinkSegments().size());
+      for(var node : layer.getNodes()) {
+        var otherNode = otherLayer.getNodes().getByXmlId(node.getXmlId());
+        assertNotNull(otherNode);
+        assertEquals(node.getId(), otherNode.getId());
+      }
+      for(var link : layer.getLinks()) {
+        var otherLink = otherLayer.getLinks().getByXmlId(link.getXmlId());
+        assertNotNull(otherLink);
+        assertEquals(link.getId(), otherLink.getId());
+        assertEquals(link.getLengthKm(), otherLink.getLengthKm(), 1e-9);
+        assertEquals(link.getNodeA().getXmlId(), otherLink.getNodeA().getXmlId());
+        assertEquals(link.getNodeB().getXmlId(), otherLink.getNodeB().getXmlId());
+      }
+      for(var linkSegment : layer.getLinkSegments()) {
+        var otherLinkSegment = otherLayer.getLinkSegments().getByXmlId(linkSegment.getXmlId());
+        assertNotNull(otherLinkSegment);
+        assertEquals(linkSegment.getId(), otherLinkSegment.getId());
+      }
+    }
+  }
+
+  /**
+   * Verify a multi-layer network persisted as shards, one per layer and listed in a manifest, using multiple threads is read back identical to
+   * the original network, including the order and ids of its layers, irrespective of the number of threads used to parse the shards
+   */
+  @Test
+  public void sharded_network_reader_writer_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "sharded_network", "xml", "multiLayer").toString();
+      MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+      assertEquals(3, network.getTransportLayers().size());
+
+      final Path outputPath = createOutputDirectory("xml");
+      PlanitNetworkWriter shardedWriter = PlanitNetworkWriterFactory.create(outputPath.toString());
+      shardedWriter.getSettings().setSharded(true);
+      shardedWriter.getSettings().setNumberOfWriteThreads(3);
+      shardedWriter.write(network);
+
+      final String fileName = shardedWriter.getSettings().getFileName();
+      assertTrue(Files.notExists(outputPath.resolve(fileName)));
+      final Path manifestPath = outputPath.resolve(PlanitNetworkShardManifest.createManifestFileName(fileName));
+      var manifest = PlanitNetworkShardManifest.read(manifestPath);
+      assertEquals(network.getXmlId(), manifest.getNetworkXmlId());
+      assertEquals(network.getTransportLayers().size(), manifest.getShardFileNames().size());
+
+      for(int numberOfParseThreads : new int[] {1, 3}) {
+        PlanitNetworkReader shardedReader = PlanitNetworkReaderFactory.create(outputPath.toString());
+        shardedReader.getSettings().setNumberOfParseThreads(numberOfParseThreads);
+        assertNetworkLayersIdentical(network, shardedReader.read());
+      }
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
+  /**
+   * Verify persisting a network without shards removes the shards of a previous sharded run, and vice versa, so the directory holds either a
+   * network file or a manifest
+   */
+  @Test
+  public void sharded_network_stale_shards_test() {
+    try {
+      final String inputPath = Path.of(TEST_CASE_PATH.toString(), "sharded_network", "xml", "multiLayer").toString();
+      MacroscopicNetwork network = PlanitNetworkReaderFactory.create(inputPath).read();
+
+      final Path outputPath = createOutputDirectory("xml");
+      PlanitNetworkWriter shardedWriter = PlanitNetworkWriterFactory.create(outputPath.toString());
+      shardedWriter.getSettings().setSharded(true);
+      shardedWriter.write(network);
+
+      final String fileName = shardedWriter.getSettings().getFileName();
+      final Path manifestPath = outputPath.resolve(PlanitNetworkShardManifest.createManifestFileName(fileName));
+      final Path shardDirectory = outputPath.resolve(PlanitNetworkShardManifest.createShardDirectoryName(fileName));
+      assertTrue(Files.exists(manifestPath));
+      assertTrue(Files.isDirectory(shardDirectory));
+
+      PlanitNetworkWriterFactory.create(outputPath.toString()).write(network);
+      assertTrue(Files.exists(outputPath.resolve(fileName)));
+      assertTrue(Files.notExists(manifestPath));
+      assertTrue(Files.notExists(shardDirectory));
+      assertNetworkLayersIdentical(network, PlanitNetworkReaderFactory.create(outputPath.toString()).read());
+
+      shardedWriter = PlanitNetworkWriterFactory.create(outputPath.toString());
+      shardedWriter.getSettings().setSharded(true);
+      shardedWriter.write(network);
+      assertTrue(Files.notExists(outputPath.resolve(fileName)));
+      assertTrue(Files.exists(manifestPath));
+      assertNetworkLayersIdentical(network, PlanitNetworkReaderFactory.create(outputPath.toString()).read());
+    }catch(Exception e){
+      e.printStackTrace();
+      LOGGER.severe(e.getMessage());
+      fail(e.getMessage());
+    }
+  }
+
   /**
    * This test should verify that reading a network leads to a network that is exactly the same as writing this network
    * back to disk and reading it again 
@@ -291,6 +291,34 @@ public class PlanItIOTestRunner {
     outputConfiguration.setPersistZeroFlow(persistZeroFlow);
   }
 
+  /** indicate if output files should be written asynchronously by the PLANit output formatter
+   * @param asynchronousOutput to set
+   */
+  public void setAsynchronousOutput(boolean asynchronousOutput) {
+    xmlOutputFormatter.setAsynchronousOutput(asynchronousOutput);
+  }
+
+  /** indicate if the link segment costs should be persisted as binary file by the PLANit output formatter
+   * @param persistBinaryLinkSegmentCosts to set
+   */
+  public void setPersistBinaryLinkSegmentCosts(boolean persistBinaryLinkSegmentCosts) {
+    xmlOutputFormatter.setPersistBinaryLinkSegmentCosts(persistBinaryLinkSegmentCosts);
+  }
+
+  /** set the directory the PLANit output formatter persists its files in
+   * @param outputDirectory to use
+   */
+  public void setOutputDirectory(String outputDirectory) {
+    xmlOutputFormatter.setOutputDirectory(outputDirectory);
+  }
+
+  /** the binary link segment cost file persisted by the PLANit output formatter
+   * @return binary link segment cost file name, null if not persisted
+   */
+  public String getBinaryLinkSegmentCostsFileName() {
+    return xmlOutputFormatter.getBinaryLinkSegmentCostsFileName();
+  }
+
   /**
    * indicates using fixed connectoid costs (of zero)
    */  
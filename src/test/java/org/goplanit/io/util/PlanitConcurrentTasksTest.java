@@ -0,0 +1,64 @@
+package org.goplanit.io.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.goplanit.utils.exceptions.PlanItException;
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for performing tasks concurrently
+ *
+ * @author markr
+ *
+ */
+public class PlanitConcurrentTasksTest {
+
+  /**
+   * Results are collected in task order irrespective of the number of threads and the order in which tasks complete
+   */
+  @Test
+  public void results_in_task_order_test() throws Exception {
+    final List<Callable<Integer>> tasks = new ArrayList<>();
+    final List<Integer> expected = new ArrayList<>();
+    for(int index = 0; index < 16; ++index) {
+      final int taskIndex = index;
+      tasks.add(() -> {
+        Thread.sleep(16 - taskIndex);
+        return taskIndex;
+      });
+      expected.add(index);
+    }
+    for(int numberOfThreads : new int[] {0, 1, 4}) {
+      assertEquals(expected, PlanitConcurrentTasks.invokeAll(tasks, numberOfThreads, "testing"));
+      assertEquals(expected, PlanitConcurrentTasks.invokeAllChecked(tasks, numberOfThreads, "testing"));
+    }
+  }
+
+  /**
+   * PLANit exceptions thrown by a task are rethrown as is, other exceptions are wrapped with the original exception as cause
+   */
+  @Test
+  public void task_exception_test() {
+    final PlanItRunTimeException runTimeException = new PlanItRunTimeException("failed");
+    final PlanItException checkedException = new PlanItException("failed");
+    final IOException ioException = new IOException("failed");
+    for(int numberOfThreads : new int[] {1, 2}) {
+      assertSame(runTimeException, assertThrows(PlanItRunTimeException.class, () -> PlanitConcurrentTasks.invokeAll(
+          List.<Callable<Object>>of(() -> 1, () -> { throw runTimeException; }), numberOfThreads, "testing")));
+      assertSame(checkedException, assertThrows(PlanItException.class, () -> PlanitConcurrentTasks.invokeAllChecked(
+          List.<Callable<Object>>of(() -> 1, () -> { throw checkedException; }), numberOfThreads, "testing")));
+      assertSame(ioException, assertThrows(PlanItRunTimeException.class, () -> PlanitConcurrentTasks.invokeAll(
+          List.<Callable<Object>>of(() -> 1, () -> { throw ioException; }), numberOfThreads, "testing")).getCause());
+      assertSame(ioException, assertThrows(PlanItException.class, () -> PlanitConcurrentTasks.invokeAllChecked(
+          List.<Callable<Object>>of(() -> 1, () -> { throw ioException; }), numberOfThreads, "testing")).getCause());
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.goplanit.io.xml.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.goplanit.utils.exceptions.PlanItRunTimeException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the delimited double tokenizer
+ *
+ * @author markr
+ *
+ */
+public class DelimitedDoubleTokenizerTest {
+
+  /**
+   * Tokenize the sequence, offering the characters in chunks of the given size
+   *
+   * @param sequence to tokenize
+   * @param chunkSize number of characters per chunk
+   * @return parsed values
+   */
+  private static double[] tokenize(final String sequence, int chunkSize) {
+    final List<Double> values = new ArrayList<>();
+    final var tokenizer = new DelimitedDoubleTokenizer(',', (index, value) -> {
+      assertEquals(values.size(), index);
+      values.add(value);
+    });
+    final char[] chars = sequence.toCharArray();
+    for(int start = 0; start < chars.length; start += chunkSize) {
+      tokenizer.accept(chars, start, Math.min(chunkSize, chars.length - start));
+    }
+    assertEquals(values.size(), tokenizer.complete());
+    return values.stream().mapToDouble(Double::doubleValue).toArray();
+  }
+
+  /**
+   * Values are parsed irrespective of surrounding whitespace and chunk boundaries, trailing empty values are ignored
+   */
+  @Test
+  public void tokenize_valid_sequence_test() {
+    final double[] expected = {1.0, 2.5, -3e2, 4.0};
+    for(int chunkSize : new int[] {1, 2, 100}) {
+      assertArrayEquals(expected, tokenize("1,2.5,-3e2,4", chunkSize));
+      assertArrayEquals(expected, tokenize(" 1 ,\n 2.5,\t-3e2 , 4 ", chunkSize));
+      assertArrayEquals(expected, tokenize("1,2.5,-3e2,4,", chunkSize));
+    }
+  }
+
+  /**
+   * An empty value followed by other values would shift all subsequent positions, so it is rejected
+   */
+  @Test
+  public void tokenize_empty_value_test() {
+    for(int chunkSize : new int[] {1, 100}) {
+      assertThrows(PlanItRunTimeException.class, () -> tokenize("1,,2", chunkSize));
+      assertThrows(PlanItRunTimeException.class, () -> tokenize(",1,2", chunkSize));
+      assertThrows(PlanItRunTimeException.class, () -> tokenize("1, ,2", chunkSize));
+    }
+  }
+
+  /**
+   * Whitespace within a value is rejected rather than concatenating the parts around it
+   */
+  @Test
+  public void tokenize_internal_whitespace_test() {
+    for(int chunkSize : new int[] {1, 100}) {
+      assertThrows(PlanItRunTimeException.class, () -> tokenize("1 2", chunkSize));
+      assertThrows(PlanItRunTimeException.class, () -> tokenize("1,2\n3,4", chunkSize));
+    }
+  }
+}
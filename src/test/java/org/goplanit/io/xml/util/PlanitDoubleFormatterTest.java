@@ -0,0 +1,70 @@
+package org.goplanit.io.xml.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the double formatters
+ *
+ * @author markr
+ *
+ */
+public class PlanitDoubleFormatterTest {
+
+  /**
+   * Verify the fixed precision double formatter rounds half even without trailing zeros and the shortest round trip formatter loses no
+   * precision
+   */
+  @Test
+  public void double_formatter_test() {
+    var fixedPrecision = PlanitDoubleFormatter.fixedPrecision(4, '.');
+    assertEquals("0", fixedPrecision.format(0));
+    assertEquals("0", fixedPrecision.format(-0.00001));
+    assertEquals("12", fixedPrecision.format(12.00001));
+    assertEquals("-123.4568", fixedPrecision.format(-123.45678));
+    assertEquals("0.0312", fixedPrecision.format(0.03125));
+    assertEquals("0.0938", fixedPrecision.format(0.09375));
+    assertEquals("0.5", fixedPrecision.format(0.5));
+    assertEquals("100000000000000000000", fixedPrecision.format(1e20));
+    assertEquals("NaN", fixedPrecision.format(Double.NaN));
+    assertEquals("1579440,7399", PlanitDoubleFormatter.fixedPrecision(4, ',').format(1579440.73988827));
+
+    var shortestRoundTrip = PlanitDoubleFormatter.shortestRoundTrip('.');
+    var buffer = new StringBuilder();
+    for(double value : new double[] {0.1, -3922232.65142029, 1e-7, Math.PI}) {
+      buffer.setLength(0);
+      shortestRoundTrip.appendTo(value, buffer);
+      assertEquals(value, Double.parseDouble(buffer.toString()));
+    }
+  }
+
+  /**
+   * Verify a formatter derived from a decimal format produces the same output as the decimal format, including grouping, minimum fraction
+   * digits and rounding mode, using the given decimal separator
+   */
+  @Test
+  public void decimal_format_double_formatter_test() {
+    final var symbols = DecimalFormatSymbols.getInstance(Locale.ROOT);
+    final double[] values = {0, 0.5, 0.03125, 1234567.891, -123.45678, 12.00001};
+
+    final var halfUp = new DecimalFormat("0.####", symbols);
+    halfUp.setRoundingMode(RoundingMode.HALF_UP);
+    final var minimumFractionDigits = new DecimalFormat("0.00##", symbols);
+    final var grouping = new DecimalFormat("#,##0.##", symbols);
+    for(DecimalFormat decimalFormat : new DecimalFormat[] {new DecimalFormat("0.####", symbols), halfUp, minimumFractionDigits, grouping}) {
+      var formatter = PlanitDoubleFormatter.of(decimalFormat, '.');
+      for(double value : values) {
+        assertEquals(decimalFormat.format(value), formatter.format(value));
+      }
+    }
+
+    assertEquals("0,0313", PlanitDoubleFormatter.of(halfUp, ',').format(0.03125));
+    assertEquals("1,50", PlanitDoubleFormatter.of(minimumFractionDigits, ',').format(1.5));
+  }
+}
@@ -0,0 +1,129 @@
+package org.goplanit.io.xml.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the catalog of bundled PLANit schemas
+ *
+ * @author markr
+ *
+ */
+public class PlanitSchemaCatalogTest {
+
+  /** all published PLANit schemas */
+  private static final List<String> PLANIT_SCHEMAS = List.of(
+      PlanitSchema.MACROSCOPIC_COMBINED_INPUT_XSD,
+      PlanitSchema.MACROSCOPIC_NETWORK_XSD,
+      PlanitSchema.MACROSCOPIC_ZONING_XSD,
+      PlanitSchema.MACROSCOPIC_DEMAND_XSD,
+      PlanitSchema.SERVICE_NETWORK_XSD,
+      PlanitSchema.ROUTED_SERVICES_XSD,
+      PlanitSchema.METADATA_XSD);
+
+  /** schemas imported (directly or indirectly) by the PLANit schemas, bundled from versioned schema artifacts */
+  private static final List<String> IMPORTED_SCHEMAS = List.of(
+      "http://schemas.opengis.net/gml/3.1.1/base/gml.xsd",
+      "http://schemas.opengis.net/gml/3.1.1/base/geometryBasic0d1d.xsd",
+      "http://schemas.opengis.net/gml/3.1.1/smil/smil20.xsd",
+      "http://www.w3.org/1999/xlink.xsd",
+      "http://www.w3.org/2001/xml.xsd");
+
+  /** metadata output of an assignment, validated against the bundled metadata schema */
+  private static final Path METADATA_FILE = Path.of("src","test","resources","testcases","basicShortestPathAlgorithm","xml","AtoC","Link_Time_Period_1.xml");
+
+  /** network with GML geometries, validated against the bundled network schema and its GML imports */
+  private static final Path NETWORK_FILE = Path.of("src","test","resources","testcases","converter_test","network.xml");
+
+  /** zoning with GML geometries, validated against the bundled zoning schema and its GML imports */
+  private static final Path ZONING_FILE = Path.of("src","test","resources","testcases","converter_test","zoning.xml");
+
+  /**
+   * Validate the file against the bundled version of the given PLANit schema with access to remote schemas disabled, i.e., without network access
+   *
+   * @param planitSchema file name of the PLANit schema to validate against
+   * @param xmlFile to validate
+   * @throws Exception thrown if invalid or schema cannot be compiled offline
+   */
+  private static void validateOffline(final String planitSchema, final Path xmlFile) throws Exception {
+    SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+    schemaFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,jar");
+    schemaFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    schemaFactory.setResourceResolver(PlanitSchemaCatalog.createResourceResolver());
+    Schema schema = schemaFactory.newSchema(new URL(PlanitSchemaCatalog.resolve(PlanitSchema.XSD_SCHEMA_URI_DEVELOPMENT_GENERIC + planitSchema)));
+
+    Validator validator = schema.newValidator();
+    validator.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,jar");
+    validator.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    validator.validate(new StreamSource(xmlFile.toFile()));
+  }
+
+  /**
+   * Every published PLANit schema is bundled and resolved to its bundled version rather than its remote location
+   */
+  @Test
+  public void bundled_planit_schemas_test() {
+    for(String schema : PLANIT_SCHEMAS) {
+      String schemaLocation = PlanitSchema.XSD_SCHEMA_URI_DEVELOPMENT_GENERIC + schema;
+      URL bundledSchema = PlanitSchemaCatalog.findBundledSchema(schemaLocation);
+      assertNotNull(bundledSchema, schema + " is not bundled");
+      assertEquals(bundledSchema.toString(), PlanitSchemaCatalog.resolve(schemaLocation));
+      assertFalse(PlanitSchemaCatalog.resolve(schemaLocation).startsWith("http"));
+    }
+  }
+
+  /**
+   * The GML, XLink and XML schemas imported by the PLANit schemas are bundled and resolved to their bundled version rather than their remote location
+   */
+  @Test
+  public void bundled_imported_schemas_test() {
+    for(String schemaLocation : IMPORTED_SCHEMAS) {
+      URL bundledSchema = PlanitSchemaCatalog.findBundledSchema(schemaLocation);
+      assertNotNull(bundledSchema, schemaLocation + " is not bundled");
+      assertFalse(PlanitSchemaCatalog.resolve(schemaLocation).startsWith("http"));
+    }
+  }
+
+  /**
+   * The bundled metadata schema is compiled and used for validation without network access
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void offline_metadata_validation_test() throws Exception {
+    validateOffline(PlanitSchema.METADATA_XSD, METADATA_FILE);
+  }
+
+  /**
+   * The bundled network schema, including its GML imports, is compiled and used for validation without network access
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void offline_network_validation_test() throws Exception {
+    validateOffline(PlanitSchema.MACROSCOPIC_NETWORK_XSD, NETWORK_FILE);
+  }
+
+  /**
+   * The bundled zoning schema, including its GML imports, is compiled and used for validation without network access
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void offline_zoning_validation_test() throws Exception {
+    validateOffline(PlanitSchema.MACROSCOPIC_ZONING_XSD, ZONING_FILE);
+  }
+}
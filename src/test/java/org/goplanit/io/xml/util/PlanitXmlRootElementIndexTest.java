@@ -0,0 +1,53 @@
+package org.goplanit.io.xml.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the index of XML root elements in a directory
+ *
+ * @author markr
+ *
+ */
+public class PlanitXmlRootElementIndexTest {
+
+  /** temporary directory of the current test, removed afterwards */
+  @TempDir
+  Path tempDirectory;
+
+  /**
+   * A file rewritten with the same size and modification time is identified by its new root element in a newly created index, while an existing
+   * index remains a snapshot of the directory at its creation
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void rewritten_file_test() throws Exception {
+    final Path xmlFile = tempDirectory.resolve("input.xml");
+    Files.writeString(xmlFile, "<macroscopicnetwork id=\"1\"/>", StandardCharsets.UTF_8);
+    final FileTime lastModified = Files.getLastModifiedTime(xmlFile);
+
+    final var index = PlanitXmlRootElementIndex.create(tempDirectory.toString(), ".xml");
+    assertEquals(xmlFile.toFile().getName(), index.findFirstFileWithRootElement("macroscopicnetwork").getName());
+
+    /* same length and modification time, different root element */
+    Files.writeString(xmlFile, "<macroscopiczoning  id=\"1\"/>", StandardCharsets.UTF_8);
+    Files.setLastModifiedTime(xmlFile, lastModified);
+
+    final File sameIndexFile = index.findFirstFileWithRootElement("macroscopicnetwork");
+    assertEquals(xmlFile.toFile().getName(), sameIndexFile.getName());
+
+    final var newIndex = PlanitXmlRootElementIndex.create(tempDirectory.toString(), ".xml");
+    assertNull(newIndex.findFirstFileWithRootElement("macroscopicnetwork"));
+    assertEquals(xmlFile.toFile().getName(), newIndex.findFirstFileWithRootElement("macroscopiczoning").getName());
+  }
+}
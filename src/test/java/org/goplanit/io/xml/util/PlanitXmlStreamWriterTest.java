@@ -0,0 +1,143 @@
+package org.goplanit.io.xml.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.goplanit.io.geo.PlanitGmlUtils;
+import org.goplanit.xml.generated.XMLElementInfrastructureLayer;
+import org.goplanit.xml.generated.XMLElementInfrastructureLayers;
+import org.goplanit.xml.generated.XMLElementLinks;
+import org.goplanit.xml.generated.XMLElementMacroscopicNetwork;
+import org.goplanit.xml.generated.XMLElementNodes;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+
+/**
+ * Unit tests for the StAX writer producing the same output as JAXB marshalling with formatted output
+ *
+ * @author markr
+ *
+ */
+public class PlanitXmlStreamWriterTest {
+
+  /** schema location referenced in the documents */
+  private static final String SCHEMA_URI = PlanitSchema.XSD_SCHEMA_URI_DEVELOPMENT_GENERIC + PlanitSchema.MACROSCOPIC_NETWORK_XSD;
+
+  /**
+   * Create a node with characters that require escaping in its external id and name
+   *
+   * @param index of the node
+   * @return created node
+   */
+  private static XMLElementNodes.Node createNode(int index) {
+    var xmlNode = new XMLElementNodes.Node();
+    xmlNode.setId(String.valueOf(index));
+    if(index % 2 == 0) {
+      xmlNode.setExternalid("a&b<\"c\">\n\t" + index);
+    }
+    xmlNode.setName(index % 3 == 0 ? "" : "name & <" + index + ">\r\n");
+    xmlNode.setPoint(PlanitGmlUtils.createGmlPointType(new Coordinate(index / 3.0, -2e10 * index)));
+    return xmlNode;
+  }
+
+  /**
+   * Create network with layers holding the given number of nodes each, or empty node placeholders
+   *
+   * @param numberOfNodes per layer
+   * @param withNodes when false placeholders without nodes are created instead
+   * @return created network
+   */
+  private static XMLElementMacroscopicNetwork createNetwork(final List<Integer> numberOfNodes, boolean withNodes) {
+    var xmlNetwork = new XMLElementMacroscopicNetwork();
+    xmlNetwork.setId("network");
+    xmlNetwork.setInfrastructurelayers(new XMLElementInfrastructureLayers());
+    for(int layerIndex = 0; layerIndex < numberOfNodes.size(); ++layerIndex) {
+      var xmlLayer = new XMLElementInfrastructureLayer();
+      xmlLayer.setId(String.valueOf(layerIndex));
+      xmlLayer.setNodes(new XMLElementNodes());
+      xmlLayer.setLinks(new XMLElementLinks());
+      if(withNodes) {
+        for(int index = 0; index < numberOfNodes.get(layerIndex); ++index) {
+          xmlLayer.getNodes().getNode().add(createNode(index));
+        }
+      }
+      xmlNetwork.getInfrastructurelayers().getLayer().add(xmlLayer);
+    }
+    return xmlNetwork;
+  }
+
+  /**
+   * Marshal with formatted output to a stream
+   *
+   * @param xmlNetwork to marshal
+   * @return marshalled bytes
+   * @throws Exception thrown if error
+   */
+  private static byte[] marshal(final XMLElementMacroscopicNetwork xmlNetwork) throws Exception {
+    var bytes = new ByteArrayOutputStream();
+    PlanitJaxbCache.marshal(xmlNetwork, XMLElementMacroscopicNetwork.class, bytes, SCHEMA_URI);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Marshalling onto the stream writer is byte identical to marshalling with formatted output, including escaping, namespace declarations and
+   * empty elements
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void jaxb_identical_test() throws Exception {
+    var xmlNetwork = createNetwork(List.of(0, 4, 7), true);
+
+    var bytes = new ByteArrayOutputStream();
+    var xmlWriter = PlanitXmlStreamWriter.create(bytes);
+    PlanitJaxbCache.marshal(xmlNetwork, XMLElementMacroscopicNetwork.class, xmlWriter, SCHEMA_URI);
+    xmlWriter.close();
+
+    assertArrayEquals(marshal(xmlNetwork), bytes.toByteArray());
+  }
+
+  /**
+   * Nodes written with StAX in place of empty placeholders result in the same document as marshalling the complete memory model
+   *
+   * @throws Exception thrown if error
+   */
+  @Test
+  public void empty_element_handler_test() throws Exception {
+    final List<Integer> numberOfNodes = List.of(0, 4, 7);
+    final int[] layerIndex = {0};
+
+    var bytes = new ByteArrayOutputStream();
+    var xmlWriter = PlanitXmlStreamWriter.create(bytes);
+    xmlWriter.setEmptyElementHandler((localName, parentLocalName, writer) -> {
+      if(!"nodes".equals(localName) || !"layer".equals(parentLocalName)) {
+        return;
+      }
+      for(int index = 0; index < numberOfNodes.get(layerIndex[0]); ++index) {
+        var xmlNode = createNode(index);
+        writer.writeStartElement("node");
+        writer.writeAttribute("id", xmlNode.getId());
+        if(xmlNode.getExternalid() != null) {
+          writer.writeAttribute("externalid", xmlNode.getExternalid());
+        }
+        writer.writeTextElement("name", xmlNode.getName());
+        writer.writeStartElement(PlanitGmlUtils.GML_NAMESPACE_URI, "Point");
+        writer.writeStartElement(PlanitGmlUtils.GML_NAMESPACE_URI, "pos");
+        writer.writeCharacters(DatatypeConverter.printDouble(xmlNode.getPoint().getPos().getValue().get(0)) + " "
+            + DatatypeConverter.printDouble(xmlNode.getPoint().getPos().getValue().get(1)));
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndElement();
+      }
+      ++layerIndex[0];
+    });
+    PlanitJaxbCache.marshal(createNetwork(numberOfNodes, false), XMLElementMacroscopicNetwork.class, xmlWriter, SCHEMA_URI);
+    xmlWriter.close();
+
+    assertArrayEquals(marshal(createNetwork(numberOfNodes, true)), bytes.toByteArray());
+  }
+}